@@ -24,6 +24,8 @@ import edu.belmont.mth.visigraph.models.functions.*;
 				return true;
 			case Function.Attribute.ALLOWS_ONE_TIME_EVALUATION:
 				return true;
+			case Function.Attribute.DEPENDENCIES:
+				return new Function.Dependency[ ] { Function.Dependency.STRUCTURE };
 			case Function.Attribute.RELATED_GENERATORS:
 				return new String[ ] { "Random graph (Gilbert)" };
 			case Function.Attribute.RELATED_FUNCTIONS:
@@ -13,14 +13,8 @@ import edu.belmont.mth.visigraph.models.functions.*;
 		if( GraphUtilities.findStronglyConnectedComponents( g ).size( ) > 1 )
 			return "\u221E";
 		
-		double[ ][ ] distances = GraphUtilities.getDistanceMatrix( g, false );
-		
-		double maxEccentricity = Double.NEGATIVE_INFINITY;
-		for( int i = 0; i < g.vertices.size( ); ++i )
-			for( int j = 0; j < g.vertices.size( ); ++j )
-				maxEccentricity = Math.max( maxEccentricity, distances[i][j] );
-		
-		return ( maxEccentricity == Double.POSITIVE_INFINITY ? "\u221E" : Long.toString( Math.round( maxEccentricity ) ) );
+		double diameter = GraphUtilities.getDiameter( g, false );
+		return ( diameter == Double.POSITIVE_INFINITY ? "\u221E" : Long.toString( Math.round( diameter ) ) );
 	}
 	
 	
@@ -33,13 +27,15 @@ import edu.belmont.mth.visigraph.models.functions.*;
 			case Function.Attribute.VERSION:
 				return "20110105";
 			case Function.Attribute.DESCRIPTION:
-				return "Returns the diameter of a given graph without respect to the edges' weights.  The <i>diameter</i> of a graph is the maximum eccentricity of any vertex in the graph (i.e. the longest shortest-path between any pair of vertices).</p><p>Before attempting to find the diameter, a quicker connectivity test is run to determine whether it is first finite.  For undirected graphs, " + GlobalSettings.applicationName + "'s built-in implementation of a union-find algorithm is used with union-by-rank and path-flattening optimizations to perform the test in <code><i>O</i>(|<i>V</i>|\u03B1(|<i>E</i>|))</code> time where <code>\u03B1(<i>n</i>)</code> is the inverse Ackermann function.  For directed graphs, " + GlobalSettings.applicationName + "'s built-in implementation of Tarjan's strongly connected components algorithm is used to perform the test in <code><i>O</i>(|<i>V</i>| + |<i>E</i>|)</code> time.  If multiple (strongly) connected components are found, the graph's diameter is infinite and the function returns \u221E.</p><p>If, however the graph's diameter is found to be finite, " + GlobalSettings.applicationName + "'s built-in implementation of the Roy-Floyd-Warshall algorithm is used to efficiently compute the geodesic distance between each pair of vertices in <code><i>O</i>(|<i>V</i>|<sup>3</sup>)</code> time.  The longest of these geodesics is found in <code><i>O</i>(|<i>V</i>|<sup>2</sup>)</code> time and returned.";
+				return "Returns the diameter of a given graph without respect to the edges' weights.  The <i>diameter</i> of a graph is the maximum eccentricity of any vertex in the graph (i.e. the longest shortest-path between any pair of vertices).</p><p>Before attempting to find the diameter, a quicker connectivity test is run to determine whether it is first finite.  For undirected graphs, " + GlobalSettings.applicationName + "'s built-in implementation of a union-find algorithm is used with union-by-rank and path-flattening optimizations to perform the test in <code><i>O</i>(|<i>V</i>|\u03B1(|<i>E</i>|))</code> time where <code>\u03B1(<i>n</i>)</code> is the inverse Ackermann function.  For directed graphs, " + GlobalSettings.applicationName + "'s built-in implementation of Tarjan's strongly connected components algorithm is used to perform the test in <code><i>O</i>(|<i>V</i>| + |<i>E</i>|)</code> time.  If multiple (strongly) connected components are found, the graph's diameter is infinite and the function returns \u221E.</p><p>If, however the graph's diameter is found to be finite, " + GlobalSettings.applicationName + "'s built-in implementation of the iFUB algorithm is used for undirected graphs: breadth-first searches are run from a central vertex and then from the vertices farthest from it, fringe by fringe, only until no pair of vertices not yet searched from could lie farther apart than the longest geodesic already found.  Though <code><i>O</i>(|<i>V</i>|(|<i>V</i>| + |<i>E</i>|))</code> time in the worst case, this usually takes only a handful of searches.  For directed graphs, a breadth-first search is run from each vertex, with the searches spread across the available processors, in <code><i>O</i>(|<i>V</i>|(|<i>V</i>| + |<i>E</i>|))</code> time.  Each vertex's eccentricity is kept as soon as its search finishes, so that only <code><i>O</i>(|<i>V</i>|)</code> memory is needed per processor, and the greatest is returned.";
 			case Function.Attribute.OUTPUT:
 				return "The diameter of the graph (using geodesic distances).  <i>Note: for graphs with more than one (strongly) connected component this function always returns \u221E.</i>";
 			case Function.Attribute.ALLOWS_DYNAMIC_EVALUATION:
 				return false;
 			case Function.Attribute.ALLOWS_ONE_TIME_EVALUATION:
 				return true;
+			case Function.Attribute.DEPENDENCIES:
+				return new Function.Dependency[ ] { Function.Dependency.STRUCTURE };
 			case Function.Attribute.RELATED_FUNCTIONS:
 				return new String[ ] { "Calculate diameter (weighted)", "Calculate eccentricity (unweighted)", "Calculate eccentricity (weighted)", "Calculate radius (unweighted)", "Calculate radius (weighted)", "Count connected components", "Count strongly connected componenets" };
 			case Function.Attribute.TAGS:
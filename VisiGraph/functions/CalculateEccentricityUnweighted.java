@@ -1,20 +1,8 @@
 import java.awt.*;
-import java.util.*;
 import java.util.List;
 import edu.belmont.mth.visigraph.models.*;
+import edu.belmont.mth.visigraph.utilities.*;
 import edu.belmont.mth.visigraph.models.functions.*;
-
-	class Leaf
-	{
-		Vertex	vertex;
-		int		distance;
-		
-		public Leaf( Vertex vertex, int distance )
-		{
-			this.vertex = vertex;
-			this.distance = distance;
-		}
-	}
 	
 	public String evaluate( Graphics2D g2D, Graph g, Component owner )
 	{
@@ -24,33 +12,8 @@ import edu.belmont.mth.visigraph.models.functions.*;
 		else if( selectedVertices.size( ) > 1 )
 			return "More than one vertex selected!";
 		
-		List leaves = new LinkedList( );
-		Map vertexDistances = new HashMap( );
-		
-		for( Vertex vertex : g.vertices )
-			vertexDistances.put( vertex, Integer.MAX_VALUE );
-		
-		leaves.add( new Leaf( selectedVertices.get( 0 ), 0 ) );
-		
-		while( !leaves.isEmpty( ) )
-		{
-			Leaf leaf = (Leaf) leaves.pop( );
-			
-			if( leaf.distance < vertexDistances.get( leaf.vertex ) )
-			{
-				vertexDistances.put( leaf.vertex, leaf.distance );
-				
-				for( Vertex neighbor : g.getNeighbors( leaf.vertex ) )
-					leaves.add( new Leaf( neighbor, leaf.distance + 1 ) );
-			}
-		}
-		
-		int maxDistance = 0;
-		for( Integer distance : vertexDistances.values( ) )
-			if( distance > maxDistance )
-				maxDistance = distance;
-		
-		return ( maxDistance == Integer.MAX_VALUE ? "\u221E" : Integer.toString( maxDistance ) );
+		double eccentricity = GraphUtilities.getEccentricity( g, selectedVertices.get( 0 ), false );
+		return ( eccentricity == Double.POSITIVE_INFINITY ? "\u221E" : Long.toString( Math.round( eccentricity ) ) );
 	}
 	
 	public Object getAttribute( Function.Attribute attribute )
@@ -62,7 +25,7 @@ import edu.belmont.mth.visigraph.models.functions.*;
 			case Function.Attribute.VERSION:
 				return "20110101";
 			case Function.Attribute.DESCRIPTION:
-				return "Returns the eccentricity of the selected vertex without respect to edge weights.  The <i>eccentricity</i> of a vertex is the longest shortest-path from it to any other vertex in the graph.</p><p>Using Dijkstra's algorithm, the specified vertex's eccentricity is found in <code><i>O</i>((|<i>V</i>| + |<i>E</i>|) <i>log</i> |<i>V</i>|)</code> time.";
+				return "Returns the eccentricity of the selected vertex without respect to edge weights.  The <i>eccentricity</i> of a vertex is the longest shortest-path from it to any other vertex in the graph.</p><p>Using a breadth-first search, the specified vertex's eccentricity is found in <code><i>O</i>(|<i>V</i>| + |<i>E</i>|)</code> time.";
 			case Function.Attribute.INPUT:
 				return "The selected vertex.";
 			case Function.Attribute.OUTPUT:
@@ -7,24 +7,19 @@ import edu.belmont.mth.visigraph.models.functions.*;
 
 	public String evaluate( Graphics2D g2D, Graph g, Component owner )
 	{
-		Collection components = GraphUtilities.findWeaklyConnectedComponents( g );
+		ComponentIndex components = g.getComponentIndex( );
 		
 		g.suspendNotifications( true );
 		
-		int color = 0;
-		for( Collection component : components )
-		{
-			for( Vertex vertex : component )
-				vertex.color.set( color );
-			++color;
-		}
+		for( Vertex vertex : g.vertices )
+			vertex.color.set( components.getComponent( vertex ) );
 		
 		for( Edge edge : g.edges )
 			edge.color.set( edge.from.color.get( ) );
 		
 		g.suspendNotifications( false );
 		
-		return Integer.toString( components.size( ) );
+		return Integer.toString( components.getComponentCount( ) );
 	}
 	
 	public Object getAttribute( Function.Attribute attribute )
@@ -36,7 +31,7 @@ import edu.belmont.mth.visigraph.models.functions.*;
 			case Function.Attribute.VERSION:
 				return "20110101";
 			case Function.Attribute.DESCRIPTION:
-				return "Colors the vertices and edges of a given graph according to their membership to connected components and returns the total number of connected components found.</p><p>" + GlobalSettings.applicationName + "'s built-in implementation of a union-find algorithm is used with union-by-rank and path-flattening optimizations to perform the test in <code><i>O</i>(|<i>V</i>|\u03B1(|<i>E</i>|))</code> time where <code>\u03B1(<i>n</i>)</code> is the inverse Ackermann function.";
+				return "Colors the vertices and edges of a given graph according to their membership to connected components and returns the total number of connected components found.</p><p>" + GlobalSettings.applicationName + "'s built-in component index keeps track of every graph's components as it is edited, using a union-find structure with union-by-rank and path-flattening optimizations to merge them as edges are added, and splitting them only where necessary as edges are removed.  The component of each vertex is thus found in near-constant time, and the coloring done in <code><i>O</i>(|<i>V</i>| + |<i>E</i>|)</code> time.";
 			case Function.Attribute.SIDE_EFFECTS:
 				return "The color of each vertex and edge will be set to the color incrementally-chosen for its connected component.";
 			case Function.Attribute.OUTPUT:
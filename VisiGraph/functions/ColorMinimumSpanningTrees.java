@@ -6,12 +6,20 @@ import edu.belmont.mth.visigraph.models.functions.*;
 
 	class NeighborPair implements Comparable
 	{
-		Vertex	vertex;
-		Edge	edge;
+		int		vertex;
+		int		edge;
+		double	weight;
+		
+		public NeighborPair( int vertex, int edge, double weight )
+		{
+			this.vertex = vertex;
+			this.edge = edge;
+			this.weight = weight;
+		}
 		
 		public int compareTo( Object o )
 		{
-			return (int) Math.signum( ( this.edge == null ? 0 : this.edge.weight.get( ) ) - ( o.edge == null ? 0 : o.edge.weight.get( ) ) );
+			return (int) Math.signum( this.weight - o.weight );
 		}
 	}
 	
@@ -31,8 +39,9 @@ import edu.belmont.mth.visigraph.models.functions.*;
 		
 		g.suspendNotifications( false );
 		
-		// Initialize the list of vertices not yet visited
-		Set unvisited = new HashSet( g.vertices );
+		// Initialize the flags marking the vertices already visited
+		AdjacencyIndex adjacency = g.getAdjacencyIndex( );
+		boolean[ ] isVisited = new boolean[adjacency.getVertexCount( )];
 		
 		// Initialize the queue of vertex-edge pairs about to be visited (sorted in ascending order by weight)
 		PriorityQueue visiting = new PriorityQueue( );
@@ -46,18 +55,19 @@ import edu.belmont.mth.visigraph.models.functions.*;
 		g.suspendNotifications( true );
 		
 		// While there are still vertices to be visited by a minimum spanning tree, perform Prim's algorithm...
-		while( !unvisited.isEmpty( ) )
+		for( int rootVertex = 0; rootVertex < isVisited.length; ++rootVertex )
 		{
+			if( isVisited[rootVertex] )
+				continue;
+			
 			// Switch to the next color
 			++color;
 			
 			// Set this minimum spanning tree's weight
 			treeWeights.add( 0.0 );
 			
-			// Add an unvisited vertex to the queue with a null edge (s.t. weight = 0)
-			NeighborPair root = new NeighborPair( );
-			root.vertex = (Vertex) unvisited.iterator( ).next( );
-			visiting.add( root );
+			// Add the unvisited vertex to the queue with no edge (s.t. weight = 0)
+			visiting.add( new NeighborPair( rootVertex, -1, 0.0 ) );
 			
 			// While there are still connected vertices to be visited...
 			while( !visiting.isEmpty( ) )
@@ -66,26 +76,25 @@ import edu.belmont.mth.visigraph.models.functions.*;
 				NeighborPair pair = (NeighborPair) visiting.remove( );
 				
 				// If it hasn't already been visited...
-				if( unvisited.contains( pair.vertex ) )
+				if( !isVisited[pair.vertex] )
 				{
 					// Mark it as visited
-					unvisited.remove( pair.vertex );
+					isVisited[pair.vertex] = true;
 					
 					// Recolor it and the edge it came through
-					pair.vertex.color.set( color );
-					if( pair.edge != null )
+					adjacency.getVertex( pair.vertex ).color.set( color );
+					if( pair.edge >= 0 )
 					{
-						pair.edge.color.set( color );
-						treeWeights.set( color, treeWeights.get( color ) + pair.edge.weight.get( ) );
+						adjacency.getEdge( pair.edge ).color.set( color );
+						treeWeights.set( color, treeWeights.get( color ) + pair.weight );
 					}
 					
 					// And add all its neighbors to the queue
-					for( Edge edge : g.getEdges( pair.vertex ) )
+					int[ ] incidentEdges = adjacency.getIncidentEdges( pair.vertex );
+					for( int i = 0; i < adjacency.getDegree( pair.vertex ); ++i )
 					{
-						NeighborPair np = new NeighborPair( );
-						np.vertex = ( edge.from == pair.vertex ? edge.to : edge.from );
-						np.edge = edge;
-						visiting.add( np );
+						int edge = incidentEdges[i];
+						visiting.add( new NeighborPair( adjacency.getOpposite( edge, pair.vertex ), edge, adjacency.getEdge( edge ).weight.get( ) ) );
 					}
 				}
 			}
@@ -4,70 +4,58 @@ import java.util.List;
 import edu.belmont.mth.visigraph.models.*;
 import edu.belmont.mth.visigraph.models.functions.*;
 
-	class Leaf
+	private int colorShortestDistanceBetween( Graph g, Vertex from, Vertex to, int color )
 	{
-		Vertex	vertex;
-		Edge	edge;
-		int		distance;
+		AdjacencyIndex adjacency = g.getAdjacencyIndex( );
+		int vertexCount = adjacency.getVertexCount( );
+		int source = adjacency.indexOf( from ), target = adjacency.indexOf( to );
 		
-		public Leaf( Vertex vertex, Edge edge, int distance )
-		{
-			this.vertex = vertex;
-			this.edge = edge;
-			this.distance = distance;
-		}
+		// The distance of each vertex from the source, or -1 if it has not yet been reached, and the edge through which it was reached
+		int[ ] distances = new int[vertexCount], parentEdges = new int[vertexCount];
+		Arrays.fill( distances, -1 );
 		
-		public Leaf( Vertex vertex, int distance )
-		{
-			this.vertex = vertex;
-			this.distance = distance;
-		}
-	}
-	
-	private double colorShortestDistanceBetween( Graph g, Vertex from, Vertex to, int color )
-	{
-		Map distances = new HashMap( );
+		int[ ] leaves = new int[vertexCount];
+		int head = 0, tail = 0;
 		
-		LinkedList leaves = new LinkedList( );
-		leaves.addLast( new Leaf( from, 0 ) );
+		distances[source] = 0;
+		parentEdges[source] = -1;
+		leaves[tail++] = source;
 		
-		while( !leaves.isEmpty( ) )
+		while( head < tail && distances[target] < 0 )
 		{
-			Leaf leaf = leaves.pop( );
-			
-			if( !distances.containsKey( leaf.vertex ) || leaf.distance < distances.get( leaf.vertex ).distance )
+			int leaf = leaves[head++];
+			int[ ] incidentEdges = adjacency.getIncidentEdges( leaf );
+		
+			for( int i = 0; i < adjacency.getDegree( leaf ); ++i )
 			{
-				distances.put( leaf.vertex, leaf );
-				
-				if( leaf.vertex == to )
-					break;
-				
-				for( Edge edge : g.getEdges( leaf.vertex ) )
-					if( !edge.isLoop )
-						leaves.addLast( new Leaf( ( edge.from == leaf.vertex ? edge.to : edge.from ), edge, leaf.distance + 1 ) );
+				int neighbor = adjacency.getOpposite( incidentEdges[i], leaf );
+				if( distances[neighbor] < 0 )
+				{
+					distances[neighbor] = distances[leaf] + 1;
+					parentEdges[neighbor] = incidentEdges[i];
+					leaves[tail++] = neighbor;
+				}
 			}
 		}
 		
-		if( !distances.containsKey( to ) )
+		if( distances[target] < 0 )
 			return Integer.MAX_VALUE;
 		
 		g.suspendNotifications( true );
 		
-		Leaf lastLeaf = distances.get( to );
 		to.color.set( color );
-		
-		while( lastLeaf.edge != null )
+		for( int vertex = target; parentEdges[vertex] >= 0; )
 		{
-			Vertex other = ( lastLeaf.vertex == lastLeaf.edge.from ? lastLeaf.edge.to : lastLeaf.edge.from );
-			
-			other.color.set( color );
-			lastLeaf.edge.color.set( color );
-			lastLeaf = distances.get( other );
+			int edge = parentEdges[vertex];
+			vertex = adjacency.getOpposite( edge, vertex );
+		
+			adjacency.getVertex( vertex ).color.set( color );
+			adjacency.getEdge( edge ).color.set( color );
 		}
 		
 		g.suspendNotifications( false );
 		
-		return distances.get( to ).distance;
+		return distances[target];
 	}
 	
 	public String evaluate( Graphics2D g2d, Graph g, Component owner )
@@ -4,72 +4,77 @@ import java.util.List;
 import edu.belmont.mth.visigraph.models.*;
 import edu.belmont.mth.visigraph.models.functions.*;
 
-	class Leaf
-	{
-		Vertex	vertex;
-		Edge	edge;
-		double	distance;
-		
-		public Leaf( Vertex vertex, double distance )
-		{
-			this.vertex = vertex;
-			this.distance = distance;
-		}
-		
-		public Leaf( Vertex vertex, Edge edge, double distance )
-		{
-			this.vertex = vertex;
-			this.edge = edge;
-			this.distance = distance;
-		}
-	}
-	
 	private double colorShortestDistanceBetween( Graph g, Vertex from, Vertex to, int color )
 	{
-		Map distances = new HashMap( );
-		
-		LinkedList leaves = new LinkedList( );
-		leaves.addLast( new Leaf( from, 0.0 ) );
-		
-		double minDistanceSoFar = Double.POSITIVE_INFINITY;
-		
-		while( !leaves.isEmpty( ) )
+		AdjacencyIndex adjacency = g.getAdjacencyIndex( );
+		int vertexCount = adjacency.getVertexCount( );
+		int source = adjacency.indexOf( from ), target = adjacency.indexOf( to );
+		
+		// The shortest distance of each vertex from the source found so far, and the edge through which it was found
+		double[ ] distances = new double[vertexCount];
+		int[ ] parentEdges = new int[vertexCount];
+		Arrays.fill( distances, Double.POSITIVE_INFINITY );
+		
+		// A circular queue of the vertices whose distances have improved since they were last visited, each of which is queued at most once
+		int[ ] leaves = new int[vertexCount];
+		boolean[ ] isQueued = new boolean[vertexCount];
+		int head = 0, count = 1;
+		
+		distances[source] = 0.0;
+		parentEdges[source] = -1;
+		leaves[0] = source;
+		isQueued[source] = true;
+		
+		while( count > 0 )
 		{
-			Leaf leaf = leaves.pop( );
+			int leaf = leaves[head];
+			head = ( head + 1 ) % vertexCount;
+			--count;
+			isQueued[leaf] = false;
 			
-			if( leaf.distance < minDistanceSoFar && ( !distances.containsKey( leaf.vertex ) || leaf.distance < distances.get( leaf.vertex ).distance ) )
+			// No path through the target, nor through any vertex as far away, can lead anywhere shorter
+			if( leaf == target || distances[leaf] >= distances[target] )
+				continue;
+			
+			int[ ] incidentEdges = adjacency.getIncidentEdges( leaf );
+			for( int i = 0; i < adjacency.getDegree( leaf ); ++i )
 			{
-				distances.put( leaf.vertex, leaf );
+				int neighbor = adjacency.getOpposite( incidentEdges[i], leaf );
+				double distance = distances[leaf] + adjacency.getEdge( incidentEdges[i] ).weight.get( );
 				
-				if( leaf.vertex == to )
-					minDistanceSoFar = leaf.distance;
+				if( distance < distances[neighbor] && distance < distances[target] )
+				{
+					distances[neighbor] = distance;
+					parentEdges[neighbor] = incidentEdges[i];
 				
-				for( Edge edge : g.getEdges( leaf.vertex ) )
-					if( !edge.isLoop )
-						leaves.addLast( new Leaf( ( edge.from == leaf.vertex ? edge.to : edge.from ), edge, leaf.distance + edge.weight.get( ) ) );
+					if( !isQueued[neighbor] )
+					{
+						leaves[( head + count ) % vertexCount] = neighbor;
+						isQueued[neighbor] = true;
+						++count;
+					}
+				}
 			}
 		}
 		
-		if( !distances.containsKey( to ) )
+		if( distances[target] == Double.POSITIVE_INFINITY )
 			return Double.POSITIVE_INFINITY;
 		
 		g.suspendNotifications( true );
 		
-		Leaf lastLeaf = distances.get( to );
 		to.color.set( color );
-		
-		while( lastLeaf.edge != null )
+		for( int vertex = target; parentEdges[vertex] >= 0; )
 		{
-			Vertex other = ( lastLeaf.vertex == lastLeaf.edge.from ? lastLeaf.edge.to : lastLeaf.edge.from );
-			
-			other.color.set( color );
-			lastLeaf.edge.color.set( color );
-			lastLeaf = distances.get( other );
+			int edge = parentEdges[vertex];
+			vertex = adjacency.getOpposite( edge, vertex );
+		
+			adjacency.getVertex( vertex ).color.set( color );
+			adjacency.getEdge( edge ).color.set( color );
 		}
 		
 		g.suspendNotifications( false );
 		
-		return distances.get( to ).distance;
+		return distances[target];
 	}
 	
 	public String evaluate( Graphics2D g2d, Graph g, Component owner )
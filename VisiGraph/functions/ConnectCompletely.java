@@ -15,13 +15,11 @@ import edu.belmont.mth.visigraph.models.functions.*;
 		{
 			int start = ( g.areDirectedEdgesAllowed ? 0 : i );
 			for( int j = start; j < selectedVertices.size( ); ++j )
-				if( ( i != j || g.areLoopsAllowed ) && g.getEdges( selectedVertices.get( i ), selectedVertices.get( j ) ).isEmpty( ) )
+				if( ( i != j || g.areLoopsAllowed ) && !g.areAdjacent( selectedVertices.get( i ), selectedVertices.get( j ) ) )
 					newEdges.add( new Edge( g.areDirectedEdgesAllowed, selectedVertices.get( i ), selectedVertices.get( j ) ) );
 		}
 		
-		g.suspendNotifications( true );
-		g.edges.addAll( newEdges );
-		g.suspendNotifications( false );
+		g.batch( null, newEdges, null );
 		
 		return null;
 	}
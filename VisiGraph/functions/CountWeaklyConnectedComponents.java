@@ -7,7 +7,7 @@ import edu.belmont.mth.visigraph.models.functions.*;
 
 	public String evaluate( Graphics2D g2D, Graph g, Component owner )
 	{
-		return Integer.toString( GraphUtilities.findWeaklyConnectedComponents( g ).size( ) );
+		return Integer.toString( g.getComponentIndex( ).getComponentCount( ) );
 	}
 	
 	public Object getAttribute( Function.Attribute attribute )
@@ -19,13 +19,15 @@ import edu.belmont.mth.visigraph.models.functions.*;
 			case Function.Attribute.VERSION:
 				return "20110101";
 			case Function.Attribute.DESCRIPTION:
-				return "Returns the total number of weakly connected components found in a given graph.  Vertices in a directed graph are said to be members of the same <i>weakly connected component</i> iff, ignoring edge directions, there exists a path from one to the other.</p><p>" + GlobalSettings.applicationName + "'s built-in implementation of a union-find algorithm is used with union-by-rank and path-flattening optimizations to perform the test in <code><i>O</i>(|<i>V</i>|\u03B1(|<i>E</i>|))</code> time where <code>\u03B1(<i>n</i>)</code> is the inverse Ackermann function.";
+				return "Returns the total number of weakly connected components found in a given graph.  Vertices in a directed graph are said to be members of the same <i>weakly connected component</i> iff, ignoring edge directions, there exists a path from one to the other.</p><p>" + GlobalSettings.applicationName + "'s built-in component index keeps track of every graph's components as it is edited, using a union-find structure with union-by-rank and path-flattening optimizations to merge them as edges are added, and splitting them only where necessary as edges are removed.  The number of components is thus found in constant time, except after the removal of an edge whose endpoints lie far apart in a large component, after which the index is rebuilt in <code><i>O</i>(|<i>V</i>|\u03B1(|<i>E</i>|))</code> time where <code>\u03B1(<i>n</i>)</code> is the inverse Ackermann function.";
 			case Function.Attribute.OUTPUT:
 				return "The total number of weakly connected components found.";
 			case Function.Attribute.ALLOWS_DYNAMIC_EVALUATION:
 				return true;
 			case Function.Attribute.ALLOWS_ONE_TIME_EVALUATION:
 				return true;
+			case Function.Attribute.DEPENDENCIES:
+				return new Function.Dependency[ ] { Function.Dependency.STRUCTURE };
 			case Function.Attribute.RELATED_GENERATORS:
 				return new String[ ] { "Condensation of (another graph)" };
 			case Function.Attribute.RELATED_FUNCTIONS:
@@ -89,7 +89,7 @@ import edu.belmont.mth.visigraph.models.functions.*;
 			return null;
 		}
 		
-		new DistanceMatrixDialog( g.name.get( ), GraphUtilities.getDistanceMatrix( g, true ), JOptionPane.getFrameForComponent( owner ) );
+		new DistanceMatrixDialog( g.name.get( ), GraphUtilities.getDistanceMatrix( g, false ), JOptionPane.getFrameForComponent( owner ) );
 		return null;
 	}
 	
@@ -102,7 +102,7 @@ import edu.belmont.mth.visigraph.models.functions.*;
 			case Function.Attribute.VERSION:
 				return "20110129";
 			case Function.Attribute.DESCRIPTION:
-				return "Displays a dialog with the unweighted distance matrix for a given graph in text and image form.  The distance matrix of a finite graph <i>G</i> on <i>n</i> vertices is the <i>n</i> \u00D7 <i>n</i> matrix where the entry <i>d<sub>i,j</sub></i> is the geodesic graph distance from vertex <i>i</i> to vertex <i>j</i>.</p><p>In the rendered image, the distance matrix is represented as a heatmap with finite-valued entries colored from blue to red according to each entry's value relative to the highest finite value in the matrix.  In contrast, entries with infinite values are colored gray.</p><p>" + GlobalSettings.applicationName + "'s built-in implementation of the Roy-Floyd-Warshall algorithm is used to efficiently compute the unweighted distance between each pair of vertices in <code><i>O</i>(|<i>V</i>|<sup>3</sup>)</code> time.";
+				return "Displays a dialog with the unweighted distance matrix for a given graph in text and image form.  The distance matrix of a finite graph <i>G</i> on <i>n</i> vertices is the <i>n</i> \u00D7 <i>n</i> matrix where the entry <i>d<sub>i,j</sub></i> is the geodesic graph distance from vertex <i>i</i> to vertex <i>j</i>.</p><p>In the rendered image, the distance matrix is represented as a heatmap with finite-valued entries colored from blue to red according to each entry's value relative to the highest finite value in the matrix.  In contrast, entries with infinite values are colored gray.</p><p>" + GlobalSettings.applicationName + "'s built-in shortest-path finder is used: a breadth-first search is run from each vertex, with the searches spread across the available processors, to compute the unweighted distance between each pair of vertices in <code><i>O</i>(|<i>V</i>|(|<i>V</i>| + |<i>E</i>|))</code> time.";
 			case Function.Attribute.OUTPUT:
 				return "The unweighted distance matrix for the graph.";
 			case Function.Attribute.ALLOWS_DYNAMIC_EVALUATION:
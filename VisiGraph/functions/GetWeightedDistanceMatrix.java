@@ -105,7 +105,7 @@ import edu.belmont.mth.visigraph.models.functions.*;
 			case Function.Attribute.VERSION:
 				return "20110129";
 			case Function.Attribute.DESCRIPTION:
-				return "Displays a dialog with the weighted distance matrix for a given graph in text and image form.  The distance matrix of a finite graph <i>G</i> on <i>n</i> vertices is the <i>n</i> \u00D7 <i>n</i> matrix where the entry <i>d<sub>i,j</sub></i> is the weighted graph distance from vertex <i>i</i> to vertex <i>j</i>.</p><p>In the rendered image, the distance matrix is represented as a heatmap with finite-valued entries colored from blue to red according to each entry's value relative to the highest finite value in the matrix.  In contrast, entries with infinite values are colored gray.</p><p>" + GlobalSettings.applicationName + "'s built-in implementation of the Roy-Floyd-Warshall algorithm is used to efficiently compute the weighted distance between each pair of vertices in <code><i>O</i>(|<i>V</i>|<sup>3</sup>)</code> time.";
+				return "Displays a dialog with the weighted distance matrix for a given graph in text and image form.  The distance matrix of a finite graph <i>G</i> on <i>n</i> vertices is the <i>n</i> \u00D7 <i>n</i> matrix where the entry <i>d<sub>i,j</sub></i> is the weighted graph distance from vertex <i>i</i> to vertex <i>j</i>.</p><p>In the rendered image, the distance matrix is represented as a heatmap with finite-valued entries colored from blue to red according to each entry's value relative to the highest finite value in the matrix.  In contrast, entries with infinite values are colored gray.</p><p>" + GlobalSettings.applicationName + "'s built-in shortest-path finder is used: Dijkstra's algorithm is run from each vertex using a binary heap, with the searches spread across the available processors, to compute the weighted distance between each pair of vertices in <code><i>O</i>(|<i>V</i>|(|<i>V</i>| + |<i>E</i>|) <i>log</i> |<i>V</i>|)</code> time.  Should any edge weight be negative, the weights are first adjusted by Johnson's method, using the Bellman-Ford algorithm in <code><i>O</i>(|<i>V</i>||<i>E</i>|)</code> time.  Only graphs with negative cycles fall back on the Roy-Floyd-Warshall algorithm in <code><i>O</i>(|<i>V</i>|<sup>3</sup>)</code> time.";
 			case Function.Attribute.OUTPUT:
 				return "The weighted distance matrix for the graph.";
 			case Function.Attribute.CONSTRAINTS:
@@ -8,43 +8,39 @@ import edu.belmont.mth.visigraph.models.functions.*;
 		if( g.vertices.isEmpty( ) )
 			return "n/a";
 		
-		Set setA = new HashSet( ), setB = new HashSet( );
-		LinkedList queueA = new LinkedList( ), queueB = new LinkedList( );
+		AdjacencyIndex adjacency = g.getAdjacencyIndex( );
+		int vertexCount = adjacency.getVertexCount( );
 		
-		while( setA.size( ) + setB.size( ) < g.vertices.size( ) )
+		// The side of each vertex (0 or 1), or -1 if it has not yet been reached
+		int[ ] sides = new int[vertexCount];
+		Arrays.fill( sides, -1 );
+		
+		int[ ] queue = new int[vertexCount];
+		for( int root = 0; root < vertexCount; ++root )
 		{
-			for( Vertex vertex : g.vertices )
-				if( !setA.contains( vertex ) && !setB.contains( vertex ) )
-				{
-					queueA.addLast( vertex );
-					break;
-				}
+			if( sides[root] >= 0 )
+				continue;
+			
+			int head = 0, tail = 0;
+			sides[root] = 0;
+			queue[tail++] = root;
 			
-			while( !queueA.isEmpty( ) )
+			while( head < tail )
 			{
-				while( !queueA.isEmpty( ) )
+				int vertex = queue[head++];
+				int[ ] incidentEdges = adjacency.getIncidentEdges( vertex );
+				
+				for( int i = 0; i < adjacency.getDegree( vertex ); ++i )
 				{
-					Vertex leaf = queueA.pop( );
-					
-					if( setB.contains( leaf ) )
+					int neighbor = adjacency.getOpposite( incidentEdges[i], vertex );
+					if( sides[neighbor] < 0 )
+					{
+						sides[neighbor] = 1 - sides[vertex];
+						queue[tail++] = neighbor;
+					}
+					else if( sides[neighbor] == sides[vertex] )
 						return Boolean.FALSE.toString( );
-					
-					if( setA.add( leaf ) )
-						for( Edge edge : g.getEdges( leaf ) )
-							if( edge.isLoop )
-								return Boolean.FALSE.toString( );
-							else
-								queueB.add( edge.from == leaf ? edge.to : edge.from );
 				}
-				
-				// Swap colors (i.e. sets and queues)
-				Set tempSet = setA;
-				setA = setB;
-				setB = tempSet;
-				
-				LinkedList tempQueue = queueA;
-				queueA = queueB;
-				queueB = tempQueue;
 			}
 		}
 		
@@ -68,6 +64,8 @@ import edu.belmont.mth.visigraph.models.functions.*;
 				return true;
 			case Function.Attribute.ALLOWS_ONE_TIME_EVALUATION:
 				return true;
+			case Function.Attribute.DEPENDENCIES:
+				return new Function.Dependency[ ] { Function.Dependency.STRUCTURE };
 			case Function.Attribute.RELATED_GENERATORS:
 				return new String[ ] { "Complete bipartite graph", "Complete k-partite graph", "Complete tripartite graph", "Crown graph" };
 			case Function.Attribute.RELATED_FUNCTIONS:
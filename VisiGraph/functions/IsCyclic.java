@@ -26,26 +26,34 @@ import edu.belmont.mth.visigraph.models.functions.*;
 		}
 		else
 		{
-			LinkedList visiting = new LinkedList( );
-			Set unvisitedVertices = new HashSet( g.vertices );
-			Set visitedEdges = new HashSet( );
+			AdjacencyIndex adjacency = g.getAdjacencyIndex( );
+			int vertexCount = adjacency.getVertexCount( );
+			boolean[ ] isVertexVisited = new boolean[vertexCount];
+			boolean[ ] isEdgeVisited = new boolean[adjacency.getEdgeCount( )];
 			
-			while( !unvisitedVertices.isEmpty( ) )
+			// Each edge is followed once, so the queue holds at most one vertex per edge besides the root
+			int[ ] visiting = new int[adjacency.getEdgeCount( ) + 1];
+			for( int root = 0; root < vertexCount; ++root )
 			{
-				visiting.addLast( unvisitedVertices.iterator( ).next( ) );
+				if( isVertexVisited[root] )
+					continue;
 				
-				while( !visiting.isEmpty( ) )
+				int head = 0, tail = 0;
+				visiting[tail++] = root;
+				
+				while( head < tail )
 				{
-					Vertex vertex = visiting.removeFirst( );
-					if( !unvisitedVertices.contains( vertex ) )
+					int vertex = visiting[head++];
+					if( isVertexVisited[vertex] )
 						return Boolean.TRUE.toString( );
-					unvisitedVertices.remove( vertex );
+					isVertexVisited[vertex] = true;
 					
-					for( Edge edge : g.getEdges( vertex ) )
-						if( !visitedEdges.contains( edge ) )
+					int[ ] incidentEdges = adjacency.getIncidentEdges( vertex );
+					for( int i = 0; i < adjacency.getDegree( vertex ); ++i )
+						if( !isEdgeVisited[incidentEdges[i]] )
 						{
-							visitedEdges.add( edge );
-							visiting.addLast( edge.from == vertex ? edge.to : edge.from );
+							isEdgeVisited[incidentEdges[i]] = true;
+							visiting[tail++] = adjacency.getOpposite( incidentEdges[i], vertex );
 						}
 				}
 			}
@@ -70,6 +78,8 @@ import edu.belmont.mth.visigraph.models.functions.*;
 				return true;
 			case Function.Attribute.ALLOWS_ONE_TIME_EVALUATION:
 				return true;
+			case Function.Attribute.DEPENDENCIES:
+				return new Function.Dependency[ ] { Function.Dependency.STRUCTURE };
 			case Function.Attribute.RELATED_GENERATORS:
 				return new String[ ] { "Color strongly connected components", "Count strongly connected components", "Cycle graph" };
 			case Function.Attribute.TAGS:
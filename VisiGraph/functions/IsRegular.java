@@ -13,10 +13,10 @@ import edu.belmont.mth.visigraph.models.functions.*;
 				if( edge.isLoop )
 					return Boolean.FALSE.toString( );
 		
-		int k = g.getEdges( g.vertices.get( 0 ) ).size( );
+		int k = g.getDegree( g.vertices.get( 0 ) );
 		
 		for( Vertex vertex : g.vertices )
-			if( g.getEdges( vertex ).size( ) != k || g.getNeighbors( vertex ).size( ) != k || ( g.areDirectedEdgesAllowed && g.getEdgesFrom( vertex ).size( ) != g.getEdgesTo( vertex ) ) )
+			if( g.getDegree( vertex ) != k || g.getNeighborCount( vertex ) != k || ( g.areDirectedEdgesAllowed && g.getOutdegree( vertex ) != g.getIndegree( vertex ) ) )
 				return Boolean.FALSE.toString( );
 		
 		return Boolean.TRUE.toString( );
@@ -38,6 +38,8 @@ import edu.belmont.mth.visigraph.models.functions.*;
 				return true;
 			case Function.Attribute.ALLOWS_ONE_TIME_EVALUATION:
 				return true;
+			case Function.Attribute.DEPENDENCIES:
+				return new Function.Dependency[ ] { Function.Dependency.STRUCTURE };
 			case Function.Attribute.TAGS:
 				return new String[ ] { "Graph evaluator", "Network flow", "Symmetry" };
 			default:
@@ -14,7 +14,7 @@ import edu.belmont.mth.visigraph.models.functions.*;
 					return Boolean.FALSE.toString( );
 		
 		for( Vertex vertex : g.vertices )
-			if( g.getEdges( vertex ).size( ) != 7 || g.getNeighbors( vertex ).size( ) != 7 )
+			if( g.getDegree( vertex ) != 7 || g.getNeighborCount( vertex ) != 7 )
 				return Boolean.FALSE.toString( );
 		
 		return Boolean.TRUE.toString( );
@@ -36,6 +36,8 @@ import edu.belmont.mth.visigraph.models.functions.*;
 				return true;
 			case Function.Attribute.ALLOWS_ONE_TIME_EVALUATION:
 				return true;
+			case Function.Attribute.DEPENDENCIES:
+				return new Function.Dependency[ ] { Function.Dependency.STRUCTURE };
 			case Function.Attribute.TAGS:
 				return new String[ ] { "Graph evaluator", "Network flow", "Symmetry" };
 			default:
@@ -16,54 +16,47 @@ import edu.belmont.mth.visigraph.models.functions.*;
 		
 		g.suspendNotifications( false );
 		
-		Set setA = new HashSet( ), setB = new HashSet( );
-		LinkedList queueA = new LinkedList( ), queueB = new LinkedList( );
+		AdjacencyIndex adjacency = g.getAdjacencyIndex( );
+		int vertexCount = adjacency.getVertexCount( );
 		
-		while( setA.size( ) + setB.size( ) < g.vertices.size( ) )
+		// The side of each vertex (0 or 1), or -1 if it has not yet been reached
+		int[ ] sides = new int[vertexCount];
+		Arrays.fill( sides, -1 );
+		
+		int[ ] queue = new int[vertexCount];
+		for( int root = 0; root < vertexCount; ++root )
 		{
-			for( Vertex vertex : g.vertices )
-				if( !setA.contains( vertex ) && !setB.contains( vertex ) )
-				{
-					queueA.addLast( vertex );
-					break;
-				}
+			if( sides[root] >= 0 )
+				continue;
+			
+			int head = 0, tail = 0;
+			sides[root] = 0;
+			queue[tail++] = root;
 			
-			while( !queueA.isEmpty( ) )
+			while( head < tail )
 			{
-				while( !queueA.isEmpty( ) )
+				int vertex = queue[head++];
+				int[ ] incidentEdges = adjacency.getIncidentEdges( vertex );
+				
+				for( int i = 0; i < adjacency.getDegree( vertex ); ++i )
 				{
-					Vertex leaf = queueA.pop( );
-					
-					if( setB.contains( leaf ) )
+					int neighbor = adjacency.getOpposite( incidentEdges[i], vertex );
+					if( sides[neighbor] < 0 )
+					{
+						sides[neighbor] = 1 - sides[vertex];
+						queue[tail++] = neighbor;
+					}
+					else if( sides[neighbor] == sides[vertex] )
 						return "Graph is not two-colorable!";
-					
-					if( setA.add( leaf ) )
-						for( Edge edge : g.getEdges( leaf ) )
-							if( edge.isLoop )
-								return "Graph is not two-colorable!";
-							else
-								queueB.add( edge.from == leaf ? edge.to : edge.from );
 				}
-				
-				// Swap colors (i.e. sets and queues)
-				Set tempSet = setA;
-				setA = setB;
-				setB = tempSet;
-				
-				LinkedList tempQueue = queueA;
-				queueA = queueB;
-				queueB = tempQueue;
 			}
 		}
 		
-		// Color the sets
+		// Color the sides
 		g.suspendNotifications( true );
 		
-		for( Vertex vertex : setA )
-			vertex.color.set( 1 );
-		
-		for( Vertex vertex : setB )
-			vertex.color.set( 0 );
+		for( int i = 0; i < vertexCount; ++i )
+			adjacency.getVertex( i ).color.set( 1 - sides[i] );
 		
 		g.suspendNotifications( false );
 		
@@ -117,19 +117,8 @@ import edu.belmont.mth.visigraph.models.generators.*;
 			}
 			else
 			{
-				Scanner scanner = new Scanner( file0 );
-				StringBuilder sb = new StringBuilder( );
-				while( scanner.hasNextLine( ) )
-					sb.append( scanner.nextLine( ) );
-				scanner.close( );
-				Graph oldGraph0 = new Graph( sb.toString( ) );
-				
-				scanner = new Scanner( file1 );
-				sb = new StringBuilder( );
-				while( scanner.hasNextLine( ) )
-					sb.append( scanner.nextLine( ) );
-				scanner.close( );
-				Graph oldGraph1 = new Graph( sb.toString( ) );
+				Graph oldGraph0 = GraphReader.read( file0 );
+				Graph oldGraph1 = GraphReader.read( file1 );
 				
 				if( oldGraph0 != null && oldGraph1 != null )
 				{
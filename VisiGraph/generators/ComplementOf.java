@@ -31,20 +31,14 @@ import edu.belmont.mth.visigraph.models.generators.*;
 			}
 			else
 			{
-				Scanner scanner = new Scanner( file );
-				StringBuilder sb = new StringBuilder( );
-				while( scanner.hasNextLine( ) )
-					sb.append( scanner.nextLine( ) );
-				
-				scanner.close( );
-				
-				Graph oldGraph = new Graph( sb.toString( ) );
+				Graph oldGraph = GraphReader.read( file );
 				if( oldGraph != null )
 				{
 					graph = new Graph( "Complement of " + oldGraph.name.get( ), oldGraph.areLoopsAllowed, oldGraph.areDirectedEdgesAllowed, oldGraph.areMultipleEdgesAllowed, true );
 					
 					graph.vertices.addAll( oldGraph.vertices );
 					
+					List newEdges = new ArrayList( );
 					Map vertexEdges = new HashMap( );
 					
 					for( Edge edge : oldGraph.edges )
@@ -66,12 +60,12 @@ import edu.belmont.mth.visigraph.models.generators.*;
 						for( int i = 0; i < graph.vertices.size( ); ++i )
 							for( int j = 0; j < graph.vertices.size( ); ++j )
 								if( i != j && !( vertexEdges.containsKey( graph.vertices.get( i ) ) && ( (Set) vertexEdges.get( graph.vertices.get( i ) ) ).contains( graph.vertices.get( j ) ) ) )
-									graph.edges.add( new Edge( true, graph.vertices.get( i ), graph.vertices.get( j ) ) );
+									newEdges.add( new Edge( true, graph.vertices.get( i ), graph.vertices.get( j ) ) );
 						
 						if( graph.areLoopsAllowed )
 							for( int i = 0; i < graph.vertices.size( ); ++i )
 								if( !( vertexEdges.containsKey( graph.vertices.get( i ) ) && ( (Set) vertexEdges.get( graph.vertices.get( i ) ) ).contains( graph.vertices.get( i ) ) ) )
-									graph.edges.add( new Edge( true, graph.vertices.get( i ), graph.vertices.get( i ) ) );
+									newEdges.add( new Edge( true, graph.vertices.get( i ), graph.vertices.get( i ) ) );
 					}
 					else
 					{
@@ -79,8 +73,10 @@ import edu.belmont.mth.visigraph.models.generators.*;
 						for( int i = 0; i < graph.vertices.size( ); ++i )
 							for( int j = i + offset; j < graph.vertices.size( ); ++j )
 								if( !( vertexEdges.containsKey( graph.vertices.get( i ) ) && ( (Set) vertexEdges.get( graph.vertices.get( i ) ) ).contains( graph.vertices.get( j ) ) ) )
-									graph.edges.add( new Edge( false, graph.vertices.get( i ), graph.vertices.get( j ) ) );
+									newEdges.add( new Edge( false, graph.vertices.get( i ), graph.vertices.get( j ) ) );
 					}
+					
+					graph.batch( null, newEdges, null );
 				}
 			}
 		}
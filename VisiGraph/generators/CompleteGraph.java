@@ -1,4 +1,6 @@
 import java.awt.*;
+import java.util.*;
+import java.util.List;
 import java.util.regex.*;
 import edu.belmont.mth.visigraph.models.*;
 import edu.belmont.mth.visigraph.settings.*;
@@ -14,18 +16,22 @@ import edu.belmont.mth.visigraph.models.generators.*;
 		
 		int n = Integer.parseInt( matcher.group( 1 ) );
 		
+		List vertices = new ArrayList( n );
 		for( int i = 0; i < n; ++i )
-			graph.vertices.add( new Vertex( 0.0, 0.0 ) );
+			vertices.add( new Vertex( 0.0, 0.0 ) );
 		
-		LayoutUtilities.arrangeCircle( graph.vertices );
+		LayoutUtilities.arrangeCircle( vertices );
 		
+		List edges = new ArrayList( );
 		for( int i = 0; i < n; ++i )
 		{
 			int start = ( areDirectedEdgesAllowed ? 0 : i + ( areLoopsAllowed ? 0 : 1 ) );
 			for( int j = start; j < n; ++j )
-				graph.edges.add( new Edge( areDirectedEdgesAllowed, graph.vertices.get( i ), graph.vertices.get( j ) ) );
+				edges.add( new Edge( areDirectedEdgesAllowed, vertices.get( i ), vertices.get( j ) ) );
 		}
 		
+		graph.batch( vertices, edges, null );
+		
 		return graph;
 	}
 	
@@ -33,14 +33,7 @@ import edu.belmont.mth.visigraph.models.generators.*;
 			}
 			else
 			{
-				Scanner scanner = new Scanner( file );
-				StringBuilder sb = new StringBuilder( );
-				while( scanner.hasNextLine( ) )
-					sb.append( scanner.nextLine( ) );
-				
-				scanner.close( );
-				
-				Graph oldGraph = new Graph( sb.toString( ) );
+				Graph oldGraph = GraphReader.read( file );
 				if( oldGraph != null )
 				{
 					if( !oldGraph.areDirectedEdgesAllowed )
@@ -53,12 +46,23 @@ import edu.belmont.mth.visigraph.models.generators.*;
 					
 					graph = new Graph( "Condensation of " + oldGraph.name.get( ), oldGraph.areLoopsAllowed, true, true, true );
 					
-					Map vertexComponents = new HashMap( ); // Maps old vertices to old components
-					Map componentVertices = new HashMap( ); // Maps old components to new vertices
-					Collection components = GraphUtilities.findStronglyConnectedComponents( oldGraph );
+					AdjacencyIndex adjacency = oldGraph.getAdjacencyIndex( );
+					int[ ] vertexComponents = GraphUtilities.getStronglyConnectedComponentLabels( oldGraph ); // Maps old vertex indices to old components
 					
-					for( Collection component : components )
+					List components = new ArrayList( );
+					for( int i = 0; i < vertexComponents.length; ++i )
 					{
+						while( components.size( ) <= vertexComponents[i] )
+							components.add( new ArrayList( ) );
+						components.get( vertexComponents[i] ).add( adjacency.getVertex( i ) );
+					}
+					
+					Vertex[ ] componentVertices = new Vertex[components.size( )]; // Maps old components to new vertices
+					List newEdges = new ArrayList( );
+					
+					for( int c = 0; c < components.size( ); ++c )
+					{
+						Collection component = components.get( c );
 						StringBuilder newLabel = new StringBuilder( );
 						double newRadius = 0.0;
 						Point2D.Double newLocation = new Point2D.Double( );
@@ -75,27 +79,29 @@ import edu.belmont.mth.visigraph.models.generators.*;
 							if( newColor != vertex.color.get( ) )
 								newColor = null;
 							if( newIsSelected != vertex.isSelected.get( ) )
-								isSelected = null;
+								newIsSelected = null;
 							newWeight += vertex.weight.get( );
-							vertexComponents.put( vertex, component );
 						}
 						newLocation.x /= (double) component.size( );
 						newLocation.y /= (double) component.size( );
 						
 						Vertex newVertex = new Vertex( newLocation.x, newLocation.y, newLabel.substring( 0, newLabel.length( ) - 2 ), newRadius, ( newColor == null ? UserSettings.instance.defaultVertexColor.get( ) : newColor ), ( newIsSelected == null ? UserSettings.instance.defaultVertexIsSelected.get( ) : newIsSelected ) );
 						newVertex.weight.set( newWeight );
-						componentVertices.put( component, newVertex );
-						graph.vertices.add( newVertex );
+						componentVertices[c] = newVertex;
 					}
 					
-					for( Edge edge : oldGraph.edges )
-						if( !edge.isLoop && vertexComponents.get( edge.from ) != vertexComponents.get( edge.to ) )
+					int[ ] sources = adjacency.getEdgeSources( ), targets = adjacency.getEdgeTargets( );
+					for( int e = 0; e < adjacency.getEdgeCount( ); ++e )
+						if( vertexComponents[sources[e]] != vertexComponents[targets[e]] )
 						{
-							Edge newEdge = new Edge( true, componentVertices.get( vertexComponents.get( edge.from ) ), componentVertices.get( vertexComponents.get( edge.to ) ), edge.weight.get( ), edge.color.get( ), edge.label.get( ), edge.isSelected.get( ) );
+							Edge edge = adjacency.getEdge( e );
+							Edge newEdge = new Edge( true, componentVertices[vertexComponents[sources[e]]], componentVertices[vertexComponents[targets[e]]], edge.weight.get( ), edge.color.get( ), edge.label.get( ), edge.isSelected.get( ) );
 							newEdge.thickness.set( edge.thickness.get( ) );
 							newEdge.tag.set( edge.tag.get( ) );
-							graph.edges.add( newEdge );
+							newEdges.add( newEdge );
 						}
+					
+					graph.batch( Arrays.asList( componentVertices ), newEdges, null );
 				}
 			}
 		}
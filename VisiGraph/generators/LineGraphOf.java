@@ -31,14 +31,7 @@ import edu.belmont.mth.visigraph.models.generators.*;
 			}
 			else
 			{
-				Scanner scanner = new Scanner( file );
-				StringBuilder sb = new StringBuilder( );
-				while( scanner.hasNextLine( ) )
-					sb.append( scanner.nextLine( ) );
-				
-				scanner.close( );
-				
-				Graph oldGraph = new Graph( sb.toString( ) );
+				Graph oldGraph = GraphReader.read( file );
 				if( oldGraph != null )
 				{
 					graph = new Graph( "Line graph of " + oldGraph.name.get( ), oldGraph.areLoopsAllowed, oldGraph.areDirectedEdgesAllowed, oldGraph.areMultipleEdgesAllowed, true );
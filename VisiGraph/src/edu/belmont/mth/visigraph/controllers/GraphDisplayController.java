@@ -25,6 +25,7 @@ import edu.belmont.mth.visigraph.gui.layouts.*;
 import edu.belmont.mth.visigraph.gui.windows.*;
 import edu.belmont.mth.visigraph.views.display.*;
 import edu.belmont.mth.visigraph.models.functions.*;
+import edu.belmont.mth.visigraph.models.functions.FunctionEvaluator.Evaluation;
 
 /**
  * @author Cameron Behar
@@ -136,11 +137,47 @@ public class GraphDisplayController extends JPanel
 							
 							new Timer( 50, new ActionListener( )
 							{
-								Map<Vertex, Point2D>	velocities	= new HashMap<Vertex, Point2D>( );
+								ForceDirectedLayout			layout	= null;
+								SwingWorker<Double, Void>	step	= null;
 								
 								@Override
 								public void actionPerformed( ActionEvent e )
 								{
+									// The layout is stepped in the background, its positions only being written back once the step is done
+									if( this.step != null )
+									{
+										if( !this.step.isDone( ) )
+											return;
+										
+										double kineticEnergy = 0.0;
+										try
+										{
+											kineticEnergy = this.step.get( );
+											
+											GraphDisplayController.this.graph.beginUpdate( );
+											try
+											{
+												this.layout.write( GraphDisplayController.this.graph );
+											}
+											finally
+											{
+												GraphDisplayController.this.graph.endUpdate( );
+											}
+										}
+										catch( Exception ex )
+										{
+											DebugUtilities.logException( "An exception occurred while arranging the graph.", ex );
+										}
+										this.step = null;
+										
+										if( kineticEnergy < 0.01 || ( GraphDisplayController.this.arrangeWebSpeed *= UserSettings.instance.autoArrangeDecelerationFactor.get( ) ) < 0.15 )
+										{
+											ArrangeToolBar.this.arrangeWebButton.setEnabled( true );
+											( (Timer) e.getSource( ) ).stop( );
+											return;
+										}
+									}
+									
 									List<Vertex> selectedVertices = GraphDisplayController.this.graph.getSelectedVertices( );
 									if( selectedVertices.isEmpty( ) )
 										if( GraphDisplayController.this.graph.hasSelectedCaptions( ) || GraphDisplayController.this.graph.hasSelectedEdges( ) )
@@ -148,13 +185,25 @@ public class GraphDisplayController extends JPanel
 										else
 											selectedVertices = GraphDisplayController.this.graph.vertices;
 									
-									final double kineticEnergy = LayoutUtilities.arrangeTensors( selectedVertices, GraphDisplayController.this.graph.edges, UserSettings.instance.autoArrangeAttractiveForce.get( ), UserSettings.instance.autoArrangeRepulsiveForce.get( ), GraphDisplayController.this.arrangeWebSpeed, this.velocities );
+									// Only rebuild the layout when the vertices or edges being laid out change, keeping the momentum of those still moving
+									if( this.layout == null || !this.layout.isFor( selectedVertices, GraphDisplayController.this.graph.edges ) )
+										this.layout = new ForceDirectedLayout( selectedVertices, GraphDisplayController.this.graph.edges, this.layout );
+									else
+										this.layout.read( );
 									
-									if( kineticEnergy < 0.01 || ( GraphDisplayController.this.arrangeWebSpeed *= UserSettings.instance.autoArrangeDecelerationFactor.get( ) ) < 0.15 )
+									final ForceDirectedLayout layout = this.layout;
+									final double attractiveForce = UserSettings.instance.autoArrangeAttractiveForce.get( );
+									final double repulsiveForce = UserSettings.instance.autoArrangeRepulsiveForce.get( );
+									final double speed = GraphDisplayController.this.arrangeWebSpeed;
+									this.step = new SwingWorker<Double, Void>( )
 									{
-										ArrangeToolBar.this.arrangeWebButton.setEnabled( true );
-										( (Timer) e.getSource( ) ).stop( );
-									}
+										@Override
+										public Double doInBackground( )
+										{
+											return layout.step( attractiveForce, repulsiveForce, speed );
+										}
+									};
+									this.step.execute( );
 								}
 							} ).start( );
 						}
@@ -513,7 +562,7 @@ public class GraphDisplayController extends JPanel
 					{
 						JMenuItem oneTimeFunctionMenuItem = (JMenuItem) e.getSource( );
 						GraphDisplayController.this.functionsToBeRun.add( FunctionToolBar.this.oneTimeFunctionMenuItems.get( oneTimeFunctionMenuItem ) );
-						GraphDisplayController.this.isViewportInvalidated = true;
+						GraphDisplayController.this.invalidateViewport( );
 					}
 				};
 				ActionListener dynamicFunctionMenuItemActionListener = new ActionListener( )
@@ -538,7 +587,9 @@ public class GraphDisplayController extends JPanel
 							GraphDisplayController.this.selectedFunctionLabels.remove( FunctionToolBar.this.dynamicFunctionMenuItems.get( dynamicFunctionMenuItem ) );
 						}
 						
-						GraphDisplayController.this.isViewportInvalidated = true;
+						GraphDisplayController.this.functionEvaluation = null;
+						GraphDisplayController.this.functionTimer.restart( );
+						GraphDisplayController.this.invalidateViewport( );
 					}
 				};
 				
@@ -603,105 +654,6 @@ public class GraphDisplayController extends JPanel
 		public void graphChangeEventOccurred( GraphChangeEvent evt );
 	}
 	
-	private class SnapshotList
-	{
-		private class Snapshot
-		{
-			public String	value;
-			public Snapshot	previous;
-			public Snapshot	next;
-			
-			public Snapshot( String value )
-			{
-				this.value = value;
-				this.previous = this;
-				this.next = this;
-			}
-			
-			public Snapshot( String value, Snapshot previous, Snapshot next )
-			{
-				this.value = value;
-				this.previous = previous;
-				this.next = next;
-			}
-		}
-		
-		// SnapshotList is essentially a kind of doubly-linked circular list of strings with a maximum capacity
-		private Snapshot	current;
-		private Snapshot	newest;
-		private Snapshot	oldest;
-		private int			capacity;
-		private int			size;
-		
-		public SnapshotList( String snapshot )
-		{
-			this.newest = this.oldest = this.current = new Snapshot( snapshot );
-			this.capacity = UserSettings.instance.undoLoggingMaximum.get( );
-			this.size = 0;
-		}
-		
-		public void add( String snapshot )
-		{
-			if( !snapshot.equals( this.current.value ) )
-				if( this.size < this.capacity )
-				{
-					Snapshot newSnapshot = new Snapshot( snapshot, this.current, this.current.next );
-					this.current.next.previous = newSnapshot;
-					this.current = this.newest = this.current.next = newSnapshot;
-					++this.size;
-				}
-				else
-				{
-					this.current.next.value = snapshot;
-					this.current = this.newest = this.current.next;
-					if( this.current == this.oldest )
-						this.oldest = this.current.next;
-				}
-		}
-		
-		public void clear( )
-		{
-			this.newest = this.oldest = this.current;
-			this.current.previous = this.current;
-			this.current.next = this.current;
-		}
-		
-		public String current( )
-		{
-			return this.current.value;
-		}
-		
-		public int getCapacity( )
-		{
-			return this.capacity;
-		}
-		
-		public String next( )
-		{
-			if( this.current == this.newest )
-				return null;
-			
-			this.current = this.current.next;
-			
-			return this.current.value;
-		}
-		
-		public String previous( )
-		{
-			if( this.current == this.oldest )
-				return null;
-			
-			this.current = this.current.previous;
-			
-			return this.current.value;
-		}
-		
-		public void setCapacity( int capacity )
-		{
-			this.capacity = capacity;
-		}
-	}
-	
 	public enum Tool
 	{
 		POINTER_TOOL, GRAPH_TOOL, CAPTION_TOOL, CUT_TOOL, PAINT_TOOL
@@ -1512,6 +1464,7 @@ public class GraphDisplayController extends JPanel
 	}
 	
 	private Graph					graph;
+	private GraphDisplayBuffer		displayBuffer;
 	public final GraphSettings		settings;
 	private JPanel					toolToolBarPanel;
 	
@@ -1541,12 +1494,17 @@ public class GraphDisplayController extends JPanel
 	private Vertex					fromVertex;
 	private final AffineTransform	transform;
 	private Set<Function>			functionsToBeRun;
-	private final SnapshotList		undoHistory;
+	private FunctionEvaluator		functionEvaluator;
+	private Evaluation				functionEvaluation;
+	private InvariantCache			invariantCache;
+	private Timer					functionTimer;
+	private UndoHistory				undoHistory;
 	private Timer					undoTimer;
 	private Timer					panTimer;
 	private final EventListenerList	graphChangeListenerList;
 	private boolean					isViewportInvalidated;
-	private final Timer				viewportValidationTimer;
+	private boolean					isSelectionInvalidated;
+	private final Timer				viewportRepaintTimer;
 	private double					arrangeWebSpeed;
 	
 	public GraphDisplayController( Graph graph )
@@ -1556,7 +1514,6 @@ public class GraphDisplayController extends JPanel
 		
 		// Add/bind graph
 		this.setGraph( graph );
-		this.undoHistory = new SnapshotList( graph.toString( ) );
 		
 		// Add/bind palette
 		UserSettings.instance.addObserver( new Observer( )
@@ -1589,20 +1546,18 @@ public class GraphDisplayController extends JPanel
 		// Initialize the viewport's affine transform
 		this.transform = new AffineTransform( );
 		
-		// Initialize the viewport's frame delimiter
-		this.isViewportInvalidated = true;
-		this.viewportValidationTimer = new Timer( 30, new ActionListener( )
+		// Initialize the viewport's frame delimiter, which gathers up damage until the display's next refresh
+		this.isViewportInvalidated = false;
+		this.isSelectionInvalidated = false;
+		this.viewportRepaintTimer = new Timer( 1000 / getRefreshRate( ), new ActionListener( )
 		{
 			@Override
 			public void actionPerformed( ActionEvent e )
 			{
-				if( GraphDisplayController.this.isViewportInvalidated )
-					GraphDisplayController.this.repaint( );
-				
-				GraphDisplayController.this.isViewportInvalidated = false;
+				GraphDisplayController.this.repaintViewport( );
 			}
 		} );
-		this.viewportValidationTimer.start( );
+		this.viewportRepaintTimer.setRepeats( false );
 	}
 	
 	public void addGraphChangeListener( GraphChangeEventListener listener )
@@ -1650,6 +1605,23 @@ public class GraphDisplayController extends JPanel
 	public void dispose( )
 	{
 		this.undoTimer.stop( );
+		this.viewportRepaintTimer.stop( );
+		this.functionTimer.stop( );
+		this.functionEvaluator.dispose( );
+		this.undoHistory.dispose( );
+	}
+	
+	private void evaluateFunctions( )
+	{
+		if( this.selectedFunctionLabels.isEmpty( ) )
+		{
+			this.functionEvaluator.cancel( );
+			return;
+		}
+		
+		AffineTransform overlayTransform = this.getFunctionOverlayTransform( );
+		double deviceScale = overlayTransform.getScaleX( ) / this.transform.getScaleX( );
+		this.functionEvaluator.evaluate( this.selectedFunctionLabels.keySet( ), this.graph, overlayTransform, (int) Math.ceil( this.viewport.getWidth( ) * deviceScale ), (int) Math.ceil( this.viewport.getHeight( ) * deviceScale ) );
 	}
 	
 	private void fireGraphChangeEvent( GraphChangeEvent event )
@@ -1661,6 +1633,53 @@ public class GraphDisplayController extends JPanel
 				( (GraphChangeEventListener) listeners[i + 1] ).graphChangeEventOccurred( event );
 	}
 	
+	private List<Edge> getClickedEdges( )
+	{
+		// Only edges whose handles lie within the greatest possible click distance of the mouse need to be tested
+		double scale = this.transform.getScaleX( );
+		double reach = this.graph.getSpatialIndex( ).getMaximumEdgeThickness( ) * UserSettings.instance.defaultEdgeHandleRadiusRatio.get( ) + UserSettings.instance.edgeHandleClickMargin.get( ) / scale;
+		
+		List<Edge> clickedEdges = new ArrayList<Edge>( );
+		for( Edge edge : this.graph.getSpatialIndex( ).getEdges( new Rectangle2D.Double( this.currentMousePoint.x - reach, this.currentMousePoint.y - reach, 2.0 * reach, 2.0 * reach ) ) )
+			if( EdgeDisplayView.wasClicked( edge, this.currentMousePoint, scale ) )
+				clickedEdges.add( edge );
+		
+		return clickedEdges;
+	}
+	
+	private List<Vertex> getClickedVertices( )
+	{
+		// Only vertices whose centers lie within the greatest possible click distance of the mouse need to be tested
+		double scale = this.transform.getScaleX( );
+		double reach = this.graph.getSpatialIndex( ).getMaximumVertexRadius( ) + UserSettings.instance.vertexClickMargin.get( ) / scale;
+		
+		List<Vertex> clickedVertices = new ArrayList<Vertex>( );
+		for( Vertex vertex : this.graph.getSpatialIndex( ).getVertices( new Rectangle2D.Double( this.currentMousePoint.x - reach, this.currentMousePoint.y - reach, 2.0 * reach, 2.0 * reach ) ) )
+			if( VertexDisplayView.wasClicked( vertex, this.currentMousePoint, scale ) )
+				clickedVertices.add( vertex );
+		
+		return clickedVertices;
+	}
+	
+	private List<Edge> getEdgesIn( Rectangle selection )
+	{
+		List<Edge> edges = this.graph.getSpatialIndex( ).getEdges( selection );
+		for( Iterator<Edge> iterator = edges.iterator( ); iterator.hasNext( ); )
+			if( !EdgeDisplayView.wasSelected( iterator.next( ), selection ) )
+				iterator.remove( );
+		
+		return edges;
+	}
+	
+	private AffineTransform getFunctionOverlayTransform( )
+	{
+		// Like the display buffer, the overlay is drawn at the device's own resolution
+		GraphicsConfiguration configuration = this.viewport.getGraphicsConfiguration( );
+		AffineTransform overlayTransform = ( configuration == null ? new AffineTransform( ) : configuration.getDefaultTransform( ) );
+		overlayTransform.concatenate( this.transform );
+		return overlayTransform;
+	}
+	
 	public Graph getGraph( )
 	{
 		return this.graph;
@@ -1685,6 +1704,18 @@ public class GraphDisplayController extends JPanel
 		return bufferedImage;
 	}
 	
+	private static int getRefreshRate( )
+	{
+		if( !GraphicsEnvironment.isHeadless( ) )
+		{
+			int refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment( ).getDefaultScreenDevice( ).getDisplayMode( ).getRefreshRate( );
+			if( refreshRate != DisplayMode.REFRESH_RATE_UNKNOWN )
+				return refreshRate;
+		}
+		
+		return 60;
+	}
+	
 	public Rectangle getSelectionRectangle( )
 	{
 		return new Rectangle( )
@@ -1698,6 +1729,16 @@ public class GraphDisplayController extends JPanel
 		};
 	}
 	
+	private List<Vertex> getVerticesIn( Rectangle selection )
+	{
+		List<Vertex> vertices = this.graph.getSpatialIndex( ).getVertices( selection );
+		for( Iterator<Vertex> iterator = vertices.iterator( ); iterator.hasNext( ); )
+			if( !VertexDisplayView.wasSelected( iterator.next( ), selection ) )
+				iterator.remove( );
+		
+		return vertices;
+	}
+	
 	public void initializeComponents( )
 	{
 		this.setLayout( new BorderLayout( ) );
@@ -1737,6 +1778,7 @@ public class GraphDisplayController extends JPanel
 		
 		this.selectedFunctionLabels = new HashMap<Function, JLabel>( );
 		this.functionsToBeRun = new TreeSet<Function>( );
+		this.invariantCache = new InvariantCache( );
 		
 		this.viewportPanel = new JPanel( new BorderLayout( ) )
 		{
@@ -1871,28 +1913,91 @@ public class GraphDisplayController extends JPanel
 		};
 		this.add( this.statusBar, BorderLayout.SOUTH );
 		
+		// Changes made within the undo logging interval of each other are undone together, so the current transaction is committed once the graph
+		// has been left alone for that long
 		this.undoTimer = new Timer( UserSettings.instance.undoLoggingInterval.get( ), new ActionListener( )
 		{
 			@Override
 			public void actionPerformed( ActionEvent e )
 			{
-				if( GraphDisplayController.this.undoHistory.getCapacity( ) > 0 )
-					GraphDisplayController.this.undoHistory.add( GraphDisplayController.this.graph.toString( ) );
+				GraphDisplayController.this.undoHistory.commit( );
 			}
 		} );
-		this.undoTimer.start( );
+		this.undoTimer.setRepeats( false );
+		
+		// Dynamic functions are evaluated in the background, once the graph has been left alone for a moment
+		this.functionEvaluator = new FunctionEvaluator( );
+		this.functionEvaluator.addObserver( new Observer( )
+		{
+			@Override
+			public void update( Observable o, Object arg )
+			{
+				GraphDisplayController.this.onFunctionsEvaluated( (Evaluation) arg );
+			}
+		} );
+		this.functionTimer = new Timer( 100, new ActionListener( )
+		{
+			@Override
+			public void actionPerformed( ActionEvent e )
+			{
+				GraphDisplayController.this.evaluateFunctions( );
+			}
+		} );
+		this.functionTimer.setRepeats( false );
 	}
 	
-	public void onGraphChanged( Object source )
+	private void invalidateSelection( )
+	{
+		this.isSelectionInvalidated = true;
+		this.scheduleViewportRepaint( );
+	}
+	
+	private void invalidateViewport( )
 	{
 		this.isViewportInvalidated = true;
+		this.scheduleViewportRepaint( );
+	}
+	
+	public void onFunctionsEvaluated( Evaluation evaluation )
+	{
+		for( Entry<Function, JLabel> entry : this.selectedFunctionLabels.entrySet( ) )
+			if( evaluation.results.containsKey( entry.getKey( ) ) )
+				entry.getValue( ).setText( entry.getKey( ) + ": " + evaluation.results.get( entry.getKey( ) ) );
+		
+		this.functionEvaluation = evaluation;
+		this.invalidateViewport( );
+	}
+	
+	public void onGraphChanged( Object source )
+	{
+		// Changes to what is drawn over the display buffer damage only the region it covers
+		this.displayBuffer.onGraphChanged( source );
+		if( this.displayBuffer.isValid( ) )
+			this.invalidateSelection( );
+		else
+			this.invalidateViewport( );
+		
+		if( this.undoTimer != null )
+			this.undoTimer.restart( );
+		
+		// Whatever the dynamic functions drew is now out of date, so it is hidden until they have been evaluated anew
+		if( this.functionEvaluation != null )
+		{
+			this.functionEvaluation = null;
+			this.invalidateViewport( );
+		}
+		
+		if( this.functionTimer != null && !this.selectedFunctionLabels.isEmpty( ) )
+			this.functionTimer.restart( );
+		
 		this.fireGraphChangeEvent( new GraphChangeEvent( this.graph ) );
 	}
 	
 	public void onSettingChanged( Object source )
 	{
 		this.setBackground( UserSettings.instance.graphBackground.get( ) );
-		this.isViewportInvalidated = true;
+		this.displayBuffer.invalidate( );
+		this.invalidateViewport( );
 		
 		if( this.toolToolBar != null )
 			this.toolToolBar.refreshPaintMenu( );
@@ -1901,13 +2006,30 @@ public class GraphDisplayController extends JPanel
 			this.viewToolBar.refresh( );
 		
 		if( this.undoTimer != null )
-			this.undoTimer.setDelay( UserSettings.instance.undoLoggingInterval.get( ) );
+			this.undoTimer.setInitialDelay( UserSettings.instance.undoLoggingInterval.get( ) );
 		
 		if( this.undoHistory != null && this.undoHistory.getCapacity( ) != UserSettings.instance.undoLoggingMaximum.get( ) )
-		{
 			this.undoHistory.setCapacity( UserSettings.instance.undoLoggingMaximum.get( ) );
-			this.undoHistory.clear( );
+	}
+	
+	private void paintFunctionOverlay( Graphics2D g2D )
+	{
+		if( this.functionEvaluation == null )
+			return;
+		
+		// An overlay drawn for some other view is no use, so the functions must be evaluated for this one
+		AffineTransform overlayTransform = this.getFunctionOverlayTransform( );
+		if( !overlayTransform.equals( this.functionEvaluation.transform ) )
+		{
+			this.functionTimer.restart( );
+			return;
 		}
+		
+		AffineTransform original = g2D.getTransform( );
+		double deviceScale = overlayTransform.getScaleX( ) / this.transform.getScaleX( );
+		g2D.scale( 1.0 / deviceScale, 1.0 / deviceScale );
+		g2D.drawImage( this.functionEvaluation.overlay, 0, 0, null );
+		g2D.setTransform( original );
 	}
 	
 	public void paintSelectionRectangle( Graphics2D g2D )
@@ -1950,7 +2072,7 @@ public class GraphDisplayController extends JPanel
 			
 			for( Function function : functionsToBeRunCopy )
 			{
-				String result = function.evaluate( g2D, this.graph, this );
+				String result = this.invariantCache.evaluate( function, g2D, this.graph, this );
 				if( result != null && !result.isEmpty( ) )
 					if( showExternally )
 						JOptionPane.showMessageDialog( this.viewport, function + ": " + result, GlobalSettings.applicationName, JOptionPane.OK_OPTION + JOptionPane.INFORMATION_MESSAGE );
@@ -1962,17 +2084,27 @@ public class GraphDisplayController extends JPanel
 		// Clear everything
 		super.paintComponent( g2D );
 		
+		// Paint the graph, redrawing only what may be moving when on screen, and then whatever the dynamic functions last drew
+		boolean isOnScreen = ( g2D.getDeviceConfiguration( ).getDevice( ).getType( ) == GraphicsDevice.TYPE_RASTER_SCREEN );
+		if( isOnScreen )
+		{
+			this.displayBuffer.paint( g2D, this.settings, this.transform, this.viewport.getWidth( ), this.viewport.getHeight( ) );
+			this.paintFunctionOverlay( g2D );
+		}
+		
 		// Apply the transformation
 		AffineTransform original = g2D.getTransform( );
 		original.concatenate( this.transform );
 		g2D.setTransform( original );
 		
-		// Paint the graph
-		GraphDisplayView.paint( g2D, this.graph, this.settings );
+		// Printers and images get the whole graph painted directly, with the dynamic functions evaluated onto it on the spot
+		if( !isOnScreen )
+		{
+			GraphDisplayView.paint( g2D, this.graph, this.settings );
 		
-		// Apply any selected functions
-		for( Entry<Function, JLabel> entry : this.selectedFunctionLabels.entrySet( ) )
-			entry.getValue( ).setText( entry.getKey( ) + ": " + entry.getKey( ).evaluate( g2D, this.graph, this ) );
+			for( Function function : this.selectedFunctionLabels.keySet( ) )
+				this.invariantCache.evaluate( function, g2D, this.graph, this );
+		}
 		
 		// Paint controller-specific stuff
 		if( this.isMouseDownOnCanvas )
@@ -2095,8 +2227,27 @@ public class GraphDisplayController extends JPanel
 	
 	public void redo( )
 	{
-		if( this.undoHistory.next( ) != null )
-			this.setGraph( new Graph( this.undoHistory.current( ) ) );
+		this.undoHistory.redo( );
+	}
+	
+	private void repaintViewport( )
+	{
+		if( this.isViewportInvalidated )
+			this.viewport.repaint( );
+		else if( this.isSelectionInvalidated )
+		{
+			Rectangle2D damage = this.displayBuffer.getDamagedBounds( );
+			if( damage != null )
+			{
+				// Leave a pixel or two either side for antialiasing
+				Rectangle region = this.transform.createTransformedShape( damage ).getBounds( );
+				region.grow( 2, 2 );
+				this.viewport.repaint( region );
+			}
+		}
+		
+		this.isViewportInvalidated = false;
+		this.isSelectionInvalidated = false;
 	}
 	
 	public void removeGraphChangeListener( GraphChangeEventListener listener )
@@ -2104,6 +2255,12 @@ public class GraphDisplayController extends JPanel
 		this.graphChangeListenerList.remove( GraphChangeEventListener.class, listener );
 	}
 	
+	private void scheduleViewportRepaint( )
+	{
+		if( this.viewportRepaintTimer != null && !this.viewportRepaintTimer.isRunning( ) )
+			this.viewportRepaintTimer.start( );
+	}
+	
 	public void selectAll( )
 	{
 		this.graph.selectAll( true );
@@ -2124,6 +2281,7 @@ public class GraphDisplayController extends JPanel
 	public void setGraph( Graph graph )
 	{
 		this.graph = graph;
+		this.displayBuffer = new GraphDisplayBuffer( graph );
 		graph.addObserver( new Observer( )
 		{
 			@Override
@@ -2133,6 +2291,10 @@ public class GraphDisplayController extends JPanel
 			}
 		} );
 		
+		if( this.undoHistory != null )
+			this.undoHistory.dispose( );
+		this.undoHistory = new UndoHistory( graph, UserSettings.instance.undoLoggingMaximum.get( ) );
+		
 		this.isMouseDownOnCanvas = false;
 		this.currentMousePoint = new Point( 0, 0 );
 		this.pastMousePoint = new Point( 0, 0 );
@@ -2142,7 +2304,11 @@ public class GraphDisplayController extends JPanel
 		this.paintToolClickedObject = false;
 		this.fromVertex = null;
 		
-		this.isViewportInvalidated = true;
+		this.functionEvaluation = null;
+		if( this.functionTimer != null )
+			this.functionTimer.restart( );
+		
+		this.invalidateViewport( );
 	}
 	
 	public void setTool( Tool tool )
@@ -2183,8 +2349,7 @@ public class GraphDisplayController extends JPanel
 	
 	public void undo( )
 	{
-		if( this.undoHistory.previous( ) != null )
-			this.setGraph( new Graph( this.undoHistory.current( ) ) );
+		this.undoHistory.undo( );
 	}
 	
 	private void viewportKeyPressed( KeyEvent event )
@@ -2237,7 +2402,7 @@ public class GraphDisplayController extends JPanel
 							break;
 					}
 					
-					this.isViewportInvalidated = true;
+					this.invalidateViewport( );
 				}
 				else
 					switch( event.getKeyCode( ) )
@@ -2292,7 +2457,7 @@ public class GraphDisplayController extends JPanel
 						double yDelta = Math.round( ( GraphDisplayController.this.pastMousePoint.y - focusPoint.getY( ) ) / UserSettings.instance.panDecelerationFactor.get( ) );
 						
 						GraphDisplayController.this.transform.translate( xDelta, yDelta );
-						GraphDisplayController.this.isViewportInvalidated = true;
+						GraphDisplayController.this.invalidateViewport( );
 						
 						if( xDelta == 0 && yDelta == 0 )
 							timer.stop( );
@@ -2313,10 +2478,11 @@ public class GraphDisplayController extends JPanel
 		Point oldPoint = new Point( this.currentMousePoint );
 		this.transform.inverseTransform( event.getPoint( ), this.currentMousePoint );
 		
+		// Dragging the selection damages only where it was and is, but the selection rectangle and drag-edge may be anywhere
 		if( this.tool == Tool.POINTER_TOOL && this.pointerToolClickedObject )
 			this.graph.translateSelected( this.currentMousePoint.getX( ) - oldPoint.x, this.currentMousePoint.getY( ) - oldPoint.y );
-		
-		this.isViewportInvalidated = true;
+		else
+			this.invalidateViewport( );
 	}
 	
 	private void viewportMousePressed( MouseEvent event ) throws NoninvertibleTransformException
@@ -2334,34 +2500,31 @@ public class GraphDisplayController extends JPanel
 				boolean isShiftDown = ( ( modifiers & InputEvent.SHIFT_DOWN_MASK ) == InputEvent.SHIFT_DOWN_MASK );
 				this.pointerToolClickedObject = false;
 				
-				for( int i = this.graph.vertices.size( ) - 1; i >= 0; --i )
+				// Of the elements clicked, the one drawn last appears on top
+				List<Vertex> clickedVertices = this.getClickedVertices( );
+				if( !clickedVertices.isEmpty( ) )
 				{
-					Vertex vertex = this.graph.vertices.get( i );
-					if( VertexDisplayView.wasClicked( vertex, this.currentMousePoint, this.transform.getScaleX( ) ) )
-					{
-						if( !vertex.isSelected.get( ) && !isShiftDown )
-							this.graph.selectAll( false );
+					Vertex vertex = clickedVertices.get( clickedVertices.size( ) - 1 );
+					if( !vertex.isSelected.get( ) && !isShiftDown )
+						this.graph.selectAll( false );
 						
-						vertex.isSelected.set( true );
-						this.pointerToolClickedObject = true;
-						break;
-					}
+					vertex.isSelected.set( true );
+					this.pointerToolClickedObject = true;
 				}
 				
 				if( !this.pointerToolClickedObject )
-					for( int i = this.graph.edges.size( ) - 1; i >= 0; --i )
+				{
+					List<Edge> clickedEdges = this.getClickedEdges( );
+					if( !clickedEdges.isEmpty( ) )
 					{
-						Edge edge = this.graph.edges.get( i );
-						if( EdgeDisplayView.wasClicked( edge, this.currentMousePoint, this.transform.getScaleX( ) ) )
-						{
-							if( !edge.isSelected.get( ) && !isShiftDown )
-								this.graph.selectAll( false );
+						Edge edge = clickedEdges.get( clickedEdges.size( ) - 1 );
+						if( !edge.isSelected.get( ) && !isShiftDown )
+							this.graph.selectAll( false );
 							
-							edge.isSelected.set( true );
-							this.pointerToolClickedObject = true;
-							break;
-						}
+						edge.isSelected.set( true );
+						this.pointerToolClickedObject = true;
 					}
+				}
 				
 				if( !this.pointerToolClickedObject )
 					for( int i = this.graph.captions.size( ) - 1; i >= 0; --i )
@@ -2411,38 +2574,37 @@ public class GraphDisplayController extends JPanel
 					boolean fromVertexClicked = false;
 					boolean toVertexClicked = false;
 					
-					for( Vertex vertex : this.graph.vertices )
-						if( VertexDisplayView.wasClicked( vertex, this.currentMousePoint, this.transform.getScaleX( ) ) )
-							if( this.fromVertex == null )
+					for( Vertex vertex : this.getClickedVertices( ) )
+						if( this.fromVertex == null )
+						{
+							// If the user has not yet defined a from Vertex, make this one so
+							vertex.isSelected.set( true );
+							this.fromVertex = vertex;
+							fromVertexClicked = true;
+							break;
+						}
+						else
+						{
+							// If the user has already defined a from Vertex, try to add an edge between it and this one
+							
+							if( this.graph.edges.add( new Edge( this.graph.areDirectedEdgesAllowed, this.fromVertex, vertex ) ) )
 							{
-								// If the user has not yet defined a from Vertex, make this one so
-								vertex.isSelected.set( true );
-								this.fromVertex = vertex;
-								fromVertexClicked = true;
-								break;
+								this.fromVertex.isSelected.set( false );
+								this.fromVertex = !UserSettings.instance.deselectVertexWithNewEdge.get( ) ? vertex : null;
+								if( this.fromVertex != null )
+									this.fromVertex.isSelected.set( true );
+								toVertexClicked = true;
 							}
 							else
+								Toolkit.getDefaultToolkit( ).beep( );
+							
+							if( !toVertexClicked )
 							{
-								// If the user has already defined a from Vertex, try to add an edge between it and this one
-								
-								if( this.graph.edges.add( new Edge( this.graph.areDirectedEdgesAllowed, this.fromVertex, vertex ) ) )
-								{
-									this.fromVertex.isSelected.set( false );
-									this.fromVertex = !UserSettings.instance.deselectVertexWithNewEdge.get( ) ? vertex : null;
-									if( this.fromVertex != null )
-										this.fromVertex.isSelected.set( true );
-									toVertexClicked = true;
-								}
-								else
-									Toolkit.getDefaultToolkit( ).beep( );
-								
-								if( !toVertexClicked )
-								{
-									this.fromVertex.isSelected.set( false );
-									this.fromVertex = null;
-									fromVertexClicked = true;
-								}
+								this.fromVertex.isSelected.set( false );
+								this.fromVertex = null;
+								fromVertexClicked = true;
 							}
+						}
 					
 					if( !fromVertexClicked && !toVertexClicked )
 						this.graph.vertices.add( new Vertex( this.currentMousePoint.x, this.currentMousePoint.y ) );
@@ -2471,23 +2633,21 @@ public class GraphDisplayController extends JPanel
 				
 				if( event.getButton( ) == MouseEvent.BUTTON1 )
 				{
-					for( Vertex vertex : this.graph.vertices )
-						if( VertexDisplayView.wasClicked( vertex, this.currentMousePoint, this.transform.getScaleX( ) ) )
+					for( Vertex vertex : this.getClickedVertices( ) )
+					{
+						this.graph.vertices.remove( vertex );
+						this.cutToolClickedObject = true;
+						break;
+					}
+					
+					if( !this.cutToolClickedObject )
+						for( Edge edge : this.getClickedEdges( ) )
 						{
-							this.graph.vertices.remove( vertex );
+							this.graph.edges.remove( edge );
 							this.cutToolClickedObject = true;
 							break;
 						}
 					
-					if( !this.cutToolClickedObject )
-						for( Edge edge : this.graph.edges )
-							if( EdgeDisplayView.wasClicked( edge, this.currentMousePoint, this.transform.getScaleX( ) ) )
-							{
-								this.graph.edges.remove( edge );
-								this.cutToolClickedObject = true;
-								break;
-							}
-					
 					if( !this.cutToolClickedObject )
 						for( Caption caption : this.graph.captions )
 							if( CaptionDisplayView.wasHandleClicked( caption, this.currentMousePoint, this.transform.getScaleX( ) ) )
@@ -2504,27 +2664,25 @@ public class GraphDisplayController extends JPanel
 				
 				if( event.getButton( ) == MouseEvent.BUTTON1 )
 				{
-					for( Vertex vertex : this.graph.vertices )
-						if( VertexDisplayView.wasClicked( vertex, this.currentMousePoint, this.transform.getScaleX( ) ) )
+					for( Vertex vertex : this.getClickedVertices( ) )
+					{
+						vertex.color.set( this.paintColor );
+						this.paintToolClickedObject = true;
+						break;
+					}
+					
+					if( !this.paintToolClickedObject )
+						for( Edge edge : this.getClickedEdges( ) )
 						{
-							vertex.color.set( this.paintColor );
+							edge.color.set( this.paintColor );
 							this.paintToolClickedObject = true;
 							break;
 						}
-					
-					if( !this.paintToolClickedObject )
-						for( Edge edge : this.graph.edges )
-							if( EdgeDisplayView.wasClicked( edge, this.currentMousePoint, this.transform.getScaleX( ) ) )
-							{
-								edge.color.set( this.paintColor );
-								this.paintToolClickedObject = true;
-								break;
-							}
 				}
 		}
 		
 		this.isMouseDownOnCanvas = true;
-		this.isViewportInvalidated = true;
+		this.invalidateViewport( );
 	}
 	
 	private void viewportMouseReleased( MouseEvent event ) throws NoninvertibleTransformException
@@ -2537,13 +2695,11 @@ public class GraphDisplayController extends JPanel
 					{
 						Rectangle selection = this.getSelectionRectangle( );
 						
-						for( Vertex vertex : this.graph.vertices )
-							if( VertexDisplayView.wasSelected( vertex, selection ) )
-								vertex.isSelected.set( true );
+						for( Vertex vertex : this.getVerticesIn( selection ) )
+							vertex.isSelected.set( true );
 						
-						for( Edge edge : this.graph.edges )
-							if( EdgeDisplayView.wasSelected( edge, selection ) )
-								edge.isSelected.set( true );
+						for( Edge edge : this.getEdgesIn( selection ) )
+							edge.isSelected.set( true );
 						
 						for( Caption caption : this.graph.captions )
 							if( CaptionDisplayView.wasHandleSelected( caption, selection ) )
@@ -2564,8 +2720,8 @@ public class GraphDisplayController extends JPanel
 				break;
 			case GRAPH_TOOL:
 				if( this.fromVertex != null )
-					for( Vertex vertex : this.graph.vertices )
-						if( this.fromVertex != vertex && VertexDisplayView.wasClicked( vertex, this.currentMousePoint, this.transform.getScaleX( ) ) )
+					for( Vertex vertex : this.getClickedVertices( ) )
+						if( this.fromVertex != vertex )
 							if( this.graph.edges.add( new Edge( this.graph.areDirectedEdgesAllowed, this.fromVertex, vertex ) ) )
 							{
 								this.fromVertex.isSelected.set( false );
@@ -2583,13 +2739,11 @@ public class GraphDisplayController extends JPanel
 					Rectangle selection = this.getSelectionRectangle( );
 					this.graph.selectAll( false );
 					
-					for( Vertex vertex : this.graph.vertices )
-						if( VertexDisplayView.wasSelected( vertex, selection ) )
-							vertex.isSelected.set( true );
+					for( Vertex vertex : this.getVerticesIn( selection ) )
+						vertex.isSelected.set( true );
 					
-					for( Edge edge : this.graph.edges )
-						if( EdgeDisplayView.wasSelected( edge, selection ) )
-							edge.isSelected.set( true );
+					for( Edge edge : this.getEdgesIn( selection ) )
+						edge.isSelected.set( true );
 					
 					for( Caption caption : this.graph.captions )
 						if( CaptionDisplayView.wasHandleSelected( caption, selection ) )
@@ -2606,20 +2760,18 @@ public class GraphDisplayController extends JPanel
 				{
 					Rectangle selection = this.getSelectionRectangle( );
 					
-					for( Vertex vertex : this.graph.vertices )
-						if( VertexDisplayView.wasSelected( vertex, selection ) )
-							vertex.color.set( this.paintColor );
+					for( Vertex vertex : this.getVerticesIn( selection ) )
+						vertex.color.set( this.paintColor );
 					
-					for( Edge edge : this.graph.edges )
-						if( EdgeDisplayView.wasSelected( edge, selection ) )
-							edge.color.set( this.paintColor );
+					for( Edge edge : this.getEdgesIn( selection ) )
+						edge.color.set( this.paintColor );
 				}
 				
 				break;
 		}
 		
 		this.isMouseDownOnCanvas = false;
-		this.isViewportInvalidated = true;
+		this.invalidateViewport( );
 	}
 	
 	public void zoomCenter( Point2D.Double center, double factor )
@@ -2632,7 +2784,7 @@ public class GraphDisplayController extends JPanel
 		
 		this.transform.translate( Math.round( -center.x ), Math.round( -center.y ) );
 		
-		this.isViewportInvalidated = true;
+		this.invalidateViewport( );
 	}
 	
 	public void zoomFit( )
@@ -2660,18 +2812,18 @@ public class GraphDisplayController extends JPanel
 		this.transform.translate( Math.round( -graphCenter.x ), Math.round( -graphCenter.y ) );
 		
 		// And of course, we want to refresh the viewport
-		this.isViewportInvalidated = true;
+		this.invalidateViewport( );
 	}
 	
 	public void zoomMax( )
 	{
 		this.transform.setTransform( UserSettings.instance.maximumZoomFactor.get( ), this.transform.getShearY( ), this.transform.getShearX( ), UserSettings.instance.maximumZoomFactor.get( ), Math.round( this.transform.getTranslateX( ) ), Math.round( this.transform.getTranslateY( ) ) );
-		this.isViewportInvalidated = true;
+		this.invalidateViewport( );
 	}
 	
 	public void zoomOneToOne( )
 	{
 		this.transform.setTransform( 1, this.transform.getShearY( ), this.transform.getShearX( ), 1, (int) this.transform.getTranslateX( ), (int) this.transform.getTranslateY( ) );
-		this.isViewportInvalidated = true;
+		this.invalidateViewport( );
 	}
 }
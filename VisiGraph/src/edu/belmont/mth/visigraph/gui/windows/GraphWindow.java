@@ -165,6 +165,7 @@ public class GraphWindow extends JInternalFrame implements GraphChangeEventListe
 		this.fileChooser.addChoosableFileFilter( new FileNameExtensionFilter( StringBundle.get( "portable_network_graphics_file_description" ), "png" ) );
 		this.fileChooser.addChoosableFileFilter( new FileNameExtensionFilter( StringBundle.get( "scalable_vector_graphics_file_description" ), "svg" ) );
 		this.fileChooser.addChoosableFileFilter( new FileNameExtensionFilter( StringBundle.get( "visigraph_file_description" ), "vsg" ) );
+		this.fileChooser.addChoosableFileFilter( new FileNameExtensionFilter( StringBundle.get( "visigraph_binary_file_description" ), "vsgb" ) );
 		this.fileChooser.setMultiSelectionEnabled( false );
 		
 		boolean success = false;
@@ -177,6 +178,8 @@ public class GraphWindow extends JInternalFrame implements GraphChangeEventListe
 					
 					if( this.fileChooser.getFileFilter( ).getDescription( ).equals( StringBundle.get( "visigraph_file_description" ) ) && !selectedFile.getName( ).endsWith( ".vsg" ) )
 						selectedFile = new File( selectedFile.getAbsolutePath( ) + ".vsg" );
+					else if( this.fileChooser.getFileFilter( ).getDescription( ).equals( StringBundle.get( "visigraph_binary_file_description" ) ) && !selectedFile.getName( ).endsWith( ".vsgb" ) )
+						selectedFile = new File( selectedFile.getAbsolutePath( ) + ".vsgb" );
 					else if( this.fileChooser.getFileFilter( ).getDescription( ).equals( StringBundle.get( "scalable_vector_graphics_file_description" ) ) && !selectedFile.getName( ).endsWith( ".svg" ) )
 						selectedFile = new File( selectedFile.getAbsolutePath( ) + ".svg" );
 					else if( this.fileChooser.getFileFilter( ).getDescription( ).equals( StringBundle.get( "portable_network_graphics_file_description" ) ) && !selectedFile.getName( ).endsWith( ".png" ) )
@@ -205,9 +208,17 @@ public class GraphWindow extends JInternalFrame implements GraphChangeEventListe
 			graph.name.set( file.getName( ).substring( 0, file.getName( ).length( ) - 4 ) );
 			this.updateTitle( );
 			
-			FileWriter fw = new FileWriter( file );
-			fw.write( graph.toString( ) );
-			fw.close( );
+			GraphWriter.write( graph, file );
+			
+			this.setFile( file );
+			this.setHasChanged( false );
+		}
+		else if( file.getName( ).endsWith( ".vsgb" ) )
+		{
+			graph.name.set( file.getName( ).substring( 0, file.getName( ).length( ) - 5 ) );
+			this.updateTitle( );
+			
+			BinaryGraphFormat.write( graph, file );
 			
 			this.setFile( file );
 			this.setHasChanged( false );
@@ -163,7 +163,7 @@ public class MainWindow extends JFrame
 					{
 						MainWindow.this.fileChooser.resetChoosableFileFilters( );
 						MainWindow.this.fileChooser.setAcceptAllFileFilterUsed( false );
-						MainWindow.this.fileChooser.setFileFilter( new FileNameExtensionFilter( StringBundle.get( "visigraph_file_description" ), "vsg" ) );
+						MainWindow.this.fileChooser.setFileFilter( new FileNameExtensionFilter( StringBundle.get( "visigraph_file_description" ), "vsg", "vsgb" ) );
 						MainWindow.this.fileChooser.setMultiSelectionEnabled( true );
 						
 						boolean success = false;
@@ -841,14 +841,7 @@ public class MainWindow extends JFrame
 	
 	public void openFile( File file ) throws IOException
 	{
-		Scanner scanner = new Scanner( file );
-		StringBuilder sb = new StringBuilder( );
-		while( scanner.hasNextLine( ) )
-			sb.append( scanner.nextLine( ) );
-		
-		scanner.close( );
-		
-		Graph newGraph = new Graph( sb.toString( ) );
+		Graph newGraph = ( file.getName( ).endsWith( ".vsgb" ) ? BinaryGraphFormat.read( file ) : GraphReader.read( file ) );
 		if( newGraph != null )
 			this.addGraphWindow( newGraph ).setFile( file );
 	}
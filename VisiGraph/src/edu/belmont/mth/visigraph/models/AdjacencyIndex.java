@@ -0,0 +1,589 @@
+/**
+ * AdjacencyIndex.java
+ */
+package edu.belmont.mth.visigraph.models;
+
+import java.util.*;
+
+/**
+ * The {@code AdjacencyIndex} class stores the structure of a {@link Graph} in compact, primitive-indexed form, and is the graph's only record of
+ * which edges are incident to which vertices. Every vertex and edge in the graph is assigned a dense integer index from zero, and each vertex's
+ * incident edges are kept as a row of edge indices: for each vertex {@code v}, its incident edges are {@code getIncidentEdges(v)[0]} through
+ * {@code getIncidentEdges(v)[getDegree(v) - 1]}, while the vertices at either end of each edge {@code e} are {@code getEdgeSources()[e]} and
+ * {@code getEdgeTargets()[e]}. Every edge appears in the rows of both of its endpoints, whether or not it is directed, save for loops, which
+ * appear only once in the row of their vertex.
+ * <p/>
+ * An {@code AdjacencyIndex} is owned by its {@code Graph}, which updates it upon every vertex and edge added or removed. Each update costs O(1)
+ * time, except the removal of a vertex, which costs time proportional to the degree of the vertex whose index it takes. To keep the indices dense,
+ * the last vertex or edge is moved into the index of one removed, so indices need not match positions in {@link Graph#vertices} or
+ * {@link Graph#edges}, and are only meaningful until the next structural change to the graph. The arrays returned are this index's own backing
+ * store, may be longer than the number of entries in use, and must be treated as read-only.
+ * <p/>
+ * Vertices and edges are mapped to their indices by identity, through open-addressed tables of primitive indices rather than maps of boxed ones,
+ * so that the whole index costs a few dozen bytes per vertex and edge.
+ * 
+ * @author Cameron Behar
+ * @see Graph#getAdjacencyIndex()
+ */
+public class AdjacencyIndex
+{
+	/**
+	 * The {@code IdentityTable} class maps objects, compared by identity, to non-negative {@code int}s, using linear probing over parallel arrays
+	 */
+	private static class IdentityTable
+	{
+		/**
+		 * The keys of this table, or {@code null} where a slot is empty
+		 */
+		private Object[ ]	keys;
+		
+		/**
+		 * The value of each key, by slot
+		 */
+		private int[ ]		values;
+		
+		/**
+		 * The number of keys in this table
+		 */
+		private int			size;
+		
+		/**
+		 * Constructs an empty {@code IdentityTable}
+		 */
+		public IdentityTable( )
+		{
+			this.keys = new Object[16];
+			this.values = new int[16];
+			this.size = 0;
+		}
+		
+		/**
+		 * Grows this table, if need be, so that it may hold the specified number of keys without being resized again
+		 * 
+		 * @param capacity the number of keys this table must be able to hold
+		 */
+		public void ensureCapacity( int capacity )
+		{
+			if( 2 * capacity > this.keys.length )
+				this.resize( Integer.highestOneBit( 2 * capacity - 1 ) << 1 );
+		}
+		
+		/**
+		 * Returns the value of the specified key
+		 * 
+		 * @param key the key whose value to return
+		 * @return the value of the key, or -1 if it is not in this table
+		 */
+		public int get( Object key )
+		{
+			int mask = this.keys.length - 1;
+			for( int slot = hash( key ) & mask; this.keys[slot] != null; slot = ( slot + 1 ) & mask )
+				if( this.keys[slot] == key )
+					return this.values[slot];
+			
+			return -1;
+		}
+		
+		/**
+		 * Sets the value of the specified key, adding the key if it is not already in this table
+		 * 
+		 * @param key the key whose value to set
+		 * @param value the key's new value
+		 */
+		public void put( Object key, int value )
+		{
+			this.ensureCapacity( this.size + 1 );
+			
+			int mask = this.keys.length - 1, slot = hash( key ) & mask;
+			while( this.keys[slot] != null && this.keys[slot] != key )
+				slot = ( slot + 1 ) & mask;
+			
+			if( this.keys[slot] == null )
+			{
+				this.keys[slot] = key;
+				++this.size;
+			}
+			
+			this.values[slot] = value;
+		}
+		
+		/**
+		 * Removes the specified key from this table, shifting back any later keys in its probe sequence so that no tombstones are left behind
+		 * 
+		 * @param key the key to remove
+		 * @return the value of the key, or -1 if it was not in this table
+		 */
+		public int remove( Object key )
+		{
+			int mask = this.keys.length - 1, slot = hash( key ) & mask;
+			while( this.keys[slot] != key )
+			{
+				if( this.keys[slot] == null )
+					return -1;
+				slot = ( slot + 1 ) & mask;
+			}
+			
+			int value = this.values[slot];
+			for( int next = ( slot + 1 ) & mask; this.keys[next] != null; next = ( next + 1 ) & mask )
+			{
+				// A key may only be moved back into the hole if its home slot does not lie cyclically between the hole and the key
+				int home = hash( this.keys[next] ) & mask;
+				if( next > slot ? ( home <= slot || home > next ) : ( home <= slot && home > next ) )
+				{
+					this.keys[slot] = this.keys[next];
+					this.values[slot] = this.values[next];
+					slot = next;
+				}
+			}
+			
+			this.keys[slot] = null;
+			--this.size;
+			return value;
+		}
+		
+		/**
+		 * Returns the hash of the specified key, with its identity hash code's bits spread so that consecutive codes do not cluster
+		 * 
+		 * @param key the key whose hash to return
+		 * @return the hash of the key
+		 */
+		private static int hash( Object key )
+		{
+			int hash = System.identityHashCode( key ) * 0x9E3779B9;
+			return hash ^ ( hash >>> 16 );
+		}
+		
+		/**
+		 * Rehashes every key in this table into a new array of the specified length
+		 * 
+		 * @param length the new length of this table's arrays, which must be a power of two
+		 */
+		private void resize( int length )
+		{
+			Object[ ] keys = this.keys;
+			int[ ] values = this.values;
+			
+			this.keys = new Object[length];
+			this.values = new int[length];
+			
+			int mask = length - 1;
+			for( int i = 0; i < keys.length; ++i )
+				if( keys[i] != null )
+				{
+					int slot = hash( keys[i] ) & mask;
+					while( this.keys[slot] != null )
+						slot = ( slot + 1 ) & mask;
+					
+					this.keys[slot] = keys[i];
+					this.values[slot] = values[i];
+				}
+		}
+	}
+	
+	/**
+	 * An empty {@code int} array shared by the rows of all vertices without incident edges
+	 */
+	private static final int[ ]		EMPTY	= new int[0];
+	
+	/**
+	 * The graph's vertices, by index
+	 */
+	private Vertex[ ]				vertices;
+	
+	/**
+	 * The number of vertices in the graph
+	 */
+	private int						vertexCount;
+	
+	/**
+	 * The index of each vertex
+	 */
+	private final IdentityTable		vertexIndices;
+	
+	/**
+	 * The indices of each vertex's incident edges, by vertex index, of which only the first {@link #degrees}{@code [v]} are in use
+	 */
+	private int[ ][ ]				incidentEdges;
+	
+	/**
+	 * The number of edges in each vertex's row, by vertex index
+	 */
+	private int[ ]					degrees;
+	
+	/**
+	 * The graph's edges, by index
+	 */
+	private Edge[ ]					edges;
+	
+	/**
+	 * The number of edges in the graph
+	 */
+	private int						edgeCount;
+	
+	/**
+	 * The index of each edge
+	 */
+	private final IdentityTable		edgeIndices;
+	
+	/**
+	 * The index of each edge's {@code from} vertex, by edge index
+	 */
+	private int[ ]					edgeSources;
+	
+	/**
+	 * The index of each edge's {@code to} vertex, by edge index
+	 */
+	private int[ ]					edgeTargets;
+	
+	/**
+	 * The position of each edge in the row of its {@code from} vertex, by edge index
+	 */
+	private int[ ]					sourcePositions;
+	
+	/**
+	 * The position of each edge in the row of its {@code to} vertex, by edge index
+	 */
+	private int[ ]					targetPositions;
+	
+	/**
+	 * Constructs an empty {@code AdjacencyIndex}, to be filled in by its owning {@code Graph} as vertices and edges are added
+	 */
+	AdjacencyIndex( )
+	{
+		this.vertices = new Vertex[0];
+		this.vertexCount = 0;
+		this.vertexIndices = new IdentityTable( );
+		this.incidentEdges = new int[0][];
+		this.degrees = EMPTY;
+		
+		this.edges = new Edge[0];
+		this.edgeCount = 0;
+		this.edgeIndices = new IdentityTable( );
+		this.edgeSources = EMPTY;
+		this.edgeTargets = EMPTY;
+		this.sourcePositions = EMPTY;
+		this.targetPositions = EMPTY;
+	}
+	
+	/**
+	 * Returns the number of edges incident to the vertex at the specified index, with loops counted once
+	 * 
+	 * @param vertex the index of the vertex
+	 * @return the number of entries in the vertex's row
+	 */
+	public int getDegree( int vertex )
+	{
+		return this.degrees[vertex];
+	}
+	
+	/**
+	 * Returns the {@code Edge} at the specified index
+	 * 
+	 * @param index the dense index of the edge
+	 * @return the edge at the specified index
+	 */
+	public Edge getEdge( int index )
+	{
+		return this.edges[index];
+	}
+	
+	/**
+	 * Returns the number of edges in the graph
+	 * 
+	 * @return the number of edges in the graph
+	 */
+	public int getEdgeCount( )
+	{
+		return this.edgeCount;
+	}
+	
+	/**
+	 * Returns the index of each edge's {@code from} vertex, by edge index. Only the first {@link #getEdgeCount()} entries are in use.
+	 * 
+	 * @return an array of vertex indices, indexed by edge index
+	 */
+	public int[ ] getEdgeSources( )
+	{
+		return this.edgeSources;
+	}
+	
+	/**
+	 * Returns the index of each edge's {@code to} vertex, by edge index. Only the first {@link #getEdgeCount()} entries are in use.
+	 * 
+	 * @return an array of vertex indices, indexed by edge index
+	 */
+	public int[ ] getEdgeTargets( )
+	{
+		return this.edgeTargets;
+	}
+	
+	/**
+	 * Returns the row of edge indices incident to the vertex at the specified index. Only the first {@link #getDegree(int)} entries are in use.
+	 * 
+	 * @param vertex the index of the vertex
+	 * @return the vertex's row of incident edge indices
+	 */
+	public int[ ] getIncidentEdges( int vertex )
+	{
+		return this.incidentEdges[vertex];
+	}
+	
+	/**
+	 * Returns the index of the vertex at the other end of the specified edge from the specified vertex
+	 * 
+	 * @param edge the index of the edge
+	 * @param vertex the index of one of the edge's endpoints
+	 * @return the index of the edge's other endpoint, or of {@code vertex} itself if the edge is a loop
+	 */
+	public int getOpposite( int edge, int vertex )
+	{
+		return ( this.edgeSources[edge] == vertex ? this.edgeTargets[edge] : this.edgeSources[edge] );
+	}
+	
+	/**
+	 * Returns the {@code Vertex} at the specified index
+	 * 
+	 * @param index the dense index of the vertex
+	 * @return the vertex at the specified index
+	 */
+	public Vertex getVertex( int index )
+	{
+		return this.vertices[index];
+	}
+	
+	/**
+	 * Returns the number of vertices in the graph
+	 * 
+	 * @return the number of vertices in the graph
+	 */
+	public int getVertexCount( )
+	{
+		return this.vertexCount;
+	}
+	
+	/**
+	 * Returns the dense index of the specified edge
+	 * 
+	 * @param edge the edge whose index to return
+	 * @return the index of the edge, or -1 if it is not in the graph
+	 */
+	public int indexOf( Edge edge )
+	{
+		return this.edgeIndices.get( edge );
+	}
+	
+	/**
+	 * Returns the dense index of the specified vertex
+	 * 
+	 * @param vertex the vertex whose index to return
+	 * @return the index of the vertex, or -1 if it is not in the graph
+	 */
+	public int indexOf( Vertex vertex )
+	{
+		return this.vertexIndices.get( vertex );
+	}
+	
+	/**
+	 * Adds the specified edge, whose endpoints must already be in this index, to the rows of both of its endpoints. This method is called by the
+	 * owning {@code Graph} upon every edge added.
+	 * 
+	 * @param edge the edge added
+	 */
+	void edgeAdded( Edge edge )
+	{
+		if( this.edgeCount == this.edges.length )
+			this.growEdges( Math.max( 16, 2 * this.edgeCount ) );
+		
+		int source = this.vertexIndices.get( edge.from ), target = this.vertexIndices.get( edge.to );
+		if( source < 0 || target < 0 )
+			throw new IllegalStateException( "Edge added before its endpoints: " + edge );
+		
+		int index = this.edgeCount++;
+		this.edges[index] = edge;
+		this.edgeIndices.put( edge, index );
+		this.edgeSources[index] = source;
+		this.edgeTargets[index] = target;
+		this.sourcePositions[index] = this.addToRow( source, index );
+		this.targetPositions[index] = ( source == target ? this.sourcePositions[index] : this.addToRow( target, index ) );
+	}
+	
+	/**
+	 * Removes the specified edge from the rows of both of its endpoints, and moves the last edge into its index. This method is called by the owning
+	 * {@code Graph} upon every edge removed.
+	 * 
+	 * @param edge the edge removed
+	 */
+	void edgeRemoved( Edge edge )
+	{
+		int index = this.edgeIndices.remove( edge );
+		if( index < 0 )
+			return;
+		
+		this.removeFromRow( this.edgeSources[index], this.sourcePositions[index] );
+		if( this.edgeSources[index] != this.edgeTargets[index] )
+			this.removeFromRow( this.edgeTargets[index], this.targetPositions[index] );
+		
+		int last = --this.edgeCount;
+		if( index != last )
+		{
+			Edge moved = this.edges[last];
+			this.edges[index] = moved;
+			this.edgeIndices.put( moved, index );
+			this.edgeSources[index] = this.edgeSources[last];
+			this.edgeTargets[index] = this.edgeTargets[last];
+			this.sourcePositions[index] = this.sourcePositions[last];
+			this.targetPositions[index] = this.targetPositions[last];
+			this.incidentEdges[this.edgeSources[index]][this.sourcePositions[index]] = index;
+			this.incidentEdges[this.edgeTargets[index]][this.targetPositions[index]] = index;
+		}
+		
+		this.edges[last] = null;
+	}
+	
+	/**
+	 * Grows this index, if need be, so that it may hold the specified numbers of vertices and edges without being resized again
+	 * 
+	 * @param vertexCount the number of vertices this index must be able to hold
+	 * @param edgeCount the number of edges this index must be able to hold
+	 */
+	void ensureCapacity( int vertexCount, int edgeCount )
+	{
+		if( vertexCount > this.vertices.length )
+			this.growVertices( vertexCount );
+		this.vertexIndices.ensureCapacity( vertexCount );
+		
+		if( edgeCount > this.edges.length )
+			this.growEdges( edgeCount );
+		this.edgeIndices.ensureCapacity( edgeCount );
+	}
+	
+	/**
+	 * Adds the specified vertex to this index with an empty row. This method is called by the owning {@code Graph} upon every vertex added.
+	 * 
+	 * @param vertex the vertex added
+	 */
+	void vertexAdded( Vertex vertex )
+	{
+		if( this.vertexCount == this.vertices.length )
+			this.growVertices( Math.max( 16, 2 * this.vertexCount ) );
+		
+		int index = this.vertexCount++;
+		this.vertices[index] = vertex;
+		this.vertexIndices.put( vertex, index );
+		this.incidentEdges[index] = EMPTY;
+		this.degrees[index] = 0;
+	}
+	
+	/**
+	 * Removes the specified vertex, whose incident edges must already have been removed, and moves the last vertex into its index. This method is
+	 * called by the owning {@code Graph} upon every vertex removed.
+	 * 
+	 * @param vertex the vertex removed
+	 */
+	void vertexRemoved( Vertex vertex )
+	{
+		int index = this.vertexIndices.get( vertex );
+		if( index < 0 )
+			return;
+		
+		// Edges left in the vertex's row would go on referring to whichever vertex next took its index
+		if( this.degrees[index] > 0 )
+			throw new IllegalStateException( "Vertex removed before its incident edges: " + vertex );
+		
+		this.vertexIndices.remove( vertex );
+		
+		int last = --this.vertexCount;
+		if( index != last )
+		{
+			Vertex moved = this.vertices[last];
+			this.vertices[index] = moved;
+			this.vertexIndices.put( moved, index );
+			this.incidentEdges[index] = this.incidentEdges[last];
+			this.degrees[index] = this.degrees[last];
+			
+			// Renumber the ends of every edge incident to the vertex moved
+			int[ ] row = this.incidentEdges[index];
+			for( int i = 0; i < this.degrees[index]; ++i )
+			{
+				if( this.edgeSources[row[i]] == last )
+					this.edgeSources[row[i]] = index;
+				if( this.edgeTargets[row[i]] == last )
+					this.edgeTargets[row[i]] = index;
+			}
+		}
+		
+		this.vertices[last] = null;
+		this.incidentEdges[last] = null;
+	}
+	
+	/**
+	 * Appends the specified edge to the row of the specified vertex, growing the row if need be
+	 * 
+	 * @param vertex the index of the vertex
+	 * @param edge the index of the edge
+	 * @return the position of the edge in the vertex's row
+	 */
+	private int addToRow( int vertex, int edge )
+	{
+		int[ ] row = this.incidentEdges[vertex];
+		int degree = this.degrees[vertex];
+		
+		if( degree == row.length )
+			this.incidentEdges[vertex] = row = Arrays.copyOf( row, Math.max( 2, 2 * degree ) );
+		
+		row[degree] = edge;
+		this.degrees[vertex] = degree + 1;
+		return degree;
+	}
+	
+	/**
+	 * Grows every array indexed by edge to the specified length
+	 * 
+	 * @param length the new length of the arrays
+	 */
+	private void growEdges( int length )
+	{
+		this.edges = Arrays.copyOf( this.edges, length );
+		this.edgeSources = Arrays.copyOf( this.edgeSources, length );
+		this.edgeTargets = Arrays.copyOf( this.edgeTargets, length );
+		this.sourcePositions = Arrays.copyOf( this.sourcePositions, length );
+		this.targetPositions = Arrays.copyOf( this.targetPositions, length );
+	}
+	
+	/**
+	 * Grows every array indexed by vertex to the specified length
+	 * 
+	 * @param length the new length of the arrays
+	 */
+	private void growVertices( int length )
+	{
+		this.vertices = Arrays.copyOf( this.vertices, length );
+		this.incidentEdges = Arrays.copyOf( this.incidentEdges, length );
+		this.degrees = Arrays.copyOf( this.degrees, length );
+	}
+	
+	/**
+	 * Removes the entry at the specified position from the row of the specified vertex, moving the row's last entry into its place
+	 * 
+	 * @param vertex the index of the vertex
+	 * @param position the position of the entry to remove
+	 */
+	private void removeFromRow( int vertex, int position )
+	{
+		int[ ] row = this.incidentEdges[vertex];
+		int last = --this.degrees[vertex];
+		
+		if( position != last )
+		{
+			int moved = row[last];
+			row[position] = moved;
+			if( this.edgeSources[moved] == vertex )
+				this.sourcePositions[moved] = position;
+			if( this.edgeTargets[moved] == vertex )
+				this.targetPositions[moved] = position;
+		}
+		
+		if( last == 0 )
+			this.incidentEdges[vertex] = EMPTY;
+	}
+}
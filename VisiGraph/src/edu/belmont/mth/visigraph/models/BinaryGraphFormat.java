@@ -0,0 +1,486 @@
+/**
+ * BinaryGraphFormat.java
+ */
+package edu.belmont.mth.visigraph.models;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+
+/**
+ * The {@code BinaryGraphFormat} class reads and writes graphs in VisiGraph's compact binary format, saved with the .vsgb file extension.
+ * Whereas the JSON format produced by {@link GraphWriter} must be tokenized and parsed character by character, this format stores each property of a
+ * graph's vertices, edges and captions as a single column of primitive values, which are read and written in bulk through a file channel.
+ * <p/>
+ * A file begins with a fixed-length header holding the {@link #magic} number, the format {@link #version}, the graph's flags and the number of
+ * strings, vertices, edges and captions it contains. Every string in the graph (its name and tag, and each element's label, text and tag) is then
+ * stored once in a string table, and referred to elsewhere by its index in that table, or -1 if it is {@code null}. The string table is followed by
+ * the vertex columns, the edge columns and finally the caption columns. Edges refer to their endpoints by the vertices' indices.
+ * <p/>
+ * Columns of primitive values have no room for {@code null}, so a {@code null} numeric property is stored as {@code NaN}, a {@code null} color as -1
+ * and a {@code null} flag as {@code false}, and each is read back as the value stored rather than as {@code null}. Unlike the JSON format, this
+ * format also preserves the tags of a graph and its elements.
+ * 
+ * @author Cameron Behar
+ * @see GraphReader
+ * @see GraphWriter
+ */
+public class BinaryGraphFormat
+{
+	/**
+	 * The number identifying a file as being in this format, the ASCII characters "VSGB"
+	 */
+	public static final int			magic		= 0x56534742;
+	
+	/**
+	 * The version of this format written by {@link #write(Graph, File)}, and the latest version that can be read by {@link #read(File)}
+	 */
+	public static final short		version		= 1;
+	
+	/**
+	 * The number of bytes taken by the header of a file in this format
+	 */
+	private static final int		headerSize	= 32;
+	
+	/**
+	 * The number of bytes taken by each vertex across the vertex columns
+	 */
+	private static final int		vertexSize	= 2 * 8 + 4 * 8 + 3 * 4 + 1;
+	
+	/**
+	 * The number of bytes taken by each edge across the edge columns
+	 */
+	private static final int		edgeSize	= 2 * 4 + 4 * 8 + 3 * 4 + 1;
+	
+	/**
+	 * The number of bytes taken by each caption across the caption columns
+	 */
+	private static final int		captionSize	= 3 * 8 + 2 * 4 + 1;
+	
+	/**
+	 * The {@code Charset} used to encode the strings in the string table
+	 */
+	private static final Charset	charset		= Charset.forName( "UTF-8" );
+	
+	/**
+	 * Reads a {@code Graph} from the specified file in this format
+	 * 
+	 * @param file the file from which to read the graph
+	 * @return the {@code Graph} read
+	 * @throws IOException if the file could not be read, is corrupt or is not in a supported version of this format
+	 */
+	public static Graph read( File file ) throws IOException
+	{
+		FileInputStream stream = new FileInputStream( file );
+		
+		try
+		{
+			FileChannel channel = stream.getChannel( );
+			if( channel.size( ) > Integer.MAX_VALUE )
+				throw new IOException( "\"" + file.getPath( ) + "\" is too large to be a binary VisiGraph file" );
+			
+			// The file is read into a buffer of our own rather than mapped, as a mapping would keep the file locked until it was garbage collected
+			ByteBuffer buffer = ByteBuffer.allocateDirect( (int) channel.size( ) );
+			while( buffer.hasRemaining( ) )
+				if( channel.read( buffer ) < 0 )
+					throw new IOException( "\"" + file.getPath( ) + "\" is truncated" );
+			buffer.flip( );
+			
+			if( buffer.remaining( ) < headerSize || buffer.getInt( ) != magic )
+				throw new IOException( "\"" + file.getPath( ) + "\" is not a binary VisiGraph file" );
+			
+			short fileVersion = buffer.getShort( );
+			if( fileVersion > version )
+				throw new IOException( "\"" + file.getPath( ) + "\" was saved in an unsupported version (" + fileVersion + ") of the binary VisiGraph format" );
+			
+			byte flags = buffer.get( );
+			buffer.get( );
+			
+			int stringCount = buffer.getInt( );
+			int vertexCount = buffer.getInt( );
+			int edgeCount = buffer.getInt( );
+			int captionCount = buffer.getInt( );
+			int nameIndex = buffer.getInt( );
+			int tagIndex = buffer.getInt( );
+			
+			checkCount( buffer, stringCount, 4, file );
+			String[ ] strings = new String[stringCount];
+			for( int i = 0; i < stringCount; ++i )
+			{
+				int length = buffer.getInt( );
+				checkCount( buffer, length, 1, file );
+				
+				byte[ ] bytes = new byte[length];
+				buffer.get( bytes );
+				strings[i] = new String( bytes, charset );
+			}
+			
+			Graph graph = new Graph( getString( strings, nameIndex ), ( flags & 1 ) != 0, ( flags & 2 ) != 0, ( flags & 4 ) != 0, ( flags & 8 ) != 0 );
+			graph.tag.set( getString( strings, tagIndex ) );
+			
+			// Vertices
+			checkCount( buffer, vertexCount, vertexSize, file );
+			long[ ] mostSignificantBits = readLongs( buffer, vertexCount );
+			long[ ] leastSignificantBits = readLongs( buffer, vertexCount );
+			double[ ] x = readDoubles( buffer, vertexCount );
+			double[ ] y = readDoubles( buffer, vertexCount );
+			double[ ] radius = readDoubles( buffer, vertexCount );
+			double[ ] weight = readDoubles( buffer, vertexCount );
+			int[ ] color = readInts( buffer, vertexCount );
+			int[ ] label = readInts( buffer, vertexCount );
+			int[ ] tag = readInts( buffer, vertexCount );
+			byte[ ] vertexFlags = readBytes( buffer, vertexCount );
+			
+			List<Vertex> vertices = new ArrayList<Vertex>( vertexCount );
+			for( int i = 0; i < vertexCount; ++i )
+			{
+				Vertex vertex = new Vertex( x[i], y[i], getString( strings, label[i] ), radius[i], color[i], ( vertexFlags[i] & 1 ) != 0 );
+				vertex.id.set( new UUID( mostSignificantBits[i], leastSignificantBits[i] ) );
+				vertex.weight.set( weight[i] );
+				vertex.tag.set( getString( strings, tag[i] ) );
+				vertices.add( vertex );
+			}
+			
+			// Edges
+			checkCount( buffer, edgeCount, edgeSize, file );
+			int[ ] from = readInts( buffer, edgeCount );
+			int[ ] to = readInts( buffer, edgeCount );
+			weight = readDoubles( buffer, edgeCount );
+			double[ ] thickness = readDoubles( buffer, edgeCount );
+			double[ ] handleX = readDoubles( buffer, edgeCount );
+			double[ ] handleY = readDoubles( buffer, edgeCount );
+			color = readInts( buffer, edgeCount );
+			label = readInts( buffer, edgeCount );
+			tag = readInts( buffer, edgeCount );
+			byte[ ] edgeFlags = readBytes( buffer, edgeCount );
+			
+			List<Edge> edges = new ArrayList<Edge>( edgeCount );
+			for( int i = 0; i < edgeCount; ++i )
+			{
+				Edge edge = new Edge( ( edgeFlags[i] & 1 ) != 0, vertices.get( from[i] ), vertices.get( to[i] ), weight[i], color[i], getString( strings, label[i] ), ( edgeFlags[i] & 2 ) != 0 );
+				edge.thickness.set( thickness[i] );
+				edge.tag.set( getString( strings, tag[i] ) );
+				
+				// Move the handle of a curved edge in one step, rather than refreshing the edge after each coordinate
+				if( ( edgeFlags[i] & 4 ) == 0 )
+				{
+					edge.suspendNotifications( true );
+					edge.handleX.set( handleX[i] );
+					edge.handleY.set( handleY[i] );
+					edge.suspendNotifications( false );
+					edge.refresh( );
+				}
+				
+				edges.add( edge );
+			}
+			
+			// Captions
+			checkCount( buffer, captionCount, captionSize, file );
+			x = readDoubles( buffer, captionCount );
+			y = readDoubles( buffer, captionCount );
+			double[ ] size = readDoubles( buffer, captionCount );
+			int[ ] text = readInts( buffer, captionCount );
+			tag = readInts( buffer, captionCount );
+			byte[ ] captionFlags = readBytes( buffer, captionCount );
+			
+			List<Caption> captions = new ArrayList<Caption>( captionCount );
+			for( int i = 0; i < captionCount; ++i )
+			{
+				Caption caption = new Caption( x[i], y[i], getString( strings, text[i] ), size[i], ( captionFlags[i] & 1 ) != 0 );
+				caption.tag.set( getString( strings, tag[i] ) );
+				captions.add( caption );
+			}
+			
+			graph.batch( vertices, edges, captions );
+			
+			return graph;
+		}
+		catch( BufferUnderflowException ex )
+		{
+			throw new IOException( "\"" + file.getPath( ) + "\" is truncated" );
+		}
+		catch( IndexOutOfBoundsException ex )
+		{
+			// A string or vertex index out of range
+			throw new IOException( "\"" + file.getPath( ) + "\" is corrupt" );
+		}
+		finally
+		{
+			stream.close( );
+		}
+	}
+	
+	/**
+	 * Writes the specified {@code Graph} to the specified file in this format
+	 * 
+	 * @param graph the {@code Graph} to write
+	 * @param file the file to which to write the graph
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write( Graph graph, File file ) throws IOException
+	{
+		// Build the string table, storing each distinct string once
+		Map<String, Integer> stringIndices = new HashMap<String, Integer>( );
+		List<byte[ ]> strings = new ArrayList<byte[ ]>( );
+		
+		int nameIndex = addString( graph.name.get( ), stringIndices, strings );
+		int tagIndex = addString( graph.tag.get( ), stringIndices, strings );
+		
+		for( Vertex vertex : graph.vertices )
+		{
+			addString( vertex.label.get( ), stringIndices, strings );
+			addString( vertex.tag.get( ), stringIndices, strings );
+		}
+		
+		for( Edge edge : graph.edges )
+		{
+			addString( edge.label.get( ), stringIndices, strings );
+			addString( edge.tag.get( ), stringIndices, strings );
+		}
+		
+		for( Caption caption : graph.captions )
+		{
+			addString( caption.text.get( ), stringIndices, strings );
+			addString( caption.tag.get( ), stringIndices, strings );
+		}
+		
+		int vertexCount = graph.vertices.size( );
+		int edgeCount = graph.edges.size( );
+		int captionCount = graph.captions.size( );
+		
+		long size = headerSize;
+		for( byte[ ] bytes : strings )
+			size += 4 + bytes.length;
+		size += (long) vertexCount * vertexSize;
+		size += (long) edgeCount * edgeSize;
+		size += (long) captionCount * captionSize;
+		
+		if( size > Integer.MAX_VALUE )
+			throw new IOException( "The graph is too large to be saved in the binary VisiGraph format" );
+		
+		// As when reading, the file is not mapped, so that it may be opened or saved again at once
+		ByteBuffer buffer = ByteBuffer.allocateDirect( (int) size );
+		FileOutputStream stream = new FileOutputStream( file );
+		
+		try
+		{
+			// Header
+			buffer.putInt( magic );
+			buffer.putShort( version );
+			buffer.put( (byte) ( ( graph.areLoopsAllowed ? 1 : 0 ) | ( graph.areDirectedEdgesAllowed ? 2 : 0 ) | ( graph.areMultipleEdgesAllowed ? 4 : 0 ) | ( graph.areCyclesAllowed ? 8 : 0 ) ) );
+			buffer.put( (byte) 0 );
+			buffer.putInt( strings.size( ) );
+			buffer.putInt( vertexCount );
+			buffer.putInt( edgeCount );
+			buffer.putInt( captionCount );
+			buffer.putInt( nameIndex );
+			buffer.putInt( tagIndex );
+			
+			for( byte[ ] bytes : strings )
+			{
+				buffer.putInt( bytes.length );
+				buffer.put( bytes );
+			}
+			
+			// Vertices
+			for( Vertex vertex : graph.vertices )
+				buffer.putLong( vertex.id.get( ).getMostSignificantBits( ) );
+			for( Vertex vertex : graph.vertices )
+				buffer.putLong( vertex.id.get( ).getLeastSignificantBits( ) );
+			for( Vertex vertex : graph.vertices )
+				buffer.putDouble( toDouble( vertex.x.get( ) ) );
+			for( Vertex vertex : graph.vertices )
+				buffer.putDouble( toDouble( vertex.y.get( ) ) );
+			for( Vertex vertex : graph.vertices )
+				buffer.putDouble( toDouble( vertex.radius.get( ) ) );
+			for( Vertex vertex : graph.vertices )
+				buffer.putDouble( toDouble( vertex.weight.get( ) ) );
+			for( Vertex vertex : graph.vertices )
+				buffer.putInt( toInt( vertex.color.get( ) ) );
+			for( Vertex vertex : graph.vertices )
+				buffer.putInt( getIndex( vertex.label.get( ), stringIndices ) );
+			for( Vertex vertex : graph.vertices )
+				buffer.putInt( getIndex( vertex.tag.get( ), stringIndices ) );
+			for( Vertex vertex : graph.vertices )
+				buffer.put( (byte) ( toBoolean( vertex.isSelected.get( ) ) ? 1 : 0 ) );
+			
+			// Edges
+			for( Edge edge : graph.edges )
+				buffer.putInt( graph.vertices.indexOf( edge.from ) );
+			for( Edge edge : graph.edges )
+				buffer.putInt( graph.vertices.indexOf( edge.to ) );
+			for( Edge edge : graph.edges )
+				buffer.putDouble( toDouble( edge.weight.get( ) ) );
+			for( Edge edge : graph.edges )
+				buffer.putDouble( toDouble( edge.thickness.get( ) ) );
+			for( Edge edge : graph.edges )
+				buffer.putDouble( toDouble( edge.handleX.get( ) ) );
+			for( Edge edge : graph.edges )
+				buffer.putDouble( toDouble( edge.handleY.get( ) ) );
+			for( Edge edge : graph.edges )
+				buffer.putInt( toInt( edge.color.get( ) ) );
+			for( Edge edge : graph.edges )
+				buffer.putInt( getIndex( edge.label.get( ), stringIndices ) );
+			for( Edge edge : graph.edges )
+				buffer.putInt( getIndex( edge.tag.get( ), stringIndices ) );
+			for( Edge edge : graph.edges )
+				buffer.put( (byte) ( ( edge.isDirected ? 1 : 0 ) | ( toBoolean( edge.isSelected.get( ) ) ? 2 : 0 ) | ( edge.isLinear( ) ? 4 : 0 ) ) );
+			
+			// Captions
+			for( Caption caption : graph.captions )
+				buffer.putDouble( toDouble( caption.x.get( ) ) );
+			for( Caption caption : graph.captions )
+				buffer.putDouble( toDouble( caption.y.get( ) ) );
+			for( Caption caption : graph.captions )
+				buffer.putDouble( toDouble( caption.size.get( ) ) );
+			for( Caption caption : graph.captions )
+				buffer.putInt( getIndex( caption.text.get( ), stringIndices ) );
+			for( Caption caption : graph.captions )
+				buffer.putInt( getIndex( caption.tag.get( ), stringIndices ) );
+			for( Caption caption : graph.captions )
+				buffer.put( (byte) ( toBoolean( caption.isSelected.get( ) ) ? 1 : 0 ) );
+			
+			buffer.flip( );
+			
+			FileChannel channel = stream.getChannel( );
+			while( buffer.hasRemaining( ) )
+				channel.write( buffer );
+		}
+		finally
+		{
+			stream.close( );
+		}
+	}
+	
+	/**
+	 * Adds the specified string to the string table, if it is not already there
+	 * 
+	 * @param s the string to add, or {@code null}
+	 * @param stringIndices a {@code Map} of the strings already in the table to their indices
+	 * @param strings the encoded strings in the table, in order
+	 * @return the index of the string in the table, or -1 if it is {@code null}
+	 */
+	private static int addString( String s, Map<String, Integer> stringIndices, List<byte[ ]> strings )
+	{
+		if( s == null )
+			return -1;
+		
+		Integer index = stringIndices.get( s );
+		if( index == null )
+		{
+			index = strings.size( );
+			stringIndices.put( s, index );
+			strings.add( s.getBytes( charset ) );
+		}
+		
+		return index;
+	}
+	
+	/**
+	 * Checks that the specified count, read from a file, is not negative and that the buffer holds enough bytes for that many values
+	 * 
+	 * @param buffer the buffer from which the values are to be read
+	 * @param count the number of values
+	 * @param size the number of bytes taken by each value
+	 * @param file the file being read
+	 * @throws IOException if the count is negative or too large for the rest of the file
+	 */
+	private static void checkCount( ByteBuffer buffer, int count, int size, File file ) throws IOException
+	{
+		if( count < 0 || (long) count * size > buffer.remaining( ) )
+			throw new IOException( "\"" + file.getPath( ) + "\" is corrupt" );
+	}
+	
+	/**
+	 * Returns the index of the specified string in the string table
+	 * 
+	 * @param s the string, which must already have been added to the table, or {@code null}
+	 * @param stringIndices a {@code Map} of the strings in the table to their indices
+	 * @return the index of the string in the table, or -1 if it is {@code null}
+	 */
+	private static int getIndex( String s, Map<String, Integer> stringIndices )
+	{
+		return ( s == null ? -1 : stringIndices.get( s ) );
+	}
+	
+	/**
+	 * Returns the string at the specified index in the string table
+	 * 
+	 * @param strings the strings in the table
+	 * @param index the index of the string, or -1
+	 * @return the string at the specified index, or {@code null} if the index is -1
+	 */
+	private static String getString( String[ ] strings, int index )
+	{
+		return ( index < 0 ? null : strings[index] );
+	}
+	
+	/**
+	 * Reads a column of the specified number of bytes from the buffer
+	 */
+	private static byte[ ] readBytes( ByteBuffer buffer, int count )
+	{
+		byte[ ] values = new byte[count];
+		buffer.get( values );
+		return values;
+	}
+	
+	/**
+	 * Reads a column of the specified number of {@code double}s from the buffer
+	 */
+	private static double[ ] readDoubles( ByteBuffer buffer, int count )
+	{
+		double[ ] values = new double[count];
+		buffer.asDoubleBuffer( ).get( values );
+		buffer.position( buffer.position( ) + count * 8 );
+		return values;
+	}
+	
+	/**
+	 * Reads a column of the specified number of {@code int}s from the buffer
+	 */
+	private static int[ ] readInts( ByteBuffer buffer, int count )
+	{
+		int[ ] values = new int[count];
+		buffer.asIntBuffer( ).get( values );
+		buffer.position( buffer.position( ) + count * 4 );
+		return values;
+	}
+	
+	/**
+	 * Reads a column of the specified number of {@code long}s from the buffer
+	 */
+	private static long[ ] readLongs( ByteBuffer buffer, int count )
+	{
+		long[ ] values = new long[count];
+		buffer.asLongBuffer( ).get( values );
+		buffer.position( buffer.position( ) + count * 8 );
+		return values;
+	}
+	
+	/**
+	 * Returns the specified {@code Boolean} as a {@code boolean}, treating {@code null} as {@code false}
+	 */
+	private static boolean toBoolean( Boolean value )
+	{
+		return ( value != null && value.booleanValue( ) );
+	}
+	
+	/**
+	 * Returns the specified {@code Double} as a {@code double}, storing {@code null} as {@code NaN}
+	 */
+	private static double toDouble( Double value )
+	{
+		return ( value == null ? Double.NaN : value.doubleValue( ) );
+	}
+	
+	/**
+	 * Returns the specified {@code Integer} as an {@code int}, treating {@code null} as -1
+	 */
+	private static int toInt( Integer value )
+	{
+		return ( value == null ? -1 : value.intValue( ) );
+	}
+}
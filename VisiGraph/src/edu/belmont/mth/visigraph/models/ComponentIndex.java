@@ -0,0 +1,390 @@
+/**
+ * ComponentIndex.java
+ */
+package edu.belmont.mth.visigraph.models;
+
+import java.util.*;
+
+/**
+ * The {@code ComponentIndex} class keeps track of the (weakly) connected components of a {@link Graph} as it is edited, so that the number of
+ * components, and which component each vertex belongs to, can be had in near-constant time rather than by searching the entire graph upon every
+ * query. Edges are treated as undirected throughout, so in digraphs the components tracked are the weakly connected ones.
+ * <p/>
+ * The index is a disjoint-set forest (union-find) over the graph's vertices, with each component numbered densely from zero. Adding a vertex
+ * creates a new component, and adding an edge merges the components of its endpoints. Removing a vertex, which by then has no incident edges,
+ * simply drops its component. Removing an edge can only split a component if no other edge joins its endpoints, in which case searches are run
+ * outwards from both endpoints at once: should they meet, the component is still whole; should one of them run out of vertices first, the vertices
+ * it found are split off into a component of their own. Only should both searches grow large is the index marked as stale, to be lazily rebuilt in
+ * O(|V| + |E|) time the next time it is queried. The same is done when many edges are removed at once, as when the graph is cleared, and once the
+ * nodes left behind by vertices split off outnumber those still in use, so that the trees cannot grow without bound as edges are cut and rejoined.
+ * <p/>
+ * Component numbers are only meaningful until the next structural change to the graph, which may renumber any of them.
+ * 
+ * @author Cameron Behar
+ * @see Graph#getComponentIndex()
+ */
+public class ComponentIndex
+{
+	/**
+	 * The {@code Node} class holds the per-vertex state of a {@code ComponentIndex}
+	 */
+	private static class Node extends DisjointSetNode<Node>
+	{
+		/**
+		 * The number of the component this node's tree represents, meaningful only if this node is a root
+		 */
+		public int			component;
+		
+		/**
+		 * The vertex represented by this node
+		 */
+		public final Vertex	vertex;
+		
+		/**
+		 * Constructs a {@code Node} for the specified vertex
+		 * 
+		 * @param vertex the vertex represented by this node
+		 */
+		public Node( Vertex vertex )
+		{
+			this.vertex = vertex;
+		}
+	}
+	
+	/**
+	 * The greatest number of edges that may be removed at once before this index gives up following their removals one by one, and is instead
+	 * marked as stale
+	 */
+	private static final int		removalLimit	= 256;
+	
+	/**
+	 * The greatest number of vertices the searches made upon the removal of an edge may visit before giving up and marking this index as stale
+	 */
+	private static final int		searchLimit		= 4096;
+	
+	/**
+	 * The {@code Graph} whose components this index tracks
+	 */
+	private final Graph				graph;
+	
+	/**
+	 * A {@code Map} of each of the graph's vertices to its node
+	 */
+	private final Map<Vertex, Node>	nodes;
+	
+	/**
+	 * The root node of each component, by component number
+	 */
+	private final List<Node>		roots;
+	
+	/**
+	 * A {@code boolean} flag indicating whether this index must be rebuilt before it can next be queried
+	 */
+	private boolean					isStale;
+	
+	/**
+	 * The number of nodes left in the trees by vertices since split off into components of their own, which no longer represent any vertex
+	 */
+	private int						ghostCount;
+	
+	/**
+	 * Constructs a {@code ComponentIndex} for the specified graph. The index is initially stale and will be built upon first use.
+	 * 
+	 * @param graph the {@code Graph} whose components this index tracks
+	 */
+	ComponentIndex( Graph graph )
+	{
+		this.graph = graph;
+		this.nodes = new HashMap<Vertex, Node>( );
+		this.roots = new ArrayList<Node>( );
+		this.isStale = true;
+		this.ghostCount = 0;
+	}
+	
+	/**
+	 * Returns a {@code boolean} indicating whether or not the two specified vertices lie in the same component, that is, whether there exists a path
+	 * between them ignoring the directions of the edges
+	 * 
+	 * @param vertex0 the first vertex
+	 * @param vertex1 the second vertex
+	 * @return {@code true} if both vertices are in the graph and lie in the same component, {@code false} otherwise
+	 */
+	public boolean areConnected( Vertex vertex0, Vertex vertex1 )
+	{
+		int component = this.getComponent( vertex0 );
+		return ( component >= 0 && component == this.getComponent( vertex1 ) );
+	}
+	
+	/**
+	 * Returns the number of the component containing the specified vertex, between zero inclusive and {@link #getComponentCount()} exclusive
+	 * 
+	 * @param vertex the vertex whose component to return
+	 * @return the number of the vertex's component, or -1 if it is not in the graph
+	 */
+	public int getComponent( Vertex vertex )
+	{
+		this.validate( );
+		Node node = this.nodes.get( vertex );
+		return ( node == null ? -1 : node.find( ).component );
+	}
+	
+	/**
+	 * Returns the number of components in the graph
+	 * 
+	 * @return the number of components in the graph
+	 */
+	public int getComponentCount( )
+	{
+		this.validate( );
+		return this.roots.size( );
+	}
+	
+	/**
+	 * Returns the vertices of each component, by component number, with each component's vertices in the order in which they appear in
+	 * {@link Graph#vertices}
+	 * 
+	 * @return a new {@code List} of the graph's components
+	 */
+	public List<Collection<Vertex>> getComponents( )
+	{
+		this.validate( );
+		
+		List<Collection<Vertex>> components = new ArrayList<Collection<Vertex>>( this.roots.size( ) );
+		for( int i = 0; i < this.roots.size( ); ++i )
+			components.add( new ArrayList<Vertex>( ) );
+		
+		for( Vertex vertex : this.graph.vertices )
+			components.get( this.nodes.get( vertex ).find( ).component ).add( vertex );
+		
+		return components;
+	}
+	
+	/**
+	 * Records the addition of an edge to the graph, merging the components of its endpoints
+	 * 
+	 * @param edge the edge added to the graph
+	 */
+	void edgeAdded( Edge edge )
+	{
+		if( !this.isStale )
+			this.union( this.nodes.get( edge.from ), this.nodes.get( edge.to ) );
+	}
+	
+	/**
+	 * Records the removal of an edge from the graph, splitting its component in two should the edge have been the only path between its endpoints
+	 * 
+	 * @param edge the edge removed from the graph
+	 */
+	void edgeRemoved( Edge edge )
+	{
+		if( this.isStale || edge.isLoop )
+			return;
+		
+		// Any other edge between the same endpoints keeps them together
+		for( Edge other : this.graph.getIncidentEdges( edge.from ) )
+			if( other.to == edge.to || other.from == edge.to )
+				return;
+		
+		// Otherwise, search outwards from both endpoints in turn, until either the searches meet or one of them has found its entire side
+		Set<Vertex> fromSide = new HashSet<Vertex>( ), toSide = new HashSet<Vertex>( );
+		LinkedList<Vertex> fromQueue = new LinkedList<Vertex>( ), toQueue = new LinkedList<Vertex>( );
+		fromSide.add( edge.from );
+		fromQueue.addLast( edge.from );
+		toSide.add( edge.to );
+		toQueue.addLast( edge.to );
+		
+		while( fromSide.size( ) + toSide.size( ) <= searchLimit )
+		{
+			if( fromQueue.isEmpty( ) )
+			{
+				this.separate( fromSide );
+				return;
+			}
+			
+			if( this.searchFrom( fromQueue.removeFirst( ), fromSide, fromQueue, toSide ) )
+				return;
+			
+			if( toQueue.isEmpty( ) )
+			{
+				this.separate( toSide );
+				return;
+			}
+			
+			if( this.searchFrom( toQueue.removeFirst( ), toSide, toQueue, fromSide ) )
+				return;
+		}
+		
+		this.isStale = true;
+	}
+	
+	/**
+	 * Prepares for the removal of the specified edges from the graph, marking this index as stale should there be too many of them for it to be
+	 * worth splitting components edge by edge
+	 * 
+	 * @param edges the edges about to be removed from the graph
+	 */
+	void edgesRemoving( Collection<Edge> edges )
+	{
+		if( edges.size( ) > removalLimit )
+			this.isStale = true;
+	}
+	
+	/**
+	 * Records the addition of a vertex to the graph, placing it in a component of its own
+	 * 
+	 * @param vertex the vertex added to the graph
+	 */
+	void vertexAdded( Vertex vertex )
+	{
+		if( this.isStale )
+			return;
+		
+		Node node = new Node( vertex );
+		this.nodes.put( vertex, node );
+		this.addRoot( node );
+	}
+	
+	/**
+	 * Records the removal of a vertex from the graph, which must be called while the graph still knows of the vertex's incident edges. The graph
+	 * removes every edge incident to a vertex before the vertex itself, so the vertex is usually by then alone in its component, which is dropped;
+	 * should it not be, this index is instead marked as stale.
+	 * 
+	 * @param vertex the vertex being removed from the graph
+	 */
+	void vertexRemoved( Vertex vertex )
+	{
+		if( this.isStale )
+			return;
+		
+		if( this.graph.getIncidentEdges( vertex ).isEmpty( ) )
+			this.removeRoot( this.nodes.remove( vertex ).find( ) );
+		else
+			this.isStale = true;
+	}
+	
+	/**
+	 * Makes the specified node the root of a new component, numbered after every other
+	 * 
+	 * @param root the node to make a root
+	 */
+	private void addRoot( Node root )
+	{
+		root.component = this.roots.size( );
+		this.roots.add( root );
+	}
+	
+	/**
+	 * Rebuilds this index from the graph's current vertices and edges
+	 */
+	private void rebuild( )
+	{
+		this.nodes.clear( );
+		this.roots.clear( );
+		this.ghostCount = 0;
+		
+		for( Vertex vertex : this.graph.vertices )
+		{
+			Node node = new Node( vertex );
+			this.nodes.put( vertex, node );
+			this.addRoot( node );
+		}
+		
+		for( Edge edge : this.graph.edges )
+			this.union( this.nodes.get( edge.from ), this.nodes.get( edge.to ) );
+		
+		this.isStale = false;
+	}
+	
+	/**
+	 * Drops the component of the specified root, giving its number to the last component so that the numbers remain dense
+	 * 
+	 * @param root the root of the component to drop
+	 */
+	private void removeRoot( Node root )
+	{
+		Node last = this.roots.remove( this.roots.size( ) - 1 );
+		if( last != root )
+		{
+			last.component = root.component;
+			this.roots.set( root.component, last );
+		}
+	}
+	
+	/**
+	 * Visits every neighbor of the specified vertex on behalf of one of the searches made upon the removal of an edge
+	 * 
+	 * @param vertex the vertex whose neighbors to visit
+	 * @param side the vertices found so far by this search, to which any new ones are added
+	 * @param queue the vertices found by this search whose neighbors are yet to be visited, to which any new ones are added
+	 * @param otherSide the vertices found so far by the other search
+	 * @return {@code true} if the searches have met, {@code false} otherwise
+	 */
+	private boolean searchFrom( Vertex vertex, Set<Vertex> side, LinkedList<Vertex> queue, Set<Vertex> otherSide )
+	{
+		for( Edge edge : this.graph.getIncidentEdges( vertex ) )
+		{
+			Vertex neighbor = ( edge.from == vertex ? edge.to : edge.from );
+			if( otherSide.contains( neighbor ) )
+				return true;
+			
+			if( side.add( neighbor ) )
+				queue.addLast( neighbor );
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Splits the specified vertices, which must make up one side of a component that has just lost its only edge between them and the rest of it,
+	 * off into a component of their own. The vertices are given new nodes, all children of a new root, while their old nodes are left in place to
+	 * hold the rest of the component's tree together. Should those left behind come to outnumber the nodes in use, this index is instead marked as
+	 * stale, so that it is rebuilt without them.
+	 * 
+	 * @param vertices the vertices to split off
+	 */
+	private void separate( Set<Vertex> vertices )
+	{
+		this.ghostCount += vertices.size( );
+		if( this.ghostCount > this.nodes.size( ) )
+		{
+			this.isStale = true;
+			return;
+		}
+		
+		Node root = null;
+		for( Vertex vertex : vertices )
+		{
+			Node node = new Node( vertex );
+			this.nodes.put( vertex, node );
+			
+			if( root == null )
+				root = node;
+			else
+				root.union( node );
+		}
+		
+		this.addRoot( root );
+	}
+	
+	/**
+	 * Merges the components containing the two specified nodes, and gives the number of the component absorbed to the last
+	 * 
+	 * @param a a node in the first component
+	 * @param b a node in the second component
+	 */
+	private void union( Node a, Node b )
+	{
+		Node absorbed = a.union( b );
+		if( absorbed != null )
+			this.removeRoot( absorbed );
+	}
+	
+	/**
+	 * Rebuilds this index if it has been marked as stale
+	 */
+	private void validate( )
+	{
+		if( this.isStale )
+			this.rebuild( );
+	}
+}
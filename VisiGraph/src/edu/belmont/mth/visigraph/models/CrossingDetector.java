@@ -0,0 +1,479 @@
+/**
+ * CrossingDetector.java
+ */
+package edu.belmont.mth.visigraph.models;
+
+import java.awt.geom.*;
+import java.util.*;
+import edu.belmont.mth.visigraph.settings.*;
+import edu.belmont.mth.visigraph.utilities.*;
+import static java.lang.Math.*;
+
+/**
+ * The {@code CrossingDetector} class finds the crossings between the edges in a drawing of a graph, without testing every pair of edges against
+ * each other. Edges are first filed by their bounding boxes into a uniform grid, whose cells are about the size of a typical edge, so that only
+ * edges sharing a cell need be tested. Each such pair is then tested exactly, by the same line and arc geometry as
+ * {@link GeometryUtilities#getCrossings(Line2D, Line2D)} and its overloads, but without allocating anything per pair. For typical drawings this
+ * takes time roughly proportional to the number of edges plus the number of crossings found.
+ * <p/>
+ * As with those methods, crossings between adjacent edges are never reported, and each pair of edges may cross up to twice.
+ * 
+ * @author Cameron Behar
+ * @see Crossings
+ */
+public class CrossingDetector
+{
+	/**
+	 * The {@code Crossings} class holds the crossings found between a list of edges as primitive arrays, each crossing recording its location and
+	 * the indices of the two edges that cross there
+	 */
+	public static class Crossings
+	{
+		/**
+		 * The number of crossings held
+		 */
+		private int			size;
+		
+		/**
+		 * The x- and y-coordinates of each crossing, interleaved
+		 */
+		private double[ ]	points;
+		
+		/**
+		 * The indices of the two edges crossing at each crossing, interleaved
+		 */
+		private int[ ]		edges;
+		
+		/**
+		 * Constructs an empty {@code Crossings}
+		 */
+		public Crossings( )
+		{
+			this.size = 0;
+			this.points = new double[32];
+			this.edges = new int[32];
+		}
+		
+		/**
+		 * Returns the index of the first of the two edges crossing at the specified crossing, which is always the lower
+		 * 
+		 * @param i the index of the crossing
+		 * @return the index, in the list of edges searched, of the first edge
+		 */
+		public int getEdge0( int i )
+		{
+			return this.edges[2 * i];
+		}
+		
+		/**
+		 * Returns the index of the second of the two edges crossing at the specified crossing, which is always the higher
+		 * 
+		 * @param i the index of the crossing
+		 * @return the index, in the list of edges searched, of the second edge
+		 */
+		public int getEdge1( int i )
+		{
+			return this.edges[2 * i + 1];
+		}
+		
+		/**
+		 * Returns the x-coordinate of the specified crossing
+		 * 
+		 * @param i the index of the crossing
+		 * @return the crossing's x-coordinate
+		 */
+		public double getX( int i )
+		{
+			return this.points[2 * i];
+		}
+		
+		/**
+		 * Returns the y-coordinate of the specified crossing
+		 * 
+		 * @param i the index of the crossing
+		 * @return the crossing's y-coordinate
+		 */
+		public double getY( int i )
+		{
+			return this.points[2 * i + 1];
+		}
+		
+		/**
+		 * Returns the number of crossings held
+		 * 
+		 * @return the number of crossings
+		 */
+		public int size( )
+		{
+			return this.size;
+		}
+		
+		/**
+		 * Returns the locations of all crossings held
+		 * 
+		 * @return an array of the crossings' x- and y-coordinates, interleaved
+		 */
+		public double[ ] toPointArray( )
+		{
+			return Arrays.copyOf( this.points, 2 * this.size );
+		}
+		
+		/**
+		 * Adds a crossing between the specified edges at the specified location
+		 * 
+		 * @param edge0 the index of the lower-indexed edge
+		 * @param edge1 the index of the higher-indexed edge
+		 * @param x the crossing's x-coordinate
+		 * @param y the crossing's y-coordinate
+		 */
+		void add( int edge0, int edge1, double x, double y )
+		{
+			if( 2 * this.size == this.points.length )
+			{
+				this.points = Arrays.copyOf( this.points, 2 * this.points.length );
+				this.edges = Arrays.copyOf( this.edges, 2 * this.edges.length );
+			}
+			
+			this.points[2 * this.size] = x;
+			this.points[2 * this.size + 1] = y;
+			this.edges[2 * this.size] = edge0;
+			this.edges[2 * this.size + 1] = edge1;
+			++this.size;
+		}
+		
+		/**
+		 * Removes every crossing held
+		 */
+		void clear( )
+		{
+			this.size = 0;
+		}
+	}
+	
+	/**
+	 * The {@code Curve} class holds the geometry of a single edge in the primitive form the crossing tests use, read from the edge once
+	 */
+	static class Curve
+	{
+		/**
+		 * The edge whose geometry this is
+		 */
+		final Edge			edge;
+		
+		/**
+		 * Whether the edge is drawn as a line rather than an arc
+		 */
+		final boolean		isLinear;
+		
+		/**
+		 * The coordinates of the edge's line, from its first vertex to its second
+		 */
+		final double	x1, y1, x2, y2;
+		
+		/**
+		 * The edge's arc, or {@code null} if it is linear
+		 */
+		final Arc2D			arc;
+		
+		/**
+		 * The center of the edge's arc, and the square of its radius
+		 */
+		final double	centerX, centerY, radiusSquared;
+		
+		/**
+		 * The edge's bounding box, grown by the tolerance within which a point is considered to be on a line
+		 */
+		final double	minX, minY, maxX, maxY;
+		
+		/**
+		 * Reads the geometry of the specified edge
+		 * 
+		 * @param edge the edge whose geometry to read
+		 * @param tolerance the distance by which to grow the edge's bounding box
+		 */
+		Curve( Edge edge, double tolerance )
+		{
+			this.edge = edge;
+			this.isLinear = edge.isLinear( );
+			Line2D line = edge.getLine( );
+			this.x1 = line.getX1( );
+			this.y1 = line.getY1( );
+			this.x2 = line.getX2( );
+			this.y2 = line.getY2( );
+			
+			if( this.isLinear )
+			{
+				this.arc = null;
+				this.centerX = this.centerY = this.radiusSquared = 0.0;
+				this.minX = min( this.x1, this.x2 ) - tolerance;
+				this.minY = min( this.y1, this.y2 ) - tolerance;
+				this.maxX = max( this.x1, this.x2 ) + tolerance;
+				this.maxY = max( this.y1, this.y2 ) + tolerance;
+			}
+			else
+			{
+				this.arc = edge.getArc( );
+				Point2D center = edge.getCenter( );
+				this.centerX = center.getX( );
+				this.centerY = center.getY( );
+				this.radiusSquared = center.distanceSq( this.arc.getStartPoint( ) );
+				
+				Rectangle2D bounds = this.arc.getBounds2D( );
+				this.minX = bounds.getMinX( ) - tolerance;
+				this.minY = bounds.getMinY( ) - tolerance;
+				this.maxX = bounds.getMaxX( ) + tolerance;
+				this.maxY = bounds.getMaxY( ) + tolerance;
+			}
+		}
+		
+		/**
+		 * Returns whether this curve's bounding box overlaps the specified curve's
+		 * 
+		 * @param curve the other curve
+		 * @return {@code true} if the bounding boxes overlap, {@code false} otherwise
+		 */
+		boolean overlaps( Curve curve )
+		{
+			return this.minX <= curve.maxX && curve.minX <= this.maxX && this.minY <= curve.maxY && curve.minY <= this.maxY;
+		}
+	}
+	
+	/**
+	 * Returns all crossings between the specified edges
+	 * 
+	 * @param edges the edges among which to find crossings
+	 * @return the {@code Crossings} found, with edges identified by their indices in the specified list
+	 */
+	public static Crossings getCrossings( List<Edge> edges )
+	{
+		Crossings crossings = new Crossings( );
+		int n = edges.size( );
+		if( n < 2 )
+			return crossings;
+		
+		// Read each edge's geometry once, and find the extent of them all
+		double tolerance = getTolerance( );
+		Curve[ ] curves = new Curve[n];
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		double totalSize = 0.0;
+		
+		for( int i = 0; i < n; ++i )
+		{
+			Curve curve = curves[i] = new Curve( edges.get( i ), tolerance );
+			minX = min( minX, curve.minX );
+			minY = min( minY, curve.minY );
+			maxX = max( maxX, curve.maxX );
+			maxY = max( maxY, curve.maxY );
+			totalSize += max( curve.maxX - curve.minX, curve.maxY - curve.minY );
+		}
+		
+		// Size the cells to a typical edge, but never so small that there are more than a few cells per edge
+		double cellSize = max( totalSize / n, sqrt( ( maxX - minX ) * ( maxY - minY ) / ( 4.0 * n ) ) );
+		if( !( cellSize > 0.0 ) || Double.isInfinite( cellSize ) )
+			cellSize = 1.0;
+		
+		int columns = (int) min( ( maxX - minX ) / cellSize, Integer.MAX_VALUE / 2 ) + 1;
+		int rows = (int) min( ( maxY - minY ) / cellSize, Integer.MAX_VALUE / 2 ) + 1;
+		if( (long) columns * rows > 16L * n )
+		{
+			cellSize = max( ( maxX - minX ) / ( 4.0 * sqrt( n ) ), ( maxY - minY ) / ( 4.0 * sqrt( n ) ) );
+			columns = (int) ( ( maxX - minX ) / cellSize ) + 1;
+			rows = (int) ( ( maxY - minY ) / cellSize ) + 1;
+		}
+		
+		// File each curve under every cell its bounding box covers, as a counting sort into a single array
+		int[ ] cellStarts = new int[columns * rows + 1];
+		for( Curve curve : curves )
+			for( int row = row( curve.minY, minY, cellSize, rows ); row <= row( curve.maxY, minY, cellSize, rows ); ++row )
+				for( int column = column( curve.minX, minX, cellSize, columns ); column <= column( curve.maxX, minX, cellSize, columns ); ++column )
+					++cellStarts[row * columns + column + 1];
+		
+		for( int cell = 0; cell < columns * rows; ++cell )
+			cellStarts[cell + 1] += cellStarts[cell];
+		
+		int[ ] cellCurves = new int[cellStarts[columns * rows]];
+		int[ ] cellEnds = Arrays.copyOf( cellStarts, columns * rows );
+		for( int i = 0; i < n; ++i )
+		{
+			Curve curve = curves[i];
+			for( int row = row( curve.minY, minY, cellSize, rows ); row <= row( curve.maxY, minY, cellSize, rows ); ++row )
+				for( int column = column( curve.minX, minX, cellSize, columns ); column <= column( curve.maxX, minX, cellSize, columns ); ++column )
+					cellCurves[cellEnds[row * columns + column]++] = i;
+		}
+		
+		// Test each pair of curves sharing a cell, but only in the cell holding the corner of their bounding boxes' overlap, so no pair is tested
+		// twice
+		for( int row = 0; row < rows; ++row )
+			for( int column = 0; column < columns; ++column )
+			{
+				int cell = row * columns + column;
+				for( int a = cellStarts[cell]; a < cellStarts[cell + 1]; ++a )
+					for( int b = a + 1; b < cellStarts[cell + 1]; ++b )
+					{
+						int i = min( cellCurves[a], cellCurves[b] ), j = max( cellCurves[a], cellCurves[b] );
+						Curve curve0 = curves[i], curve1 = curves[j];
+						
+						if( curve0.overlaps( curve1 ) && column( max( curve0.minX, curve1.minX ), minX, cellSize, columns ) == column && row( max( curve0.minY, curve1.minY ), minY, cellSize, rows ) == row )
+							addCrossings( curve0, i, curve1, j, crossings );
+					}
+			}
+		
+		return crossings;
+	}
+	
+	/**
+	 * Adds to the specified crossings any between the two specified curves, unless their edges are adjacent
+	 * 
+	 * @param curve0 the first curve
+	 * @param i the index of the first curve's edge
+	 * @param curve1 the second curve
+	 * @param j the index of the second curve's edge
+	 * @param crossings the {@code Crossings} to which to add any found
+	 */
+	static void addCrossings( Curve curve0, int i, Curve curve1, int j, Crossings crossings )
+	{
+		// Note: we do not count crossings between adjacent (coincident) edges as they are unnecessary
+		if( curve0.edge.isAdjacent( curve1.edge ) )
+			return;
+		else if( curve0.isLinear )
+		{
+			if( curve1.isLinear )
+				addLineCrossings( curve0, curve1, i, j, crossings );
+			else
+				addLineArcCrossings( curve0, curve1, i, j, crossings );
+		}
+		else if( curve1.isLinear )
+			addLineArcCrossings( curve1, curve0, i, j, crossings );
+		else
+			addArcCrossings( curve0, curve1, i, j, crossings );
+	}
+	
+	/**
+	 * Returns the distance within which a point is considered to lie on a line, as used by {@link GeometryUtilities#areClose(Point2D, Line2D)}
+	 * 
+	 * @return the tolerance within which a point lies on a line
+	 */
+	static double getTolerance( )
+	{
+		return sqrt( UserSettings.instance.areCloseDistance.get( ) ) + 1e-6;
+	}
+	
+	/**
+	 * Adds the crossings between two arcs, exactly as {@link GeometryUtilities#getCrossings(Arc2D, Point2D, Arc2D, Point2D)} finds them
+	 */
+	private static void addArcCrossings( Curve arc0, Curve arc1, int i, int j, Crossings crossings )
+	{
+		double x0 = arc0.centerX, y0 = arc0.centerY;
+		double x1 = arc1.centerX, y1 = arc1.centerY;
+		
+		double distance = Point2D.distance( x0, y0, x1, y1 );
+		double radius0 = sqrt( arc0.radiusSquared );
+		double radius1 = sqrt( arc1.radiusSquared );
+		
+		// There are no solutions if the circles are separate, one is contained within the other, or they are coincident
+		if( distance > radius0 + radius1 || distance < abs( radius0 - radius1 ) || ( distance == 0 && radius0 == radius1 ) )
+			return;
+		
+		double a = ( arc0.radiusSquared - arc1.radiusSquared + distance * distance ) / ( 2 * distance );
+		double h = sqrt( arc0.radiusSquared - a * a );
+		
+		double x2 = x0 + a * ( x1 - x0 ) / distance;
+		double y2 = y0 + a * ( y1 - y0 ) / distance;
+		
+		// Calculate the first intersection
+		double x = x2 + h * ( y1 - y0 ) / distance, y = y2 - h * ( x1 - x0 ) / distance;
+		if( arc0.arc.containsAngle( toDegrees( atan2( -( y - y0 ), x - x0 ) ) ) && arc1.arc.containsAngle( toDegrees( atan2( -( y - y1 ), x - x1 ) ) ) )
+			crossings.add( i, j, x, y );
+		
+		// If the circles aren't tangential, calculate the second intersection
+		if( distance != radius0 + radius1 )
+		{
+			x = x2 - h * ( y1 - y0 ) / distance;
+			y = y2 + h * ( x1 - x0 ) / distance;
+			if( arc0.arc.containsAngle( toDegrees( atan2( -( y - y0 ), x - x0 ) ) ) && arc1.arc.containsAngle( toDegrees( atan2( -( y - y1 ), x - x1 ) ) ) )
+				crossings.add( i, j, x, y );
+		}
+	}
+	
+	/**
+	 * Adds the crossings between a line and an arc, exactly as {@link GeometryUtilities#getCrossings(Line2D, Arc2D, Point2D)} finds them
+	 */
+	private static void addLineArcCrossings( Curve line, Curve arc, int i, int j, Crossings crossings )
+	{
+		double x0 = line.x1 - arc.centerX, y0 = line.y1 - arc.centerY;
+		double x1 = line.x2 - arc.centerX, y1 = line.y2 - arc.centerY;
+		double xDiff = x1 - x0, yDiff = y1 - y0;
+		
+		// Math.signum() would return 0.0 for horizontal lines, rather than the 1.0 they need
+		double yDiffSign = ( yDiff < 0 ? -1 : 1 );
+		
+		double rDiffSquared = xDiff * xDiff + yDiff * yDiff;
+		double determinant = x0 * y1 - x1 * y0;
+		double discriminant = arc.radiusSquared * rDiffSquared - determinant * determinant;
+		
+		// If the line is tangent or secant to the circle...
+		if( discriminant >= 0 )
+		{
+			double rootPart = sqrt( discriminant );
+			double areCloseDistance = UserSettings.instance.areCloseDistance.get( );
+			
+			// Calculate the first intersection
+			double x = ( determinant * yDiff + yDiffSign * xDiff * rootPart ) / rDiffSquared;
+			double y = ( -determinant * xDiff + abs( yDiff ) * rootPart ) / rDiffSquared;
+			double angleToIntersection = GeometryUtilities.angle( -y, x );
+			x += arc.centerX;
+			y += arc.centerY;
+			if( Line2D.ptSegDistSq( line.x1, line.y1, line.x2, line.y2, x, y ) <= areCloseDistance && arc.arc.containsAngle( toDegrees( angleToIntersection ) ) )
+				crossings.add( i, j, x, y );
+			
+			// If the line is secant to the circle, calculate the other intersection
+			if( discriminant > 0 )
+			{
+				x = ( determinant * yDiff - yDiffSign * xDiff * rootPart ) / rDiffSquared;
+				y = ( -determinant * xDiff - abs( yDiff ) * rootPart ) / rDiffSquared;
+				angleToIntersection = GeometryUtilities.angle( -y, x );
+				x += arc.centerX;
+				y += arc.centerY;
+				if( Line2D.ptSegDistSq( line.x1, line.y1, line.x2, line.y2, x, y ) <= areCloseDistance && arc.arc.containsAngle( toDegrees( angleToIntersection ) ) )
+					crossings.add( i, j, x, y );
+			}
+		}
+	}
+	
+	/**
+	 * Adds the crossing between two lines, exactly as {@link GeometryUtilities#getCrossings(Line2D, Line2D)} finds it
+	 */
+	private static void addLineCrossings( Curve line0, Curve line1, int i, int j, Crossings crossings )
+	{
+		if( !Line2D.linesIntersect( line0.x1, line0.y1, line0.x2, line0.y2, line1.x1, line1.y1, line1.x2, line1.y2 ) )
+			return;
+		
+		double xDiff0 = line0.x2 - line0.x1;
+		double xDiff1 = line1.x2 - line1.x1;
+		double yDiff0 = line0.y2 - line0.y1;
+		double yDiff1 = line1.y2 - line1.y1;
+		double xDiff2 = line0.x1 - line1.x1;
+		double yDiff2 = line0.y1 - line1.y1;
+		
+		double div = yDiff1 * xDiff0 - xDiff1 * yDiff0;
+		double u = ( xDiff1 * yDiff2 - yDiff1 * xDiff2 ) / div;
+		crossings.add( i, j, line0.x1 + u * xDiff0, line0.y1 + u * yDiff0 );
+	}
+	
+	/**
+	 * Returns the column of the grid cell containing the specified x-coordinate
+	 */
+	private static int column( double x, double minX, double cellSize, int columns )
+	{
+		return min( (int) ( ( x - minX ) / cellSize ), columns - 1 );
+	}
+	
+	/**
+	 * Returns the row of the grid cell containing the specified y-coordinate
+	 */
+	private static int row( double y, double minY, double cellSize, int rows )
+	{
+		return min( (int) ( ( y - minY ) / cellSize ), rows - 1 );
+	}
+}
@@ -0,0 +1,532 @@
+/**
+ * CrossingIndex.java
+ */
+package edu.belmont.mth.visigraph.models;
+
+import java.util.*;
+import edu.belmont.mth.visigraph.models.CrossingDetector.Crossings;
+import edu.belmont.mth.visigraph.models.CrossingDetector.Curve;
+import edu.belmont.mth.visigraph.models.ObservableModel.Property;
+
+/**
+ * The {@code CrossingIndex} class keeps track of the crossings between the edges of a {@link Graph}, so that they need not all be found again each
+ * time a vertex or edge handle is dragged. Every edge's crossings with each other edge are stored with it, and the edges are filed by their bounding
+ * boxes in a uniform grid of square cells hashed by their integer coordinates, so that an edge's crossings can be found again by testing only the
+ * edges sharing a cell with it.
+ * <p/>
+ * A {@code CrossingIndex} is owned by its {@code Graph}, which informs it whenever an edge is added or removed and whenever a vertex or an edge's
+ * handle moves. The edges affected are merely marked as such, and have their crossings found again the next time the index is queried, so that the
+ * work done is proportional to the number of edges moved and the edges near them rather than to the size of the graph. The index itself is not built
+ * until its first query, so that graphs whose crossings are never counted pay nothing for it.
+ * <p/>
+ * Crossings are found exactly as {@link CrossingDetector} finds them, and so as {@link CrossingDetector#getCrossings(List)} would report them for the
+ * same edges.
+ * 
+ * @author Cameron Behar
+ * @see Graph#getCrossingIndex()
+ * @see CrossingDetector
+ */
+public class CrossingIndex
+{
+	/**
+	 * The {@code Entry} class holds an edge's geometry, the cells in which it is filed, and its crossings with every other edge
+	 */
+	private static class Entry
+	{
+		/**
+		 * The edge this entry describes
+		 */
+		final Edge	edge;
+		
+		/**
+		 * The order in which the edge was added to the index, used to test each pair of edges the same way round as {@link CrossingDetector} would
+		 */
+		final long	serial;
+		
+		/**
+		 * The edge's geometry when it was last filed, or {@code null} if it has not yet been
+		 */
+		Curve			curve;
+		
+		/**
+		 * The range of cells in which the edge is filed, inclusive
+		 */
+		long			minColumn, minRow, maxColumn, maxRow;
+		
+		/**
+		 * A {@code boolean} flag indicating whether the edge covers too many cells to be filed, and so is instead tested against every other edge
+		 */
+		boolean			isLarge;
+		
+		/**
+		 * The number of the last search to have visited this entry, used to visit each entry once per search no matter how many cells it shares
+		 */
+		int				visit;
+		
+		/**
+		 * The index of the edge in the list of edges most recently queried, which is only meaningful if the edge is indeed at that index
+		 */
+		int				index;
+		
+		/**
+		 * The number of crossings this edge has with others
+		 */
+		int				crossingCount;
+		
+		/**
+		 * The entry of the other edge at each crossing
+		 */
+		Entry[ ]		others;
+		
+		/**
+		 * The x- and y-coordinates of each crossing, interleaved
+		 */
+		double[ ]		points;
+		
+		/**
+		 * Constructs an {@code Entry} for the specified edge, with no crossings
+		 * 
+		 * @param edge the edge this entry describes
+		 * @param serial the order in which the edge was added to the index
+		 */
+		Entry( Edge edge, long serial )
+		{
+			this.edge = edge;
+			this.serial = serial;
+			this.curve = null;
+			this.isLarge = false;
+			this.visit = 0;
+			this.index = -1;
+			this.crossingCount = 0;
+			this.others = new Entry[4];
+			this.points = new double[8];
+		}
+		
+		/**
+		 * Records a crossing with the specified edge at the specified location
+		 * 
+		 * @param other the entry of the other edge
+		 * @param x the crossing's x-coordinate
+		 * @param y the crossing's y-coordinate
+		 */
+		void addCrossing( Entry other, double x, double y )
+		{
+			if( this.crossingCount == this.others.length )
+			{
+				this.others = Arrays.copyOf( this.others, 2 * this.others.length );
+				this.points = Arrays.copyOf( this.points, 2 * this.points.length );
+			}
+			
+			this.others[this.crossingCount] = other;
+			this.points[2 * this.crossingCount] = x;
+			this.points[2 * this.crossingCount + 1] = y;
+			++this.crossingCount;
+		}
+		
+		/**
+		 * Forgets every crossing with the specified edge
+		 * 
+		 * @param other the entry of the other edge
+		 */
+		void removeCrossings( Entry other )
+		{
+			for( int i = this.crossingCount - 1; i >= 0; --i )
+				if( this.others[i] == other )
+				{
+					--this.crossingCount;
+					this.others[i] = this.others[this.crossingCount];
+					this.points[2 * i] = this.points[2 * this.crossingCount];
+					this.points[2 * i + 1] = this.points[2 * this.crossingCount + 1];
+					this.others[this.crossingCount] = null;
+				}
+		}
+	}
+	
+	/**
+	 * The default width and height of each cell of the grid, in graph coordinates, used until there are edges by which to size the cells
+	 */
+	private static final double				defaultCellSize	= 64.0;
+	
+	/**
+	 * The most cells an edge may be filed in before it is instead tested against every other edge
+	 */
+	private static final long				maximumCells	= 1024;
+	
+	/**
+	 * The greatest magnitude of a column or row, beyond which coordinates are clamped
+	 */
+	private static final double				maximumCell		= 1L << 52;
+	
+	/**
+	 * The {@code Graph} whose crossings this index keeps
+	 */
+	private final Graph						graph;
+	
+	/**
+	 * A {@code boolean} flag indicating whether the index has been built, and so must be kept up to date with the graph
+	 */
+	private boolean							isBuilt;
+	
+	/**
+	 * The width and height of each cell of the grid, chosen when the index is built
+	 */
+	private double							cellSize;
+	
+	/**
+	 * The distance by which each edge's bounding box was grown when filed, chosen when the index is built
+	 */
+	private double							tolerance;
+	
+	/**
+	 * A {@code Map} of each edge in the graph to its entry, compared by identity
+	 */
+	private final Map<Edge, Entry>			entries;
+	
+	/**
+	 * A {@code Map} of each occupied cell's key to the entries filed in it
+	 */
+	private final Map<Long, List<Entry>>	cells;
+	
+	/**
+	 * The entries of the edges covering too many cells to be filed
+	 */
+	private final List<Entry>				largeEntries;
+	
+	/**
+	 * The entries of the edges added or moved since their crossings were last found
+	 */
+	private final Set<Entry>				movedEntries;
+	
+	/**
+	 * The number of edges ever added to the index, used to number their entries
+	 */
+	private long							serialCount;
+	
+	/**
+	 * The number of searches ever made for an edge's neighbors, used to number them
+	 */
+	private int								visitCount;
+	
+	/**
+	 * Constructs a {@code CrossingIndex} for the specified graph. The index is initially empty and will be built upon first use.
+	 * 
+	 * @param graph the {@code Graph} whose crossings this index keeps
+	 */
+	CrossingIndex( Graph graph )
+	{
+		this.graph = graph;
+		this.isBuilt = false;
+		this.entries = new IdentityHashMap<Edge, Entry>( );
+		this.cells = new HashMap<Long, List<Entry>>( );
+		this.largeEntries = new ArrayList<Entry>( );
+		this.movedEntries = Collections.newSetFromMap( new IdentityHashMap<Entry, Boolean>( ) );
+		this.serialCount = 0;
+		this.visitCount = 0;
+	}
+	
+	/**
+	 * Returns all crossings between the specified edges of the graph, finding again only those of the edges moved since the last query
+	 * 
+	 * @param edges the edges among which to return crossings, each of which must belong to the graph
+	 * @return the {@code Crossings} between the specified edges, with edges identified by their indices in the specified list
+	 */
+	public Crossings getCrossings( List<Edge> edges )
+	{
+		this.build( );
+		this.update( );
+		
+		Entry[ ] listed = new Entry[edges.size( )];
+		for( int i = 0; i < listed.length; ++i )
+			( listed[i] = this.entries.get( edges.get( i ) ) ).index = i;
+		
+		// Report each crossing once, from the lower-indexed of its two edges
+		Crossings crossings = new Crossings( );
+		for( int i = 0; i < listed.length; ++i )
+		{
+			Entry entry = listed[i];
+			for( int k = 0; k < entry.crossingCount; ++k )
+			{
+				Entry other = entry.others[k];
+				if( other.index > i && other.index < listed.length && listed[other.index] == other )
+					crossings.add( i, other.index, entry.points[2 * k], entry.points[2 * k + 1] );
+			}
+		}
+		
+		return crossings;
+	}
+	
+	/**
+	 * Informs this index that the specified edge has been added to the graph
+	 * 
+	 * @param edge the edge added
+	 */
+	void edgeAdded( Edge edge )
+	{
+		if( this.isBuilt )
+		{
+			Entry entry = new Entry( edge, this.serialCount++ );
+			this.entries.put( edge, entry );
+			this.movedEntries.add( entry );
+		}
+	}
+	
+	/**
+	 * Informs this index that the specified edge has been removed from the graph
+	 * 
+	 * @param edge the edge removed
+	 */
+	void edgeRemoved( Edge edge )
+	{
+		if( !this.isBuilt )
+			return;
+		
+		Entry entry = this.entries.remove( edge );
+		if( entry != null )
+		{
+			this.movedEntries.remove( entry );
+			this.unfile( entry );
+		}
+	}
+	
+	/**
+	 * Informs this index that a property of one of the graph's vertices or edges has changed, so that it may find the crossings of any edge moved
+	 * 
+	 * @param property the property changed
+	 */
+	void propertyChanged( Property<?> property )
+	{
+		if( !this.isBuilt )
+			return;
+		
+		if( property.getOwner( ) instanceof Vertex )
+		{
+			Vertex vertex = (Vertex) property.getOwner( );
+			
+			// Edges move with their vertices without necessarily reporting that their handles have moved
+			if( ( property == vertex.x || property == vertex.y ) && this.graph.vertices.contains( vertex ) )
+				for( Edge edge : this.graph.getIncidentEdges( vertex ) )
+					this.moved( edge );
+		}
+		else if( property.getOwner( ) instanceof Edge )
+		{
+			Edge edge = (Edge) property.getOwner( );
+			
+			if( property == edge.handleX || property == edge.handleY )
+				this.moved( edge );
+		}
+	}
+	
+	/**
+	 * Builds this index from the graph's current edges, if it has not already been built or if the tolerance by which crossings are found has
+	 * since changed
+	 */
+	private void build( )
+	{
+		if( this.isBuilt && this.tolerance == CrossingDetector.getTolerance( ) )
+			return;
+		
+		this.isBuilt = true;
+		this.tolerance = CrossingDetector.getTolerance( );
+		this.entries.clear( );
+		this.cells.clear( );
+		this.largeEntries.clear( );
+		this.movedEntries.clear( );
+		
+		// Size the cells to a typical edge, as CrossingDetector does
+		Entry[ ] built = new Entry[this.graph.edges.size( )];
+		double totalSize = 0.0;
+		for( int i = 0; i < built.length; ++i )
+		{
+			Edge edge = this.graph.edges.get( i );
+			this.entries.put( edge, built[i] = new Entry( edge, this.serialCount++ ) );
+			built[i].curve = new Curve( edge, this.tolerance );
+			totalSize += Math.max( built[i].curve.maxX - built[i].curve.minX, built[i].curve.maxY - built[i].curve.minY );
+		}
+		
+		this.cellSize = ( built.length == 0 ? defaultCellSize : totalSize / built.length );
+		if( !( this.cellSize > 0.0 ) || Double.isInfinite( this.cellSize ) )
+			this.cellSize = defaultCellSize;
+		
+		for( Entry entry : built )
+			this.file( entry );
+		
+		// Finding every crossing at once is far quicker than finding each edge's in turn
+		Crossings crossings = CrossingDetector.getCrossings( this.graph.edges );
+		for( int i = 0; i < crossings.size( ); ++i )
+		{
+			built[crossings.getEdge0( i )].addCrossing( built[crossings.getEdge1( i )], crossings.getX( i ), crossings.getY( i ) );
+			built[crossings.getEdge1( i )].addCrossing( built[crossings.getEdge0( i )], crossings.getX( i ), crossings.getY( i ) );
+		}
+	}
+	
+	/**
+	 * Files the specified entry in every cell its edge's bounding box covers
+	 */
+	private void file( Entry entry )
+	{
+		Curve curve = entry.curve;
+		
+		entry.minColumn = this.cellOf( curve.minX );
+		entry.minRow = this.cellOf( curve.minY );
+		entry.maxColumn = this.cellOf( curve.maxX );
+		entry.maxRow = this.cellOf( curve.maxY );
+		entry.isLarge = ( ( entry.maxColumn - entry.minColumn + 1.0 ) * ( entry.maxRow - entry.minRow + 1.0 ) > maximumCells );
+		
+		if( entry.isLarge )
+			this.largeEntries.add( entry );
+		else
+			for( long column = entry.minColumn; column <= entry.maxColumn; ++column )
+				for( long row = entry.minRow; row <= entry.maxRow; ++row )
+				{
+					Long key = keyOf( column, row );
+					List<Entry> cell = this.cells.get( key );
+					if( cell == null )
+						this.cells.put( key, cell = new ArrayList<Entry>( ) );
+					cell.add( entry );
+				}
+	}
+	
+	/**
+	 * Finds the crossings of the specified entry's edge with every edge near it not still waiting to have its own crossings found
+	 */
+	private void findCrossings( Entry entry, Crossings scratch )
+	{
+		int visit = ++this.visitCount;
+		entry.visit = visit;
+		
+		if( entry.isLarge )
+		{
+			for( Entry other : this.entries.values( ) )
+				this.test( entry, other, visit, scratch );
+		}
+		else
+		{
+			for( long column = entry.minColumn; column <= entry.maxColumn; ++column )
+				for( long row = entry.minRow; row <= entry.maxRow; ++row )
+				{
+					List<Entry> cell = this.cells.get( keyOf( column, row ) );
+					if( cell != null )
+						for( Entry other : cell )
+							this.test( entry, other, visit, scratch );
+				}
+			
+			for( Entry other : this.largeEntries )
+				this.test( entry, other, visit, scratch );
+		}
+	}
+	
+	/**
+	 * Marks the specified edge as needing its crossings found again before the next query
+	 */
+	private void moved( Edge edge )
+	{
+		Entry entry = this.entries.get( edge );
+		if( entry != null )
+			this.movedEntries.add( entry );
+	}
+	
+	/**
+	 * Tests the specified entries' edges for crossings and records any found with both, unless the other has already been visited by this search
+	 * or is itself still waiting to have its crossings found
+	 */
+	private void test( Entry entry, Entry other, int visit, Crossings scratch )
+	{
+		if( other.visit == visit || other.curve == null || this.movedEntries.contains( other ) )
+			return;
+		
+		other.visit = visit;
+		if( !entry.curve.overlaps( other.curve ) )
+			return;
+		
+		scratch.clear( );
+		if( entry.serial < other.serial )
+			CrossingDetector.addCrossings( entry.curve, 0, other.curve, 1, scratch );
+		else
+			CrossingDetector.addCrossings( other.curve, 0, entry.curve, 1, scratch );
+		
+		for( int i = 0; i < scratch.size( ); ++i )
+		{
+			entry.addCrossing( other, scratch.getX( i ), scratch.getY( i ) );
+			other.addCrossing( entry, scratch.getX( i ), scratch.getY( i ) );
+		}
+	}
+	
+	/**
+	 * Removes the specified entry from every cell in which it is filed, and forgets all of its crossings
+	 */
+	private void unfile( Entry entry )
+	{
+		if( entry.curve == null )
+			return;
+		
+		for( int i = 0; i < entry.crossingCount; ++i )
+			entry.others[i].removeCrossings( entry );
+		entry.crossingCount = 0;
+		Arrays.fill( entry.others, null );
+		
+		if( entry.isLarge )
+			this.largeEntries.remove( entry );
+		else
+			for( long column = entry.minColumn; column <= entry.maxColumn; ++column )
+				for( long row = entry.minRow; row <= entry.maxRow; ++row )
+				{
+					Long key = keyOf( column, row );
+					List<Entry> cell = this.cells.get( key );
+					for( int i = cell.size( ) - 1; i >= 0; --i )
+						if( cell.get( i ) == entry )
+						{
+							cell.remove( i );
+							break;
+						}
+					
+					if( cell.isEmpty( ) )
+						this.cells.remove( key );
+				}
+		
+		entry.curve = null;
+	}
+	
+	/**
+	 * Finds again the crossings of every edge moved since the last query
+	 */
+	private void update( )
+	{
+		if( this.movedEntries.isEmpty( ) )
+			return;
+		
+		// Refile every moved edge before finding any crossings, so that each is found against the others' new positions
+		List<Entry> moved = new ArrayList<Entry>( this.movedEntries );
+		for( Entry entry : moved )
+		{
+			this.unfile( entry );
+			entry.curve = new Curve( entry.edge, this.tolerance );
+			this.file( entry );
+		}
+		
+		// Each pair of moved edges is tested once, by whichever of them is reached second
+		Crossings scratch = new Crossings( );
+		for( Entry entry : moved )
+		{
+			this.movedEntries.remove( entry );
+			this.findCrossings( entry, scratch );
+		}
+	}
+	
+	/**
+	 * Returns the coordinate of the column or row of cells containing the specified coordinate
+	 */
+	private long cellOf( double coordinate )
+	{
+		// Columns and rows are clamped only where a double can no longer tell them apart, so that distant edges are not all filed in the same cells
+		return (long) Math.max( -maximumCell, Math.min( maximumCell, Math.floor( coordinate / this.cellSize ) ) );
+	}
+	
+	/**
+	 * Returns the key of the cell in the specified column and row
+	 */
+	private static Long keyOf( long column, long row )
+	{
+		// Keys are unique for columns and rows within the range of an int; cells further out may share a key, which only costs a few needless tests
+		return ( column << 32 ) ^ row;
+	}
+}
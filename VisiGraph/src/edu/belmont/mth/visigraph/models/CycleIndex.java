@@ -0,0 +1,361 @@
+/**
+ * CycleIndex.java
+ */
+package edu.belmont.mth.visigraph.models;
+
+import java.util.*;
+
+/**
+ * The {@code CycleIndex} class allows an acyclic {@link Graph} to decide whether a new edge would close a cycle in near-constant amortized time,
+ * rather than searching the entire graph for a path between the edge's endpoints upon every insertion.
+ * <p/>
+ * For undirected graphs, the index is a disjoint-set forest (union-find) over the graph's vertices: an edge closes a cycle iff its endpoints already
+ * share a tree. For directed graphs, the index maintains a topological order of the vertices using the algorithm of Pearce and Kelly: an edge that
+ * agrees with the current order can never close a cycle, and an edge that disagrees with it only requires searching the vertices lying between its
+ * endpoints in that order, which are then locally reordered once the edge has been added.
+ * <p/>
+ * Neither structure supports deletion efficiently, so the removal of any vertex or edge merely marks the index as stale. It is then lazily rebuilt
+ * in O(|V| + |E|) time the next time an edge is checked.
+ * 
+ * @author Cameron Behar
+ * @see Graph#areCyclesAllowed
+ */
+class CycleIndex
+{
+	/**
+	 * The {@code Node} class holds the per-vertex state of a {@code CycleIndex}
+	 */
+	private static class Node extends DisjointSetNode<Node> implements Comparable<Node>
+	{
+		/**
+		 * The position of this node's vertex in the topological order
+		 */
+		public int		order;
+		
+		/**
+		 * A {@code boolean} flag used to mark this node as visited during a search
+		 */
+		public boolean	isVisited	= false;
+		
+		/**
+		 * The vertex represented by this node
+		 */
+		public Vertex	vertex;
+		
+		/**
+		 * Constructs a {@code Node} for the specified vertex at the specified position in the topological order
+		 * 
+		 * @param vertex the vertex represented by this node
+		 * @param order the position of the vertex in the topological order
+		 */
+		public Node( Vertex vertex, int order )
+		{
+			this.vertex = vertex;
+			this.order = order;
+		}
+		
+		@Override
+		public int compareTo( Node other )
+		{
+			return ( this.order < other.order ? -1 : ( this.order == other.order ? 0 : 1 ) );
+		}
+	}
+	
+	/**
+	 * The {@code Graph} whose cycles this index tracks
+	 */
+	private final Graph				graph;
+	
+	/**
+	 * A {@code Map} of each of the graph's vertices to its node
+	 */
+	private final Map<Vertex, Node>	nodes;
+	
+	/**
+	 * The position in the topological order to be given to the next vertex added to the graph
+	 */
+	private int						nextOrder;
+	
+	/**
+	 * A {@code boolean} flag indicating whether the graph has lost an element since this index was last built
+	 */
+	private boolean					isStale;
+	
+	/**
+	 * The nodes reached by the forward search of the last edge checked, or {@code null} if that edge agreed with the topological order
+	 */
+	private List<Node>				forwardNodes;
+	
+	/**
+	 * The nodes reached by the backward search of the last edge checked, or {@code null} if that edge agreed with the topological order
+	 */
+	private List<Node>				backwardNodes;
+	
+	/**
+	 * The last edge checked through {@link #wouldCreateCycle(Edge)}
+	 */
+	private Edge					checkedEdge;
+	
+	/**
+	 * Constructs a {@code CycleIndex} for the specified graph. The index is initially stale and will be built upon first use.
+	 * 
+	 * @param graph the {@code Graph} whose cycles this index tracks
+	 */
+	CycleIndex( Graph graph )
+	{
+		this.graph = graph;
+		this.nodes = new HashMap<Vertex, Node>( );
+		this.isStale = true;
+	}
+	
+	/**
+	 * Records the addition of an edge to the graph. The edge must have previously passed {@link #wouldCreateCycle(Edge)}.
+	 * 
+	 * @param edge the edge added to the graph
+	 */
+	void edgeAdded( Edge edge )
+	{
+		if( this.isStale )
+			return;
+		
+		if( this.graph.areDirectedEdgesAllowed )
+		{
+			if( this.checkedEdge != edge )
+				this.wouldCreateCycle( edge );
+			
+			if( this.forwardNodes != null )
+				this.reorder( );
+		}
+		else
+			this.nodes.get( edge.from ).union( this.nodes.get( edge.to ) );
+		
+		this.checkedEdge = null;
+		this.forwardNodes = null;
+		this.backwardNodes = null;
+	}
+	
+	/**
+	 * Marks this index as stale, so that it will be rebuilt upon its next use. This method is called by the owning {@code Graph} upon the removal
+	 * or replacement of any vertex or edge.
+	 */
+	void invalidate( )
+	{
+		this.isStale = true;
+		this.checkedEdge = null;
+		this.forwardNodes = null;
+		this.backwardNodes = null;
+	}
+	
+	/**
+	 * Records the addition of a vertex to the graph, placing it last in the topological order and in its own disjoint set
+	 * 
+	 * @param vertex the vertex added to the graph
+	 */
+	void vertexAdded( Vertex vertex )
+	{
+		if( !this.isStale )
+			this.nodes.put( vertex, new Node( vertex, this.nextOrder++ ) );
+	}
+	
+	/**
+	 * Returns a {@code boolean} indicating whether or not adding the specified edge to the graph would close a cycle. Both of the edge's endpoints
+	 * must already be in the graph.
+	 * 
+	 * @param edge the edge whose addition to check
+	 * @return {@code true} if the edge would close a cycle, {@code false} otherwise
+	 */
+	boolean wouldCreateCycle( Edge edge )
+	{
+		if( this.isStale )
+			this.rebuild( );
+		
+		Node from = this.nodes.get( edge.from );
+		Node to = this.nodes.get( edge.to );
+		
+		if( from == to )
+			return true;
+		
+		if( !this.graph.areDirectedEdgesAllowed )
+			return ( from.find( ) == to.find( ) );
+		
+		this.checkedEdge = edge;
+		this.forwardNodes = null;
+		this.backwardNodes = null;
+		
+		// An edge agreeing with the topological order can never close a cycle
+		if( from.order < to.order )
+			return false;
+		
+		// Otherwise, the edge only closes a cycle if its head already reaches its tail through the vertices ordered between the two
+		List<Node> forward = new ArrayList<Node>( );
+		boolean isCyclic = this.searchForward( to, from, forward );
+		
+		for( Node node : forward )
+			node.isVisited = false;
+		
+		if( isCyclic )
+		{
+			this.checkedEdge = null;
+			return true;
+		}
+		
+		List<Node> backward = new ArrayList<Node>( );
+		this.searchBackward( from, to.order, backward );
+		
+		for( Node node : backward )
+			node.isVisited = false;
+		
+		this.forwardNodes = forward;
+		this.backwardNodes = backward;
+		
+		return false;
+	}
+	
+	/**
+	 * Rebuilds this index from the graph's current vertices and edges
+	 */
+	private void rebuild( )
+	{
+		this.nodes.clear( );
+		this.nextOrder = 0;
+		
+		if( !this.graph.areDirectedEdgesAllowed )
+		{
+			for( Vertex vertex : this.graph.vertices )
+				this.nodes.put( vertex, new Node( vertex, this.nextOrder++ ) );
+			
+			for( Edge edge : this.graph.edges )
+				this.nodes.get( edge.from ).union( this.nodes.get( edge.to ) );
+		}
+		else
+		{
+			// Order the vertices topologically using Kahn's algorithm
+			Map<Vertex, Integer> indegrees = new HashMap<Vertex, Integer>( );
+			LinkedList<Vertex> sources = new LinkedList<Vertex>( );
+			
+			for( Vertex vertex : this.graph.vertices )
+			{
+				int indegree = this.graph.getIndegree( vertex );
+				indegrees.put( vertex, indegree );
+				if( indegree == 0 )
+					sources.addLast( vertex );
+			}
+			
+			while( !sources.isEmpty( ) )
+			{
+				Vertex vertex = sources.removeFirst( );
+				this.nodes.put( vertex, new Node( vertex, this.nextOrder++ ) );
+				
+				for( Edge edge : this.graph.getIncidentEdges( vertex ) )
+					if( edge.from == vertex )
+					{
+						int indegree = indegrees.get( edge.to ) - 1;
+						indegrees.put( edge.to, indegree );
+						if( indegree == 0 )
+							sources.addLast( edge.to );
+					}
+			}
+			
+			// An acyclic graph will have had every vertex ordered above, but just in case, order any stragglers last
+			for( Vertex vertex : this.graph.vertices )
+				if( !this.nodes.containsKey( vertex ) )
+					this.nodes.put( vertex, new Node( vertex, this.nextOrder++ ) );
+		}
+		
+		this.isStale = false;
+	}
+	
+	/**
+	 * Reassigns the positions of the nodes found by the last check, so that every node reaching the checked edge's tail precedes every node reached
+	 * from its head, using only the positions those nodes already occupied
+	 */
+	private void reorder( )
+	{
+		Collections.sort( this.backwardNodes );
+		Collections.sort( this.forwardNodes );
+		
+		int[ ] orders = new int[this.backwardNodes.size( ) + this.forwardNodes.size( )];
+		int i = 0;
+		for( Node node : this.backwardNodes )
+			orders[i++] = node.order;
+		for( Node node : this.forwardNodes )
+			orders[i++] = node.order;
+		Arrays.sort( orders );
+		
+		i = 0;
+		for( Node node : this.backwardNodes )
+			node.order = orders[i++];
+		for( Node node : this.forwardNodes )
+			node.order = orders[i++];
+	}
+	
+	/**
+	 * Collects every node that reaches the specified node and is ordered after the specified lower bound
+	 * 
+	 * @param start the node from which to search backwards
+	 * @param lowerBound the position in the topological order before which the search need not go
+	 * @param visited the list to which to add every node found
+	 */
+	private void searchBackward( Node start, int lowerBound, List<Node> visited )
+	{
+		Stack<Node> toVisit = new Stack<Node>( );
+		toVisit.push( start );
+		start.isVisited = true;
+		visited.add( start );
+		
+		while( !toVisit.isEmpty( ) )
+		{
+			Node node = toVisit.pop( );
+			
+			for( Edge edge : this.graph.getIncidentEdges( node.vertex ) )
+				if( edge.to == node.vertex )
+				{
+					Node predecessor = this.nodes.get( edge.from );
+					if( !predecessor.isVisited && predecessor.order > lowerBound )
+					{
+						predecessor.isVisited = true;
+						visited.add( predecessor );
+						toVisit.push( predecessor );
+					}
+				}
+		}
+	}
+	
+	/**
+	 * Collects every node reachable from the specified node and ordered before the specified target, stopping as soon as the target is reached
+	 * 
+	 * @param start the node from which to search forwards
+	 * @param target the node whose discovery indicates a cycle
+	 * @param visited the list to which to add every node found
+	 * @return {@code true} if the target is reachable from the start node, {@code false} otherwise
+	 */
+	private boolean searchForward( Node start, Node target, List<Node> visited )
+	{
+		Stack<Node> toVisit = new Stack<Node>( );
+		toVisit.push( start );
+		start.isVisited = true;
+		visited.add( start );
+		
+		while( !toVisit.isEmpty( ) )
+		{
+			Node node = toVisit.pop( );
+			
+			for( Edge edge : this.graph.getIncidentEdges( node.vertex ) )
+				if( edge.from == node.vertex )
+				{
+					Node successor = this.nodes.get( edge.to );
+					if( successor == target )
+						return true;
+					
+					if( !successor.isVisited && successor.order < target.order )
+					{
+						successor.isVisited = true;
+						visited.add( successor );
+						toVisit.push( successor );
+					}
+				}
+		}
+		
+		return false;
+	}
+}
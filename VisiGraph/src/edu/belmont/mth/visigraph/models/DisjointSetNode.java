@@ -0,0 +1,77 @@
+/**
+ * DisjointSetNode.java
+ */
+package edu.belmont.mth.visigraph.models;
+
+/**
+ * The {@code DisjointSetNode} class is the base of the nodes, of class {@code N}, of a disjoint-set forest (union-find), such as those kept over a
+ * graph's vertices by {@link CycleIndex} and {@link ComponentIndex}. Sets are merged by rank, and the path from a node to its root is compressed
+ * every time the root is found, so that any sequence of operations takes near-constant amortized time apiece.
+ * 
+ * @author Cameron Behar
+ * @see CycleIndex
+ * @see ComponentIndex
+ */
+abstract class DisjointSetNode<N extends DisjointSetNode<N>>
+{
+	/**
+	 * The parent of this node in its disjoint-set tree, or {@code null} if it is a root
+	 */
+	N	parent	= null;
+	
+	/**
+	 * An upper bound on the height of this node's disjoint-set tree, meaningful only if this node is a root
+	 */
+	int	rank	= 0;
+	
+	/**
+	 * Returns the root of this node's disjoint-set tree, compressing the path to it along the way
+	 * 
+	 * @return the root of this node's tree
+	 */
+	@SuppressWarnings( "unchecked" )
+	public N find( )
+	{
+		N root = (N) this;
+		while( root.parent != null )
+			root = root.parent;
+		
+		N node = (N) this;
+		while( node != root )
+		{
+			N next = node.parent;
+			node.parent = root;
+			node = next;
+		}
+		
+		return root;
+	}
+	
+	/**
+	 * Merges the sets containing this node and the specified node, using union by rank. Should both trees be of equal rank, this node's root
+	 * remains the root of the merged tree.
+	 * 
+	 * @param other a node in the other set
+	 * @return the root that was made a child of the other, or {@code null} if both nodes were already in the same set
+	 */
+	public N union( N other )
+	{
+		N rootA = this.find( );
+		N rootB = other.find( );
+		
+		if( rootA == rootB )
+			return null;
+		
+		if( rootA.rank < rootB.rank )
+		{
+			rootA.parent = rootB;
+			return rootA;
+		}
+		
+		if( rootA.rank == rootB.rank )
+			++rootA.rank;
+		
+		rootB.parent = rootA;
+		return rootB;
+	}
+}
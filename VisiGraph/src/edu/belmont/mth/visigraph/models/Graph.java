@@ -3,6 +3,7 @@
  */
 package edu.belmont.mth.visigraph.models;
 
+import java.io.*;
 import java.util.*;
 import java.util.Map.*;
 import java.awt.geom.*;
@@ -24,6 +25,10 @@ import edu.belmont.mth.visigraph.utilities.*;
  * Graph}, notification of that change is automatically propagated upwards until it hits the {@code Graph} level. Be it the addition or removal of an
  * edge or even a change to one of the properties of a single vertex, all changes below the graph will trigger an
  * {@link ObservableModel#notifyObservers(Object)} call.
+ * <p/>
+ * Changes to the graph's structure are reported with a {@link GraphChange} describing the elements added and removed. Callers making many changes at
+ * once should bracket them with {@link #beginUpdate()} and {@link #endUpdate()}, or use {@link #batch(Collection, Collection, Collection)}, so that
+ * subscribers receive a single {@code GraphChange} describing the net effect of all of them.
  * 
  * @author Cameron Behar
  * @see Vertex
@@ -32,6 +37,25 @@ import edu.belmont.mth.visigraph.utilities.*;
  */
 public class Graph extends ObservableModel
 {
+	/**
+	 * The {@code NeighborVisitor} interface is implemented by callers of {@link Graph#forEachNeighbor(Vertex, NeighborVisitor)} in order to walk a
+	 * vertex's neighborhood without allocating any intermediate collections.
+	 * 
+	 * @author Cameron Behar
+	 * @see Graph#forEachNeighbor(Vertex, NeighborVisitor)
+	 */
+	public interface NeighborVisitor
+	{
+		/**
+		 * Called once for every edge leading from the visited vertex to one of its neighbors
+		 * 
+		 * @param neighbor the vertex at the other end of the edge
+		 * @param edge the edge connecting the visited vertex to its neighbor
+		 * @return {@code true} if the traversal should continue, {@code false} if it should stop immediately
+		 */
+		public boolean visit( Vertex neighbor, Edge edge );
+	}
+	
 	/**
 	 * The name of this graph used for identification and serialization
 	 */
@@ -81,9 +105,39 @@ public class Graph extends ObservableModel
 	public final boolean					areCyclesAllowed;
 	
 	/**
-	 * A {@code Map} of vertices to edge-incidence lists
+	 * A compact, primitive-indexed record of which edges are incident to which vertices, kept up to date as vertices and edges are added and removed
+	 */
+	private final AdjacencyIndex			adjacencyIndex;
+	
+	/**
+	 * An incremental index used to reject edges that would close a cycle, or {@code null} if cycles are allowed in this graph
+	 */
+	private final CycleIndex				cycleIndex;
+	
+	/**
+	 * The (weakly) connected components of this graph, kept up to date as vertices and edges are added and removed
+	 */
+	private final ComponentIndex			componentIndex;
+	
+	/**
+	 * A grid locating this graph's vertices and edge handles by position, kept up to date as they are added, removed and moved
+	 */
+	private final SpatialIndex				spatialIndex;
+	
+	/**
+	 * The crossings between this graph's edges, found again for only those edges moved since they were last asked for
+	 */
+	private final CrossingIndex				crossingIndex;
+	
+	/**
+	 * A count of the vertices and edges added to and removed from this graph, by which {@link #getStructureVersion()} reports its changes
+	 */
+	private long							structureVersion;
+	
+	/**
+	 * A count of the changes to the weights of this graph's vertices and edges, by which {@link #getWeightVersion()} reports them
 	 */
-	private final Map<Vertex, Set<Edge>>	incidences;
+	private long							weightVersion;
 	
 	/**
 	 * An {@code Observer} used to notify this graph's subscribed {@code Observer}s of changes to any of its elements' properties
@@ -96,6 +150,16 @@ public class Graph extends ObservableModel
 	 */
 	private boolean							notificationsSuspended;
 	
+	/**
+	 * The number of calls to {@link #beginUpdate()} not yet matched by a call to {@link #endUpdate()}
+	 */
+	private int								updateDepth;
+	
+	/**
+	 * The changes made since the outermost pending call to {@link #beginUpdate()}, or {@code null} if no update is in progress
+	 */
+	private GraphChange						pendingChange;
+	
 	/**
 	 * Constructs an empty undirected graph allowing loops, multi-edges, and cycles.
 	 */
@@ -117,23 +181,28 @@ public class Graph extends ObservableModel
 		this.tag.set( (String) attributes.get( "tag" ) );
 		
 		Map<String, Vertex> idToVertexMap = new HashMap<String, Vertex>( );
+		List<Vertex> newVertices = new ArrayList<Vertex>( );
+		List<Edge> newEdges = new ArrayList<Edge>( );
+		List<Caption> newCaptions = new ArrayList<Caption>( );
 		
 		for( Object vertex : (Iterable<?>) attributes.get( "vertices" ) )
 			if( vertex instanceof Map<?, ?> )
 			{
 				Map<String, Object> vertexPropertyMap = (Map<String, Object>) vertex;
 				Vertex newVertex = new Vertex( vertexPropertyMap );
-				this.vertices.add( newVertex );
+				newVertices.add( newVertex );
 				idToVertexMap.put( (String) vertexPropertyMap.get( "id" ), newVertex );
 			}
 		
 		for( Object edge : (Iterable<?>) attributes.get( "edges" ) )
 			if( edge instanceof Map<?, ?> )
-				this.edges.add( new Edge( (Map<String, Object>) edge, idToVertexMap ) );
+				newEdges.add( new Edge( (Map<String, Object>) edge, idToVertexMap ) );
 		
 		for( Object caption : (Iterable<?>) attributes.get( "captions" ) )
 			if( caption instanceof Map<?, ?> )
-				this.captions.add( new Caption( (Map<String, Object>) caption ) );
+				newCaptions.add( new Caption( (Map<String, Object>) caption ) );
+		
+		this.batch( newVertices, newEdges, newCaptions );
 	}
 	
 	/**
@@ -157,7 +226,6 @@ public class Graph extends ObservableModel
 	 * @param areMultipleEdgesAllowed a {@code boolean} indicating whether or not to allow multi-edges in this graph
 	 * @param areCyclesAllowed a {@code boolean} indicating whether or not to allow cycles in this graph
 	 */
-	@SuppressWarnings( "serial" )
 	public Graph( String name, boolean areLoopsAllowed, boolean areDirectedEdgesAllowed, boolean areMultipleEdgesAllowed, boolean areCyclesAllowed )
 	{
 		this.name = new Property<String>( name );
@@ -169,6 +237,10 @@ public class Graph extends ObservableModel
 		this.areCyclesAllowed = areCyclesAllowed;
 		
 		this.notificationsSuspended = false;
+		this.updateDepth = 0;
+		this.pendingChange = null;
+		this.structureVersion = 0;
+		this.weightVersion = 0;
 		this.elementObserver = new Observer( )
 		{
 			@Override
@@ -176,487 +248,220 @@ public class Graph extends ObservableModel
 			{
 				Graph.this.setChanged( );
 				
-				if( !Graph.this.notificationsSuspended )
+				if( arg instanceof Property<?> )
+				{
+					Property<?> property = (Property<?>) arg;
+					if( ( property.getOwner( ) instanceof Vertex && property == ( (Vertex) property.getOwner( ) ).weight ) || ( property.getOwner( ) instanceof Edge && property == ( (Edge) property.getOwner( ) ).weight ) )
+						++Graph.this.weightVersion;
+					
+					Graph.this.spatialIndex.propertyChanged( property );
+					Graph.this.crossingIndex.propertyChanged( property );
+				}
+				
+				if( Graph.this.notificationsSuspended )
+					return;
+				
+				if( Graph.this.pendingChange == null )
 					Graph.this.notifyObservers( arg );
+				else if( arg instanceof Property<?> )
+					Graph.this.pendingChange.propertyChanged( (Property<?>) arg, ( (Property<?>) arg ).getPrevious( ) );
 			}
 		};
 		
-		this.incidences = new HashMap<Vertex, Set<Edge>>( );
+		this.adjacencyIndex = new AdjacencyIndex( );
+		this.cycleIndex = ( areCyclesAllowed ? null : new CycleIndex( this ) );
+		this.componentIndex = new ComponentIndex( this );
+		this.spatialIndex = new SpatialIndex( this );
+		this.crossingIndex = new CrossingIndex( this );
 		
-		this.vertices = new ArrayList<Vertex>( )
+		this.vertices = new IndexedList<Vertex>( )
 		{
 			@Override
-			public void add( int index, Vertex element )
-			{
-				if( this.contains( element ) )
-					return;
-				
-				Graph.this.suspendNotifications( true );
-				
-				super.add( element );
-				Graph.this.incidences.put( element, new HashSet<Edge>( ) );
-				element.addObserver( Graph.this.elementObserver );
-				
-				Graph.this.suspendNotifications( false );
-				
-				Graph.this.setChanged( );
-				Graph.this.notifyObservers( this );
-			}
-			
-			@Override
-			public boolean add( Vertex e )
+			protected boolean isValidAddition( Vertex element )
 			{
-				int originalSize = super.size( );
-				this.add( super.size( ), e );
-				return originalSize != super.size( );
-			}
-			
-			@Override
-			public boolean addAll( Collection<? extends Vertex> c )
-			{
-				return this.addAll( this.size( ), c );
-			}
-			
-			@Override
-			public boolean addAll( int index, Collection<? extends Vertex> c )
-			{
-				int originalSize = super.size( );
-				for( Vertex vertex : c )
-					this.add( index++, vertex );
-				return originalSize != super.size( );
-			}
-			
-			@Override
-			public void clear( )
-			{
-				Graph.this.suspendNotifications( true );
-				
-				for( Vertex vertex : this )
-					vertex.deleteObserver( Graph.this.elementObserver );
-				super.clear( );
-				Graph.this.incidences.clear( );
-				Graph.this.edges.clear( );
-				
-				Graph.this.suspendNotifications( false );
-				
-				Graph.this.setChanged( );
-				Graph.this.notifyObservers( this );
-			}
-			
-			@Override
-			public boolean contains( Object o )
-			{
-				return Graph.this.incidences.containsKey( o );
-			}
-			
-			@Override
-			public boolean containsAll( Collection<?> c )
-			{
-				for( Object o : c )
-					if( !this.contains( o ) )
-						return false;
-				
 				return true;
 			}
 			
 			@Override
-			public Vertex remove( int index )
+			protected void onAdded( Vertex element )
 			{
-				Graph.this.suspendNotifications( true );
-				
-				Vertex removedVertex = super.remove( index );
-				
-				// Normally, we would just work off the backing store directly, but since we'll also be modifying the vertex's edge-set, we have to
-				// use the
-				// getEdges() method to clone it first so we don't run into a ConcurrentModificationException
-				Graph.this.edges.removeAll( Graph.this.getEdges( removedVertex ) );
-				
-				Graph.this.incidences.remove( removedVertex );
-				removedVertex.deleteObserver( Graph.this.elementObserver );
-				
-				Graph.this.suspendNotifications( false );
-				
-				Graph.this.setChanged( );
-				Graph.this.notifyObservers( this );
-				
-				return removedVertex;
+				Graph.this.adjacencyIndex.vertexAdded( element );
+				++Graph.this.structureVersion;
+				if( Graph.this.cycleIndex != null )
+					Graph.this.cycleIndex.vertexAdded( element );
+				Graph.this.componentIndex.vertexAdded( element );
+				Graph.this.spatialIndex.vertexAdded( element );
+				element.addObserver( Graph.this.elementObserver );
+				Graph.this.pendingChange.vertexAdded( element );
 			}
 			
 			@Override
-			public boolean remove( Object o )
+			protected void onChanged( )
 			{
-				int index = this.indexOf( o );
-				
-				if( index == -1 )
-					return false;
-				this.remove( index );
-				
-				return true;
+				Graph.this.endUpdate( );
 			}
 			
 			@Override
-			public boolean removeAll( Collection<?> c )
+			protected void onChanging( )
 			{
-				int originalSize = this.size( );
-				for( Object o : c )
-					this.remove( o );
-				return originalSize != this.size( );
+				Graph.this.beginUpdate( );
 			}
 			
 			@Override
-			public boolean retainAll( Collection<?> c )
+			protected void onRemoved( Vertex element, int index )
 			{
-				List<Vertex> removedVertices = new LinkedList<Vertex>( );
-				for( Vertex vertex : this )
-					if( !c.contains( vertex ) )
-						removedVertices.add( vertex );
-				
-				return this.removeAll( removedVertices );
+				Graph.this.componentIndex.vertexRemoved( element );
+				Graph.this.adjacencyIndex.vertexRemoved( element );
+				++Graph.this.structureVersion;
+				if( Graph.this.cycleIndex != null )
+					Graph.this.cycleIndex.invalidate( );
+				Graph.this.spatialIndex.vertexRemoved( element );
+				element.deleteObserver( Graph.this.elementObserver );
+				Graph.this.pendingChange.vertexRemoved( element, index );
 			}
 			
 			@Override
-			public Vertex set( int index, Vertex element )
+			protected void onRemoving( Collection<Vertex> elements )
 			{
-				if( this.get( index ) == element )
-					return element;
-				else if( this.contains( element ) )
-					return null;
-				
-				Graph.this.suspendNotifications( true );
-				
-				Vertex oldVertex = this.get( index );
-				// Normally, we would just work off the backing store directly, but since we'll also be modifying the vertex's edge-set, we have to
-				// use the
-				// getEdges() method to clone it first so we don't run into a ConcurrentModificationException
-				Graph.this.edges.removeAll( Graph.this.getEdges( oldVertex ) );
-				Graph.this.incidences.remove( oldVertex );
-				oldVertex.deleteObserver( Graph.this.elementObserver );
+				// Remove every incident edge in one pass before removing the vertices themselves
+				Set<Edge> incidentEdges = new HashSet<Edge>( );
+				for( Vertex vertex : elements )
+					incidentEdges.addAll( Graph.this.getIncidentEdges( vertex ) );
 				
-				super.set( index, element );
-				
-				Graph.this.incidences.put( element, new HashSet<Edge>( ) );
-				element.addObserver( Graph.this.elementObserver );
-				
-				Graph.this.suspendNotifications( false );
-				
-				Graph.this.setChanged( );
-				Graph.this.notifyObservers( this );
-				
-				return oldVertex;
+				if( !incidentEdges.isEmpty( ) )
+					Graph.this.edges.removeAll( incidentEdges );
 			}
 		};
-		this.edges = new ArrayList<Edge>( )
+		this.edges = new IndexedList<Edge>( )
 		{
 			@Override
-			public boolean add( Edge e )
-			{
-				int originalSize = this.size( );
-				this.add( this.size( ), e );
-				return originalSize != this.size( );
-			}
-			
-			@Override
-			public void add( int index, Edge element )
-			{
-				if( !this.isValidAddition( element ) )
-					return;
-				
-				Graph.this.suspendNotifications( true );
-				
-				super.add( index, element );
-				Graph.this.incidences.get( element.from ).add( element );
-				if( !element.isLoop )
-					Graph.this.incidences.get( element.to ).add( element );
-				element.addObserver( Graph.this.elementObserver );
-				
-				Graph.this.suspendNotifications( false );
-				
-				Graph.this.setChanged( );
-				Graph.this.notifyObservers( this );
-			}
-			
-			@Override
-			public boolean addAll( Collection<? extends Edge> c )
-			{
-				return this.addAll( this.size( ), c );
-			}
-			
-			@Override
-			public boolean addAll( int index, Collection<? extends Edge> c )
-			{
-				int originalSize = this.size( );
-				for( Edge edge : c )
-					this.add( index++, edge );
-				return originalSize != this.size( );
-			}
-			
-			@Override
-			public void clear( )
-			{
-				Graph.this.suspendNotifications( true );
-				
-				for( Edge edge : this )
-					edge.deleteObserver( Graph.this.elementObserver );
-				for( Set<Edge> edgeMapValue : Graph.this.incidences.values( ) )
-					edgeMapValue.clear( );
-				super.clear( );
-				
-				Graph.this.suspendNotifications( false );
-				
-				Graph.this.setChanged( );
-				Graph.this.notifyObservers( this );
-			}
-			
-			@Override
-			public boolean contains( Object o )
+			protected boolean isValidAddition( Edge element )
 			{
-				return ( o instanceof Edge && Graph.this.incidences.containsKey( ( (Edge) o ).from ) && Graph.this.incidences.get( ( (Edge) o ).from ).contains( o ) );
-			}
-			
-			@Override
-			public boolean containsAll( Collection<?> c )
-			{
-				for( Object o : c )
-					if( !this.contains( o ) )
-						return false;
-				
-				return true;
-			}
-			
-			private boolean isValidAddition( Edge element )
-			{
-				if( !Graph.this.incidences.containsKey( element.from ) || !Graph.this.incidences.containsKey( element.to ) )
+				if( !Graph.this.vertices.contains( element.from ) || !Graph.this.vertices.contains( element.to ) )
 					return false;
 				else if( !Graph.this.areLoopsAllowed && element.isLoop )
 					return false;
 				else if( Graph.this.areDirectedEdgesAllowed != element.isDirected )
 					return false;
-				else if( this.contains( element ) )
-					return false;
-				else if( !Graph.this.areMultipleEdgesAllowed && !Graph.this.getEdges( element.from, element.to ).isEmpty( ) )
+				else if( !Graph.this.areMultipleEdgesAllowed && Graph.this.areAdjacent( element.from, element.to ) )
 					return false;
-				else if( !Graph.this.areCyclesAllowed && Graph.this.areConnected( element.from, element.to ) )
+				else if( !Graph.this.areCyclesAllowed && Graph.this.cycleIndex.wouldCreateCycle( element ) )
 					return false;
 				
 				return true;
 			}
 			
 			@Override
-			public Edge remove( int index )
+			protected void onAdded( Edge element )
 			{
-				Graph.this.suspendNotifications( true );
-				
-				Edge removedEdge = super.remove( index );
-				Graph.this.incidences.get( removedEdge.from ).remove( removedEdge );
-				if( !removedEdge.isLoop )
-					Graph.this.incidences.get( removedEdge.to ).remove( removedEdge );
-				removedEdge.deleteObserver( Graph.this.elementObserver );
-				
-				Graph.this.suspendNotifications( false );
-				
-				Graph.this.setChanged( );
-				Graph.this.notifyObservers( this );
-				
-				return removedEdge;
+				Graph.this.adjacencyIndex.edgeAdded( element );
+				++Graph.this.structureVersion;
+				if( Graph.this.cycleIndex != null )
+					Graph.this.cycleIndex.edgeAdded( element );
+				Graph.this.componentIndex.edgeAdded( element );
+				Graph.this.spatialIndex.edgeAdded( element );
+				Graph.this.crossingIndex.edgeAdded( element );
+				element.addObserver( Graph.this.elementObserver );
+				Graph.this.pendingChange.edgeAdded( element );
 			}
 			
 			@Override
-			public boolean remove( Object o )
+			protected void onChanged( )
 			{
-				int index = this.indexOf( o );
-				
-				if( index == -1 )
-					return false;
-				this.remove( index );
-				
-				return true;
+				Graph.this.endUpdate( );
 			}
 			
 			@Override
-			public boolean removeAll( Collection<?> c )
+			protected void onChanging( )
 			{
-				int originalSize = this.size( );
-				for( Object o : c )
-					this.remove( o );
-				return originalSize != this.size( );
+				Graph.this.beginUpdate( );
 			}
 			
 			@Override
-			public boolean retainAll( Collection<?> c )
+			protected void onRemoved( Edge element, int index )
 			{
-				List<Edge> removedEdges = new LinkedList<Edge>( );
-				for( Edge edge : this )
-					if( !c.contains( edge ) )
-						removedEdges.add( edge );
-				
-				return this.removeAll( removedEdges );
+				Graph.this.adjacencyIndex.edgeRemoved( element );
+				++Graph.this.structureVersion;
+				if( Graph.this.cycleIndex != null )
+					Graph.this.cycleIndex.invalidate( );
+				Graph.this.componentIndex.edgeRemoved( element );
+				Graph.this.spatialIndex.edgeRemoved( element );
+				Graph.this.crossingIndex.edgeRemoved( element );
+				element.deleteObserver( Graph.this.elementObserver );
+				Graph.this.pendingChange.edgeRemoved( element, index );
 			}
 			
 			@Override
-			public Edge set( int index, Edge element )
+			protected void onRemoving( Collection<Edge> elements )
 			{
-				if( this.get( index ) == element )
-					return element;
-				else if( !this.isValidAddition( element ) )
-					return null;
-				
-				Graph.this.suspendNotifications( true );
-				
-				Edge oldEdge = this.get( index );
-				Graph.this.incidences.get( oldEdge.from ).remove( oldEdge );
-				if( !oldEdge.isLoop )
-					Graph.this.incidences.get( oldEdge.to ).remove( oldEdge );
-				oldEdge.deleteObserver( Graph.this.elementObserver );
-				
-				super.set( index, element );
-				
-				Graph.this.incidences.get( element.from ).add( element );
-				if( !element.isLoop )
-					Graph.this.incidences.get( element.to ).add( element );
-				element.addObserver( Graph.this.elementObserver );
-				
-				Graph.this.suspendNotifications( false );
-				
-				Graph.this.setChanged( );
-				Graph.this.notifyObservers( this );
-				
-				return oldEdge;
+				Graph.this.componentIndex.edgesRemoving( elements );
 			}
 		};
-		this.captions = new ArrayList<Caption>( )
+		this.captions = new IndexedList<Caption>( )
 		{
 			@Override
-			public boolean add( Caption e )
+			protected boolean isValidAddition( Caption element )
 			{
-				int originalSize = this.size( );
-				this.add( this.size( ), e );
-				return originalSize != this.size( );
+				return true;
 			}
 			
 			@Override
-			public void add( int index, Caption element )
+			protected void onAdded( Caption element )
 			{
-				if( this.contains( element ) )
-					return;
-				
-				Graph.this.suspendNotifications( true );
-				
-				super.add( index, element );
 				element.addObserver( Graph.this.elementObserver );
-				
-				Graph.this.suspendNotifications( false );
-				
-				Graph.this.setChanged( );
-				Graph.this.notifyObservers( this );
-			}
-			
-			@Override
-			public boolean addAll( Collection<? extends Caption> c )
-			{
-				return this.addAll( this.size( ), c );
-			}
-			
-			@Override
-			public boolean addAll( int index, Collection<? extends Caption> c )
-			{
-				int originalSize = this.size( );
-				for( Caption caption : c )
-					this.add( index++, caption );
-				return originalSize != this.size( );
-			}
-			
-			@Override
-			public void clear( )
-			{
-				Graph.this.suspendNotifications( true );
-				
-				for( Caption caption : this )
-					caption.deleteObserver( Graph.this.elementObserver );
-				super.clear( );
-				
-				Graph.this.suspendNotifications( false );
-				
-				Graph.this.setChanged( );
-				Graph.this.notifyObservers( this );
-			}
-			
-			@Override
-			public Caption remove( int index )
-			{
-				Graph.this.suspendNotifications( true );
-				
-				Caption removedCaption = super.remove( index );
-				removedCaption.deleteObserver( Graph.this.elementObserver );
-				
-				Graph.this.suspendNotifications( false );
-				
-				Graph.this.setChanged( );
-				Graph.this.notifyObservers( this );
-				
-				return removedCaption;
+				Graph.this.pendingChange.captionAdded( element );
 			}
 			
 			@Override
-			public boolean remove( Object o )
+			protected void onChanged( )
 			{
-				int index = this.indexOf( o );
-				
-				if( index == -1 )
-					return false;
-				this.remove( index );
-				
-				return true;
+				Graph.this.endUpdate( );
 			}
 			
 			@Override
-			public boolean removeAll( Collection<?> c )
+			protected void onChanging( )
 			{
-				int originalSize = this.size( );
-				for( Object o : c )
-					this.remove( o );
-				return originalSize != this.size( );
+				Graph.this.beginUpdate( );
 			}
 			
 			@Override
-			public boolean retainAll( Collection<?> c )
+			protected void onRemoved( Caption element, int index )
 			{
-				List<Caption> removedCaptions = new LinkedList<Caption>( );
-				for( Caption caption : this )
-					if( !c.contains( caption ) )
-						removedCaptions.add( caption );
-				
-				return this.removeAll( removedCaptions );
+				element.deleteObserver( Graph.this.elementObserver );
+				Graph.this.pendingChange.captionRemoved( element, index );
 			}
 			
 			@Override
-			public Caption set( int index, Caption element )
+			protected void onRemoving( Collection<Caption> elements )
 			{
-				if( this.get( index ) == element )
-					return element;
-				else if( this.contains( element ) )
-					return null;
-				
-				Graph.this.suspendNotifications( true );
-				
-				Caption oldCaption = this.get( index );
-				oldCaption.deleteObserver( Graph.this.elementObserver );
-				super.set( index, element );
-				element.addObserver( Graph.this.elementObserver );
-				
-				Graph.this.suspendNotifications( false );
-				
-				Graph.this.setChanged( );
-				Graph.this.notifyObservers( this );
-				
-				return oldCaption;
+				// Do nothing
 			}
 		};
 	}
 	
 	/**
-	 * Returns a {@code boolean} indicating whether or not there exists a path between the two vertices. Although implemented using a relatively fast
-	 * algorithm, the method still has a worst-case performance of O(|E| + |V|log|V|), where E is the set of all edges in the graph, and V is the set
-	 * of all vertices. Caution must therefore be used when calling this method, especially where performance is a consideration.
+	 * Returns a {@code boolean} indicating whether or not there exists at least one edge going from one specified vertex to another. Unlike
+	 * {@link #getEdges(Vertex, Vertex)}, this method does not allocate a set of the spanning edges.
+	 * 
+	 * @param from the vertex from which the edge goes
+	 * @param to the vertex to which the edge goes
+	 * @return {@code true} if an edge goes from {@code from} to {@code to}, {@code false} otherwise
+	 * @see #getEdges(Vertex, Vertex)
+	 */
+	public boolean areAdjacent( Vertex from, Vertex to )
+	{
+		for( Edge edge : this.getIncidentEdges( from ) )
+			if( ( edge.from == from && edge.to == to ) || ( !edge.isDirected && edge.from == to && edge.to == from ) )
+				return true;
+		
+		return false;
+	}
+	
+	/**
+	 * Returns a {@code boolean} indicating whether or not there exists a path between the two vertices. In undirected graphs this is answered by the
+	 * graph's {@link ComponentIndex} in near-constant time. In digraphs, although implemented using a relatively fast algorithm, the method still
+	 * has a worst-case performance of O(|E| + |V|log|V|), where E is the set of all edges in the graph, and V is the set of all vertices. Caution
+	 * must therefore be used when calling this method on digraphs, especially where performance is a consideration.
 	 * 
 	 * @param from the vertex from which the path begins
 	 * @param to the vertex at which the path ends
@@ -666,28 +471,190 @@ public class Graph extends ObservableModel
 	 */
 	public boolean areConnected( Vertex from, Vertex to )
 	{
+		if( !this.areDirectedEdgesAllowed )
+			return this.componentIndex.areConnected( from, to );
+		
 		Set<Vertex> visited = new HashSet<Vertex>( );
 		Stack<Vertex> toVisit = new Stack<Vertex>( );
 		
 		toVisit.push( to );
+		visited.add( to );
 		
 		while( !toVisit.isEmpty( ) )
 		{
 			Vertex vertex = toVisit.pop( );
 			if( vertex == from )
 				return true;
-			visited.add( vertex );
-			
-			Set<Vertex> neighbors = this.getNeighbors( vertex );
 			
-			for( Vertex neighbor : neighbors )
-				if( !visited.contains( neighbor ) )
-					toVisit.push( neighbor );
+			for( Edge edge : this.getIncidentEdges( vertex ) )
+				if( !edge.isDirected || edge.from == vertex )
+				{
+					Vertex neighbor = ( edge.from == vertex ? edge.to : edge.from );
+					if( visited.add( neighbor ) )
+						toVisit.push( neighbor );
+				}
 		}
 		
 		return false;
 	}
 	
+	/**
+	 * Adds the specified vertices, edges and captions to this graph in a single pass. This is equivalent to adding each collection to the
+	 * corresponding list in turn between calls to {@link #beginUpdate()} and {@link #endUpdate()}, except that the graph's internal storage is sized
+	 * up front to hold all of the new elements. Each edge is subject to the same rules as if it were added on its own, and an edge that breaks
+	 * them is silently ignored. Subscribed {@link Observer}s receive a single {@link GraphChange} once every element has been added.
+	 * 
+	 * @param vertices the vertices to add, or {@code null} if there are none
+	 * @param edges the edges to add, whose vertices must either already be in this graph or be among {@code vertices}, or {@code null}
+	 * @param captions the captions to add, or {@code null} if there are none
+	 * @see #beginUpdate()
+	 */
+	public void batch( Collection<? extends Vertex> vertices, Collection<? extends Edge> edges, Collection<? extends Caption> captions )
+	{
+		this.beginUpdate( );
+		
+		try
+		{
+			this.adjacencyIndex.ensureCapacity( this.vertices.size( ) + ( vertices == null ? 0 : vertices.size( ) ), this.edges.size( ) + ( edges == null ? 0 : edges.size( ) ) );
+			
+			if( vertices != null && !vertices.isEmpty( ) )
+				this.vertices.addAll( vertices );
+			
+			if( edges != null && !edges.isEmpty( ) )
+				this.edges.addAll( edges );
+			
+			if( captions != null && !captions.isEmpty( ) )
+				this.captions.addAll( captions );
+		}
+		finally
+		{
+			this.endUpdate( );
+		}
+	}
+	
+	/**
+	 * Begins an update to this graph. Until the matching call to {@link #endUpdate()}, no notifications are sent to subscribed {@link Observer}s;
+	 * instead, every element added, removed or changed is recorded, and a single {@link GraphChange} describing the net effect of all of them is
+	 * sent once the update ends. Updates may be nested, in which case the notification is sent only when the outermost update ends.
+	 * 
+	 * @see #endUpdate()
+	 * @see GraphChange
+	 */
+	public void beginUpdate( )
+	{
+		if( this.updateDepth++ == 0 )
+			this.pendingChange = new GraphChange( );
+	}
+	
+	/**
+	 * Ends an update to this graph begun by {@link #beginUpdate()}. If this ends the outermost update and anything has changed since it began,
+	 * subscribed {@link Observer}s are notified with a {@link GraphChange} describing the net effect of the update.
+	 * 
+	 * @see #beginUpdate()
+	 */
+	public void endUpdate( )
+	{
+		if( this.updateDepth == 0 )
+			throw new Error( "endUpdate called without a matching beginUpdate" );
+		
+		if( --this.updateDepth > 0 )
+			return;
+		
+		GraphChange change = this.pendingChange;
+		this.pendingChange = null;
+		
+		if( !change.isEmpty( ) )
+		{
+			this.setChanged( );
+			this.notifyObservers( change );
+		}
+	}
+	
+	/**
+	 * Calls the specified visitor once for every edge leading from a given vertex to one of its neighbors. In an undirected graph this includes
+	 * every edge incident to the vertex; in digraphs, only those edges going from it. Unlike {@link #getNeighbors(Vertex)}, this method allocates
+	 * nothing, and a neighbor joined to the vertex by multiple edges will be visited once per edge. The graph must not be structurally modified
+	 * during the traversal.
+	 * 
+	 * @param vertex the vertex whose neighbors to visit
+	 * @param visitor the {@code NeighborVisitor} to call for each neighbor
+	 * @return {@code true} if every neighbor was visited, {@code false} if the visitor stopped the traversal early
+	 * @see NeighborVisitor
+	 * @see #getNeighbors(Vertex)
+	 */
+	public boolean forEachNeighbor( Vertex vertex, NeighborVisitor visitor )
+	{
+		int index = this.adjacencyIndex.indexOf( vertex );
+		int[ ] incidentEdges = this.adjacencyIndex.getIncidentEdges( index );
+		
+		for( int i = 0; i < this.adjacencyIndex.getDegree( index ); ++i )
+		{
+			Edge edge = this.adjacencyIndex.getEdge( incidentEdges[i] );
+			if( !edge.isDirected || edge.from == vertex )
+				if( !visitor.visit( ( edge.from == vertex ? edge.to : edge.from ), edge ) )
+					return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Returns the compact, primitive-indexed adjacency index of this graph. The index is updated upon every change to this graph's {@link #vertices}
+	 * and {@link #edges}, and allows algorithms to traverse the graph using dense vertex and edge indices without allocating.
+	 * 
+	 * @return this graph's {@code AdjacencyIndex}
+	 * @see AdjacencyIndex
+	 */
+	public AdjacencyIndex getAdjacencyIndex( )
+	{
+		return this.adjacencyIndex;
+	}
+	
+	/**
+	 * Returns the component index of this graph, which keeps track of its (weakly) connected components as vertices and edges are added and
+	 * removed, so that they may be counted and told apart without searching the graph.
+	 * 
+	 * @return this graph's {@code ComponentIndex}
+	 * @see ComponentIndex
+	 */
+	public ComponentIndex getComponentIndex( )
+	{
+		return this.componentIndex;
+	}
+	
+	/**
+	 * Returns the crossing index of this graph, which keeps the crossings between its edges so that only those of edges since moved need be found
+	 * again. The index is kept in sync with this graph's {@link #edges} and the positions of their vertices and handles.
+	 * 
+	 * @return this graph's {@code CrossingIndex}
+	 * @see CrossingIndex
+	 */
+	public CrossingIndex getCrossingIndex( )
+	{
+		return this.crossingIndex;
+	}
+	
+	/**
+	 * Returns the degree of a given vertex, that is, the number of edges incident to it, with loops counted twice
+	 * 
+	 * @param vertex the vertex whose degree to return
+	 * @return the degree of the specified vertex
+	 * @see #getIndegree(Vertex)
+	 * @see #getOutdegree(Vertex)
+	 */
+	public int getDegree( Vertex vertex )
+	{
+		int index = this.adjacencyIndex.indexOf( vertex );
+		int[ ] incidentEdges = this.adjacencyIndex.getIncidentEdges( index );
+		int[ ] sources = this.adjacencyIndex.getEdgeSources( ), targets = this.adjacencyIndex.getEdgeTargets( );
+		
+		int degree = 0;
+		for( int i = 0; i < this.adjacencyIndex.getDegree( index ); ++i )
+			degree += ( sources[incidentEdges[i]] == targets[incidentEdges[i]] ? 2 : 1 );
+		
+		return degree;
+	}
+	
 	/**
 	 * Returns the set of all edges incident to a given vertex. In both directed and undirected graphs this includes all edges, both from- and to-,
 	 * the specified vertex.
@@ -699,7 +666,7 @@ public class Graph extends ObservableModel
 	 */
 	public Set<Edge> getEdges( Vertex vertex )
 	{
-		return new HashSet<Edge>( this.incidences.get( vertex ) );
+		return new HashSet<Edge>( this.getIncidentEdges( vertex ) );
 	}
 	
 	/**
@@ -716,7 +683,7 @@ public class Graph extends ObservableModel
 	public Set<Edge> getEdges( Vertex from, Vertex to )
 	{
 		Set<Edge> spanningEdges = new HashSet<Edge>( );
-		for( Edge edge : this.incidences.get( from ) )
+		for( Edge edge : this.getIncidentEdges( from ) )
 			if( ( edge.from == from && edge.to == to ) || ( !edge.isDirected && edge.from == to && edge.to == from ) )
 				spanningEdges.add( edge );
 		
@@ -738,7 +705,7 @@ public class Graph extends ObservableModel
 			return this.getEdges( vertex );
 		
 		Set<Edge> edgesFrom = new HashSet<Edge>( );
-		for( Edge edge : this.incidences.get( vertex ) )
+		for( Edge edge : this.getIncidentEdges( vertex ) )
 			if( edge.from == vertex )
 				edgesFrom.add( edge );
 		
@@ -760,13 +727,127 @@ public class Graph extends ObservableModel
 			return this.getEdges( vertex );
 		
 		Set<Edge> edgesTo = new HashSet<Edge>( );
-		for( Edge edge : this.incidences.get( vertex ) )
+		for( Edge edge : this.getIncidentEdges( vertex ) )
 			if( edge.to == vertex )
 				edgesTo.add( edge );
 		
 		return edgesTo;
 	}
 	
+	/**
+	 * Returns a read-only view of the set of all edges incident to a given vertex. Unlike {@link #getEdges(Vertex)}, the returned set is not a copy
+	 * and reflects any later changes to the graph, so it must not be iterated over while the graph is being structurally modified.
+	 * 
+	 * @param vertex the vertex to which the edges are incident
+	 * @return an unmodifiable view of the edges incident to the specified vertex
+	 * @see #getEdges(Vertex)
+	 */
+	public Set<Edge> getIncidentEdges( final Vertex vertex )
+	{
+		return new AbstractSet<Edge>( )
+		{
+			@Override
+			public boolean contains( Object o )
+			{
+				return ( o instanceof Edge && ( ( (Edge) o ).from == vertex || ( (Edge) o ).to == vertex ) && Graph.this.adjacencyIndex.indexOf( (Edge) o ) >= 0 );
+			}
+			
+			@Override
+			public Iterator<Edge> iterator( )
+			{
+				final AdjacencyIndex adjacency = Graph.this.adjacencyIndex;
+				final int index = adjacency.indexOf( vertex );
+				final int[ ] incidentEdges = adjacency.getIncidentEdges( index );
+				final int degree = adjacency.getDegree( index );
+				
+				return new Iterator<Edge>( )
+				{
+					private int	position	= 0;
+					
+					@Override
+					public boolean hasNext( )
+					{
+						return this.position < degree;
+					}
+					
+					@Override
+					public Edge next( )
+					{
+						if( this.position >= degree )
+							throw new NoSuchElementException( );
+						
+						return adjacency.getEdge( incidentEdges[this.position++] );
+					}
+					
+					@Override
+					public void remove( )
+					{
+						throw new UnsupportedOperationException( );
+					}
+				};
+			}
+			
+			@Override
+			public int size( )
+			{
+				return Graph.this.adjacencyIndex.getDegree( Graph.this.adjacencyIndex.indexOf( vertex ) );
+			}
+		};
+	}
+	
+	/**
+	 * Returns the indegree of a given vertex, that is, the number of edges going to it. In an undirected graph this is equal to the vertex's
+	 * degree.
+	 * 
+	 * @param vertex the vertex whose indegree to return
+	 * @return the number of edges going to the specified vertex
+	 * @see #getDegree(Vertex)
+	 * @see #getOutdegree(Vertex)
+	 */
+	public int getIndegree( Vertex vertex )
+	{
+		if( !this.areDirectedEdgesAllowed )
+			return this.getDegree( vertex );
+		
+		int indegree = 0;
+		for( Edge edge : this.getIncidentEdges( vertex ) )
+			if( edge.to == vertex )
+				++indegree;
+		
+		return indegree;
+	}
+	
+	/**
+	 * Returns the number of neighbors of a given vertex, that is, the size of the set {@link #getNeighbors(Vertex)} would return, counting a
+	 * neighbor joined to the vertex by multiple edges only once. Unlike that method, this one builds no set of vertices.
+	 * 
+	 * @param vertex the vertex whose neighbors to count
+	 * @return the number of distinct neighbors of the specified vertex
+	 * @see #getNeighbors(Vertex)
+	 */
+	public int getNeighborCount( Vertex vertex )
+	{
+		int index = this.adjacencyIndex.indexOf( vertex );
+		int[ ] incidentEdges = this.adjacencyIndex.getIncidentEdges( index );
+		int[ ] sources = this.adjacencyIndex.getEdgeSources( );
+		
+		// Gather the index of the vertex at the other end of each edge, then count the distinct ones among them once sorted
+		int[ ] neighbors = new int[this.adjacencyIndex.getDegree( index )];
+		int count = 0;
+		for( int i = 0; i < neighbors.length; ++i )
+			if( !this.areDirectedEdgesAllowed || sources[incidentEdges[i]] == index )
+				neighbors[count++] = this.adjacencyIndex.getOpposite( incidentEdges[i], index );
+		
+		Arrays.sort( neighbors, 0, count );
+		
+		int neighborCount = 0;
+		for( int i = 0; i < count; ++i )
+			if( i == 0 || neighbors[i] != neighbors[i - 1] )
+				++neighborCount;
+		
+		return neighborCount;
+	}
+	
 	/**
 	 * Returns the set of all vertices that are neighbors of a given vertex. In an undirected graph, one vertex is another vertex's neighbor iff the
 	 * two share at least one common edge. In digraphs, vertex A is only vertex B's neighbor if there exists and edge from B to A, regardless of how
@@ -786,6 +867,28 @@ public class Graph extends ObservableModel
 		return neighbors;
 	}
 	
+	/**
+	 * Returns the outdegree of a given vertex, that is, the number of edges going from it. In an undirected graph this is equal to the vertex's
+	 * degree.
+	 * 
+	 * @param vertex the vertex whose outdegree to return
+	 * @return the number of edges going from the specified vertex
+	 * @see #getDegree(Vertex)
+	 * @see #getIndegree(Vertex)
+	 */
+	public int getOutdegree( Vertex vertex )
+	{
+		if( !this.areDirectedEdgesAllowed )
+			return this.getDegree( vertex );
+		
+		int outdegree = 0;
+		for( Edge edge : this.getIncidentEdges( vertex ) )
+			if( edge.from == vertex )
+				++outdegree;
+		
+		return outdegree;
+	}
+	
 	/**
 	 * Returns a list of all captions in this graph with isSelected flags set to {@code true}
 	 * 
@@ -843,6 +946,42 @@ public class Graph extends ObservableModel
 		return selected;
 	}
 	
+	/**
+	 * Returns the spatial index of this graph, which locates its vertices and edge handles by position without examining every element. The index is
+	 * kept in sync with this graph's {@link #vertices} and {@link #edges} and the positions of their elements.
+	 * 
+	 * @return this graph's {@code SpatialIndex}
+	 * @see SpatialIndex
+	 */
+	public SpatialIndex getSpatialIndex( )
+	{
+		return this.spatialIndex;
+	}
+	
+	/**
+	 * Returns a number that changes whenever a vertex or edge is added to or removed from this graph, and at no other time. Anything computed from
+	 * only this graph's structure remains correct for as long as this number, and the identity of this graph, stay the same.
+	 * 
+	 * @return the current structure version of this graph
+	 * @see #getWeightVersion()
+	 */
+	public long getStructureVersion( )
+	{
+		return this.structureVersion;
+	}
+	
+	/**
+	 * Returns a number that changes whenever the weight of one of this graph's vertices or edges changes, and at no other time. Together with
+	 * {@link #getStructureVersion()}, it tells when anything computed from this graph's weights must be recomputed.
+	 * 
+	 * @return the current weight version of this graph
+	 * @see #getStructureVersion()
+	 */
+	public long getWeightVersion( )
+	{
+		return this.weightVersion;
+	}
+	
 	/**
 	 * Returns a {@code boolean} indicating whether or not the graph has at least one caption with its isSelected flags set to {@code true}.
 	 * 
@@ -934,26 +1073,27 @@ public class Graph extends ObservableModel
 	/**
 	 * Returns a string representation of this graph in JSON format. This method can be used to serialize a graph, which may later be deserialized
 	 * using the class's string constructor. For more information on the JSON format (used throughout VisiGraph for serialization), visit <a
-	 * href="http://www.json.org/">here</a>.
+	 * href="http://www.json.org/">here</a>. To serialize a large graph straight to a file or stream, use a {@link GraphWriter} instead.
 	 * 
 	 * @return this {@code Graph} serialized as a {@code String}
 	 * @see #Graph(String)
+	 * @see GraphWriter
 	 */
 	@Override
 	public String toString( )
 	{
-		Map<String, Object> members = new HashMap<String, Object>( );
+		StringWriter writer = new StringWriter( );
 		
-		members.put( "name", this.name );
-		members.put( "vertices", this.vertices );
-		members.put( "edges", this.edges );
-		members.put( "captions", this.captions );
-		members.put( "areLoopsAllowed", this.areLoopsAllowed );
-		members.put( "areDirectedEdgesAllowed", this.areDirectedEdgesAllowed );
-		members.put( "areMultipleEdgesAllowed", this.areMultipleEdgesAllowed );
-		members.put( "areCyclesAllowed", this.areCyclesAllowed );
+		try
+		{
+			new GraphWriter( writer ).write( this );
+		}
+		catch( IOException exception )
+		{
+			throw new Error( exception );
+		}
 		
-		return JsonUtilities.formatObject( members );
+		return writer.toString( );
 	}
 	
 	/**
@@ -1005,27 +1145,29 @@ public class Graph extends ObservableModel
 	 */
 	public void union( Graph graph )
 	{
-		this.suspendNotifications( true );
+		this.beginUpdate( );
 		
-		Map<String, Vertex> newVertices = new HashMap<String, Vertex>( );
-		
-		for( Vertex vertex : graph.vertices )
+		try
+		{
+			Map<String, Vertex> newVertices = new HashMap<String, Vertex>( );
+			
+			for( Vertex vertex : graph.vertices )
+			{
+				Vertex newVertex = new Vertex( vertex.toString( ) );
+				newVertices.put( vertex.id.get( ).toString( ), newVertex );
+				newVertex.id.set( UUID.randomUUID( ) );
+				this.vertices.add( newVertex );
+			}
+			
+			for( Edge edge : graph.edges )
+				this.edges.add( new Edge( edge.toString( ), newVertices ) );
+			
+			for( Caption caption : graph.captions )
+				this.captions.add( new Caption( caption.toString( ) ) );
+		}
+		finally
 		{
-			Vertex newVertex = new Vertex( vertex.toString( ) );
-			newVertices.put( vertex.id.get( ).toString( ), newVertex );
-			newVertex.id.set( UUID.randomUUID( ) );
-			this.vertices.add( newVertex );
+			this.endUpdate( );
 		}
-		
-		for( Edge edge : graph.edges )
-			this.edges.add( new Edge( edge.toString( ), newVertices ) );
-		
-		for( Caption caption : graph.captions )
-			this.captions.add( new Caption( caption.toString( ) ) );
-		
-		this.suspendNotifications( false );
-		
-		this.setChanged( );
-		this.notifyObservers( this );
 	}
 }
@@ -0,0 +1,338 @@
+/**
+ * GraphChange.java
+ */
+package edu.belmont.mth.visigraph.models;
+
+import java.util.*;
+import edu.belmont.mth.visigraph.models.ObservableModel.Property;
+
+/**
+ * A {@code GraphChange} describes the net effect of a single structural modification to a {@link Graph}, or of every modification made between
+ * matching calls to {@link Graph#beginUpdate()} and {@link Graph#endUpdate()}. It is passed as the argument of the {@link Observer} notification
+ * fired once the modification is complete.
+ * <p/>
+ * A {@code GraphChange} records the vertices, edges and captions added to and removed from the graph, as well as every element {@code Property}
+ * that changed while the update was in progress. Elements both added and removed during the same update cancel out, and each property is listed only
+ * once, in the order in which it first changed.
+ * 
+ * @author Cameron Behar
+ * @see Graph#beginUpdate()
+ * @see Graph#endUpdate()
+ * @see Graph#batch(Collection, Collection, Collection)
+ */
+public class GraphChange
+{
+	/**
+	 * The vertices added to the graph, or {@code null} if there are none
+	 */
+	private Set<Vertex>					addedVertices;
+	
+	/**
+	 * A {@code Map} of the vertices removed from the graph to the positions from which they were removed, or {@code null} if there are none
+	 */
+	private Map<Vertex, Integer>		removedVertices;
+	
+	/**
+	 * The edges added to the graph, or {@code null} if there are none
+	 */
+	private Set<Edge>					addedEdges;
+	
+	/**
+	 * A {@code Map} of the edges removed from the graph to the positions from which they were removed, or {@code null} if there are none
+	 */
+	private Map<Edge, Integer>			removedEdges;
+	
+	/**
+	 * The captions added to the graph, or {@code null} if there are none
+	 */
+	private Set<Caption>				addedCaptions;
+	
+	/**
+	 * A {@code Map} of the captions removed from the graph to the positions from which they were removed, or {@code null} if there are none
+	 */
+	private Map<Caption, Integer>		removedCaptions;
+	
+	/**
+	 * A {@code Map} of the element properties changed during the update to the values they held before it, or {@code null} if there are none
+	 */
+	private Map<Property<?>, Object>	changedProperties;
+	
+	/**
+	 * Returns the captions added to the graph, in the order in which they were added
+	 * 
+	 * @return an unmodifiable collection of the added captions
+	 */
+	public Collection<Caption> getAddedCaptions( )
+	{
+		return view( this.addedCaptions );
+	}
+	
+	/**
+	 * Returns the edges added to the graph, in the order in which they were added
+	 * 
+	 * @return an unmodifiable collection of the added edges
+	 */
+	public Collection<Edge> getAddedEdges( )
+	{
+		return view( this.addedEdges );
+	}
+	
+	/**
+	 * Returns the vertices added to the graph, in the order in which they were added
+	 * 
+	 * @return an unmodifiable collection of the added vertices
+	 */
+	public Collection<Vertex> getAddedVertices( )
+	{
+		return view( this.addedVertices );
+	}
+	
+	/**
+	 * Returns the position from which the specified element was removed. Elements removed together are numbered as though they had been removed one at
+	 * a time, in the order in which they appeared in the graph, so reinserting the removed elements of each kind at these positions in the reverse of
+	 * the order in which they were removed restores the graph's original order.
+	 * 
+	 * @param element one of the removed vertices, edges or captions
+	 * @return the element's position at the time it was removed, or -1 if it was not removed
+	 */
+	public int getRemovedIndex( Object element )
+	{
+		Integer index = null;
+		
+		if( element instanceof Vertex && this.removedVertices != null )
+			index = this.removedVertices.get( element );
+		else if( element instanceof Edge && this.removedEdges != null )
+			index = this.removedEdges.get( element );
+		else if( element instanceof Caption && this.removedCaptions != null )
+			index = this.removedCaptions.get( element );
+		
+		return ( index == null ? -1 : index );
+	}
+	
+	/**
+	 * Returns the element properties that changed during the update, in the order in which they first changed
+	 * 
+	 * @return an unmodifiable collection of the changed properties
+	 */
+	public Collection<Property<?>> getChangedProperties( )
+	{
+		return ( this.changedProperties == null ? Collections.<Property<?>> emptySet( ) : Collections.unmodifiableSet( this.changedProperties.keySet( ) ) );
+	}
+	
+	/**
+	 * Returns the value the specified property held before it first changed during the update
+	 * 
+	 * @param property one of the {@link #getChangedProperties() changed properties}
+	 * @return the property's previous value, or {@code null} if it did not change
+	 */
+	public Object getPreviousValue( Property<?> property )
+	{
+		return ( this.changedProperties == null ? null : this.changedProperties.get( property ) );
+	}
+	
+	/**
+	 * Returns the captions removed from the graph, in the order in which they were removed
+	 * 
+	 * @return an unmodifiable collection of the removed captions
+	 */
+	public Collection<Caption> getRemovedCaptions( )
+	{
+		return view( this.removedCaptions == null ? null : this.removedCaptions.keySet( ) );
+	}
+	
+	/**
+	 * Returns the edges removed from the graph, in the order in which they were removed
+	 * 
+	 * @return an unmodifiable collection of the removed edges
+	 */
+	public Collection<Edge> getRemovedEdges( )
+	{
+		return view( this.removedEdges == null ? null : this.removedEdges.keySet( ) );
+	}
+	
+	/**
+	 * Returns the vertices removed from the graph, in the order in which they were removed
+	 * 
+	 * @return an unmodifiable collection of the removed vertices
+	 */
+	public Collection<Vertex> getRemovedVertices( )
+	{
+		return view( this.removedVertices == null ? null : this.removedVertices.keySet( ) );
+	}
+	
+	/**
+	 * Returns a {@code boolean} indicating whether or not this change has no net effect on the graph
+	 * 
+	 * @return {@code true} if nothing was added, removed or changed, {@code false} otherwise
+	 */
+	public boolean isEmpty( )
+	{
+		return !this.isStructural( ) && this.changedProperties == null;
+	}
+	
+	/**
+	 * Returns a {@code boolean} indicating whether or not any element was added to or removed from the graph
+	 * 
+	 * @return {@code true} if the graph's structure changed, {@code false} if only element properties changed
+	 */
+	public boolean isStructural( )
+	{
+		return this.addedVertices != null || this.removedVertices != null || this.addedEdges != null || this.removedEdges != null || this.addedCaptions != null || this.removedCaptions != null;
+	}
+	
+	/**
+	 * Records the addition of a caption
+	 * 
+	 * @param caption the caption added
+	 */
+	void captionAdded( Caption caption )
+	{
+		if( this.removedCaptions == null || this.removedCaptions.remove( caption ) == null )
+			this.addedCaptions = add( this.addedCaptions, caption );
+		this.removedCaptions = trim( this.removedCaptions );
+	}
+	
+	/**
+	 * Records the removal of a caption
+	 * 
+	 * @param caption the caption removed
+	 * @param index the position from which the caption was removed
+	 */
+	void captionRemoved( Caption caption, int index )
+	{
+		if( this.addedCaptions == null || !this.addedCaptions.remove( caption ) )
+			this.removedCaptions = put( this.removedCaptions, caption, index );
+		this.addedCaptions = trim( this.addedCaptions );
+	}
+	
+	/**
+	 * Records the addition of an edge
+	 * 
+	 * @param edge the edge added
+	 */
+	void edgeAdded( Edge edge )
+	{
+		if( this.removedEdges == null || this.removedEdges.remove( edge ) == null )
+			this.addedEdges = add( this.addedEdges, edge );
+		this.removedEdges = trim( this.removedEdges );
+	}
+	
+	/**
+	 * Records the removal of an edge
+	 * 
+	 * @param edge the edge removed
+	 * @param index the position from which the edge was removed
+	 */
+	void edgeRemoved( Edge edge, int index )
+	{
+		if( this.addedEdges == null || !this.addedEdges.remove( edge ) )
+			this.removedEdges = put( this.removedEdges, edge, index );
+		this.addedEdges = trim( this.addedEdges );
+	}
+	
+	/**
+	 * Records a change to an element's property, keeping only the value it held before its first change
+	 * 
+	 * @param property the property changed
+	 * @param previousValue the value the property held before the change
+	 */
+	void propertyChanged( Property<?> property, Object previousValue )
+	{
+		if( this.changedProperties == null )
+			this.changedProperties = new LinkedHashMap<Property<?>, Object>( );
+		
+		if( !this.changedProperties.containsKey( property ) )
+			this.changedProperties.put( property, previousValue );
+	}
+	
+	/**
+	 * Records the addition of a vertex
+	 * 
+	 * @param vertex the vertex added
+	 */
+	void vertexAdded( Vertex vertex )
+	{
+		if( this.removedVertices == null || this.removedVertices.remove( vertex ) == null )
+			this.addedVertices = add( this.addedVertices, vertex );
+		this.removedVertices = trim( this.removedVertices );
+	}
+	
+	/**
+	 * Records the removal of a vertex
+	 * 
+	 * @param vertex the vertex removed
+	 * @param index the position from which the vertex was removed
+	 */
+	void vertexRemoved( Vertex vertex, int index )
+	{
+		if( this.addedVertices == null || !this.addedVertices.remove( vertex ) )
+			this.removedVertices = put( this.removedVertices, vertex, index );
+		this.addedVertices = trim( this.addedVertices );
+	}
+	
+	/**
+	 * Adds an element to the specified set, creating the set if it does not yet exist
+	 * 
+	 * @param set the set to which to add the element, or {@code null}
+	 * @param element the element to add
+	 * @return the set, containing the element
+	 */
+	private static <T> Set<T> add( Set<T> set, T element )
+	{
+		if( set == null )
+			set = new LinkedHashSet<T>( );
+		
+		set.add( element );
+		return set;
+	}
+	
+	/**
+	 * Maps an element to a value in the specified map, creating the map if it does not yet exist
+	 * 
+	 * @param map the map in which to put the element, or {@code null}
+	 * @param element the element to put
+	 * @param value the value to which to map the element
+	 * @return the map, containing the element
+	 */
+	private static <T> Map<T, Integer> put( Map<T, Integer> map, T element, int value )
+	{
+		if( map == null )
+			map = new LinkedHashMap<T, Integer>( );
+		
+		map.put( element, value );
+		return map;
+	}
+	
+	/**
+	 * Discards the specified map if it is empty
+	 * 
+	 * @param map the map to check, or {@code null}
+	 * @return the map, or {@code null} if it was empty
+	 */
+	private static <T> Map<T, Integer> trim( Map<T, Integer> map )
+	{
+		return ( map == null || map.isEmpty( ) ? null : map );
+	}
+	
+	/**
+	 * Discards the specified set if it is empty
+	 * 
+	 * @param set the set to check, or {@code null}
+	 * @return the set, or {@code null} if it was empty
+	 */
+	private static <T> Set<T> trim( Set<T> set )
+	{
+		return ( set == null || set.isEmpty( ) ? null : set );
+	}
+	
+	/**
+	 * Returns an unmodifiable view of the specified set
+	 * 
+	 * @param set the set to view, or {@code null}
+	 * @return an unmodifiable view of the set, or an empty set if it was {@code null}
+	 */
+	private static <T> Collection<T> view( Set<T> set )
+	{
+		return ( set == null ? Collections.<T> emptySet( ) : Collections.unmodifiableSet( set ) );
+	}
+}
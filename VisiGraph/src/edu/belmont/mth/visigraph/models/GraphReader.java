@@ -0,0 +1,205 @@
+/**
+ * GraphReader.java
+ */
+package edu.belmont.mth.visigraph.models;
+
+import java.io.*;
+import java.util.*;
+import edu.belmont.mth.visigraph.utilities.*;
+
+/**
+ * The {@code GraphReader} class deserializes a {@link Graph} from its JSON representation as produced by {@link Graph#toString()}, such as the
+ * contents of a .vsg file. Unlike the {@link Graph#Graph(String)} constructor, it never holds the entire text or its parsed tree in memory: the text
+ * is pulled from a {@code Reader} one token at a time, and each vertex, edge and caption is constructed as soon as its own members have been read.
+ * <p/>
+ * Because the members of a JSON object are unordered, a graph's edges may precede the vertices they connect. Any edges read before the vertices are
+ * held as their members until the vertices are known, after which every element is added to the new graph in a single
+ * {@link Graph#batch(Collection, Collection, Collection)}.
+ * 
+ * @author Cameron Behar
+ * @see Graph#toString()
+ * @see JsonReader
+ */
+public class GraphReader
+{
+	/**
+	 * The {@code JsonReader} from which the graph's JSON text is pulled
+	 */
+	private final JsonReader				reader;
+	
+	/**
+	 * The members of the element currently being read, reused for each element
+	 */
+	private final Map<String, Object>		members;
+	
+	/**
+	 * The vertices read so far, in order
+	 */
+	private final List<Vertex>				vertices;
+	
+	/**
+	 * A {@code Map} of the ids of the vertices read so far to the vertices themselves
+	 */
+	private final Map<String, Vertex>		idToVertexMap;
+	
+	/**
+	 * The edges read so far, in order
+	 */
+	private final List<Edge>				edges;
+	
+	/**
+	 * The members of the edges read before the graph's vertices, in order
+	 */
+	private final List<Map<String, Object>>	pendingEdges;
+	
+	/**
+	 * The captions read so far, in order
+	 */
+	private final List<Caption>				captions;
+	
+	/**
+	 * Constructs a {@code GraphReader} reading from the specified {@code Reader}
+	 * 
+	 * @param reader the {@code Reader} from which to read a graph's JSON text
+	 */
+	public GraphReader( Reader reader )
+	{
+		this.reader = new JsonReader( reader );
+		this.members = new HashMap<String, Object>( );
+		this.vertices = new ArrayList<Vertex>( );
+		this.idToVertexMap = new HashMap<String, Vertex>( );
+		this.edges = new ArrayList<Edge>( );
+		this.pendingEdges = new ArrayList<Map<String, Object>>( );
+		this.captions = new ArrayList<Caption>( );
+	}
+	
+	/**
+	 * Closes the underlying {@code Reader}
+	 * 
+	 * @throws IOException if the {@code Reader} could not be closed
+	 */
+	public void close( ) throws IOException
+	{
+		this.reader.close( );
+	}
+	
+	/**
+	 * Reads a {@code Graph} from the underlying {@code Reader}
+	 * 
+	 * @return the {@code Graph} read
+	 * @throws IOException if the graph's text could not be read
+	 */
+	public Graph read( ) throws IOException
+	{
+		Map<String, Object> attributes = new HashMap<String, Object>( );
+		boolean haveVerticesBeenRead = false;
+		
+		this.reader.beginObject( );
+		while( this.reader.hasNext( ) )
+		{
+			String key = this.reader.nextName( );
+			
+			if( key.equals( "vertices" ) )
+			{
+				this.reader.beginArray( );
+				while( this.reader.hasNext( ) )
+					if( this.readMembers( ) )
+					{
+						Vertex vertex = new Vertex( this.members );
+						this.vertices.add( vertex );
+						this.idToVertexMap.put( (String) this.members.get( "id" ), vertex );
+					}
+				this.reader.endArray( );
+				
+				haveVerticesBeenRead = true;
+			}
+			else if( key.equals( "edges" ) )
+			{
+				this.reader.beginArray( );
+				while( this.reader.hasNext( ) )
+					if( this.readMembers( ) )
+					{
+						if( haveVerticesBeenRead )
+							this.edges.add( new Edge( this.members, this.idToVertexMap ) );
+						else
+							this.pendingEdges.add( new HashMap<String, Object>( this.members ) );
+					}
+				this.reader.endArray( );
+			}
+			else if( key.equals( "captions" ) )
+			{
+				this.reader.beginArray( );
+				while( this.reader.hasNext( ) )
+					if( this.readMembers( ) )
+						this.captions.add( new Caption( this.members ) );
+				this.reader.endArray( );
+			}
+			else
+			{
+				Object value = this.reader.nextValue( );
+				if( value != null )
+					attributes.put( key, value );
+			}
+		}
+		this.reader.endObject( );
+		
+		for( Map<String, Object> edgeMembers : this.pendingEdges )
+			this.edges.add( new Edge( edgeMembers, this.idToVertexMap ) );
+		
+		Graph graph = new Graph( (String) attributes.get( "name" ), (Boolean) attributes.get( "areLoopsAllowed" ), (Boolean) attributes.get( "areDirectedEdgesAllowed" ), (Boolean) attributes.get( "areMultipleEdgesAllowed" ), (Boolean) attributes.get( "areCyclesAllowed" ) );
+		graph.tag.set( (String) attributes.get( "tag" ) );
+		graph.batch( this.vertices, this.edges, this.captions );
+		
+		return graph;
+	}
+	
+	/**
+	 * Reads a {@code Graph} from the specified file
+	 * 
+	 * @param file the file from which to read the graph
+	 * @return the {@code Graph} read
+	 * @throws IOException if the file could not be read
+	 */
+	public static Graph read( File file ) throws IOException
+	{
+		GraphReader reader = new GraphReader( new FileReader( file ) );
+		
+		try
+		{
+			return reader.read( );
+		}
+		finally
+		{
+			reader.close( );
+		}
+	}
+	
+	/**
+	 * Reads the members of the next element in the current array into {@link #members}, skipping the element if it is not an object
+	 * 
+	 * @return {@code true} if an object was read, {@code false} if the element was skipped
+	 * @throws IOException if the element's text could not be read
+	 */
+	private boolean readMembers( ) throws IOException
+	{
+		if( this.reader.peek( ) != '{' )
+		{
+			this.reader.skipValue( );
+			return false;
+		}
+		
+		this.members.clear( );
+		
+		this.reader.beginObject( );
+		while( this.reader.hasNext( ) )
+		{
+			String key = this.reader.nextName( );
+			Object value = this.reader.nextValue( );
+			if( value != null )
+				this.members.put( key, value );
+		}
+		this.reader.endObject( );
+		
+		return true;
+	}
+}
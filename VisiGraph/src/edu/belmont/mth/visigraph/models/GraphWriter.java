@@ -0,0 +1,271 @@
+/**
+ * GraphWriter.java
+ */
+package edu.belmont.mth.visigraph.models;
+
+import java.io.*;
+import java.util.*;
+import edu.belmont.mth.visigraph.utilities.*;
+
+/**
+ * The {@code GraphWriter} class serializes a {@link Graph} to its JSON representation, as read by {@link GraphReader} and the
+ * {@link Graph#Graph(String)} constructor. Unlike building the text through {@link JsonUtilities#formatObject(Map)}, no intermediate maps or strings
+ * are created for the graph or any of its elements: every member is appended to a single reusable buffer, which is handed to the underlying
+ * {@code Writer} whenever it fills, so that writing a graph of any size requires only a constant amount of extra memory.
+ * <p/>
+ * Members are always written in the same order, with a graph's vertices preceding its edges so that a {@code GraphReader} never has to hold an edge
+ * until the vertices it connects have been read.
+ * 
+ * @author Cameron Behar
+ * @see Graph#toString()
+ * @see GraphReader
+ */
+public class GraphWriter
+{
+	/**
+	 * The number of characters to buffer before handing them to the underlying {@code Writer}
+	 */
+	private static final int	bufferSize	= 8192;
+	
+	/**
+	 * The {@code Writer} to which the graph's JSON text is written
+	 */
+	private final Writer		writer;
+	
+	/**
+	 * The text not yet handed to {@link #writer}, into which every value is formatted directly
+	 */
+	private final StringBuilder	buffer;
+	
+	/**
+	 * The array through which {@link #buffer}'s contents are copied to {@link #writer}
+	 */
+	private final char[ ]		chars;
+	
+	/**
+	 * Constructs a {@code GraphWriter} writing to the specified {@code Writer}
+	 * 
+	 * @param writer the {@code Writer} to which to write a graph's JSON text
+	 */
+	public GraphWriter( Writer writer )
+	{
+		this.writer = writer;
+		this.buffer = new StringBuilder( 2 * bufferSize );
+		this.chars = new char[2 * bufferSize];
+	}
+	
+	/**
+	 * Flushes and closes the underlying {@code Writer}
+	 * 
+	 * @throws IOException if the {@code Writer} could not be flushed or closed
+	 */
+	public void close( ) throws IOException
+	{
+		this.flush( );
+		this.writer.close( );
+	}
+	
+	/**
+	 * Hands any buffered text to the underlying {@code Writer} and flushes it
+	 * 
+	 * @throws IOException if the text could not be written
+	 */
+	public void flush( ) throws IOException
+	{
+		this.drain( );
+		this.writer.flush( );
+	}
+	
+	/**
+	 * Writes the specified {@code Graph} to the underlying {@code Writer}
+	 * 
+	 * @param graph the {@code Graph} to write
+	 * @throws IOException if the graph's text could not be written
+	 */
+	public void write( Graph graph ) throws IOException
+	{
+		this.writeMember( "{ ", "name", graph.name.get( ) );
+		this.writeMember( ", ", "areLoopsAllowed", graph.areLoopsAllowed );
+		this.writeMember( ", ", "areDirectedEdgesAllowed", graph.areDirectedEdgesAllowed );
+		this.writeMember( ", ", "areMultipleEdgesAllowed", graph.areMultipleEdgesAllowed );
+		this.writeMember( ", ", "areCyclesAllowed", graph.areCyclesAllowed );
+		
+		this.writeName( ", ", "vertices" );
+		this.buffer.append( "[ " );
+		for( int i = 0; i < graph.vertices.size( ); ++i )
+		{
+			if( i > 0 )
+				this.buffer.append( ", " );
+			this.writeVertex( graph.vertices.get( i ) );
+		}
+		this.buffer.append( " ]" );
+		
+		this.writeName( ", ", "edges" );
+		this.buffer.append( "[ " );
+		for( int i = 0; i < graph.edges.size( ); ++i )
+		{
+			if( i > 0 )
+				this.buffer.append( ", " );
+			this.writeEdge( graph.edges.get( i ) );
+		}
+		this.buffer.append( " ]" );
+		
+		this.writeName( ", ", "captions" );
+		this.buffer.append( "[ " );
+		for( int i = 0; i < graph.captions.size( ); ++i )
+		{
+			if( i > 0 )
+				this.buffer.append( ", " );
+			this.writeCaption( graph.captions.get( i ) );
+		}
+		this.buffer.append( " ]" );
+		
+		this.buffer.append( " }" );
+		this.drain( );
+	}
+	
+	/**
+	 * Writes the specified {@code Graph} to the specified file
+	 * 
+	 * @param graph the {@code Graph} to write
+	 * @param file the file to which to write the graph
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write( Graph graph, File file ) throws IOException
+	{
+		GraphWriter writer = new GraphWriter( new FileWriter( file ) );
+		
+		try
+		{
+			writer.write( graph );
+		}
+		finally
+		{
+			writer.close( );
+		}
+	}
+	
+	/**
+	 * Hands the buffered text to the underlying {@code Writer} and empties the buffer
+	 * 
+	 * @throws IOException if the text could not be written
+	 */
+	private void drain( ) throws IOException
+	{
+		for( int start = 0; start < this.buffer.length( ); start += this.chars.length )
+		{
+			int end = Math.min( start + this.chars.length, this.buffer.length( ) );
+			this.buffer.getChars( start, end, this.chars, 0 );
+			this.writer.write( this.chars, 0, end - start );
+		}
+		
+		this.buffer.setLength( 0 );
+	}
+	
+	/**
+	 * Writes the specified {@code Caption} as a JSON object
+	 * 
+	 * @param caption the {@code Caption} to write
+	 * @throws IOException if the buffered text could not be written
+	 */
+	private void writeCaption( Caption caption ) throws IOException
+	{
+		this.writeMember( "{ ", "x", caption.x.get( ) );
+		this.writeMember( ", ", "y", caption.y.get( ) );
+		this.writeMember( ", ", "text", caption.text.get( ) );
+		this.writeMember( ", ", "size", caption.size.get( ) );
+		this.writeMember( ", ", "isSelected", caption.isSelected.get( ) );
+		this.buffer.append( " }" );
+		
+		if( this.buffer.length( ) >= bufferSize )
+			this.drain( );
+	}
+	
+	/**
+	 * Writes the specified {@code Edge} as a JSON object
+	 * 
+	 * @param edge the {@code Edge} to write
+	 * @throws IOException if the buffered text could not be written
+	 */
+	private void writeEdge( Edge edge ) throws IOException
+	{
+		this.writeMember( "{ ", "isDirected", edge.isDirected );
+		this.writeMember( ", ", "from.id", edge.from.id.get( ) );
+		this.writeMember( ", ", "to.id", edge.to.id.get( ) );
+		this.writeMember( ", ", "weight", edge.weight.get( ) );
+		this.writeMember( ", ", "color", edge.color.get( ) );
+		this.writeMember( ", ", "label", edge.label.get( ) );
+		this.writeMember( ", ", "isSelected", edge.isSelected.get( ) );
+		this.writeMember( ", ", "thickness", edge.thickness.get( ) );
+		this.writeMember( ", ", "isLinear", edge.isLinear( ) );
+		
+		if( !edge.isLinear( ) )
+		{
+			this.writeMember( ", ", "handleX", edge.handleX.get( ) );
+			this.writeMember( ", ", "handleY", edge.handleY.get( ) );
+		}
+		
+		this.buffer.append( " }" );
+		
+		if( this.buffer.length( ) >= bufferSize )
+			this.drain( );
+	}
+	
+	/**
+	 * Writes a member of a JSON object, formatting its value directly into the buffer
+	 * 
+	 * @param separator the text preceding the member, either the opening brace of its object or the comma after the previous member
+	 * @param name the member's name
+	 * @param value the member's value, which may be a {@code Boolean}, {@code Double}, {@code Integer}, {@code String}, {@code UUID} or {@code null}
+	 */
+	private void writeMember( String separator, String name, Object value )
+	{
+		this.writeName( separator, name );
+		
+		if( value == null )
+			this.buffer.append( "null" );
+		else if( value instanceof Double )
+			this.buffer.append( ( (Double) value ).doubleValue( ) );
+		else if( value instanceof Integer )
+			this.buffer.append( ( (Integer) value ).intValue( ) );
+		else if( value instanceof Boolean )
+			this.buffer.append( ( (Boolean) value ).booleanValue( ) );
+		else
+			JsonUtilities.formatString( value.toString( ), this.buffer );
+	}
+	
+	/**
+	 * Writes the name of a member of a JSON object, along with the colon following it
+	 * 
+	 * @param separator the text preceding the member, either the opening brace of its object or the comma after the previous member
+	 * @param name the member's name
+	 */
+	private void writeName( String separator, String name )
+	{
+		this.buffer.append( separator );
+		JsonUtilities.formatString( name, this.buffer );
+		this.buffer.append( " : " );
+	}
+	
+	/**
+	 * Writes the specified {@code Vertex} as a JSON object
+	 * 
+	 * @param vertex the {@code Vertex} to write
+	 * @throws IOException if the buffered text could not be written
+	 */
+	private void writeVertex( Vertex vertex ) throws IOException
+	{
+		this.writeMember( "{ ", "id", vertex.id.get( ) );
+		this.writeMember( ", ", "x", vertex.x.get( ) );
+		this.writeMember( ", ", "y", vertex.y.get( ) );
+		this.writeMember( ", ", "label", vertex.label.get( ) );
+		this.writeMember( ", ", "radius", vertex.radius.get( ) );
+		this.writeMember( ", ", "color", vertex.color.get( ) );
+		this.writeMember( ", ", "isSelected", vertex.isSelected.get( ) );
+		this.writeMember( ", ", "weight", vertex.weight.get( ) );
+		this.buffer.append( " }" );
+		
+		if( this.buffer.length( ) >= bufferSize )
+			this.drain( );
+	}
+}
@@ -0,0 +1,413 @@
+/**
+ * IndexedList.java
+ */
+package edu.belmont.mth.visigraph.models;
+
+import java.util.*;
+
+/**
+ * The {@code IndexedList} class is an ordered {@code List} of distinct elements backed by an {@code ArrayList} and an identity hash index of each
+ * element's position. Membership tests take constant time, appends take constant amortized time, and bulk removals compact the list in a single
+ * pass rather than once per element. The relative order of the remaining elements is always preserved, as it determines the order in which a
+ * graph's elements are painted and serialized.
+ * <p/>
+ * The recorded positions are only known to be accurate up to the first index at which an element was last inserted or removed; beyond it they are
+ * lazily renumbered the next time they are needed by {@link #indexOf(Object)}. Elements are compared by identity, and an element already in the
+ * list is never added a second time.
+ * <p/>
+ * Subclasses decide which elements may be added and are notified of every addition and removal through the protected hooks below, which is how
+ * {@link Graph} keeps its indices in sync with its {@code vertices}, {@code edges} and {@code captions} lists. Every call to one of this list's
+ * public mutators is bracketed by {@link #onChanging()} and {@link #onChanged()}, even when it nests calls to others, so that all of the additions
+ * and removals it causes can be reported together.
+ * 
+ * @author Cameron Behar
+ * @see Graph#vertices
+ * @see Graph#edges
+ * @see Graph#captions
+ */
+abstract class IndexedList<T> extends AbstractList<T> implements RandomAccess
+{
+	/**
+	 * The elements of this list, in order
+	 */
+	private final ArrayList<T>		elements;
+	
+	/**
+	 * A {@code Map} of each element in this list to its position, compared by identity
+	 */
+	private final Map<T, Integer>	positions;
+	
+	/**
+	 * The number of leading elements whose positions in {@link #positions} are known to be accurate
+	 */
+	private int						validPositions;
+	
+	/**
+	 * Constructs an empty {@code IndexedList}
+	 */
+	public IndexedList( )
+	{
+		this.elements = new ArrayList<T>( );
+		this.positions = new IdentityHashMap<T, Integer>( );
+		this.validPositions = 0;
+	}
+	
+	@Override
+	public boolean add( T e )
+	{
+		int originalSize = this.elements.size( );
+		this.add( originalSize, e );
+		return originalSize != this.elements.size( );
+	}
+	
+	@Override
+	public void add( int index, T element )
+	{
+		if( this.contains( element ) )
+			return;
+		
+		this.onChanging( );
+		
+		try
+		{
+			if( !this.isValidAddition( element ) )
+				return;
+		
+			// Only an append leaves every earlier position as it was; an insertion shifts all of the elements after it
+			boolean isAppended = ( index == this.elements.size( ) );
+			
+			this.elements.add( index, element );
+			this.positions.put( element, index );
+		
+			if( isAppended && index == this.validPositions )
+				++this.validPositions;
+			else
+				this.validPositions = Math.min( this.validPositions, index );
+			
+			++this.modCount;
+			
+			this.onAdded( element );
+		}
+		finally
+		{
+			this.onChanged( );
+		}
+	}
+	
+	@Override
+	public boolean addAll( Collection<? extends T> c )
+	{
+		return this.addAll( this.elements.size( ), c );
+	}
+	
+	@Override
+	public boolean addAll( int index, Collection<? extends T> c )
+	{
+		int originalSize = this.elements.size( );
+		this.elements.ensureCapacity( originalSize + c.size( ) );
+		
+		this.onChanging( );
+		
+		try
+		{
+			for( T element : c )
+			{
+				int size = this.elements.size( );
+				this.add( index, element );
+				if( size != this.elements.size( ) )
+					++index;
+			}
+		}
+		finally
+		{
+			this.onChanged( );
+		}
+		
+		return originalSize != this.elements.size( );
+	}
+	
+	@Override
+	public void clear( )
+	{
+		if( !this.elements.isEmpty( ) )
+			this.removeElements( new ArrayList<T>( this.elements ), true );
+	}
+	
+	@Override
+	public boolean contains( Object o )
+	{
+		return this.positions.containsKey( o );
+	}
+	
+	/**
+	 * Increases the capacity of this list, if necessary, to hold at least the specified number of elements without reallocating
+	 * 
+	 * @param minCapacity the desired minimum capacity
+	 */
+	public void ensureCapacity( int minCapacity )
+	{
+		this.elements.ensureCapacity( minCapacity );
+	}
+	
+	@Override
+	public T get( int index )
+	{
+		return this.elements.get( index );
+	}
+	
+	@Override
+	public int indexOf( Object o )
+	{
+		Integer position = this.positions.get( o );
+		
+		if( position == null )
+			return -1;
+		
+		if( position >= this.validPositions )
+		{
+			for( int i = this.validPositions; i < this.elements.size( ); ++i )
+				this.positions.put( this.elements.get( i ), i );
+			
+			this.validPositions = this.elements.size( );
+			position = this.positions.get( o );
+		}
+		
+		// A stale position would have every caller silently act on the wrong element, so it is better caught here
+		if( this.elements.get( position ) != o )
+			throw new IllegalStateException( "Stale position recorded for " + o );
+		
+		return position;
+	}
+	
+	@Override
+	public int lastIndexOf( Object o )
+	{
+		return this.indexOf( o );
+	}
+	
+	@Override
+	public T remove( int index )
+	{
+		T removedElement = this.elements.get( index );
+		
+		this.onChanging( );
+		
+		try
+		{
+			this.onRemoving( Collections.singletonList( removedElement ) );
+		
+			this.elements.remove( index );
+			this.positions.remove( removedElement );
+			this.validPositions = Math.min( this.validPositions, index );
+			++this.modCount;
+			
+			this.onRemoved( removedElement, index );
+		}
+		finally
+		{
+			this.onChanged( );
+		}
+		
+		return removedElement;
+	}
+	
+	@Override
+	public boolean remove( Object o )
+	{
+		int index = this.indexOf( o );
+		
+		if( index == -1 )
+			return false;
+		this.remove( index );
+		
+		return true;
+	}
+	
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public boolean removeAll( Collection<?> c )
+	{
+		List<T> removedElements = new ArrayList<T>( );
+		Set<T> duplicates = Collections.newSetFromMap( new IdentityHashMap<T, Boolean>( ) );
+		
+		for( Object o : c )
+			if( this.contains( o ) && duplicates.add( (T) o ) )
+				removedElements.add( (T) o );
+		
+		if( removedElements.isEmpty( ) )
+			return false;
+		
+		this.removeElements( removedElements, false );
+		return true;
+	}
+	
+	@Override
+	public boolean retainAll( Collection<?> c )
+	{
+		List<T> removedElements = new ArrayList<T>( );
+		for( T element : this.elements )
+			if( !c.contains( element ) )
+				removedElements.add( element );
+		
+		if( removedElements.isEmpty( ) )
+			return false;
+		
+		this.removeElements( removedElements, false );
+		return true;
+	}
+	
+	@Override
+	public T set( int index, T element )
+	{
+		T oldElement = this.elements.get( index );
+		
+		if( oldElement == element )
+			return element;
+		else if( this.contains( element ) || !this.isValidAddition( element ) )
+			return null;
+		
+		this.onChanging( );
+		
+		try
+		{
+			this.onRemoving( Collections.singletonList( oldElement ) );
+		
+			this.elements.set( index, element );
+			this.positions.remove( oldElement );
+			this.positions.put( element, index );
+			++this.modCount;
+			
+			this.onRemoved( oldElement, index );
+			this.onAdded( element );
+		}
+		finally
+		{
+			this.onChanged( );
+		}
+		
+		return oldElement;
+	}
+	
+	@Override
+	public int size( )
+	{
+		return this.elements.size( );
+	}
+	
+	@Override
+	public Object[ ] toArray( )
+	{
+		return this.elements.toArray( );
+	}
+	
+	@Override
+	public <E> E[ ] toArray( E[ ] a )
+	{
+		return this.elements.toArray( a );
+	}
+	
+	/**
+	 * Returns a {@code boolean} indicating whether or not the specified element, which is not yet in this list, may be added to it
+	 * 
+	 * @param element the element to be added
+	 * @return {@code true} if the element may be added, {@code false} if it should be silently ignored
+	 */
+	protected abstract boolean isValidAddition( T element );
+	
+	/**
+	 * Called after an element has been added to this list
+	 * 
+	 * @param element the element added
+	 */
+	protected abstract void onAdded( T element );
+	
+	/**
+	 * Called once after every modification made through a single call to one of this list's public methods, matching an earlier call to
+	 * {@link #onChanging()}
+	 */
+	protected abstract void onChanged( );
+	
+	/**
+	 * Called once before every modification made through a single call to one of this list's public methods
+	 */
+	protected abstract void onChanging( );
+	
+	/**
+	 * Called after an element has been removed from this list. When several elements are removed at once, this is called for each of them in the
+	 * order in which they appeared, and each index is the one the element would have had if those before it had already been removed.
+	 * 
+	 * @param element the element removed
+	 * @param index the position from which the element was removed
+	 */
+	protected abstract void onRemoved( T element, int index );
+	
+	/**
+	 * Called before a group of elements is removed from this list, allowing their dependents to be removed first
+	 * 
+	 * @param elements the elements about to be removed
+	 */
+	protected abstract void onRemoving( Collection<T> elements );
+	
+	/**
+	 * Removes the specified elements, all of which must be in this list, compacting the remaining elements in a single pass
+	 * 
+	 * @param removedElements the distinct elements to remove
+	 * @param isClearing a {@code boolean} indicating whether every element in this list is being removed
+	 */
+	private void removeElements( List<T> removedElements, boolean isClearing )
+	{
+		this.onChanging( );
+		
+		try
+		{
+			this.onRemoving( removedElements );
+			
+			// The removed elements in the order in which they appeared, each with the number of remaining elements that preceded it
+			List<T> removedInOrder;
+			int[ ] removedIndices = new int[removedElements.size( )];
+			
+			if( isClearing )
+			{
+				removedInOrder = removedElements;
+				this.elements.clear( );
+				this.positions.clear( );
+			}
+			else
+			{
+				Set<T> removedSet = Collections.newSetFromMap( new IdentityHashMap<T, Boolean>( removedElements.size( ) ) );
+				removedSet.addAll( removedElements );
+				removedInOrder = new ArrayList<T>( removedElements.size( ) );
+				
+				int j = 0;
+				for( int i = 0; i < this.elements.size( ); ++i )
+				{
+					T element = this.elements.get( i );
+					
+					if( removedSet.contains( element ) )
+					{
+						removedIndices[removedInOrder.size( )] = j;
+						removedInOrder.add( element );
+						this.validPositions = Math.min( this.validPositions, j );
+					}
+					else
+						this.elements.set( j++, element );
+				}
+				
+				this.elements.subList( j, this.elements.size( ) ).clear( );
+				
+				for( T element : removedElements )
+					this.positions.remove( element );
+			}
+			
+			this.validPositions = Math.min( this.validPositions, this.elements.size( ) );
+			++this.modCount;
+			
+			for( int i = 0; i < removedInOrder.size( ); ++i )
+				this.onRemoved( removedInOrder.get( i ), removedIndices[i] );
+		}
+		finally
+		{
+			this.onChanged( );
+		}
+	}
+}
@@ -46,6 +46,11 @@ public class ObservableModel extends Observable
 		 */
 		private T				value;
 		
+		/**
+		 * The value this {@code Property} held before it was last set, made accessible through {@link #getPrevious()}
+		 */
+		private T				previousValue;
+		
 		/**
 		 * The default value set in this {@code Property}'s constructor and made accessible through {@link #getDefault()}
 		 * 
@@ -102,6 +107,23 @@ public class ObservableModel extends Observable
 			return this.defaultValue;
 		}
 		
+		/**
+		 * Gets the {@code ObservableModel} to which this {@code Property} belongs
+		 */
+		public ObservableModel getOwner( )
+		{
+			return ObservableModel.this;
+		}
+		
+		/**
+		 * Gets the value this {@code Property} held before it was last set. Because subscribed {@code Observer}s are only notified after a change
+		 * has been made, this allows them to tell what the change was.
+		 */
+		public T getPrevious( )
+		{
+			return this.previousValue;
+		}
+		
 		/**
 		 * Resets this {@code Property}'s value back to the default value specified in the constructor and notifies any subscribed {@code Observer}s
 		 * of the change
@@ -132,6 +154,7 @@ public class ObservableModel extends Observable
 				if( this.value instanceof Observable )
 					( (Observable) this.value ).deleteObserver( this.valueObserver );
 				
+				this.previousValue = this.value;
 				this.value = value;
 				
 				if( value instanceof Observable )
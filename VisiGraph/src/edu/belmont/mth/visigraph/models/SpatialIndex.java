@@ -0,0 +1,576 @@
+/**
+ * SpatialIndex.java
+ */
+package edu.belmont.mth.visigraph.models;
+
+import java.awt.geom.*;
+import java.util.*;
+import edu.belmont.mth.visigraph.models.ObservableModel.Property;
+
+/**
+ * The {@code SpatialIndex} class allows the vertices and edges of a {@link Graph} lying within a region of the plane to be found without examining
+ * every element of the graph, as is needed each time the user clicks on or drags a selection rectangle across the viewport, and each time the
+ * viewport is painted. Vertices are indexed by their centers, and edges both by their handles and by the bounds of their lines or arcs, each in a
+ * uniform grid of square cells hashed by their integer coordinates, so that a query need only visit the cells overlapping its region and the
+ * elements within them.
+ * <p/>
+ * A {@code SpatialIndex} is owned by its {@code Graph}, which informs it whenever a vertex or edge is added or removed and whenever a vertex's
+ * position or an edge's handle changes, a vertex taking the edges incident to it along when it moves. Moved elements are merely marked as such,
+ * and are refiled in the grid the next time the index is queried, so that dragging a selection costs nothing until the next hit-test. The index
+ * itself is not built until its first query, so that graphs which are never displayed pay nothing for it.
+ * <p/>
+ * Since vertices and edge handles are drawn with a size, an element may be drawn within a region without its center lying inside. To allow for
+ * this, the index also keeps an upper bound on the radius of every vertex and the thickness of every edge, by which callers can grow their query
+ * regions before testing the elements returned exactly.
+ * 
+ * @author Cameron Behar
+ * @see Graph#getSpatialIndex()
+ */
+public class SpatialIndex
+{
+	/**
+	 * A {@code Grid} files elements by the cells overlapped by their bounds, deferring the refiling of moved elements until its next query. Elements
+	 * whose bounds would overlap too many cells are kept apart in a list of their own, which every query examines in full.
+	 */
+	private static abstract class Grid<T>
+	{
+		/**
+		 * A {@code Filing} records an element along with the bounds and range of cells by which it was last filed
+		 */
+		private static class Filing<T>
+		{
+			public final T	element;
+			public double	minX, minY, maxX, maxY;
+			public long		minColumn, minRow, maxColumn, maxRow;
+			
+			public Filing( T element )
+			{
+				this.element = element;
+			}
+			
+			public boolean intersects( double minX, double minY, double maxX, double maxY )
+			{
+				return ( this.maxX >= minX && this.minX <= maxX && this.maxY >= minY && this.minY <= maxY );
+			}
+			
+			public boolean isOversized( )
+			{
+				return ( this.maxColumn - this.minColumn + 1.0 ) * ( this.maxRow - this.minRow + 1.0 ) > maximumCellCount;
+			}
+		}
+		
+		/**
+		 * A {@code Map} of each occupied cell's key to the filings of the elements overlapping it
+		 */
+		private final Map<Long, List<Filing<T>>>	cells;
+		
+		/**
+		 * A {@code Map} of each filed element to its filing, compared by identity
+		 */
+		private final Map<T, Filing<T>>				filings;
+		
+		/**
+		 * The filings of the elements overlapping too many cells to be filed in each of them
+		 */
+		private final Set<Filing<T>>				oversizedFilings;
+		
+		/**
+		 * The elements added or moved since they were last filed, compared by identity
+		 */
+		private final Set<T>						movedElements;
+		
+		/**
+		 * Constructs an empty {@code Grid}
+		 */
+		public Grid( )
+		{
+			this.cells = new HashMap<Long, List<Filing<T>>>( );
+			this.filings = new IdentityHashMap<T, Filing<T>>( );
+			this.oversizedFilings = new HashSet<Filing<T>>( );
+			this.movedElements = Collections.newSetFromMap( new IdentityHashMap<T, Boolean>( ) );
+		}
+		
+		/**
+		 * Marks the specified element as needing to be filed by its current bounds before the next query
+		 * 
+		 * @param element the element added or moved
+		 */
+		public void moved( T element )
+		{
+			this.movedElements.add( element );
+		}
+		
+		/**
+		 * Adds to the specified list every element whose bounds intersect the specified region
+		 * 
+		 * @param minX the least x-coordinate of the region
+		 * @param minY the least y-coordinate of the region
+		 * @param maxX the greatest x-coordinate of the region
+		 * @param maxY the greatest y-coordinate of the region
+		 * @param elements the list to which to add the elements found
+		 */
+		public void query( double minX, double minY, double maxX, double maxY, List<T> elements )
+		{
+			this.refile( );
+			
+			long minColumn = cellOf( minX ), maxColumn = cellOf( maxX );
+			long minRow = cellOf( minY ), maxRow = cellOf( maxY );
+			
+			// Visit either each cell in the region or each occupied cell, whichever is fewer, so that huge regions cost no more than a full scan
+			if( ( maxColumn - minColumn + 1.0 ) * ( maxRow - minRow + 1.0 ) <= this.cells.size( ) )
+			{
+				for( long column = minColumn; column <= maxColumn; ++column )
+					for( long row = minRow; row <= maxRow; ++row )
+					{
+						Long key = keyOf( column, row );
+						this.collect( this.cells.get( key ), key, minX, minY, maxX, maxY, elements );
+					}
+			}
+			else
+				for( Map.Entry<Long, List<Filing<T>>> cell : this.cells.entrySet( ) )
+					this.collect( cell.getValue( ), cell.getKey( ), minX, minY, maxX, maxY, elements );
+			
+			for( Filing<T> filing : this.oversizedFilings )
+				if( filing.intersects( minX, minY, maxX, maxY ) )
+					elements.add( filing.element );
+		}
+		
+		/**
+		 * Removes the specified element from this grid
+		 * 
+		 * @param element the element to remove
+		 */
+		public void remove( T element )
+		{
+			this.movedElements.remove( element );
+			
+			Filing<T> filing = this.filings.remove( element );
+			if( filing != null )
+				this.unfile( filing );
+		}
+		
+		/**
+		 * Returns the bounds by which the specified element is filed, which for an element filed by a single point are of zero width and height
+		 * 
+		 * @param element the element whose bounds to return
+		 * @return the element's bounds
+		 */
+		protected abstract Rectangle2D getBounds( T element );
+		
+		/**
+		 * Adds to the specified list every element of the specified cell whose bounds intersect the specified region. An element overlapping several
+		 * cells of the region is only added from the first of them, the one at its least column and row within the region.
+		 */
+		private void collect( List<Filing<T>> cell, Long key, double minX, double minY, double maxX, double maxY, List<T> elements )
+		{
+			if( cell != null )
+				for( Filing<T> filing : cell )
+					if( filing.intersects( minX, minY, maxX, maxY ) && keyOf( Math.max( filing.minColumn, cellOf( minX ) ), Math.max( filing.minRow, cellOf( minY ) ) ).equals( key ) )
+						elements.add( filing.element );
+		}
+		
+		/**
+		 * Adds the specified filing to every cell in its range, or to the oversized filings
+		 */
+		private void file( Filing<T> filing )
+		{
+			if( filing.isOversized( ) )
+			{
+				this.oversizedFilings.add( filing );
+				return;
+			}
+			
+			for( long column = filing.minColumn; column <= filing.maxColumn; ++column )
+				for( long row = filing.minRow; row <= filing.maxRow; ++row )
+				{
+					Long key = keyOf( column, row );
+					List<Filing<T>> cell = this.cells.get( key );
+					if( cell == null )
+						this.cells.put( key, cell = new ArrayList<Filing<T>>( ) );
+					cell.add( filing );
+				}
+		}
+		
+		/**
+		 * Files each element moved since the last query by its current bounds, moving it between cells only if its range of cells has changed
+		 */
+		private void refile( )
+		{
+			for( T element : this.movedElements )
+			{
+				Filing<T> filing = this.filings.get( element );
+				if( filing == null )
+					this.filings.put( element, filing = new Filing<T>( element ) );
+				else
+					this.unfile( filing );
+				
+				Rectangle2D bounds = this.getBounds( element );
+				filing.minX = bounds.getMinX( );
+				filing.minY = bounds.getMinY( );
+				filing.maxX = bounds.getMaxX( );
+				filing.maxY = bounds.getMaxY( );
+				filing.minColumn = cellOf( filing.minX );
+				filing.minRow = cellOf( filing.minY );
+				filing.maxColumn = cellOf( filing.maxX );
+				filing.maxRow = cellOf( filing.maxY );
+					
+				this.file( filing );
+			}
+			
+			this.movedElements.clear( );
+		}
+		
+		/**
+		 * Removes the specified filing from every cell in its range, discarding any cell left empty, or from the oversized filings
+		 */
+		private void unfile( Filing<T> filing )
+		{
+			if( filing.isOversized( ) )
+			{
+				this.oversizedFilings.remove( filing );
+				return;
+			}
+			
+			for( long column = filing.minColumn; column <= filing.maxColumn; ++column )
+				for( long row = filing.minRow; row <= filing.maxRow; ++row )
+				{
+					Long key = keyOf( column, row );
+					List<Filing<T>> cell = this.cells.get( key );
+					for( int i = cell.size( ) - 1; i >= 0; --i )
+						if( cell.get( i ) == filing )
+						{
+							cell.remove( i );
+							break;
+						}
+					
+					if( cell.isEmpty( ) )
+						this.cells.remove( key );
+				}
+		}
+		
+		/**
+		 * Returns the coordinate of the column or row of cells containing the specified coordinate
+		 */
+		private static long cellOf( double coordinate )
+		{
+			// Columns and rows are clamped only where a double can no longer tell them apart, so that distant elements are not all filed in the same cells
+			return (long) Math.max( -maximumCell, Math.min( maximumCell, Math.floor( coordinate / cellSize ) ) );
+		}
+		
+		/**
+		 * Returns the key of the cell in the specified column and row
+		 */
+		private static Long keyOf( long column, long row )
+		{
+			// Keys never repeat within fewer than 2^32 columns and rows, so no filing, nor any region visited cell by cell, meets the same key twice
+			return ( column << 32 ) ^ row;
+		}
+	}
+	
+	/**
+	 * The width and height of each cell of the grid, in graph coordinates
+	 */
+	private static final double	cellSize			= 64.0;
+	
+	/**
+	 * The greatest number of cells an element may overlap before it is no longer filed in each of them
+	 */
+	private static final long	maximumCellCount	= 64;
+	
+	/**
+	 * The greatest magnitude of a column or row, beyond which coordinates are clamped
+	 */
+	private static final double	maximumCell			= 1L << 52;
+	
+	/**
+	 * The {@code Graph} whose elements this index locates
+	 */
+	private final Graph			graph;
+	
+	/**
+	 * A {@code boolean} flag indicating whether the index has been built, and so must be kept up to date with the graph
+	 */
+	private boolean				isBuilt;
+	
+	/**
+	 * The grid of vertices, filed by their centers
+	 */
+	private final Grid<Vertex>	vertexGrid;
+	
+	/**
+	 * The grid of edges, filed by their handles
+	 */
+	private final Grid<Edge>	edgeGrid;
+	
+	/**
+	 * The grid of edges, filed by the bounds of their lines or arcs
+	 */
+	private final Grid<Edge>	edgeExtentGrid;
+	
+	/**
+	 * An upper bound on the radius of every vertex in the graph
+	 */
+	private double				maximumVertexRadius;
+	
+	/**
+	 * An upper bound on the thickness of every edge in the graph
+	 */
+	private double				maximumEdgeThickness;
+	
+	/**
+	 * Constructs a {@code SpatialIndex} for the specified graph. The index is initially empty and will be built upon first use.
+	 * 
+	 * @param graph the {@code Graph} whose elements this index locates
+	 */
+	SpatialIndex( Graph graph )
+	{
+		this.graph = graph;
+		this.isBuilt = false;
+		this.vertexGrid = new Grid<Vertex>( )
+		{
+			@Override
+			protected Rectangle2D getBounds( Vertex vertex )
+			{
+				return new Rectangle2D.Double( vertex.x.get( ), vertex.y.get( ), 0.0, 0.0 );
+			}
+		};
+		this.edgeGrid = new Grid<Edge>( )
+		{
+			@Override
+			protected Rectangle2D getBounds( Edge edge )
+			{
+				return new Rectangle2D.Double( edge.handleX.get( ), edge.handleY.get( ), 0.0, 0.0 );
+			}
+		};
+		this.edgeExtentGrid = new Grid<Edge>( )
+		{
+			@Override
+			protected Rectangle2D getBounds( Edge edge )
+			{
+				if( !edge.isLinear( ) )
+					return edge.getArc( ).getBounds2D( );
+			
+				double minX = Math.min( edge.from.x.get( ), edge.to.x.get( ) ), minY = Math.min( edge.from.y.get( ), edge.to.y.get( ) );
+				return new Rectangle2D.Double( minX, minY, Math.max( edge.from.x.get( ), edge.to.x.get( ) ) - minX, Math.max( edge.from.y.get( ), edge.to.y.get( ) ) - minY );
+			}
+		};
+	}
+	
+	/**
+	 * Returns the edges of the graph whose handles lie within the specified region, boundary included
+	 * 
+	 * @param region the region in which to look for edge handles, in graph coordinates
+	 * @return a {@code List} of the edges found, in the order in which they appear in {@link Graph#edges}
+	 */
+	public List<Edge> getEdges( Rectangle2D region )
+	{
+		this.build( );
+		
+		List<Edge> edges = new ArrayList<Edge>( );
+		this.edgeGrid.query( region.getMinX( ), region.getMinY( ), region.getMaxX( ), region.getMaxY( ), edges );
+		
+		return sort( edges, this.graph.edges );
+	}
+	
+	/**
+	 * Returns the edges of the graph whose lines or arcs may pass through the specified region. Since edges are located by the bounds of their lines
+	 * and arcs, an edge returned may still miss the region, but no edge crossing the region is left out.
+	 * 
+	 * @param region the region through which to look for edges, in graph coordinates
+	 * @return a {@code List} of the edges found, in the order in which they appear in {@link Graph#edges}
+	 */
+	public List<Edge> getEdgesOverlapping( Rectangle2D region )
+	{
+		this.build( );
+		
+		List<Edge> edges = new ArrayList<Edge>( );
+		this.edgeExtentGrid.query( region.getMinX( ), region.getMinY( ), region.getMaxX( ), region.getMaxY( ), edges );
+		
+		return sort( edges, this.graph.edges );
+	}
+	
+	/**
+	 * Returns an upper bound on the thickness of every edge in the graph, which may exceed the greatest thickness if an edge has since been made
+	 * thinner or removed
+	 * 
+	 * @return an upper bound on the thickness of every edge
+	 */
+	public double getMaximumEdgeThickness( )
+	{
+		this.build( );
+		
+		return this.maximumEdgeThickness;
+	}
+	
+	/**
+	 * Returns an upper bound on the radius of every vertex in the graph, which may exceed the greatest radius if a vertex has since been shrunk or
+	 * removed
+	 * 
+	 * @return an upper bound on the radius of every vertex
+	 */
+	public double getMaximumVertexRadius( )
+	{
+		this.build( );
+		
+		return this.maximumVertexRadius;
+	}
+	
+	/**
+	 * Returns the vertices of the graph whose centers lie within the specified region, boundary included
+	 * 
+	 * @param region the region in which to look for vertex centers, in graph coordinates
+	 * @return a {@code List} of the vertices found, in the order in which they appear in {@link Graph#vertices}
+	 */
+	public List<Vertex> getVertices( Rectangle2D region )
+	{
+		this.build( );
+		
+		List<Vertex> vertices = new ArrayList<Vertex>( );
+		this.vertexGrid.query( region.getMinX( ), region.getMinY( ), region.getMaxX( ), region.getMaxY( ), vertices );
+		
+		return sort( vertices, this.graph.vertices );
+	}
+	
+	/**
+	 * Informs this index that the specified edge has been added to the graph
+	 * 
+	 * @param edge the edge added
+	 */
+	void edgeAdded( Edge edge )
+	{
+		if( this.isBuilt )
+		{
+			this.edgeGrid.moved( edge );
+			this.edgeExtentGrid.moved( edge );
+			this.maximumEdgeThickness = Math.max( this.maximumEdgeThickness, edge.thickness.get( ) );
+		}
+	}
+	
+	/**
+	 * Informs this index that the specified edge has been removed from the graph
+	 * 
+	 * @param edge the edge removed
+	 */
+	void edgeRemoved( Edge edge )
+	{
+		if( this.isBuilt )
+		{
+			this.edgeGrid.remove( edge );
+			this.edgeExtentGrid.remove( edge );
+		}
+	}
+	
+	/**
+	 * Informs this index that a property of one of the graph's vertices or edges has changed, so that it may refile the element if it has moved
+	 * 
+	 * @param property the property changed
+	 */
+	void propertyChanged( Property<?> property )
+	{
+		if( !this.isBuilt )
+			return;
+		
+		if( property.getOwner( ) instanceof Vertex )
+		{
+			Vertex vertex = (Vertex) property.getOwner( );
+			
+			if( property == vertex.x || property == vertex.y )
+			{
+				this.vertexGrid.moved( vertex );
+				
+				// Edges bend with their vertices without necessarily reporting that their handles have moved
+				if( this.graph.vertices.contains( vertex ) )
+					for( Edge edge : this.graph.getIncidentEdges( vertex ) )
+					{
+						this.edgeGrid.moved( edge );
+						this.edgeExtentGrid.moved( edge );
+					}
+			}
+			else if( property == vertex.radius )
+				this.maximumVertexRadius = Math.max( this.maximumVertexRadius, vertex.radius.get( ) );
+		}
+		else if( property.getOwner( ) instanceof Edge )
+		{
+			Edge edge = (Edge) property.getOwner( );
+			
+			if( property == edge.handleX || property == edge.handleY )
+			{
+				this.edgeGrid.moved( edge );
+				this.edgeExtentGrid.moved( edge );
+			}
+			else if( property == edge.thickness )
+				this.maximumEdgeThickness = Math.max( this.maximumEdgeThickness, edge.thickness.get( ) );
+		}
+	}
+	
+	/**
+	 * Informs this index that the specified vertex has been added to the graph
+	 * 
+	 * @param vertex the vertex added
+	 */
+	void vertexAdded( Vertex vertex )
+	{
+		if( this.isBuilt )
+		{
+			this.vertexGrid.moved( vertex );
+			this.maximumVertexRadius = Math.max( this.maximumVertexRadius, vertex.radius.get( ) );
+		}
+	}
+	
+	/**
+	 * Informs this index that the specified vertex has been removed from the graph
+	 * 
+	 * @param vertex the vertex removed
+	 */
+	void vertexRemoved( Vertex vertex )
+	{
+		if( this.isBuilt )
+			this.vertexGrid.remove( vertex );
+	}
+	
+	/**
+	 * Builds this index from the graph's current elements, if it has not already been built
+	 */
+	private void build( )
+	{
+		if( this.isBuilt )
+			return;
+		
+		this.isBuilt = true;
+		this.maximumVertexRadius = 0.0;
+		this.maximumEdgeThickness = 0.0;
+		
+		for( Vertex vertex : this.graph.vertices )
+			this.vertexAdded( vertex );
+		for( Edge edge : this.graph.edges )
+			this.edgeAdded( edge );
+	}
+	
+	/**
+	 * Sorts the specified elements into the order in which they appear in the specified list
+	 * 
+	 * @param elements the elements to sort
+	 * @param list the list containing every one of the elements
+	 * @return the sorted elements
+	 */
+	private static <T> List<T> sort( List<T> elements, final List<T> list )
+	{
+		if( elements.size( ) > 1 )
+		{
+			final Map<T, Integer> positions = new IdentityHashMap<T, Integer>( elements.size( ) );
+			for( T element : elements )
+				positions.put( element, list.indexOf( element ) );
+			
+			Collections.sort( elements, new Comparator<T>( )
+			{
+				@Override
+				public int compare( T a, T b )
+				{
+					return positions.get( a ).compareTo( positions.get( b ) );
+				}
+			} );
+		}
+		
+		return elements;
+	}
+}
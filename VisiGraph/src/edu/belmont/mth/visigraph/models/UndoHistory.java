@@ -0,0 +1,445 @@
+/**
+ * UndoHistory.java
+ */
+package edu.belmont.mth.visigraph.models;
+
+import java.util.*;
+import edu.belmont.mth.visigraph.models.ObservableModel.Property;
+
+/**
+ * An {@code UndoHistory} records the changes made to a {@link Graph} so that they can be undone and redone. Rather than storing copies of the
+ * entire graph, it subscribes to the graph's notifications and records only what each one changed: the elements added and removed, and the values
+ * each changed {@code Property} held before and after the change. The memory it uses therefore grows with the edits made, not with the size of the
+ * graph.
+ * <p/>
+ * Changes are gathered into a single transaction until {@link #commit()} is called, so that many small changes, such as those made while dragging a
+ * vertex, can be undone in a single step. Within a transaction, elements both added and removed cancel out, and a property changed several times
+ * is recorded only once, with its original and final values. At most {@link #getCapacity()} committed transactions are kept, the oldest being
+ * discarded first.
+ * 
+ * @author Cameron Behar
+ * @see GraphChange
+ * @see Property#getPrevious()
+ */
+public class UndoHistory
+{
+	/**
+	 * A {@code Transaction} is a committed set of changes, which can be undone or redone as a single step
+	 */
+	private static class Transaction
+	{
+		/**
+		 * The elements added to and removed from the graph
+		 */
+		private final GraphChange				change;
+		
+		/**
+		 * A {@code Map} of the properties changed to the values they held before the transaction, in the order in which they first changed
+		 */
+		private final Map<Property<?>, Object>	oldValues;
+		
+		/**
+		 * A {@code Map} of the properties changed to the values they held after the transaction, in the order in which they first changed
+		 */
+		private final Map<Property<?>, Object>	newValues;
+		
+		/**
+		 * Constructs a {@code Transaction} from the specified changes, recording the current values of the properties changed
+		 * 
+		 * @param change the changes made during the transaction
+		 */
+		public Transaction( GraphChange change )
+		{
+			this.change = change;
+			this.oldValues = new LinkedHashMap<Property<?>, Object>( );
+			this.newValues = new LinkedHashMap<Property<?>, Object>( );
+			
+			for( Property<?> property : change.getChangedProperties( ) )
+			{
+				this.oldValues.put( property, change.getPreviousValue( property ) );
+				this.newValues.put( property, property.get( ) );
+			}
+		}
+		
+		/**
+		 * Returns a {@code boolean} indicating whether or not this transaction has no net effect on the graph
+		 * 
+		 * @return {@code true} if nothing was added, removed or changed, {@code false} otherwise
+		 */
+		public boolean isEmpty( )
+		{
+			if( this.change.isStructural( ) )
+				return false;
+			
+			for( Property<?> property : this.oldValues.keySet( ) )
+			{
+				Object oldValue = this.oldValues.get( property );
+				Object newValue = this.newValues.get( property );
+				if( oldValue == null ? newValue != null : !oldValue.equals( newValue ) )
+					return false;
+			}
+			
+			return true;
+		}
+		
+		/**
+		 * Reapplies this transaction to the specified graph
+		 * 
+		 * @param graph the graph to which this transaction was originally applied
+		 */
+		public void redo( Graph graph )
+		{
+			graph.beginUpdate( );
+			
+			try
+			{
+				graph.edges.removeAll( this.change.getRemovedEdges( ) );
+				graph.vertices.removeAll( this.change.getRemovedVertices( ) );
+				graph.captions.removeAll( this.change.getRemovedCaptions( ) );
+				graph.batch( this.change.getAddedVertices( ), this.change.getAddedEdges( ), this.change.getAddedCaptions( ) );
+				restore( this.newValues );
+			}
+			finally
+			{
+				graph.endUpdate( );
+			}
+		}
+		
+		/**
+		 * Reverts this transaction from the specified graph
+		 * 
+		 * @param graph the graph to which this transaction was applied
+		 */
+		public void undo( Graph graph )
+		{
+			graph.beginUpdate( );
+			
+			try
+			{
+				restore( this.oldValues );
+				graph.edges.removeAll( this.change.getAddedEdges( ) );
+				graph.vertices.removeAll( this.change.getAddedVertices( ) );
+				graph.captions.removeAll( this.change.getAddedCaptions( ) );
+				this.reinsert( graph.vertices, this.change.getRemovedVertices( ) );
+				this.reinsert( graph.edges, this.change.getRemovedEdges( ) );
+				this.reinsert( graph.captions, this.change.getRemovedCaptions( ) );
+			}
+			finally
+			{
+				graph.endUpdate( );
+			}
+		}
+		
+		/**
+		 * Returns whether the specified list finds each of the specified elements, and the element following each, at the positions they now occupy
+		 * 
+		 * @param list the list into which the elements were reinserted
+		 * @param elements the reinserted elements
+		 * @return {@code true} if every position checked is current, {@code false} otherwise
+		 */
+		private static <T> boolean isReinserted( List<T> list, List<T> elements )
+		{
+			for( T element : elements )
+			{
+				int index = list.indexOf( element );
+				if( index < 0 || list.get( index ) != element || ( index + 1 < list.size( ) && list.indexOf( list.get( index + 1 ) ) != index + 1 ) )
+					return false;
+			}
+			
+			return true;
+		}
+		
+		/**
+		 * Puts the specified removed elements back into the list from which they were removed, at their original positions
+		 * 
+		 * @param list the list from which the elements were removed
+		 * @param removedElements the elements removed, in the order in which they were removed
+		 */
+		private <T> void reinsert( List<T> list, Collection<T> removedElements )
+		{
+			List<T> elements = new ArrayList<T>( removedElements );
+			for( int i = elements.size( ) - 1; i >= 0; --i )
+				list.add( this.change.getRemovedIndex( elements.get( i ) ), elements.get( i ) );
+			
+			// A stale position left by one of these insertions would make the next deletion of the element after it remove the wrong element
+			if( !isReinserted( list, elements ) )
+				throw new IllegalStateException( "Reinserted elements are not found where they were put" );
+		}
+		
+		/**
+		 * Sets each of the specified properties to its corresponding value
+		 * 
+		 * @param values a {@code Map} of properties to the values to which to set them
+		 */
+		@SuppressWarnings( "unchecked" )
+		private static void restore( Map<Property<?>, Object> values )
+		{
+			// An edge's handle follows its vertices whenever they move, so the edges whose handles are restored must ignore their vertices meanwhile
+			Set<Edge> edges = new HashSet<Edge>( );
+			for( Property<?> property : values.keySet( ) )
+				if( property.getOwner( ) instanceof Edge )
+				{
+					Edge edge = (Edge) property.getOwner( );
+					if( !edge.suspendNotifications( true ) )
+						edges.add( edge );
+				}
+			
+			for( Map.Entry<Property<?>, Object> entry : values.entrySet( ) )
+				( (Property<Object>) entry.getKey( ) ).set( entry.getValue( ) );
+			
+			for( Edge edge : edges )
+			{
+				edge.suspendNotifications( false );
+				edge.refresh( );
+			}
+		}
+	}
+	
+	/**
+	 * The graph whose changes are recorded
+	 */
+	private final Graph						graph;
+	
+	/**
+	 * An {@code Observer} used to record each change made to {@link #graph}
+	 */
+	private final Observer					graphObserver;
+	
+	/**
+	 * The committed transactions that can be undone, the most recent last
+	 */
+	private final LinkedList<Transaction>	undoStack;
+	
+	/**
+	 * The undone transactions that can be redone, the most recently undone last
+	 */
+	private final LinkedList<Transaction>	redoStack;
+	
+	/**
+	 * The changes made since the last commit, or {@code null} if there are none
+	 */
+	private GraphChange						pendingChange;
+	
+	/**
+	 * The maximum number of transactions that can be undone
+	 */
+	private int								capacity;
+	
+	/**
+	 * A {@code boolean} flag indicating whether a transaction is currently being undone or redone, and so changes should not be recorded
+	 */
+	private boolean							isApplying;
+	
+	/**
+	 * Constructs an {@code UndoHistory} recording the changes made to the specified graph
+	 * 
+	 * @param graph the graph whose changes to record
+	 * @param capacity the maximum number of transactions that can be undone, or 0 to record nothing
+	 */
+	public UndoHistory( Graph graph, int capacity )
+	{
+		this.graph = graph;
+		this.undoStack = new LinkedList<Transaction>( );
+		this.redoStack = new LinkedList<Transaction>( );
+		this.pendingChange = null;
+		this.capacity = capacity;
+		this.isApplying = false;
+		this.graphObserver = new Observer( )
+		{
+			@Override
+			public void update( Observable o, Object arg )
+			{
+				UndoHistory.this.record( arg );
+			}
+		};
+		
+		this.graph.addObserver( this.graphObserver );
+	}
+	
+	/**
+	 * Discards every recorded change
+	 */
+	public void clear( )
+	{
+		this.pendingChange = null;
+		this.undoStack.clear( );
+		this.redoStack.clear( );
+	}
+	
+	/**
+	 * Ends the current transaction, so that the changes made since the last commit are undone as a single step
+	 */
+	public void commit( )
+	{
+		if( this.pendingChange == null )
+			return;
+		
+		Transaction transaction = new Transaction( this.pendingChange );
+		this.pendingChange = null;
+		
+		if( !transaction.isEmpty( ) )
+		{
+			this.undoStack.addLast( transaction );
+			this.trim( );
+		}
+	}
+	
+	/**
+	 * Stops recording changes to the graph
+	 */
+	public void dispose( )
+	{
+		this.graph.deleteObserver( this.graphObserver );
+		this.clear( );
+	}
+	
+	/**
+	 * Returns the maximum number of transactions that can be undone
+	 * 
+	 * @return the capacity of this history
+	 */
+	public int getCapacity( )
+	{
+		return this.capacity;
+	}
+	
+	/**
+	 * Reapplies the most recently undone transaction
+	 * 
+	 * @return {@code true} if a transaction was redone, {@code false} if there was none
+	 */
+	public boolean redo( )
+	{
+		this.commit( );
+		
+		if( this.redoStack.isEmpty( ) )
+			return false;
+		
+		Transaction transaction = this.redoStack.removeLast( );
+		this.apply( transaction, true );
+		this.undoStack.addLast( transaction );
+		
+		return true;
+	}
+	
+	/**
+	 * Sets the maximum number of transactions that can be undone, discarding the oldest if there are more
+	 * 
+	 * @param capacity the new capacity of this history, or 0 to record nothing
+	 */
+	public void setCapacity( int capacity )
+	{
+		this.capacity = capacity;
+		this.trim( );
+	}
+	
+	/**
+	 * Reverts the changes made since the last commit or, if there are none, the most recently committed transaction
+	 * 
+	 * @return {@code true} if a transaction was undone, {@code false} if there was none
+	 */
+	public boolean undo( )
+	{
+		this.commit( );
+		
+		if( this.undoStack.isEmpty( ) )
+			return false;
+		
+		Transaction transaction = this.undoStack.removeLast( );
+		this.apply( transaction, false );
+		this.redoStack.addLast( transaction );
+		
+		return true;
+	}
+	
+	/**
+	 * Undoes or redoes the specified transaction without recording the changes it makes
+	 * 
+	 * @param transaction the transaction to apply
+	 * @param isRedo {@code true} to redo the transaction, {@code false} to undo it
+	 */
+	private void apply( Transaction transaction, boolean isRedo )
+	{
+		this.isApplying = true;
+		
+		try
+		{
+			if( isRedo )
+				transaction.redo( this.graph );
+			else
+				transaction.undo( this.graph );
+		}
+		finally
+		{
+			this.isApplying = false;
+		}
+	}
+	
+	/**
+	 * Adds the change described by one of the graph's notifications to the current transaction
+	 * 
+	 * @param arg the argument of the notification, either a {@link GraphChange} or a single changed {@code Property}
+	 */
+	private void record( Object arg )
+	{
+		if( this.isApplying || this.capacity <= 0 || !( arg instanceof GraphChange || arg instanceof Property<?> ) )
+			return;
+		
+		if( this.pendingChange == null )
+			this.pendingChange = new GraphChange( );
+		
+		if( arg instanceof GraphChange )
+		{
+			GraphChange change = (GraphChange) arg;
+			
+			for( Property<?> property : change.getChangedProperties( ) )
+				this.pendingChange.propertyChanged( property, change.getPreviousValue( property ) );
+			
+			for( Vertex vertex : change.getRemovedVertices( ) )
+				this.pendingChange.vertexRemoved( vertex, change.getRemovedIndex( vertex ) );
+			for( Edge edge : change.getRemovedEdges( ) )
+			{
+				this.pendingChange.edgeRemoved( edge, change.getRemovedIndex( edge ) );
+				this.recordHandle( edge );
+			}
+			for( Caption caption : change.getRemovedCaptions( ) )
+				this.pendingChange.captionRemoved( caption, change.getRemovedIndex( caption ) );
+			
+			for( Vertex vertex : change.getAddedVertices( ) )
+				this.pendingChange.vertexAdded( vertex );
+			for( Edge edge : change.getAddedEdges( ) )
+			{
+				this.pendingChange.edgeAdded( edge );
+				this.recordHandle( edge );
+			}
+			for( Caption caption : change.getAddedCaptions( ) )
+				this.pendingChange.captionAdded( caption );
+		}
+		else if( arg instanceof Property<?> )
+			this.pendingChange.propertyChanged( (Property<?>) arg, ( (Property<?>) arg ).getPrevious( ) );
+		
+		// A new change makes anything undone unreachable
+		this.redoStack.clear( );
+	}
+	
+	/**
+	 * Adds the specified edge's handle to the current transaction. While an edge is not part of the graph its handle still follows its vertices,
+	 * but no notification reaches the graph; recording the handle as it stands whenever the edge is added or removed lets such changes be restored.
+	 * 
+	 * @param edge the edge added to or removed from the graph
+	 */
+	private void recordHandle( Edge edge )
+	{
+		this.pendingChange.propertyChanged( edge.handleX, edge.handleX.get( ) );
+		this.pendingChange.propertyChanged( edge.handleY, edge.handleY.get( ) );
+	}
+	
+	/**
+	 * Discards the oldest transactions until no more than {@link #capacity} remain
+	 */
+	private void trim( )
+	{
+		while( this.undoStack.size( ) > Math.max( this.capacity, 0 ) )
+			this.undoStack.removeFirst( );
+	}
+}
@@ -4,12 +4,11 @@
 package edu.belmont.mth.visigraph.models.functions;
 
 import java.awt.*;
-import java.util.*;
 import java.util.List;
 import java.awt.geom.*;
 import edu.belmont.mth.visigraph.models.*;
+import edu.belmont.mth.visigraph.models.CrossingDetector.Crossings;
 import edu.belmont.mth.visigraph.settings.*;
-import edu.belmont.mth.visigraph.utilities.*;
 
 /**
  * @author Cameron Behar
@@ -20,24 +19,6 @@ public class CountCrossings implements Function
 	/* # Note: This class should always be compiled; when scripted, it simply runs too slowly # */
 	/* ######################################################################################## */
 
-	private static List<Point2D> getCrossings( Edge e0, Edge e1 )
-	{
-		// Note: we do not count crossings between adjacent (coincident) edges as they are unnecessary
-		if( e0.isAdjacent( e1 ) )
-			return new LinkedList<Point2D>( );
-		else if( e0.isLinear( ) )
-		{
-			if( e1.isLinear( ) )
-				return GeometryUtilities.getCrossings( e0.getLine( ), e1.getLine( ) );
-			else
-				return GeometryUtilities.getCrossings( e0.getLine( ), e1.getArc( ), e1.getCenter( ) );
-		}
-		else if( e1.isLinear( ) )
-			return GeometryUtilities.getCrossings( e1.getLine( ), e0.getArc( ), e0.getCenter( ) );
-		else
-			return GeometryUtilities.getCrossings( e0.getArc( ), e0.getCenter( ), e1.getArc( ), e1.getCenter( ) );
-	}
-	
 	@Override
 	public String evaluate( Graphics2D g2D, Graph g, Component owner )
 	{
@@ -45,26 +26,23 @@ public class CountCrossings implements Function
 		if( edges.size( ) < 2 )
 			edges = g.edges;
 		
-		int crossingsCount = 0;
-		g2D.setColor( Color.red );
+		// Note: adjacent (coincident) edges are never tested for crossings as they are unnecessary
+		Crossings crossings = g.getCrossingIndex( ).getCrossings( edges );
 		
-		for( int i = 0; i < edges.size( ); ++i )
-			for( int j = i + 1; j < edges.size( ); ++j )
+		if( g2D != null )
+		{
+			g2D.setColor( Color.red );
+			
+			Ellipse2D.Double marker = new Ellipse2D.Double( );
+			for( int i = 0; i < crossings.size( ); ++i )
 			{
-				List<Point2D> crossings = getCrossings( edges.get( i ), edges.get( j ) );
-				crossingsCount += crossings.size( );
-				
-				if( crossings.size( ) > 0 && g2D != null )
-				{
-					double markerRadius = edges.get( i ).thickness.get( ) + edges.get( j ).thickness.get( );
-					double markerDiameter = 2 * markerRadius;
-					
-					for( Point2D location : crossings )
-						g2D.fill( new Ellipse2D.Double( location.getX( ) - markerRadius, location.getY( ) - markerRadius, markerDiameter, markerDiameter ) );
-				}
+				double markerRadius = edges.get( crossings.getEdge0( i ) ).thickness.get( ) + edges.get( crossings.getEdge1( i ) ).thickness.get( );
+				marker.setFrame( crossings.getX( i ) - markerRadius, crossings.getY( i ) - markerRadius, 2 * markerRadius, 2 * markerRadius );
+				g2D.fill( marker );
 			}
+		}
 		
-		return crossingsCount + "";
+		return crossings.size( ) + "";
 	}
 	
 	@Override
@@ -77,7 +55,7 @@ public class CountCrossings implements Function
 			case VERSION:
 				return "20110101";
 			case DESCRIPTION:
-				return "Highlights and counts all intersections, or <i>crossings</i>, between the selected edges in a given drawing of a graph.</p><p>Using a variety of geometric methods built into" + GlobalSettings.applicationName + ", crossings are found in <code><i>O</i>(|<i>E</i>|<sup>2</sup>)</code> time.";
+				return "Highlights and counts all intersections, or <i>crossings</i>, between the selected edges in a given drawing of a graph.</p><p>Using a variety of geometric methods built into" + GlobalSettings.applicationName + ", crossings are found by first filing the edges into a uniform grid, so that only edges sharing a cell of it are tested against each other.  For typical drawings this takes <code><i>O</i>(|<i>E</i>| + <i>k</i>)</code> time, where <i>k</i> is the number of crossings found, and never more than <code><i>O</i>(|<i>E</i>|<sup>2</sup>)</code>.  The crossings found are remembered with the graph, so that when re-evaluated only those of the edges since moved are found again.";
 			case INPUT:
 				return "The selected edges; if none are selected, the entire edge set will be used.";
 			case OUTPUT:
@@ -18,7 +18,30 @@ public interface Function
 	 */
 	public enum Attribute
 	{
-		AUTHOR, VERSION, DESCRIPTION, INPUT, SIDE_EFFECTS, OUTPUT, CONSTRAINTS, ALLOWS_DYNAMIC_EVALUATION, ALLOWS_ONE_TIME_EVALUATION, RELATED_GENERATORS, RELATED_FUNCTIONS, TAGS
+		AUTHOR, VERSION, DESCRIPTION, INPUT, SIDE_EFFECTS, OUTPUT, CONSTRAINTS, ALLOWS_DYNAMIC_EVALUATION, ALLOWS_ONE_TIME_EVALUATION, DEPENDENCIES, RELATED_GENERATORS, RELATED_FUNCTIONS, TAGS
+	}
+	
+	/**
+	 * A code representing an aspect of a graph upon which a function's result may depend, reported as an array by the {@code DEPENDENCIES}
+	 * attribute. A function reporting its dependencies promises that its result changes only with them, and that it draws nothing, so that its
+	 * result may be remembered by an {@link InvariantCache} for as long as they stay the same. Functions reporting no dependencies are taken to depend
+	 * on everything.
+	 */
+	public enum Dependency
+	{
+		/**
+		 * The graph's vertices and edges, and which vertices each edge joins
+		 * 
+		 * @see Graph#getStructureVersion()
+		 */
+		STRUCTURE,
+		
+		/**
+		 * The weights of the graph's vertices and edges
+		 * 
+		 * @see Graph#getWeightVersion()
+		 */
+		WEIGHTS
 	}
 	
 	/**
@@ -0,0 +1,656 @@
+/**
+ * FunctionEvaluator.java
+ */
+package edu.belmont.mth.visigraph.models.functions;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import javax.swing.*;
+import edu.belmont.mth.visigraph.models.*;
+import edu.belmont.mth.visigraph.models.ObservableModel.Property;
+import edu.belmont.mth.visigraph.settings.*;
+
+/**
+ * The {@code FunctionEvaluator} class evaluates dynamic functions away from the event dispatch thread, so that even the most expensive of them
+ * cannot hold up the painting of a graph. Each evaluation is made against a private working copy of the graph, brought up to date when it is
+ * requested, and any drawing the functions do is captured in an overlay image for the view they were requested for. Only the most recently
+ * requested evaluation is ever reported: requesting another cancels any still underway, and the results of one already superseded are discarded.
+ * <p/>
+ * The working copy is only ever built in full from the graph when evaluations are first requested for it. From then on, this
+ * {@code FunctionEvaluator} observes the graph, and each request passes the working copy just the elements added and removed and the properties
+ * changed since the last, so that whatever the working copy remembers about itself between queries, such as its {@link CrossingIndex}, need only
+ * be updated for what has changed.
+ * <p/>
+ * The functions themselves are never evaluated on the background thread, since the BeanShell interpreters behind scripted functions may not be
+ * shared between threads. Instead, this {@code FunctionEvaluator} evaluates a private instance of each, created from the same script by the
+ * {@link FunctionService} the first time it is needed.
+ * <p/>
+ * Completed evaluations are passed to this {@code FunctionEvaluator}'s observers as {@link Evaluation} objects, always on the event dispatch
+ * thread.
+ * 
+ * @author Cameron Behar
+ * @see Function
+ */
+public class FunctionEvaluator extends Observable
+{
+	/**
+	 * The {@code Evaluation} class holds the results of one evaluation of a set of functions on a snapshot of a graph
+	 */
+	public static class Evaluation
+	{
+		/**
+		 * A {@code Map} of each function evaluated to its result
+		 */
+		public final Map<Function, String>	results;
+		
+		/**
+		 * The image onto which the functions drew, transparent wherever they did not
+		 */
+		public final BufferedImage			overlay;
+		
+		/**
+		 * The transform from graph to overlay coordinates under which the functions drew
+		 */
+		public final AffineTransform		transform;
+		
+		/**
+		 * Constructs an {@code Evaluation} with the specified results and overlay
+		 * 
+		 * @param results a {@code Map} of each function evaluated to its result
+		 * @param overlay the image onto which the functions drew
+		 * @param transform the transform from graph to overlay coordinates under which the functions drew
+		 */
+		public Evaluation( Map<Function, String> results, BufferedImage overlay, AffineTransform transform )
+		{
+			this.results = results;
+			this.overlay = overlay;
+			this.transform = transform;
+		}
+	}
+	
+	/**
+	 * The {@code Delta} class holds the changes made to the observed graph between two requests, captured on the event dispatch thread so that they
+	 * can be applied to the working copy on the background thread. The graph's own elements serve only as keys to their working copies; every value
+	 * the working copy needs has already been read from them.
+	 */
+	private static class Delta
+	{
+		/**
+		 * The serialized graph from which to rebuild the working copy in full, or {@code null} if this delta is to be applied to the existing one
+		 */
+		public final String						snapshot;
+		
+		/**
+		 * The vertices, edges and captions of the graph, in that order, when {@link #snapshot} was taken, or {@code null} if there is no snapshot
+		 */
+		public final List<Object>				snapshotElements;
+		
+		/**
+		 * The elements removed from the graph
+		 */
+		public final List<Object>				removedElements;
+		
+		/**
+		 * The elements added to the graph and still in it: its vertices, then its edges, then its captions, each in order of position
+		 */
+		public final List<Object>				addedElements;
+		
+		/**
+		 * The position in its list of each of {@link #addedElements}
+		 */
+		public final int[ ]						addedPositions;
+		
+		/**
+		 * A {@code Map} of every property changed, and every property of the added elements, to its value
+		 */
+		public final Map<Property<?>, Object>	values;
+		
+		/**
+		 * Constructs a {@code Delta} rebuilding the working copy in full from the specified graph
+		 * 
+		 * @param graph the graph to copy
+		 */
+		public Delta( Graph graph )
+		{
+			this.snapshot = graph.toString( );
+			this.snapshotElements = new ArrayList<Object>( graph.vertices.size( ) + graph.edges.size( ) + graph.captions.size( ) );
+			this.snapshotElements.addAll( graph.vertices );
+			this.snapshotElements.addAll( graph.edges );
+			this.snapshotElements.addAll( graph.captions );
+			this.removedElements = null;
+			this.addedElements = null;
+			this.addedPositions = null;
+			this.values = null;
+		}
+		
+		/**
+		 * Constructs a {@code Delta} of the specified changes to the specified graph
+		 * 
+		 * @param graph the graph changed
+		 * @param removedElements the elements removed from the graph
+		 * @param addedElements the elements added to the graph, some of which may since have been removed
+		 * @param changedProperties the properties changed, some of which may belong to elements since removed
+		 */
+		public Delta( Graph graph, Collection<Object> removedElements, Collection<Object> addedElements, Collection<Property<?>> changedProperties )
+		{
+			this.snapshot = null;
+			this.snapshotElements = null;
+			this.removedElements = new ArrayList<Object>( removedElements );
+			this.addedElements = new ArrayList<Object>( addedElements.size( ) );
+			this.addedPositions = new int[addedElements.size( )];
+			this.values = new LinkedHashMap<Property<?>, Object>( );
+			
+			int count = 0;
+			for( List<?> list : new List<?>[ ] { graph.vertices, graph.edges, graph.captions } )
+			{
+				final List<?> elements = list;
+				List<Object> added = new ArrayList<Object>( );
+				for( Object element : addedElements )
+					if( elements.contains( element ) )
+						added.add( element );
+				
+				// Inserting the new elements in order of their final positions puts each where it belongs, as the others keep their relative order
+				Collections.sort( added, new Comparator<Object>( )
+				{
+					@Override
+					public int compare( Object element0, Object element1 )
+					{
+						return elements.indexOf( element0 ) - elements.indexOf( element1 );
+					}
+				} );
+				
+				for( Object element : added )
+				{
+					this.addedElements.add( element );
+					this.addedPositions[count++] = elements.indexOf( element );
+					
+					for( Property<?> property : getProperties( element ) )
+						this.values.put( property, property.get( ) );
+				}
+			}
+			
+			for( Property<?> property : changedProperties )
+			{
+				ObservableModel owner = property.getOwner( );
+				if( owner != graph && !graph.vertices.contains( owner ) && !graph.edges.contains( owner ) && !graph.captions.contains( owner ) )
+					continue;
+				
+				this.values.put( property, property.get( ) );
+				
+				// The handles of a moved vertex's edges follow it, and are passed on too, even where they happen to have come to rest unchanged
+				if( owner instanceof Vertex && ( property == ( (Vertex) owner ).x || property == ( (Vertex) owner ).y ) )
+					for( Edge edge : graph.getIncidentEdges( (Vertex) owner ) )
+					{
+						this.values.put( edge.handleX, edge.handleX.get( ) );
+						this.values.put( edge.handleY, edge.handleY.get( ) );
+					}
+			}
+		}
+	}
+	
+	/**
+	 * The single background thread on which evaluations are run, one after another
+	 */
+	private final ExecutorService			executor;
+	
+	/**
+	 * The evaluation most recently submitted to {@link #executor}, or {@code null} if there is none
+	 */
+	private Future<?>						pendingEvaluation;
+	
+	/**
+	 * A count of the evaluations requested, used to discard the results of any superseded before they could be reported
+	 */
+	private int								generation;
+	
+	/**
+	 * The graph whose changes are being recorded, or {@code null} if there is none yet. Only ever touched on the event dispatch thread.
+	 */
+	private Graph							observedGraph;
+	
+	/**
+	 * An {@code Observer} used to record each change made to {@link #observedGraph}
+	 */
+	private final Observer					graphObserver;
+	
+	/**
+	 * The elements removed from {@link #observedGraph} since the last request. Only ever touched on the event dispatch thread.
+	 */
+	private final Set<Object>				removedElements;
+	
+	/**
+	 * The elements added to {@link #observedGraph} since the last request. Only ever touched on the event dispatch thread.
+	 */
+	private final Set<Object>				addedElements;
+	
+	/**
+	 * The properties changed in {@link #observedGraph} since the last request. Only ever touched on the event dispatch thread.
+	 */
+	private final Set<Property<?>>			changedProperties;
+	
+	/**
+	 * The deltas captured by requests and not yet applied to {@link #workingGraph}, the oldest first
+	 */
+	private final Queue<Delta>				deltas;
+	
+	/**
+	 * The copy of the graph on which evaluations are made, kept between them and brought up to date with each new delta. Only ever touched on the
+	 * background thread.
+	 */
+	private Graph							workingGraph;
+	
+	/**
+	 * A {@code Map} of each element of the observed graph to its copy in {@link #workingGraph}. Only ever touched on the background thread.
+	 */
+	private final Map<Object, Object>		workingCopies;
+	
+	/**
+	 * The results of those functions that report their dependencies, remembered between evaluations so that they are only recomputed when the part
+	 * of {@link #workingGraph} they depend on has changed. Only ever touched on the background thread.
+	 */
+	private final InvariantCache			invariantCache;
+	
+	/**
+	 * A {@code Map} of each function requested to the private instance of it evaluated in its place, compared by identity. Only ever touched on the
+	 * background thread.
+	 */
+	private final Map<Function, Function>	workingFunctions;
+	
+	/**
+	 * Constructs a {@code FunctionEvaluator} with its own background thread
+	 */
+	public FunctionEvaluator( )
+	{
+		this.executor = Executors.newSingleThreadExecutor( new ThreadFactory( )
+		{
+			@Override
+			public Thread newThread( Runnable runnable )
+			{
+				Thread thread = new Thread( runnable, "FunctionEvaluator" );
+				thread.setDaemon( true );
+				thread.setPriority( Thread.MIN_PRIORITY );
+				return thread;
+			}
+		} );
+		this.pendingEvaluation = null;
+		this.generation = 0;
+		this.observedGraph = null;
+		this.graphObserver = new Observer( )
+		{
+			@Override
+			public void update( Observable o, Object arg )
+			{
+				FunctionEvaluator.this.record( arg );
+			}
+		};
+		this.removedElements = Collections.newSetFromMap( new IdentityHashMap<Object, Boolean>( ) );
+		this.addedElements = Collections.newSetFromMap( new IdentityHashMap<Object, Boolean>( ) );
+		this.changedProperties = Collections.newSetFromMap( new IdentityHashMap<Property<?>, Boolean>( ) );
+		this.deltas = new ConcurrentLinkedQueue<Delta>( );
+		this.workingGraph = null;
+		this.workingCopies = new IdentityHashMap<Object, Object>( );
+		this.invariantCache = new InvariantCache( );
+		this.workingFunctions = new IdentityHashMap<Function, Function>( );
+	}
+	
+	/**
+	 * Cancels any evaluation still underway, ensuring its results will not be reported. Must be called from the event dispatch thread.
+	 */
+	public void cancel( )
+	{
+		++this.generation;
+		
+		if( this.pendingEvaluation != null )
+		{
+			this.pendingEvaluation.cancel( true );
+			this.pendingEvaluation = null;
+		}
+	}
+	
+	/**
+	 * Cancels any evaluation still underway, stops recording the changes made to the graph, and stops this {@code FunctionEvaluator}'s background
+	 * thread. Must be called from the event dispatch thread.
+	 */
+	public void dispose( )
+	{
+		this.cancel( );
+		this.observe( null );
+		this.executor.shutdownNow( );
+	}
+	
+	/**
+	 * Requests the evaluation of the specified functions on the specified graph as it is now, cancelling any evaluation still underway. Must be
+	 * called from the event dispatch thread.
+	 * 
+	 * @param functions the functions to evaluate
+	 * @param graph the {@code Graph} on which to evaluate them
+	 * @param transform the transform from graph to overlay coordinates under which the functions are to draw
+	 * @param width the width of the overlay, in pixels
+	 * @param height the height of the overlay, in pixels
+	 */
+	public void evaluate( Collection<Function> functions, Graph graph, AffineTransform transform, int width, int height )
+	{
+		this.cancel( );
+		
+		// Only a graph not yet observed is copied in full; otherwise only what has changed since the last request is passed on
+		if( graph != this.observedGraph )
+		{
+			this.observe( graph );
+			this.deltas.clear( );
+			this.deltas.add( new Delta( graph ) );
+		}
+		else if( !this.removedElements.isEmpty( ) || !this.addedElements.isEmpty( ) || !this.changedProperties.isEmpty( ) )
+		{
+			this.deltas.add( new Delta( graph, this.removedElements, this.addedElements, this.changedProperties ) );
+			this.removedElements.clear( );
+			this.addedElements.clear( );
+			this.changedProperties.clear( );
+		}
+		
+		// Everything else the evaluation needs is copied now, so that it has nothing more to do with the graph or caller
+		final int generation = this.generation;
+		final List<Function> functionsCopy = new ArrayList<Function>( functions );
+		final AffineTransform transformCopy = new AffineTransform( transform );
+		final int overlayWidth = Math.max( width, 1 );
+		final int overlayHeight = Math.max( height, 1 );
+		final boolean useAntiAliasing = UserSettings.instance.useAntiAliasing.get( );
+		
+		this.pendingEvaluation = this.executor.submit( new Runnable( )
+		{
+			@Override
+			public void run( )
+			{
+				Graph graph = FunctionEvaluator.this.synchronize( );
+				
+				BufferedImage overlay = new BufferedImage( overlayWidth, overlayHeight, BufferedImage.TYPE_INT_ARGB );
+				Graphics2D g2D = overlay.createGraphics( );
+				if( useAntiAliasing )
+					g2D.setRenderingHint( RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON );
+				g2D.transform( transformCopy );
+				
+				final List<String> results = new ArrayList<String>( functionsCopy.size( ) );
+				for( Function function : functionsCopy )
+				{
+					if( Thread.currentThread( ).isInterrupted( ) )
+						break;
+					
+					try
+					{
+						results.add( FunctionEvaluator.this.invariantCache.evaluate( FunctionEvaluator.this.getWorkingFunction( function ), g2D, graph, null ) );
+					}
+					catch( Exception ex )
+					{
+						results.add( ex.toString( ) );
+					}
+				}
+				g2D.dispose( );
+				
+				final BufferedImage finishedOverlay = overlay;
+				SwingUtilities.invokeLater( new Runnable( )
+				{
+					@Override
+					public void run( )
+					{
+						if( generation != FunctionEvaluator.this.generation )
+							return;
+						
+						// The requested functions are only keyed here, as hashing one may call into its script
+						Map<Function, String> resultMap = new LinkedHashMap<Function, String>( );
+						for( int i = 0; i < results.size( ); ++i )
+							resultMap.put( functionsCopy.get( i ), results.get( i ) );
+						
+						Evaluation evaluation = new Evaluation( resultMap, finishedOverlay, transformCopy );
+						FunctionEvaluator.this.pendingEvaluation = null;
+						FunctionEvaluator.this.setChanged( );
+						FunctionEvaluator.this.notifyObservers( evaluation );
+					}
+				} );
+			}
+		} );
+	}
+	
+	/**
+	 * Applies the specified delta to the working copy of the graph. Elements removed go first, then the properties of those remaining are set, and
+	 * then the new elements are inserted. Edges whose handles the delta records are kept from following their vertices meanwhile, and are reshaped
+	 * just once, at their recorded handles, so that only they and no others are passed on to the working copy's {@link CrossingIndex}.
+	 * 
+	 * @param delta the delta to apply
+	 */
+	private void apply( Delta delta )
+	{
+		if( delta.snapshot != null )
+		{
+			this.workingGraph = new Graph( delta.snapshot );
+			this.workingCopies.clear( );
+		
+			List<Object> copies = new ArrayList<Object>( delta.snapshotElements.size( ) );
+			copies.addAll( this.workingGraph.vertices );
+			copies.addAll( this.workingGraph.edges );
+			copies.addAll( this.workingGraph.captions );
+			for( int i = 0; i < copies.size( ); ++i )
+				this.workingCopies.put( delta.snapshotElements.get( i ), copies.get( i ) );
+			
+			return;
+		}
+		
+		Graph graph = this.workingGraph;
+		Set<Edge> reshapedEdges = new HashSet<Edge>( );
+		graph.beginUpdate( );
+		
+		try
+		{
+			List<Object> removedCopies = new ArrayList<Object>( delta.removedElements.size( ) );
+			for( Object element : delta.removedElements )
+			{
+				Object copy = this.workingCopies.remove( element );
+				if( copy != null )
+					removedCopies.add( copy );
+			}
+			
+			graph.edges.removeAll( removedCopies );
+			graph.vertices.removeAll( removedCopies );
+			graph.captions.removeAll( removedCopies );
+			
+			for( Property<?> property : delta.values.keySet( ) )
+			{
+				Property<?> copy = this.getWorkingCopy( property );
+				if( copy != null && isHandle( copy ) && !( (Edge) copy.getOwner( ) ).suspendNotifications( true ) )
+					reshapedEdges.add( (Edge) copy.getOwner( ) );
+			}
+			
+			for( Map.Entry<Property<?>, Object> entry : delta.values.entrySet( ) )
+			{
+				Property<?> copy = this.getWorkingCopy( entry.getKey( ) );
+				if( copy != null )
+					set( copy, entry.getValue( ) );
+			}
+			
+			for( int i = 0; i < delta.addedElements.size( ); ++i )
+			{
+				Object element = delta.addedElements.get( i );
+				
+				Object copy;
+				if( element instanceof Vertex )
+					copy = new Vertex( );
+				else if( element instanceof Edge )
+				{
+					Edge edge = (Edge) element;
+					copy = new Edge( edge.isDirected, (Vertex) this.workingCopies.get( edge.from ), (Vertex) this.workingCopies.get( edge.to ) );
+				}
+				else
+					copy = new Caption( 0.0, 0.0 );
+				
+				Property<?>[ ] properties = getProperties( element ), copyProperties = getProperties( copy );
+				for( int j = 0; j < properties.length; ++j )
+					set( copyProperties[j], delta.values.get( properties[j] ) );
+				
+				this.workingCopies.put( element, copy );
+				
+				if( copy instanceof Vertex )
+					graph.vertices.add( delta.addedPositions[i], (Vertex) copy );
+				else if( copy instanceof Edge )
+					graph.edges.add( delta.addedPositions[i], (Edge) copy );
+				else
+					graph.captions.add( delta.addedPositions[i], (Caption) copy );
+			}
+		}
+		finally
+		{
+			for( Edge edge : reshapedEdges )
+			{
+				edge.suspendNotifications( false );
+				edge.refresh( );
+			}
+			
+			graph.endUpdate( );
+		}
+	}
+	
+	/**
+	 * Returns the properties of the specified graph or element, always in the same order for the same kind of owner
+	 * 
+	 * @param owner a {@link Graph}, {@link Vertex}, {@link Edge} or {@link Caption}
+	 * @return an array of the owner's properties
+	 */
+	private static Property<?>[ ] getProperties( Object owner )
+	{
+		if( owner instanceof Vertex )
+		{
+			Vertex vertex = (Vertex) owner;
+			return new Property<?>[ ] { vertex.id, vertex.x, vertex.y, vertex.label, vertex.radius, vertex.color, vertex.isSelected, vertex.weight, vertex.tag };
+		}
+		else if( owner instanceof Edge )
+		{
+			Edge edge = (Edge) owner;
+			return new Property<?>[ ] { edge.weight, edge.color, edge.label, edge.isSelected, edge.thickness, edge.handleX, edge.handleY, edge.tag };
+		}
+		else if( owner instanceof Caption )
+		{
+			Caption caption = (Caption) owner;
+			return new Property<?>[ ] { caption.x, caption.y, caption.text, caption.size, caption.isSelected, caption.tag };
+		}
+		else
+		{
+			Graph graph = (Graph) owner;
+			return new Property<?>[ ] { graph.name, graph.tag };
+		}
+	}
+	
+	/**
+	 * Returns the private instance of the specified function to evaluate in its place, creating it if it does not yet exist
+	 * 
+	 * @param function a function requested for evaluation
+	 * @return the instance of the function to evaluate on the background thread
+	 * @throws Exception If the instance could not be created
+	 */
+	private Function getWorkingFunction( Function function ) throws Exception
+	{
+		Function workingFunction = this.workingFunctions.get( function );
+		if( workingFunction == null )
+			this.workingFunctions.put( function, workingFunction = FunctionService.instance.createInstance( function ) );
+		
+		return workingFunction;
+	}
+	
+	/**
+	 * Returns the property of the working copy corresponding to the specified property of the observed graph
+	 * 
+	 * @param property a property of the observed graph or one of its elements
+	 * @return the corresponding property of the working copy, or {@code null} if its owner has no copy there
+	 */
+	private Property<?> getWorkingCopy( Property<?> property )
+	{
+		Object owner = property.getOwner( );
+		Object copy = ( owner instanceof Graph ? this.workingGraph : this.workingCopies.get( owner ) );
+		if( copy == null )
+			return null;
+		
+		Property<?>[ ] properties = getProperties( owner );
+		for( int i = 0; i < properties.length; ++i )
+			if( properties[i] == property )
+				return getProperties( copy )[i];
+		
+		return null;
+	}
+	
+	/**
+	 * Returns whether the specified property is one of the coordinates of an edge's handle
+	 */
+	private static boolean isHandle( Property<?> property )
+	{
+		return property.getOwner( ) instanceof Edge && ( property == ( (Edge) property.getOwner( ) ).handleX || property == ( (Edge) property.getOwner( ) ).handleY );
+	}
+	
+	/**
+	 * Starts recording the changes made to the specified graph, in place of any graph observed before, and forgets those recorded so far
+	 * 
+	 * @param graph the graph to observe, or {@code null} to observe none
+	 */
+	private void observe( Graph graph )
+	{
+		if( this.observedGraph != null )
+			this.observedGraph.deleteObserver( this.graphObserver );
+		
+		this.observedGraph = graph;
+		this.removedElements.clear( );
+		this.addedElements.clear( );
+		this.changedProperties.clear( );
+		
+		if( this.observedGraph != null )
+			this.observedGraph.addObserver( this.graphObserver );
+	}
+	
+	/**
+	 * Adds the change described by one of the observed graph's notifications to those made since the last request
+	 * 
+	 * @param arg the argument of the notification, either a {@link GraphChange} or a single changed {@code Property}
+	 */
+	private void record( Object arg )
+	{
+		if( arg instanceof GraphChange )
+		{
+			GraphChange change = (GraphChange) arg;
+			
+			for( Collection<?> elements : Arrays.asList( change.getRemovedVertices( ), change.getRemovedEdges( ), change.getRemovedCaptions( ) ) )
+				for( Object element : elements )
+				{
+					this.removedElements.add( element );
+					this.addedElements.remove( element );
+				}
+			
+			this.addedElements.addAll( change.getAddedVertices( ) );
+			this.addedElements.addAll( change.getAddedEdges( ) );
+			this.addedElements.addAll( change.getAddedCaptions( ) );
+			this.changedProperties.addAll( change.getChangedProperties( ) );
+		}
+		else if( arg instanceof Property<?> )
+			this.changedProperties.add( (Property<?>) arg );
+	}
+	
+	/**
+	 * Sets the specified property to the specified value, if they differ
+	 */
+	@SuppressWarnings( "unchecked" )
+	private static void set( Property<?> property, Object value )
+	{
+		if( value == null ? property.get( ) != null : !value.equals( property.get( ) ) )
+			( (Property<Object>) property ).set( value );
+	}
+	
+	/**
+	 * Brings the working copy of the graph up to date by applying every delta captured since it was last brought up to date
+	 * 
+	 * @return the graph on which to evaluate the functions
+	 */
+	private Graph synchronize( )
+	{
+		for( Delta delta = this.deltas.poll( ); delta != null; delta = this.deltas.poll( ) )
+			this.apply( delta );
+		
+		return this.workingGraph;
+	}
+}
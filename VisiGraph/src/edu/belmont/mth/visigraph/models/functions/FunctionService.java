@@ -82,6 +82,11 @@ public class FunctionService
 	 */
 	public final ObservableList<Function>	functions;
 	
+	/**
+	 * A {@code Map} of each scripted function to the filename of the script from which it was compiled, compared by identity
+	 */
+	private final Map<Function, String>		scriptFilenames;
+	
 	/**
 	 * Constructs the singleton instance of {@code FunctionService}, populating the list of functions with scripts compiled using BeanShell from the
 	 * "functions" folder of the application's local directory
@@ -89,6 +94,7 @@ public class FunctionService
 	private FunctionService( )
 	{
 		this.functions = new ObservableList<Function>( );
+		this.scriptFilenames = Collections.synchronizedMap( new IdentityHashMap<Function, String>( ) );
 		
 		// Load standard library functions
 		this.functions.add( new CountCrossings( ) );
@@ -108,6 +114,24 @@ public class FunctionService
 				this.loadScript( filename );
 	}
 	
+	/**
+	 * Returns a new instance of the specified {@code Function}, compiled afresh from its script if it is scripted. Since a BeanShell interpreter may
+	 * not be used by two threads at once, a function to be evaluated away from the event dispatch thread must be evaluated through an instance of
+	 * its own.
+	 * 
+	 * @param function the {@code Function} of which to create a new instance
+	 * @return a new instance of the specified {@code Function}, sharing no state with it
+	 * @throws Exception If the function's script can no longer be compiled or its class can not be instantiated
+	 */
+	public Function createInstance( Function function ) throws Exception
+	{
+		String filename = this.scriptFilenames.get( function );
+		if( filename == null )
+			return function.getClass( ).newInstance( );
+		
+		return (Function) new Interpreter( ).source( "functions/" + filename );
+	}
+	
 	/**
 	 * Loads a scripted {@code Function} into the Singleton list of functions maintained by this service in lexicographical position.
 	 * 
@@ -130,9 +154,11 @@ public class FunctionService
 			} );
 			
 			if( keyIndex >= 0 )
-				this.functions.set( keyIndex, function );
+				this.scriptFilenames.remove( this.functions.set( keyIndex, function ) );
 			else
 				this.functions.add( -keyIndex - 1, function );
+			
+			this.scriptFilenames.put( function, filename );
 		}
 		catch( Throwable t )
 		{
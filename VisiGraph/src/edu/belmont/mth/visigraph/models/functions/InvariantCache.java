@@ -0,0 +1,123 @@
+/**
+ * InvariantCache.java
+ */
+package edu.belmont.mth.visigraph.models.functions;
+
+import java.awt.*;
+import java.lang.ref.*;
+import java.util.*;
+import edu.belmont.mth.visigraph.models.*;
+
+/**
+ * The {@code InvariantCache} class remembers the results of functions that report their {@link Function.Dependency dependencies}, so that they
+ * need not be recomputed until some aspect of the graph on which they depend has changed. Each result is remembered along with the graph it was
+ * computed on and that graph's {@link Graph#getStructureVersion() structure} and {@link Graph#getWeightVersion() weight} versions at the time,
+ * and is returned again for as long as those versions, of the same graph, stay the same.
+ * <p/>
+ * Functions that report no dependencies are simply evaluated, every time. An {@code InvariantCache} is not thread-safe, and should only ever be
+ * used from one thread.
+ * 
+ * @author Cameron Behar
+ * @see Function.Dependency
+ */
+public class InvariantCache
+{
+	/**
+	 * The {@code Entry} class holds one remembered result, along with the graph and versions it was computed against
+	 */
+	private static class Entry
+	{
+		/**
+		 * The graph on which the result was computed, held weakly so that this cache does not keep discarded graphs alive
+		 */
+		public final Reference<Graph>	graph;
+		
+		/**
+		 * The structure version of {@link #graph} when the result was computed, or {@code -1} if the result does not depend on its structure
+		 */
+		public final long				structureVersion;
+		
+		/**
+		 * The weight version of {@link #graph} when the result was computed, or {@code -1} if the result does not depend on its weights
+		 */
+		public final long				weightVersion;
+		
+		/**
+		 * The remembered result
+		 */
+		public final String				result;
+		
+		/**
+		 * Constructs an {@code Entry} for the specified result
+		 * 
+		 * @param graph the graph on which the result was computed
+		 * @param structureVersion the graph's structure version when the result was computed, or {@code -1} if it is not a dependency
+		 * @param weightVersion the graph's weight version when the result was computed, or {@code -1} if it is not a dependency
+		 * @param result the result
+		 */
+		public Entry( Graph graph, long structureVersion, long weightVersion, String result )
+		{
+			this.graph = new WeakReference<Graph>( graph );
+			this.structureVersion = structureVersion;
+			this.weightVersion = weightVersion;
+			this.result = result;
+		}
+	}
+	
+	/**
+	 * A {@code Map} of each function to the last of its results remembered
+	 */
+	private final Map<Function, Entry>	entries;
+	
+	/**
+	 * Constructs an empty {@code InvariantCache}
+	 */
+	public InvariantCache( )
+	{
+		this.entries = new HashMap<Function, Entry>( );
+	}
+	
+	/**
+	 * Forgets every result remembered by this cache
+	 */
+	public void clear( )
+	{
+		this.entries.clear( );
+	}
+	
+	/**
+	 * Returns the result of the specified function on the specified graph, remembered from an earlier evaluation if the function reports its
+	 * dependencies and none of them have changed since, or else freshly evaluated. Results of functions reporting their dependencies are remembered
+	 * for later calls.
+	 * 
+	 * @param function the function to evaluate
+	 * @param g2D the {@code Graphics2D} context onto which the function may draw, if it is evaluated
+	 * @param graph the {@code Graph} on which to evaluate the function
+	 * @param owner the {@code Component} over which any dialogs the function opens are to be shown
+	 * @return the result of the function
+	 */
+	public String evaluate( Function function, Graphics2D g2D, Graph graph, Component owner )
+	{
+		Object dependencies = function.getAttribute( Function.Attribute.DEPENDENCIES );
+		if( !( dependencies instanceof Function.Dependency[ ] ) )
+			return function.evaluate( g2D, graph, owner );
+		
+		boolean onStructure = false, onWeights = false;
+		for( Function.Dependency dependency : (Function.Dependency[ ]) dependencies )
+			if( dependency == Function.Dependency.STRUCTURE )
+				onStructure = true;
+			else if( dependency == Function.Dependency.WEIGHTS )
+				onWeights = true;
+		
+		long structureVersion = onStructure ? graph.getStructureVersion( ) : -1;
+		long weightVersion = onWeights ? graph.getWeightVersion( ) : -1;
+		
+		Entry entry = this.entries.get( function );
+		if( entry != null && entry.graph.get( ) == graph && entry.structureVersion == structureVersion && entry.weightVersion == weightVersion )
+			return entry.result;
+		
+		String result = function.evaluate( g2D, graph, owner );
+		this.entries.put( function, new Entry( graph, structureVersion, weightVersion, result ) );
+		return result;
+	}
+}
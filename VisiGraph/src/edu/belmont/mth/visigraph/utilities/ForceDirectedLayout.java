@@ -0,0 +1,493 @@
+/**
+ * ForceDirectedLayout.java
+ */
+package edu.belmont.mth.visigraph.utilities;
+
+import java.util.*;
+import java.util.concurrent.*;
+import edu.belmont.mth.visigraph.models.*;
+
+/**
+ * @author Cameron Behar
+ */
+public class ForceDirectedLayout
+{
+	// A share of the vertices and edges, whose forces are figured on one thread into buffers of its own
+	private static class Block
+	{
+		private final int			start, end;
+		private final int			springStart, springEnd;
+		private final double[ ]		forceX, forceY;
+		private final int[ ]		stack;
+		
+		private Block( int start, int end, int springStart, int springEnd, int vertexCount )
+		{
+			this.start = start;
+			this.end = end;
+			this.springStart = springStart;
+			this.springEnd = springEnd;
+			this.forceX = new double[vertexCount];
+			this.forceY = new double[vertexCount];
+			this.stack = new int[4 * maximumDepth + 4];
+		}
+	}
+	
+	// Coulomb's constant, by which the vertices' charges repel one another
+	private static final double	coulombConstant			= 8987551787.0;
+	
+	// Forces are never figured over less than this squared distance, so that nearly coincident vertices do not fly apart
+	private static final double	minimumDistanceSquared	= 900.0;
+	
+	private static final double	damping					= 0.85;
+	
+	// A cell of the quadtree is treated as a single charge when its width is less than this fraction of its distance
+	private static final double	theta					= 0.5;
+	
+	// Cells are never divided past this depth, so that coincident vertices simply share a cell
+	private static final int		maximumDepth			= 32;
+	
+	// Layouts with fewer vertices than this per processor are stepped on the calling thread alone, dividing them costing more than it saves
+	private static final int		minimumBlockSize		= 256;
+	
+	private final Vertex[ ]		vertices;
+	private final Vertex[ ]		fixedVertices;
+	private final Edge[ ]		edges;
+	private final int			movingCount;
+	
+	// The positions of the moving vertices, followed by those of the fixed vertices at the far ends of their edges
+	private final double[ ]		x, y;
+	private final double[ ]		velocityX, velocityY;
+	private final double[ ]		weights;
+	private final double[ ]		charges;
+	private final Block[ ]		blocks;
+	
+	private final Edge[ ]		springs;
+	private final int[ ]		springFrom, springTo;
+	private final double[ ]		springWeights;
+	
+	// The quadtree, with each cell's four children stored consecutively from firstChild, or -1 for leaves
+	private int					cellCount;
+	private int[ ]				firstChild;
+	private int[ ]				firstBody;
+	private int[ ]				nextBody;
+	private double[ ]			cellX, cellY, cellSize;
+	private double[ ]			cellCharge, cellAbsoluteCharge, centerX, centerY;
+	
+	public ForceDirectedLayout( List<Vertex> vertices, Collection<Edge> edges, ForceDirectedLayout previous )
+	{
+		this.vertices = vertices.toArray( new Vertex[vertices.size( )] );
+		this.edges = edges.toArray( new Edge[edges.size( )] );
+		this.movingCount = this.vertices.length;
+		
+		Map<Vertex, Integer> indices = new IdentityHashMap<Vertex, Integer>( );
+		for( int i = 0; i < this.movingCount; ++i )
+			indices.put( this.vertices[i], i );
+		
+		// Only edges with a moving end pull on anything, and their fixed ends are given positions after the moving vertices
+		List<Vertex> fixedVertices = new ArrayList<Vertex>( );
+		List<Edge> springs = new ArrayList<Edge>( );
+		for( Edge edge : this.edges )
+			if( !edge.isLoop && ( indices.containsKey( edge.from ) || indices.containsKey( edge.to ) ) )
+			{
+				springs.add( edge );
+				for( Vertex vertex : new Vertex[ ] { edge.from, edge.to } )
+					if( !indices.containsKey( vertex ) )
+					{
+						indices.put( vertex, this.movingCount + fixedVertices.size( ) );
+						fixedVertices.add( vertex );
+					}
+			}
+		
+		this.fixedVertices = fixedVertices.toArray( new Vertex[fixedVertices.size( )] );
+		this.springs = springs.toArray( new Edge[springs.size( )] );
+		this.springFrom = new int[springs.size( )];
+		this.springTo = new int[springs.size( )];
+		this.springWeights = new double[springs.size( )];
+		for( int i = 0; i < springs.size( ); ++i )
+		{
+			this.springFrom[i] = indices.get( springs.get( i ).from );
+			this.springTo[i] = indices.get( springs.get( i ).to );
+		}
+		
+		int count = this.movingCount + this.fixedVertices.length;
+		this.x = new double[count];
+		this.y = new double[count];
+		this.velocityX = new double[this.movingCount];
+		this.velocityY = new double[this.movingCount];
+		this.weights = new double[this.movingCount];
+		this.charges = new double[this.movingCount];
+		
+		int blockCount = Math.max( 1, Math.min( ThreadUtilities.getProcessorCount( ), this.movingCount / minimumBlockSize ) );
+		this.blocks = new Block[blockCount];
+		for( int i = 0; i < blockCount; ++i )
+			this.blocks[i] = new Block( this.movingCount * i / blockCount, this.movingCount * ( i + 1 ) / blockCount, this.springs.length * i / blockCount, this.springs.length * ( i + 1 ) / blockCount, this.movingCount );
+		
+		// Vertices still moving from a previous layout keep their momentum
+		if( previous != null )
+			for( int i = 0; i < previous.movingCount; ++i )
+			{
+				Integer index = indices.get( previous.vertices[i] );
+				if( index != null && index < this.movingCount )
+				{
+					this.velocityX[index] = previous.velocityX[i];
+					this.velocityY[index] = previous.velocityY[i];
+				}
+			}
+		
+		this.nextBody = new int[this.movingCount];
+		this.allocateCells( Math.max( 16, 2 * this.movingCount ) );
+		
+		this.read( );
+	}
+	
+	public boolean isFor( List<Vertex> vertices, Collection<Edge> edges )
+	{
+		if( vertices.size( ) != this.movingCount || edges.size( ) != this.edges.length )
+			return false;
+		
+		int i = 0;
+		for( Vertex vertex : vertices )
+			if( vertex != this.vertices[i++] )
+				return false;
+		
+		i = 0;
+		for( Edge edge : edges )
+			if( edge != this.edges[i++] )
+				return false;
+		
+		return true;
+	}
+	
+	// Reads the vertices' current positions and weights, so that any the user has since dragged are laid out from where they now lie
+	public void read( )
+	{
+		for( int i = 0; i < this.movingCount; ++i )
+		{
+			this.x[i] = this.vertices[i].x.get( );
+			this.y[i] = this.vertices[i].y.get( );
+			this.weights[i] = this.vertices[i].weight.get( );
+		}
+		
+		for( int i = 0; i < this.fixedVertices.length; ++i )
+		{
+			this.x[this.movingCount + i] = this.fixedVertices[i].x.get( );
+			this.y[this.movingCount + i] = this.fixedVertices[i].y.get( );
+		}
+		
+		for( int i = 0; i < this.springs.length; ++i )
+			this.springWeights[i] = this.springs[i].weight.get( );
+	}
+	
+	// Advances the layout by one step, returning the total kinetic energy of the vertices. Touches nothing but the layout's own arrays, so it may be
+	// called from any thread, so long as read and write are not called until it returns.
+	public double step( final double attractiveForce, double repulsiveForce, final double speed )
+	{
+		if( this.movingCount == 0 )
+			return 0.0;
+		
+		for( int i = 0; i < this.movingCount; ++i )
+			this.charges[i] = repulsiveForce * this.weights[i];
+		
+		this.buildTree( );
+		
+		if( this.blocks.length == 1 )
+		{
+			this.addForces( this.blocks[0], attractiveForce );
+			return this.move( this.blocks[0], speed );
+		}
+		
+		// Each block first sums the forces on its vertices and along its edges, then moves its vertices by the forces of all blocks together
+		List<Callable<Double>> tasks = new ArrayList<Callable<Double>>( this.blocks.length );
+		for( final Block block : this.blocks )
+			tasks.add( new Callable<Double>( )
+			{
+				@Override
+				public Double call( )
+				{
+					ForceDirectedLayout.this.addForces( block, attractiveForce );
+					return 0.0;
+				}
+			} );
+		ThreadUtilities.invokeAll( tasks );
+		
+		tasks.clear( );
+		for( final Block block : this.blocks )
+			tasks.add( new Callable<Double>( )
+			{
+				@Override
+				public Double call( )
+				{
+					return ForceDirectedLayout.this.move( block, speed );
+				}
+			} );
+		
+		double totalKineticEnergy = 0.0;
+		for( double kineticEnergy : ThreadUtilities.invokeAll( tasks ) )
+			totalKineticEnergy += kineticEnergy;
+		
+		return totalKineticEnergy;
+	}
+	
+	// Writes the vertices' new positions back to those still in the graph, best done within a single update of it. Vertices deleted while the step
+	// was running are left where they were, so that they are not moved after the fact.
+	public void write( Graph graph )
+	{
+		for( int i = 0; i < this.movingCount; ++i )
+			if( graph.vertices.contains( this.vertices[i] ) )
+			{
+				this.vertices[i].x.set( this.x[i] );
+				this.vertices[i].y.set( this.y[i] );
+			}
+	}
+	
+	
+	private void addAttractiveForces( Block block, double attractiveForce )
+	{
+		for( int i = block.springStart; i < block.springEnd; ++i )
+		{
+			int from = this.springFrom[i], to = this.springTo[i];
+			double xDiff = this.x[from] - this.x[to], yDiff = this.y[from] - this.y[to];
+			double distanceSquared = xDiff * xDiff + yDiff * yDiff;
+			double force = attractiveForce * ( Math.max( minimumDistanceSquared, distanceSquared ) - this.springWeights[i] * 10.0 );
+			
+			// Vertices atop one another are pulled apart along the x-axis, as they always have been
+			double xForce = force, yForce = 0.0;
+			if( distanceSquared > 0.0 )
+			{
+				double distance = Math.sqrt( distanceSquared );
+				xForce = force * xDiff / distance;
+				yForce = force * yDiff / distance;
+			}
+			
+			if( from < this.movingCount )
+			{
+				block.forceX[from] -= xForce;
+				block.forceY[from] -= yForce;
+			}
+			
+			if( to < this.movingCount )
+			{
+				block.forceX[to] += xForce;
+				block.forceY[to] += yForce;
+			}
+		}
+	}
+	
+	// Fills the block's buffers with the repulsion felt by its own vertices and the pull of its own edges on whichever vertices they join
+	private void addForces( Block block, double attractiveForce )
+	{
+		Arrays.fill( block.forceX, 0.0 );
+		Arrays.fill( block.forceY, 0.0 );
+		
+		for( int i = block.start; i < block.end; ++i )
+			this.addRepulsiveForce( block, i );
+		this.addAttractiveForces( block, attractiveForce );
+	}
+	
+	private void addRepulsiveForce( Block block, int i )
+	{
+		int[ ] stack = block.stack;
+		double x = this.x[i], y = this.y[i], charge = this.charges[i];
+		double forceX = 0.0, forceY = 0.0;
+		
+		int top = 0;
+		stack[top++] = 0;
+		while( top > 0 )
+		{
+			int cell = stack[--top];
+			if( this.cellAbsoluteCharge[cell] == 0.0 )
+				continue;
+			
+			if( this.firstChild[cell] < 0 )
+			{
+				// Charges sharing a leaf are felt exactly
+				for( int j = this.firstBody[cell]; j >= 0; j = this.nextBody[j] )
+					if( j != i )
+					{
+						double xDiff = x - this.x[j], yDiff = y - this.y[j];
+						double distanceSquared = xDiff * xDiff + yDiff * yDiff;
+						double force = coulombConstant * charge * this.charges[j] / Math.max( minimumDistanceSquared, distanceSquared );
+						
+						if( distanceSquared > 0.0 )
+						{
+							double distance = Math.sqrt( distanceSquared );
+							forceX += force * xDiff / distance;
+							forceY += force * yDiff / distance;
+						}
+						else
+							forceX += ( i > j ? force : -force );
+					}
+			}
+			else
+			{
+				double xDiff = x - this.centerX[cell], yDiff = y - this.centerY[cell];
+				double distanceSquared = xDiff * xDiff + yDiff * yDiff;
+				
+				// Far enough away, a whole cell pushes as one charge at its center; otherwise its children are visited in turn
+				if( this.cellSize[cell] * this.cellSize[cell] < theta * theta * distanceSquared )
+				{
+					double distance = Math.sqrt( distanceSquared );
+					double force = coulombConstant * charge * this.cellCharge[cell] / Math.max( minimumDistanceSquared, distanceSquared );
+					forceX += force * xDiff / distance;
+					forceY += force * yDiff / distance;
+				}
+				else
+					for( int child = this.firstChild[cell]; child < this.firstChild[cell] + 4; ++child )
+						stack[top++] = child;
+			}
+		}
+		
+		block.forceX[i] += forceX;
+		block.forceY[i] += forceY;
+	}
+	
+	private void allocateCells( int capacity )
+	{
+		this.firstChild = new int[capacity];
+		this.firstBody = new int[capacity];
+		this.cellX = new double[capacity];
+		this.cellY = new double[capacity];
+		this.cellSize = new double[capacity];
+		this.cellCharge = new double[capacity];
+		this.cellAbsoluteCharge = new double[capacity];
+		this.centerX = new double[capacity];
+		this.centerY = new double[capacity];
+	}
+	
+	private void buildTree( )
+	{
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for( int i = 0; i < this.movingCount; ++i )
+		{
+			minX = Math.min( minX, this.x[i] );
+			minY = Math.min( minY, this.y[i] );
+			maxX = Math.max( maxX, this.x[i] );
+			maxY = Math.max( maxY, this.y[i] );
+		}
+		
+		this.cellCount = 0;
+		this.newCell( minX, minY, Math.max( Math.max( maxX - minX, maxY - minY ), 1.0 ) );
+		
+		for( int i = 0; i < this.movingCount; ++i )
+			this.insert( i );
+		
+		// Total each cell's charges, children always following their parents
+		for( int cell = this.cellCount - 1; cell >= 0; --cell )
+		{
+			double charge = 0.0, absoluteCharge = 0.0, sumX = 0.0, sumY = 0.0;
+			
+			if( this.firstChild[cell] < 0 )
+				for( int j = this.firstBody[cell]; j >= 0; j = this.nextBody[j] )
+				{
+					charge += this.charges[j];
+					absoluteCharge += Math.abs( this.charges[j] );
+					sumX += Math.abs( this.charges[j] ) * this.x[j];
+					sumY += Math.abs( this.charges[j] ) * this.y[j];
+				}
+			else
+				for( int child = this.firstChild[cell]; child < this.firstChild[cell] + 4; ++child )
+				{
+					charge += this.cellCharge[child];
+					absoluteCharge += this.cellAbsoluteCharge[child];
+					sumX += this.cellAbsoluteCharge[child] * this.centerX[child];
+					sumY += this.cellAbsoluteCharge[child] * this.centerY[child];
+				}
+			
+			this.cellCharge[cell] = charge;
+			this.cellAbsoluteCharge[cell] = absoluteCharge;
+			this.centerX[cell] = ( absoluteCharge > 0.0 ? sumX / absoluteCharge : this.cellX[cell] + this.cellSize[cell] / 2.0 );
+			this.centerY[cell] = ( absoluteCharge > 0.0 ? sumY / absoluteCharge : this.cellY[cell] + this.cellSize[cell] / 2.0 );
+		}
+	}
+	
+	private int childFor( int cell, double x, double y )
+	{
+		double half = this.cellSize[cell] / 2.0;
+		return this.firstChild[cell] + ( x < this.cellX[cell] + half ? 0 : 1 ) + ( y < this.cellY[cell] + half ? 0 : 2 );
+	}
+	
+	private void insert( int i )
+	{
+		this.nextBody[i] = -1;
+		
+		int cell = 0;
+		for( int depth = 0;; ++depth )
+		{
+			if( this.firstChild[cell] >= 0 )
+				cell = this.childFor( cell, this.x[i], this.y[i] );
+			else if( this.firstBody[cell] < 0 )
+			{
+				this.firstBody[cell] = i;
+				return;
+			}
+			else if( depth >= maximumDepth )
+			{
+				this.nextBody[i] = this.firstBody[cell];
+				this.firstBody[cell] = i;
+				return;
+			}
+			else
+			{
+				// Divide the leaf, moving its one vertex down into the child containing it
+				int resident = this.firstBody[cell];
+				double half = this.cellSize[cell] / 2.0;
+				this.firstBody[cell] = -1;
+				this.firstChild[cell] = this.cellCount;
+				this.newCell( this.cellX[cell], this.cellY[cell], half );
+				this.newCell( this.cellX[cell] + half, this.cellY[cell], half );
+				this.newCell( this.cellX[cell], this.cellY[cell] + half, half );
+				this.newCell( this.cellX[cell] + half, this.cellY[cell] + half, half );
+				this.firstBody[this.childFor( cell, this.x[resident], this.y[resident] )] = resident;
+			}
+		}
+	}
+	
+	// Moves the block's vertices by the forces summed in every block's buffers, returning their kinetic energy
+	private double move( Block block, double speed )
+	{
+		double kineticEnergy = 0.0;
+		for( int i = block.start; i < block.end; ++i )
+		{
+			double forceX = 0.0, forceY = 0.0;
+			for( Block other : this.blocks )
+			{
+				forceX += other.forceX[i];
+				forceY += other.forceY[i];
+			}
+			
+			this.velocityX[i] = ( this.velocityX[i] + forceX ) * damping;
+			this.velocityY[i] = ( this.velocityY[i] + forceY ) * damping;
+			kineticEnergy += this.weights[i] * ( this.velocityX[i] * this.velocityX[i] + this.velocityY[i] * this.velocityY[i] );
+			
+			this.x[i] += speed * this.velocityX[i];
+			this.y[i] += speed * this.velocityY[i];
+		}
+		
+		return kineticEnergy;
+	}
+	
+	private void newCell( double x, double y, double size )
+	{
+		if( this.cellCount == this.firstChild.length )
+		{
+			int capacity = 2 * this.firstChild.length;
+			this.firstChild = Arrays.copyOf( this.firstChild, capacity );
+			this.firstBody = Arrays.copyOf( this.firstBody, capacity );
+			this.cellX = Arrays.copyOf( this.cellX, capacity );
+			this.cellY = Arrays.copyOf( this.cellY, capacity );
+			this.cellSize = Arrays.copyOf( this.cellSize, capacity );
+			this.cellCharge = Arrays.copyOf( this.cellCharge, capacity );
+			this.cellAbsoluteCharge = Arrays.copyOf( this.cellAbsoluteCharge, capacity );
+			this.centerX = Arrays.copyOf( this.centerX, capacity );
+			this.centerY = Arrays.copyOf( this.centerY, capacity );
+		}
+		
+		this.firstChild[this.cellCount] = -1;
+		this.firstBody[this.cellCount] = -1;
+		this.cellX[this.cellCount] = x;
+		this.cellY[this.cellCount] = y;
+		this.cellSize[this.cellCount] = size;
+		++this.cellCount;
+	}
+}
@@ -4,6 +4,8 @@
 package edu.belmont.mth.visigraph.utilities;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import edu.belmont.mth.visigraph.models.*;
 
 /**
@@ -11,195 +13,680 @@ import edu.belmont.mth.visigraph.models.*;
  */
 public class GraphUtilities
 {
-	private static class StronglyConnectedComponentsFinder
+	// Public so that callers needing more than one answer, such as whether there is a negative cycle and then the diameter, can build the arcs and
+	// run Bellman-Ford only once
+	public static class ShortestPathFinder
 	{
-		private int										index		= 0;
-		private final Stack<Vertex>						stack		= new Stack<Vertex>( );
-		private final Map<Vertex, Integer>				indices		= new HashMap<Vertex, Integer>( );
-		private final Map<Vertex, Integer>				lowLinks	= new HashMap<Vertex, Integer>( );
-		private final Map<Vertex, Boolean>				isOnStack	= new HashMap<Vertex, Boolean>( );
-		private final Collection<Collection<Vertex>>	components	= new LinkedList<Collection<Vertex>>( );
+		// Receives the distances from each source searched, one visitor per worker
+		private static interface Visitor
+		{
+			public void visit( int source, double[ ] distances );
+		}
 		
-		public Collection<Collection<Vertex>> find( Graph graph )
+		// A single-source search with storage of its own, so that one may be run on each worker at once
+		private class Search
 		{
-			if( graph.vertices.isEmpty( ) )
-				return this.components;
+			private final int[ ]	queue;
+			private final int[ ]	heap;
+			private final int[ ]	heapPositions;
+			private final double[ ]	keys;
+			private int				heapSize;
 			
-			for( Vertex vertex : graph.vertices )
-				this.isOnStack.put( vertex, false );
+			public Search( )
+			{
+				this.queue = new int[ShortestPathFinder.this.vertexCount];
+				this.heap = new int[ShortestPathFinder.this.vertexCount];
+				this.heapPositions = new int[ShortestPathFinder.this.vertexCount];
+				this.keys = new double[ShortestPathFinder.this.vertexCount];
+			}
 			
-			for( Vertex vertex : graph.vertices )
-				if( !this.indices.containsKey( vertex ) )
-					this.tarjansAlgorithm( vertex, graph );
+			// Fills the array with the distance from the source to each vertex, or infinity for those it cannot reach
+			public void run( int source, double[ ] distances )
+			{
+				if( ShortestPathFinder.this.weights == null )
+					this.breadthFirstSearch( source, distances );
+				else
+					this.dijkstrasAlgorithm( source, distances );
+			}
 			
-			return this.components;
-		}
-		
-		private void tarjansAlgorithm( Vertex from, Graph graph )
-		{
-			this.indices.put( from, this.index );
-			this.lowLinks.put( from, this.index );
-			++this.index;
+			private void breadthFirstSearch( int source, double[ ] distances )
+			{
+				int[ ] offsets = ShortestPathFinder.this.offsets, targets = ShortestPathFinder.this.targets;
+				
+				Arrays.fill( distances, Double.POSITIVE_INFINITY );
+				distances[source] = 0.0;
+				
+				int head = 0, tail = 0;
+				this.queue[tail++] = source;
+				while( head < tail )
+				{
+					int from = this.queue[head++];
+					for( int arc = offsets[from]; arc < offsets[from + 1]; ++arc )
+						if( distances[targets[arc]] == Double.POSITIVE_INFINITY )
+						{
+							distances[targets[arc]] = distances[from] + 1.0;
+							this.queue[tail++] = targets[arc];
+						}
+				}
+			}
+			
+			private void dijkstrasAlgorithm( int source, double[ ] distances )
+			{
+				int[ ] offsets = ShortestPathFinder.this.offsets, targets = ShortestPathFinder.this.targets;
+				double[ ] weights = ShortestPathFinder.this.weights, potentials = ShortestPathFinder.this.potentials;
+				
+				// Positions of -1 mark vertices not yet reached and of -2 those already settled
+				Arrays.fill( distances, Double.POSITIVE_INFINITY );
+				Arrays.fill( this.heapPositions, -1 );
+				distances[source] = 0.0;
+				this.keys[source] = 0.0;
+				this.heapSize = 0;
+				this.push( source );
+				
+				while( this.heapSize > 0 )
+				{
+					int from = this.pop( );
+					this.heapPositions[from] = -2;
+					
+					for( int arc = offsets[from]; arc < offsets[from + 1]; ++arc )
+					{
+						int to = targets[arc];
+						if( this.heapPositions[to] == -2 )
+							continue;
+						
+						// Under Johnson's reweighting the search is ordered by reduced weights, never negative, while the distances are kept in the
+						// original weights
+						double weight = ( potentials == null ? weights[arc] : Math.max( 0.0, weights[arc] + potentials[from] - potentials[to] ) );
+						double key = this.keys[from] + weight;
+						
+						if( this.heapPositions[to] == -1 )
+						{
+							this.keys[to] = key;
+							distances[to] = distances[from] + weights[arc];
+							this.push( to );
+						}
+						else if( key < this.keys[to] )
+						{
+							this.keys[to] = key;
+							distances[to] = distances[from] + weights[arc];
+							this.siftUp( this.heapPositions[to] );
+						}
+					}
+				}
+			}
+			
+			private int pop( )
+			{
+				int top = this.heap[0];
+				if( --this.heapSize > 0 )
+				{
+					this.heap[0] = this.heap[this.heapSize];
+					this.heapPositions[this.heap[0]] = 0;
+					this.siftDown( 0 );
+				}
+				
+				return top;
+			}
 			
-			this.stack.push( from );
-			this.isOnStack.put( from, true );
+			private void push( int vertex )
+			{
+				this.heap[this.heapSize] = vertex;
+				this.heapPositions[vertex] = this.heapSize;
+				this.siftUp( this.heapSize++ );
+			}
 			
-			for( Edge edge : graph.getEdgesFrom( from ) )
+			private void siftDown( int position )
 			{
-				Vertex to = edge.to;
+				int vertex = this.heap[position];
 				
-				if( !this.indices.containsKey( to ) )
+				for( int child = 2 * position + 1; child < this.heapSize; child = 2 * position + 1 )
 				{
-					this.tarjansAlgorithm( to, graph );
-					this.lowLinks.put( from, Math.min( this.lowLinks.get( from ), this.lowLinks.get( to ) ) );
+					if( child + 1 < this.heapSize && this.keys[this.heap[child + 1]] < this.keys[this.heap[child]] )
+						++child;
+					
+					if( this.keys[this.heap[child]] >= this.keys[vertex] )
+						break;
+					
+					this.heap[position] = this.heap[child];
+					this.heapPositions[this.heap[position]] = position;
+					position = child;
 				}
-				else if( this.isOnStack.get( to ) )
-					this.lowLinks.put( from, Math.min( this.lowLinks.get( from ), this.indices.get( to ) ) );
+				
+				this.heap[position] = vertex;
+				this.heapPositions[vertex] = position;
 			}
 			
-			if( this.lowLinks.get( from ).equals( this.indices.get( from ) ) )
+			private void siftUp( int position )
 			{
-				Vertex to;
-				List<Vertex> component = new LinkedList<Vertex>( );
+				int vertex = this.heap[position];
 				
-				do
+				while( position > 0 && this.keys[this.heap[( position - 1 ) / 2]] > this.keys[vertex] )
 				{
-					to = this.stack.pop( );
-					this.isOnStack.put( to, false );
-					component.add( to );
-				} while( to != from );
+					this.heap[position] = this.heap[( position - 1 ) / 2];
+					this.heapPositions[this.heap[position]] = position;
+					position = ( position - 1 ) / 2;
+				}
 				
-				this.components.add( component );
+				this.heap[position] = vertex;
+				this.heapPositions[vertex] = position;
 			}
 		}
-	}
-	
-	private static class WeaklyConnectedComponentsFinder
-	{
-		private static class Node
+		
+		private final int		vertexCount;
+		
+		// Each non-loop edge as an arc, undirected edges as one each way, grouped by the vertex they leave
+		private final int[ ]	offsets;
+		private final int[ ]	targets;
+		
+		// The weight of each arc, or null for unweighted searches
+		private final double[ ]	weights;
+		
+		// Johnson's vertex potentials, or null if no weight is negative or there is a negative cycle
+		private double[ ]		potentials;
+		private boolean			hasNegativeCycle;
+		
+		// Whether every arc has a twin running the other way, as when no edge is directed
+		private final boolean	isSymmetric;
+		
+		// Vertices are numbered by their position in the graph's list of vertices, so that the distances found are in the order the user sees them
+		public ShortestPathFinder( Graph graph, boolean weighted )
 		{
-			public Node		parent	= null;
-			public Vertex	vertex;
-			public int		rank	= 0;
+			AdjacencyIndex adjacency = graph.getAdjacencyIndex( );
+			int edgeCount = adjacency.getEdgeCount( );
+			
+			this.vertexCount = adjacency.getVertexCount( );
+			int[ ] listPositions = new int[this.vertexCount];
+			for( int i = 0; i < this.vertexCount; ++i )
+				listPositions[adjacency.indexOf( graph.vertices.get( i ) )] = i;
 			
-			public Node( Vertex vertex )
+			int[ ] sources = new int[edgeCount], targets = new int[edgeCount];
+			for( int e = 0; e < edgeCount; ++e )
 			{
-				this.vertex = vertex;
+				sources[e] = listPositions[adjacency.getEdgeSources( )[e]];
+				targets[e] = listPositions[adjacency.getEdgeTargets( )[e]];
 			}
+			
+			this.offsets = new int[this.vertexCount + 1];
+			for( int e = 0; e < edgeCount; ++e )
+				if( sources[e] != targets[e] )
+				{
+					++this.offsets[sources[e] + 1];
+					if( !adjacency.getEdge( e ).isDirected )
+						++this.offsets[targets[e] + 1];
+				}
+			
+			for( int i = 0; i < this.vertexCount; ++i )
+				this.offsets[i + 1] += this.offsets[i];
+			
+			this.targets = new int[this.offsets[this.vertexCount]];
+			double[ ] weights = new double[this.targets.length];
+			int[ ] positions = Arrays.copyOf( this.offsets, this.vertexCount );
+			boolean hasNegativeWeight = false, isSymmetric = true;
+			
+			for( int e = 0; e < edgeCount; ++e )
+				if( sources[e] != targets[e] )
+				{
+					Edge edge = adjacency.getEdge( e );
+					double weight = ( weighted ? edge.weight.get( ) : 1.0 );
+					hasNegativeWeight |= ( weight < 0.0 );
+					
+					weights[positions[sources[e]]] = weight;
+					this.targets[positions[sources[e]]++] = targets[e];
+					
+					if( !edge.isDirected )
+					{
+						weights[positions[targets[e]]] = weight;
+						this.targets[positions[targets[e]]++] = sources[e];
+					}
+					else
+						isSymmetric = false;
+				}
+			
+			this.isSymmetric = isSymmetric;
+			this.weights = ( weighted ? weights : null );
+			this.potentials = null;
+			this.hasNegativeCycle = false;
+			
+			if( hasNegativeWeight )
+				this.findPotentials( );
 		}
 		
-		private final Random	random	= new Random( );
+		public double getDiameter( )
+		{
+			if( this.weights == null && this.isSymmetric )
+				return this.getDiameterByFringes( );
+			
+			double diameter = 0.0;
+			for( double eccentricity : this.getEccentricities( ) )
+				diameter = Math.max( diameter, eccentricity );
+			
+			return diameter;
+		}
 		
-		public Collection<Collection<Vertex>> find( Graph graph )
+		public double[ ][ ] getDistanceMatrix( )
 		{
-			if( graph.vertices.isEmpty( ) )
-				return new LinkedList<Collection<Vertex>>( );
+			if( this.hasNegativeCycle )
+				return this.getFloydWarshallDistanceMatrix( );
 			
-			Map<Vertex, Node> vertexNodes = new HashMap<Vertex, Node>( );
+			final double[ ][ ] distances = new double[this.vertexCount][];
+			Visitor[ ] visitors = new Visitor[ThreadUtilities.getProcessorCount( )];
+			Arrays.fill( visitors, new Visitor( )
+			{
+				@Override
+				public void visit( int source, double[ ] sourceDistances )
+				{
+					distances[source] = sourceDistances.clone( );
+				}
+			} );
+			this.searchFrom( this.getVertices( ), visitors );
 			
-			for( Vertex vertex : graph.vertices )
-				vertexNodes.put( vertex, new Node( vertex ) );
+			return distances;
+		}
+		
+		public double[ ] getEccentricities( )
+		{
+			double[ ] eccentricities = new double[this.vertexCount];
+			this.findEccentricities( this.getVertices( ), eccentricities, null );
+			return eccentricities;
+		}
+		
+		public double getEccentricity( int vertex )
+		{
+			this.checkForNegativeCycle( );
 			
-			for( Edge edge : graph.edges )
-				if( !edge.isLoop )
-					this.unionSets( vertexNodes.get( edge.from ), vertexNodes.get( edge.to ) );
+			double[ ] distances = new double[this.vertexCount];
+			new Search( ).run( vertex, distances );
+			return getMaximum( distances );
+		}
+		
+		// The least eccentricity of any vertex, whether measured along the paths leaving it or those reaching it
+		public double getRadius( )
+		{
+			double[ ] eccentricities = new double[this.vertexCount];
+			double[ ] inEccentricities = ( this.isSymmetric ? null : new double[this.vertexCount] );
+			this.findEccentricities( this.getVertices( ), eccentricities, inEccentricities );
 			
-			Map<Node, Collection<Vertex>> components = new HashMap<Node, Collection<Vertex>>( );
-			for( Node node : vertexNodes.values( ) )
-				if( node.parent == null )
-					components.put( node, new LinkedList<Vertex>( ) );
-			for( Node node : vertexNodes.values( ) )
-				components.get( node.parent == null ? node : this.findParent( node.parent ) ).add( node.vertex );
+			double radius = ( this.vertexCount == 0 ? 0.0 : Double.POSITIVE_INFINITY );
+			for( int i = 0; i < this.vertexCount; ++i )
+				radius = Math.min( radius, ( inEccentricities == null ? eccentricities[i] : Math.min( eccentricities[i], inEccentricities[i] ) ) );
 			
-			return components.values( );
+			return radius;
 		}
 		
-		private Node findParent( Node node )
+		public boolean hasNegativeCycle( )
 		{
-			Node root = node;
+			return this.hasNegativeCycle;
+		}
+		
+		private static double getMaximum( double[ ] values )
+		{
+			double maximum = 0.0;
+			for( double value : values )
+				maximum = Math.max( maximum, value );
 			
-			while( root.parent != null )
-				root = root.parent;
+			return maximum;
+		}
+		
+		private void checkForNegativeCycle( )
+		{
+			if( this.hasNegativeCycle )
+				throw new IllegalStateException( "The graph contains a negative cycle." );
+		}
+		
+		// Folds the distances from each source into its eccentricity as they are found, and, if asked, into each vertex's greatest distance from any
+		// source, so that no more than a few rows of distances are ever held at once
+		private void findEccentricities( int[ ] sources, final double[ ] eccentricities, double[ ] inEccentricities )
+		{
+			this.checkForNegativeCycle( );
 			
-			Node nextNode;
-			while( node.parent != null )
+			Visitor[ ] visitors = new Visitor[ThreadUtilities.getProcessorCount( )];
+			final double[ ][ ] workerInEccentricities = new double[visitors.length][];
+			for( int i = 0; i < visitors.length; ++i )
 			{
-				nextNode = node.parent;
-				node.parent = root;
-				node = nextNode;
+				final double[ ] workerEccentricities = workerInEccentricities[i] = ( inEccentricities == null ? null : new double[this.vertexCount] );
+				visitors[i] = new Visitor( )
+				{
+					@Override
+					public void visit( int source, double[ ] distances )
+					{
+						eccentricities[source] = getMaximum( distances );
+							
+						if( workerEccentricities != null )
+							for( int j = 0; j < distances.length; ++j )
+								workerEccentricities[j] = Math.max( workerEccentricities[j], distances[j] );
+					}
+				};
 			}
+			this.searchFrom( sources, visitors );
+						
+			if( inEccentricities != null )
+				for( double[ ] workerEccentricities : workerInEccentricities )
+					for( int j = 0; j < this.vertexCount; ++j )
+						inEccentricities[j] = Math.max( inEccentricities[j], workerEccentricities[j] );
+		}
+		
+		// Runs the Bellman-Ford algorithm from a virtual source joined to every vertex, whose distances make every arc's reduced weight non-negative
+		private void findPotentials( )
+		{
+			double[ ] potentials = new double[this.vertexCount];
 			
-			return root;
+			for( int round = 0; round < this.vertexCount; ++round )
+			{
+				boolean isChanged = false;
+				for( int from = 0; from < this.vertexCount; ++from )
+					for( int arc = this.offsets[from]; arc < this.offsets[from + 1]; ++arc )
+						if( potentials[from] + this.weights[arc] < potentials[this.targets[arc]] )
+						{
+							potentials[this.targets[arc]] = potentials[from] + this.weights[arc];
+							isChanged = true;
+						}
+				
+				if( !isChanged )
+				{
+					this.potentials = potentials;
+					return;
+				}
+			}
+			
+			this.hasNegativeCycle = true;
+		}
+		
+		// The iFUB algorithm of Crescenzi et al., for connected, undirected and unweighted graphs. Vertices are searched from, fringe by fringe,
+		// moving in from the farthest from a central vertex, until no pair of vertices nearer than the fringe could lie farther apart than any
+		// eccentricity found so far. On most graphs only a handful of searches are needed.
+		private double getDiameterByFringes( )
+		{
+			if( this.vertexCount == 0 )
+				return 0.0;
+			
+			Search search = new Search( );
+			double[ ] distances = new double[this.vertexCount];
+			
+			// Sweeps from a vertex of greatest degree alternate between the vertex farthest from the last and the vertex whose distances from all
+			// those swept from so far are least, settling on a central vertex from which to take the fringes
+			int middle = 0;
+			for( int i = 1; i < this.vertexCount; ++i )
+				if( this.offsets[i + 1] - this.offsets[i] > this.offsets[middle + 1] - this.offsets[middle] )
+					middle = i;
+			
+			double lowerBound = 0.0;
+			double[ ] eccentricityBounds = new double[this.vertexCount];
+			for( int sweep = 0; sweep < 4; ++sweep )
+			{
+				search.run( middle, distances );
+				lowerBound = Math.max( lowerBound, getMaximum( distances ) );
+				if( lowerBound == Double.POSITIVE_INFINITY )
+					return Double.POSITIVE_INFINITY;
+				
+				for( int i = 0; i < this.vertexCount; ++i )
+					eccentricityBounds[i] = Math.max( eccentricityBounds[i], distances[i] );
+				
+				middle = ( sweep % 2 == 0 ? getFarthest( distances ) : getNearest( eccentricityBounds ) );
+			}
+			
+			search.run( middle, distances );
+			int eccentricity = (int) getMaximum( distances );
+			lowerBound = Math.max( lowerBound, eccentricity );
+			
+			// Sort the vertices into fringes by their distance from the middle vertex
+			int[ ] fringeOffsets = new int[eccentricity + 2];
+			for( double distance : distances )
+				++fringeOffsets[(int) distance + 1];
+			for( int i = 0; i <= eccentricity; ++i )
+				fringeOffsets[i + 1] += fringeOffsets[i];
+			
+			int[ ] fringes = new int[this.vertexCount];
+			int[ ] positions = Arrays.copyOf( fringeOffsets, eccentricity + 1 );
+			for( int i = 0; i < this.vertexCount; ++i )
+				fringes[positions[(int) distances[i]]++] = i;
+			
+			// No two vertices within a fringe's distance of the middle vertex can lie more than twice that distance apart
+			double[ ] eccentricities = new double[this.vertexCount];
+			for( int fringe = eccentricity; 2.0 * fringe > lowerBound; --fringe )
+			{
+				int[ ] sources = Arrays.copyOfRange( fringes, fringeOffsets[fringe], fringeOffsets[fringe + 1] );
+				this.findEccentricities( sources, eccentricities, null );
+				
+				for( int source : sources )
+					lowerBound = Math.max( lowerBound, eccentricities[source] );
+			}
+			
+			return lowerBound;
+		}
+		
+		private static int getFarthest( double[ ] distances )
+		{
+			int farthest = 0;
+			for( int i = 1; i < distances.length; ++i )
+				if( distances[i] > distances[farthest] )
+					farthest = i;
+			
+			return farthest;
+		}
+		
+		private static int getNearest( double[ ] distances )
+		{
+			int nearest = 0;
+			for( int i = 1; i < distances.length; ++i )
+				if( distances[i] < distances[nearest] )
+					nearest = i;
+			
+			return nearest;
+		}
+		
+		private int[ ] getVertices( )
+		{
+			int[ ] vertices = new int[this.vertexCount];
+			for( int i = 0; i < this.vertexCount; ++i )
+				vertices[i] = i;
+			
+			return vertices;
+		}
+		
+		// Searches from each of the sources in turn, each worker taking the next not yet searched and handing its distances to a visitor of its own
+		private void searchFrom( final int[ ] sources, Visitor[ ] visitors )
+		{
+			final AtomicInteger nextSource = new AtomicInteger( 0 );
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>( );
+			for( int worker = 0; worker < Math.min( visitors.length, sources.length ); ++worker )
+			{
+				final Visitor visitor = visitors[worker];
+				tasks.add( new Callable<Void>( )
+				{
+					@Override
+					public Void call( )
+					{
+						Search search = new Search( );
+						double[ ] distances = new double[ShortestPathFinder.this.vertexCount];
+						for( int i = nextSource.getAndIncrement( ); i < sources.length; i = nextSource.getAndIncrement( ) )
+						{
+							if( Thread.currentThread( ).isInterrupted( ) )
+								throw new CancellationException( );
+							
+							search.run( sources[i], distances );
+							visitor.visit( sources[i], distances );
+						}
+						
+						return null;
+					}
+				} );
+			}
+			ThreadUtilities.invokeAll( tasks );
 		}
 		
-		private void unionSets( Node a, Node b )
+		// With a negative cycle there are no shortest paths to find, so the Roy-Floyd-Warshall algorithm is left to mark it on the diagonal as ever
+		private double[ ][ ] getFloydWarshallDistanceMatrix( )
 		{
-			if( a != null && b != null )
+			double[ ][ ] distances = new double[this.vertexCount][this.vertexCount];
+			for( int i = 0; i < this.vertexCount; ++i )
 			{
-				Node rootA = this.findParent( a );
-				Node rootB = this.findParent( b );
+				Arrays.fill( distances[i], Double.POSITIVE_INFINITY );
+				distances[i][i] = 0.0;
 				
-				if( rootA != rootB )
-					if( rootA.rank > rootB.rank || this.random.nextBoolean( ) )
-						rootA.parent = rootB;
+				for( int arc = this.offsets[i]; arc < this.offsets[i + 1]; ++arc )
+					distances[i][this.targets[arc]] = Math.min( distances[i][this.targets[arc]], this.weights[arc] );
+			}
+			
+			for( int k = 0; k < this.vertexCount; ++k )
+				for( int i = 0; i < this.vertexCount; ++i )
+					for( int j = 0; j < this.vertexCount; ++j )
+						distances[i][j] = Math.min( distances[i][j], distances[i][k] + distances[k][j] );
+			
+			return distances;
+		}
+	}
+	
+	// Tarjan's algorithm, run iteratively over the adjacency index's rows so that neither long paths nor millions of vertices are a problem. The
+	// components are numbered in the order they are completed, which is a reverse topological order of the graph's condensation.
+	private static class StronglyConnectedComponentsFinder
+	{
+		private final AdjacencyIndex	adjacency;
+		private final int[ ]			components;
+		private int						componentCount;
+		
+		public StronglyConnectedComponentsFinder( Graph graph )
+		{
+			this.adjacency = graph.getAdjacencyIndex( );
+			int vertexCount = this.adjacency.getVertexCount( );
+			int[ ] sources = this.adjacency.getEdgeSources( ), targets = this.adjacency.getEdgeTargets( );
+			boolean isDirected = graph.areDirectedEdgesAllowed;
+			
+			// Each vertex's position in the search order, counting from one so that zero marks it as unvisited, and the earliest position it reaches
+			int[ ] indices = new int[vertexCount], lowLinks = new int[vertexCount];
+			
+			// The vertices not yet assigned a component, and the path the search has taken along with how far each vertex's edges have been scanned
+			int[ ] stack = new int[vertexCount], path = new int[vertexCount], positions = new int[vertexCount];
+			int stackSize = 0, pathLength = 0, index = 0;
+			
+			this.components = new int[vertexCount];
+			Arrays.fill( this.components, -1 );
+			this.componentCount = 0;
+			
+			for( int root = 0; root < vertexCount; ++root )
+			{
+				if( indices[root] != 0 )
+					continue;
+				
+				indices[root] = lowLinks[root] = ++index;
+				positions[root] = 0;
+				stack[stackSize++] = root;
+				path[pathLength++] = root;
+				
+				while( pathLength > 0 )
+				{
+					int vertex = path[pathLength - 1];
+					
+					if( positions[vertex] < this.adjacency.getDegree( vertex ) )
+					{
+						int edge = this.adjacency.getIncidentEdges( vertex )[positions[vertex]++];
+						if( isDirected && sources[edge] != vertex )
+							continue;
+						
+						int neighbor = ( sources[edge] == vertex ? targets[edge] : sources[edge] );
+						if( indices[neighbor] == 0 )
+						{
+							indices[neighbor] = lowLinks[neighbor] = ++index;
+							positions[neighbor] = 0;
+							stack[stackSize++] = neighbor;
+							path[pathLength++] = neighbor;
+						}
+						else if( this.components[neighbor] < 0 )
+							lowLinks[vertex] = Math.min( lowLinks[vertex], indices[neighbor] );
+					}
 					else
-						rootB.parent = rootA;
+					{
+						--pathLength;
+						
+						if( lowLinks[vertex] == indices[vertex] )
+						{
+							int member;
+							do
+							{
+								member = stack[--stackSize];
+								this.components[member] = this.componentCount;
+							} while( member != vertex );
+							
+							++this.componentCount;
+						}
+						
+						if( pathLength > 0 )
+						{
+							int parent = path[pathLength - 1];
+							lowLinks[parent] = Math.min( lowLinks[parent], lowLinks[vertex] );
+						}
+					}
+				}
 			}
 		}
+		
+		public int[ ] getComponentLabels( )
+		{
+			return this.components;
+		}
+		
+		public Collection<Collection<Vertex>> getComponents( )
+		{
+			List<Collection<Vertex>> components = new ArrayList<Collection<Vertex>>( this.componentCount );
+			for( int i = 0; i < this.componentCount; ++i )
+				components.add( new ArrayList<Vertex>( ) );
+			
+			for( int i = 0; i < this.components.length; ++i )
+				components.get( this.components[i] ).add( this.adjacency.getVertex( i ) );
+			
+			return components;
+		}
 	}
 	
 	public static Collection<Collection<Vertex>> findStronglyConnectedComponents( Graph graph )
 	{
-		return ( graph.areDirectedEdgesAllowed ? new StronglyConnectedComponentsFinder( ).find( graph ) : new WeaklyConnectedComponentsFinder( ).find( graph ) );
+		return ( graph.areDirectedEdgesAllowed ? new StronglyConnectedComponentsFinder( graph ).getComponents( ) : findWeaklyConnectedComponents( graph ) );
 	}
 	
 	public static Collection<Collection<Vertex>> findWeaklyConnectedComponents( Graph graph )
 	{
-		return new WeaklyConnectedComponentsFinder( ).find( graph );
+		return graph.getComponentIndex( ).getComponents( );
+	}
+	
+	// The eccentricities, diameter and radius are found without ever holding the whole distance matrix, and throw IllegalStateException should the
+	// graph contain a negative cycle
+	public static double getDiameter( Graph graph, boolean weighted )
+	{
+		return new ShortestPathFinder( graph, weighted ).getDiameter( );
 	}
 	
 	public static double[ ][ ] getDistanceMatrix( Graph graph, boolean weighted )
 	{
-		double[ ][ ] distances = new double[graph.vertices.size( )][graph.vertices.size( )];
-		
-		// Initialize the distance matrix
-		for( int i = 0; i < graph.vertices.size( ); ++i )
-			for( int j = 0; j < graph.vertices.size( ); ++j )
-				distances[i][j] = ( i == j ? 0.0 : Double.POSITIVE_INFINITY );
-		
-		// Add non-loop edges to the distance matrix
-		Map<Vertex, Integer> indices = new HashMap<Vertex, Integer>( );
-		for( int i = 0; i < graph.vertices.size( ); ++i )
-			indices.put( graph.vertices.get( i ), i );
-		
-		for( Edge edge : graph.edges )
-			if( !edge.isLoop )
-			{
-				int from = indices.get( edge.from ), to = indices.get( edge.to );
-				
-				if( weighted )
-				{
-					if( edge.weight.get( ) < distances[from][to] )
-						distances[from][to] = edge.weight.get( );
-					
-					if( !edge.isDirected && edge.weight.get( ) < distances[to][from] )
-						distances[to][from] = edge.weight.get( );
-				}
-				else
-				{
-					distances[from][to] = 1.0;
-					
-					if( !edge.isDirected )
-						distances[to][from] = 1.0;
-				}
-			}
+		return new ShortestPathFinder( graph, weighted ).getDistanceMatrix( );
+	}
+	
+	public static double[ ] getEccentricities( Graph graph, boolean weighted )
+	{
+		return new ShortestPathFinder( graph, weighted ).getEccentricities( );
+	}
+	
+	public static double getEccentricity( Graph graph, Vertex vertex, boolean weighted )
+	{
+		return new ShortestPathFinder( graph, weighted ).getEccentricity( graph.vertices.indexOf( vertex ) );
+	}
+	
+	public static double getRadius( Graph graph, boolean weighted )
+	{
+		return new ShortestPathFinder( graph, weighted ).getRadius( );
+	}
+	
+	// The number of each vertex's component, by the vertex's index in the graph's adjacency index, with the components numbered from zero in the same
+	// order as they are returned by findStronglyConnectedComponents
+	public static int[ ] getStronglyConnectedComponentLabels( Graph graph )
+	{
+		if( graph.areDirectedEdgesAllowed )
+			return new StronglyConnectedComponentsFinder( graph ).getComponentLabels( );
 		
-		// Run the Roy-Floyd-Warshall algorithm
-		for( int k = 0; k < graph.vertices.size( ); ++k )
-			for( int i = 0; i < graph.vertices.size( ); ++i )
-				for( int j = 0; j < graph.vertices.size( ); ++j )
-					distances[i][j] = Math.min( distances[i][j], distances[i][k] + distances[k][j] );
+		AdjacencyIndex adjacency = graph.getAdjacencyIndex( );
+		ComponentIndex components = graph.getComponentIndex( );
+		int[ ] labels = new int[adjacency.getVertexCount( )];
+		for( int i = 0; i < labels.length; ++i )
+			labels[i] = components.getComponent( adjacency.getVertex( i ) );
 		
-		return distances;
+		return labels;
 	}
 }
@@ -0,0 +1,323 @@
+/**
+ * JsonReader.java
+ */
+package edu.belmont.mth.visigraph.utilities;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * @author Cameron Behar
+ */
+public class JsonReader
+{
+	private final char[ ]	buffer;
+	private int				index;
+	private int				length;
+	private int				position;
+	private final Reader	reader;
+	
+	public JsonReader( Reader reader )
+	{
+		this.reader = reader;
+		this.buffer = new char[8192];
+		this.length = 0;
+		this.position = 0;
+		this.index = 0;
+	}
+	
+	public JsonReader( String s )
+	{
+		this.reader = null;
+		this.buffer = s.toCharArray( );
+		this.length = this.buffer.length;
+		this.position = 0;
+		this.index = 0;
+	}
+	
+	public void beginArray( ) throws IOException
+	{
+		this.expect( '[', "A JSON array's text must begin with '['" );
+	}
+	
+	public void beginObject( ) throws IOException
+	{
+		this.expect( '{', "A JSON object's text must begin with '{'" );
+	}
+	
+	public void close( ) throws IOException
+	{
+		if( this.reader != null )
+			this.reader.close( );
+	}
+	
+	public void endArray( ) throws IOException
+	{
+		this.expect( ']', "Expected ',' or ']'" );
+	}
+	
+	public void endObject( ) throws IOException
+	{
+		this.expect( '}', "Expected ',' or '}'" );
+	}
+	
+	// Returns whether the current array or object has another element, skipping the separator before it if there is one. Separators may be either
+	// ',' or ';', and a trailing separator is tolerated.
+	public boolean hasNext( ) throws IOException
+	{
+		char c = this.peek( );
+		
+		if( c == ',' || c == ';' )
+		{
+			++this.position;
+			++this.index;
+			c = this.peek( );
+		}
+		
+		return c != ']' && c != '}' && c != 0;
+	}
+	
+	// Returns the name of the next member of the current object, consuming the ':' following it.
+	public String nextName( ) throws IOException
+	{
+		String name = this.nextValue( ).toString( );
+		
+		this.expect( ':', "Expected ':' after key" );
+		
+		return name;
+	}
+	
+	// Returns the next value, which can be a Boolean, Color, Double, Integer, String, null, or an entire array or object read into a List or a Map.
+	public Object nextValue( ) throws IOException
+	{
+		switch( this.peek( ) )
+		{
+			case 0:
+				throw new Error( "Missing value at " + this.index );
+			case '"':
+				++this.position;
+				++this.index;
+				return this.nextString( );
+			case '{':
+				return this.nextObject( );
+			case '[':
+				return this.nextArray( );
+			default:
+				return JsonUtilities.parseValue( this.nextToken( ) );
+		}
+	}
+	
+	// Returns the next non-whitespace character without consuming it, or 0 at the end of the stream.
+	public char peek( ) throws IOException
+	{
+		while( true )
+		{
+			if( this.position == this.length && !this.fill( ) )
+				return 0;
+			
+			char c = this.buffer[this.position];
+			if( c > ' ' )
+				return c;
+			
+			++this.position;
+			++this.index;
+		}
+	}
+	
+	public void skipValue( ) throws IOException
+	{
+		this.nextValue( );
+	}
+	
+	private void expect( char expected, String message ) throws IOException
+	{
+		if( this.peek( ) != expected )
+			throw new Error( message + " at " + this.index );
+		
+		++this.position;
+		++this.index;
+	}
+	
+	private boolean fill( ) throws IOException
+	{
+		if( this.reader == null )
+			return false;
+		
+		this.position = 0;
+		this.length = Math.max( this.reader.read( this.buffer, 0, this.buffer.length ), 0 );
+		return this.length > 0;
+	}
+	
+	private static boolean isDelimiter( char c )
+	{
+		switch( c )
+		{
+			case ',':
+			case ':':
+			case ']':
+			case '}':
+			case '/':
+			case '\\':
+			case '"':
+			case '[':
+			case '{':
+			case ';':
+			case '=':
+				return true;
+			default:
+				return c < ' ';
+		}
+	}
+	
+	private List<Object> nextArray( ) throws IOException
+	{
+		List<Object> items = new Vector<Object>( );
+		
+		this.beginArray( );
+		while( this.hasNext( ) )
+			items.add( this.nextValue( ) );
+		this.endArray( );
+		
+		return items;
+	}
+	
+	private char nextChar( ) throws IOException
+	{
+		if( this.position == this.length && !this.fill( ) )
+			return 0;
+		
+		++this.index;
+		return this.buffer[this.position++];
+	}
+	
+	private Map<String, Object> nextObject( ) throws IOException
+	{
+		Map<String, Object> members = new HashMap<String, Object>( );
+		
+		this.beginObject( );
+		while( this.hasNext( ) )
+		{
+			String key = this.nextName( );
+			Object value = this.nextValue( );
+			
+			if( value != null )
+			{
+				if( members.containsKey( key ) )
+					throw new Error( "Duplicate key \"" + key + "\"" );
+				
+				members.put( key, value );
+			}
+		}
+		this.endObject( );
+		
+		return members;
+	}
+	
+	// Returns the characters up to the next unescaped '"', the opening quote having already been consumed.
+	private String nextString( ) throws IOException
+	{
+		StringBuilder sb = new StringBuilder( );
+		
+		while( true )
+		{
+			// Copy runs of ordinary characters straight out of the buffer
+			int start = this.position;
+			while( this.position < this.length )
+			{
+				char c = this.buffer[this.position];
+				if( c == '"' || c == '\\' || c == '\n' || c == '\r' )
+					break;
+				++this.position;
+			}
+			sb.append( this.buffer, start, this.position - start );
+			this.index += this.position - start;
+			
+			char c = this.nextChar( );
+			switch( c )
+			{
+				case 0:
+				case '\n':
+				case '\r':
+					throw new Error( "Unterminated string at " + this.index );
+				case '"':
+					return sb.toString( );
+				case '\\':
+					c = this.nextChar( );
+					switch( c )
+					{
+						case 'b':
+							sb.append( '\b' );
+							break;
+						case 't':
+							sb.append( '\t' );
+							break;
+						case 'n':
+							sb.append( '\n' );
+							break;
+						case 'f':
+							sb.append( '\f' );
+							break;
+						case 'r':
+							sb.append( '\r' );
+							break;
+						case 'u':
+							char[ ] hex = new char[ ] { this.nextChar( ), this.nextChar( ), this.nextChar( ), this.nextChar( ) };
+							sb.append( (char) Integer.parseInt( new String( hex ), 16 ) );
+							break;
+						case '"':
+						case '\'':
+						case '\\':
+						case '/':
+							sb.append( c );
+							break;
+						default:
+							throw new Error( "Illegal escape at " + this.index );
+					}
+					break;
+				default:
+					sb.append( c );
+			}
+		}
+	}
+	
+	// Returns the unquoted text up to the next formatting character, such as true, false, null, a number or a color.
+	private String nextToken( ) throws IOException
+	{
+		StringBuilder sb = null;
+		String token;
+		
+		while( true )
+		{
+			// Scan for the end of the token within the buffer, only copying it aside when it straddles a refill
+			int start = this.position;
+			while( this.position < this.length && !isDelimiter( this.buffer[this.position] ) )
+				++this.position;
+			this.index += this.position - start;
+			
+			if( this.position < this.length || ( sb == null && this.reader == null ) )
+			{
+				if( sb == null )
+					token = new String( this.buffer, start, this.position - start );
+				else
+					token = sb.append( this.buffer, start, this.position - start ).toString( );
+				break;
+			}
+			
+			if( sb == null )
+				sb = new StringBuilder( );
+			sb.append( this.buffer, start, this.position - start );
+			
+			if( !this.fill( ) )
+			{
+				token = sb.toString( );
+				break;
+			}
+		}
+		
+		token = token.trim( );
+		if( token.length( ) <= 0 )
+			throw new Error( "Missing value at " + this.index );
+		
+		return token;
+	}
+}
@@ -8,7 +8,6 @@ import java.awt.*;
 import java.util.*;
 import java.util.List;
 import java.util.Map.*;
-import java.util.regex.*;
 import edu.belmont.mth.visigraph.models.ObservableModel.*;
 
 /**
@@ -16,223 +15,9 @@ import edu.belmont.mth.visigraph.models.ObservableModel.*;
  */
 public class JsonUtilities
 {
-	private static class JsonScanner
+	private enum NumberType
 	{
-		private int				character;
-		private boolean			eof;
-		private int				index;
-		private int				line;
-		private char			previousChar;
-		private final Reader	reader;
-		private boolean			usePrevious;
-		
-		public JsonScanner( String s )
-		{
-			this.reader = new StringReader( s );
-			this.eof = false;
-			this.usePrevious = false;
-			this.previousChar = 0;
-			this.index = 0;
-			this.character = 1;
-			this.line = 1;
-		}
-		
-		public boolean end( )
-		{
-			return this.eof && !this.usePrevious;
-		}
-		
-		// Back up one character. This provides a sort of lookahead capability,
-		// so that you can test for a digit or letter before attempting to parse
-		// the next number or identifier.
-		public void moveBack( )
-		{
-			if( this.usePrevious || this.index <= 0 )
-				throw new Error( "Stepping back two steps is not supported" );
-			
-			this.index -= 1;
-			this.character -= 1;
-			this.usePrevious = true;
-			this.eof = false;
-		}
-		
-		// Get the next character in the source string.
-		public char nextChar( )
-		{
-			int c;
-			
-			if( this.usePrevious )
-			{
-				this.usePrevious = false;
-				c = this.previousChar;
-			}
-			else
-			{
-				try
-				{
-					c = this.reader.read( );
-				}
-				catch( IOException exception )
-				{
-					throw new Error( exception );
-				}
-				
-				if( c <= 0 )
-				{ // End of stream
-					this.eof = true;
-					c = 0;
-				}
-			}
-			
-			++this.index;
-			
-			if( this.previousChar == '\r' )
-			{
-				++this.line;
-				this.character = c == '\n' ? 0 : 1;
-			}
-			else if( c == '\n' )
-			{
-				++this.line;
-				this.character = 0;
-			}
-			else
-				++this.line;
-			
-			this.previousChar = (char) c;
-			return this.previousChar;
-		}
-		
-		// Get the next n characters.
-		public String nextChars( int n )
-		{
-			if( n == 0 )
-				return "";
-			
-			char[ ] buffer = new char[n];
-			int pos = 0;
-			
-			while( pos < n )
-			{
-				buffer[pos] = this.nextChar( );
-				if( this.end( ) )
-					throw new Error( "Substring bounds error at " + this.index );
-				++pos;
-			}
-			
-			return new String( buffer );
-		}
-		
-		// Get the next char in the string, skipping whitespace.
-		public char nextNonWhitespaceChar( )
-		{
-			while( true )
-			{
-				char c = this.nextChar( );
-				if( c == 0 || c > ' ' )
-					return c;
-			}
-		}
-		
-		// Return the characters up to the next close quote character.
-		// Backslash processing is done. The formal JSON format does not
-		// allow strings in single quotes, but an implementation is allowed to
-		// accept them.
-		public String nextString( char quote )
-		{
-			char c;
-			StringBuffer sb = new StringBuffer( );
-			
-			while( true )
-			{
-				c = this.nextChar( );
-				switch( c )
-				{
-					case 0:
-					case '\n':
-					case '\r':
-						throw new Error( "Unterminated string at " + this.index );
-					case '\\':
-						c = this.nextChar( );
-						switch( c )
-						{
-							case 'b':
-								sb.append( '\b' );
-								break;
-							case 't':
-								sb.append( '\t' );
-								break;
-							case 'n':
-								sb.append( '\n' );
-								break;
-							case 'f':
-								sb.append( '\f' );
-								break;
-							case 'r':
-								sb.append( '\r' );
-								break;
-							case 'u':
-								sb.append( (char) Integer.parseInt( this.nextChars( 4 ), 16 ) );
-								break;
-							case '"':
-							case '\'':
-							case '\\':
-							case '/':
-								sb.append( c );
-								break;
-							default:
-								throw new Error( "Illegal escape at " + this.index );
-						}
-						break;
-					default:
-						if( c == quote )
-							return sb.toString( );
-						sb.append( c );
-				}
-			}
-		}
-		
-		// Get the next value. The value can be a Boolean, Double, Integer,
-		// JSONArray, JSONObject, Long, or String, or the JSONObject.NULL object.
-		public Object nextValue( )
-		{
-			char c = this.nextNonWhitespaceChar( );
-			String s;
-			
-			switch( c )
-			{
-				case '"':
-					return this.nextString( c );
-				case '{':
-					this.moveBack( );
-					return JsonUtilities.parseObject( this );
-				case '[':
-					this.moveBack( );
-					return JsonUtilities.parseArray( this );
-			}
-			
-			/*
-			 * Handle unquoted text. This could be the values true, false, or
-			 * null, or it can be a number. An implementation (such as this one)
-			 * is allowed to also accept non-standard forms.
-			 * Accumulate characters until we reach the end of the text or a
-			 * formatting character.
-			 */
-
-			StringBuffer sb = new StringBuffer( );
-			while( c >= ' ' && ",:]}/\\\"[{;=".indexOf( c ) < 0 )
-			{
-				sb.append( c );
-				c = this.nextChar( );
-			}
-			this.moveBack( );
-			
-			s = sb.toString( ).trim( );
-			if( s.length( ) <= 0 )
-				throw new Error( "Missing value at " + this.index );
-			
-			return JsonUtilities.parseValue( s );
-		}
+		NONE, INTEGER, DOUBLE
 	}
 	
 	public static String formatArray( Iterable<?> i )
@@ -277,8 +62,16 @@ public class JsonUtilities
 	
 	public static String formatString( String s )
 	{
-		StringBuffer sb = new StringBuffer( );
+		StringBuilder sb = new StringBuilder( );
 		
+		formatString( s, sb );
+		
+		return sb.toString( );
+	}
+	
+	// Appends the quoted and escaped string to the specified StringBuilder, so that callers writing many strings can reuse a single buffer.
+	public static void formatString( String s, StringBuilder sb )
+	{
 		sb.append( '"' );
 		
 		if( s != null && s.length( ) > 0 )
@@ -316,7 +109,7 @@ public class JsonUtilities
 						if( c < ' ' || ( c >= '\u0080' && c < '\u00a0' ) || ( c >= '\u2000' && c < '\u2100' ) )
 						{
 							String hex = "000" + Integer.toHexString( c );
-							sb.append( "\\u" + hex.substring( hex.length( ) - 4 ) );
+							sb.append( "\\u" ).append( hex, hex.length( ) - 4, hex.length( ) );
 						}
 						else
 							sb.append( c );
@@ -324,8 +117,6 @@ public class JsonUtilities
 			}
 		
 		sb.append( '"' );
-		
-		return sb.toString( );
 	}
 	
 	public static String formatValue( Object o )
@@ -350,128 +141,94 @@ public class JsonUtilities
 			return o.toString( );
 	}
 	
-	private static Iterable<?> parseArray( JsonScanner tokenizer )
+	private static boolean isDigit( char c )
 	{
-		List<Object> items = new Vector<Object>( );
-		
-		char c = tokenizer.nextNonWhitespaceChar( );
-		
-		if( c != '[' )
-			throw new Error( "A JSON array's text must begin with '['" );
-		
-		if( tokenizer.nextNonWhitespaceChar( ) == ']' )
-			return items;
+		return c >= '0' && c <= '9';
+	}
+	
+	public static Iterable<?> parseArray( String json )
+	{
+		JsonReader reader = new JsonReader( json );
 		
-		tokenizer.moveBack( );
-		while( true )
+		try
 		{
-			c = tokenizer.nextNonWhitespaceChar( );
-			tokenizer.moveBack( );
-			items.add( c == ',' ? null : tokenizer.nextValue( ) );
-			
-			c = tokenizer.nextNonWhitespaceChar( );
+			if( reader.peek( ) != '[' )
+				throw new Error( "A JSON array's text must begin with '['" );
 			
-			if( c == ',' )
-			{
-				if( tokenizer.nextNonWhitespaceChar( ) == ']' )
-					return items;
-				
-				tokenizer.moveBack( );
-			}
-			else if( c == ']' )
-				return items;
-			else
-				throw new Error( "Expected ',' or ']'" );
+			return (Iterable<?>) reader.nextValue( );
+		}
+		catch( IOException exception )
+		{
+			throw new Error( exception );
 		}
 	}
 	
-	public static Iterable<?> parseArray( String json )
+	private static Color parseColor( String json )
 	{
-		return parseArray( new JsonScanner( json ) );
+		int r = parseHexByte( json, 1 );
+		int g = parseHexByte( json, 3 );
+		int b = parseHexByte( json, 5 );
+		int a = parseHexByte( json, 7 );
+		
+		return new Color( r, g, b, a );
 	}
 	
-	private static Color parseColor( String json )
+	// Returns the value of the two hex digits at the specified index, or -1 if either character is not a hex digit.
+	private static int parseHexByte( String json, int index )
 	{
-		Pattern pattern = Pattern.compile( "^\\#([0-9a-fA-F]{2})([0-9a-fA-F]{2})([0-9a-fA-F]{2})([0-9a-fA-F]{2})$" );
-		Matcher matcher = pattern.matcher( json );
-		matcher.find( );
+		int high = parseHexDigit( json.charAt( index ) );
+		int low = parseHexDigit( json.charAt( index + 1 ) );
 		
-		Integer r = Integer.parseInt( matcher.group( 1 ), 16 );
-		Integer g = Integer.parseInt( matcher.group( 2 ), 16 );
-		Integer b = Integer.parseInt( matcher.group( 3 ), 16 );
-		Integer a = Integer.parseInt( matcher.group( 4 ), 16 );
-		
-		return new Color( r.intValue( ), g.intValue( ), b.intValue( ), a.intValue( ) );
+		return ( high < 0 || low < 0 ? -1 : high * 16 + low );
+	}
+	
+	// Returns the value of the hex digit, or -1 if the character is not one.
+	private static int parseHexDigit( char c )
+	{
+		if( c >= '0' && c <= '9' )
+			return c - '0';
+		else if( c >= 'a' && c <= 'f' )
+			return c - 'a' + 10;
+		else if( c >= 'A' && c <= 'F' )
+			return c - 'A' + 10;
+		else
+			return -1;
 	}
 	
-	private static Map<String, Object> parseObject( JsonScanner tokenizer )
+	// Decodes an integer known to consist of an optional sign followed by at least one digit, falling back on Integer.valueOf(String) (and its
+	// NumberFormatException) only when the value might not fit in an int.
+	private static Integer parseInteger( String json )
 	{
-		Map<String, Object> members = new HashMap<String, Object>( );
+		int length = json.length( );
+		boolean isNegative = ( json.charAt( 0 ) == '-' );
+		int i = ( json.charAt( 0 ) == '-' || json.charAt( 0 ) == '+' ? 1 : 0 );
 		
-		char c;
-		String key;
+		if( length - i > 9 )
+			return Integer.valueOf( json );
 		
-		if( tokenizer.nextNonWhitespaceChar( ) != '{' )
-			throw new Error( "A JSON object's text must begin with '{'" );
+		int value = 0;
+		for( ; i < length; ++i )
+			value = value * 10 + ( json.charAt( i ) - '0' );
 		
-		while( true )
-		{
-			c = tokenizer.nextNonWhitespaceChar( );
-			
-			switch( c )
-			{
-				case 0:
-					throw new Error( "A JSON object's text must end with '}'" );
-				case '}':
-					return members;
-				default:
-					tokenizer.moveBack( );
-					key = tokenizer.nextValue( ).toString( );
-			}
-			
-			/*
-			 * The key is followed by ':'.
-			 */
-
-			c = tokenizer.nextNonWhitespaceChar( );
-			if( c != ':' )
-				throw new Error( "Expected ':' after key" );
-			
-			// Put once
-			
-			Object value = tokenizer.nextValue( );
-			if( key != null && value != null )
-			{
-				if( members.containsKey( key ) )
-					throw new Error( "Duplicate key \"" + key + "\"" );
-				
-				members.put( key, value );
-			}
-			
-			/*
-			 * Pairs are separated by ','. We will also tolerate ';'.
-			 */
-
-			switch( tokenizer.nextNonWhitespaceChar( ) )
-			{
-				case ';':
-				case ',':
-					if( tokenizer.nextNonWhitespaceChar( ) == '}' )
-						return members;
-					
-					tokenizer.moveBack( );
-					break;
-				case '}':
-					return members;
-				default:
-					throw new Error( "Expected ',' or '}'" );
-			}
-		}
+		return Integer.valueOf( isNegative ? -value : value );
 	}
 	
+	@SuppressWarnings( "unchecked" )
 	public static Map<String, Object> parseObject( String json )
 	{
-		return parseObject( new JsonScanner( json ) );
+		JsonReader reader = new JsonReader( json );
+		
+		try
+		{
+			if( reader.peek( ) != '{' )
+				throw new Error( "A JSON object's text must begin with '{'" );
+			
+			return (Map<String, Object>) reader.nextValue( );
+		}
+		catch( IOException exception )
+		{
+			throw new Error( exception );
+		}
 	}
 	
 	public static String parseString( String json )
@@ -538,9 +295,13 @@ public class JsonUtilities
 	
 	public static Object parseValue( String json )
 	{
-		if( json.matches( "^\".*\"$" ) )
-			return json.substring( 1, json.length( ) - 1 );
-		else if( json.matches( "^\\[.*\\]$" ) )
+		int length = json.length( );
+		char first = ( length > 0 ? json.charAt( 0 ) : 0 );
+		char last = ( length > 0 ? json.charAt( length - 1 ) : 0 );
+		
+		if( length >= 2 && first == '"' && last == '"' )
+			return json.substring( 1, length - 1 );
+		else if( length >= 2 && first == '[' && last == ']' )
 			return parseArray( json );
 		else if( json.equalsIgnoreCase( "true" ) )
 			return Boolean.TRUE;
@@ -548,13 +309,64 @@ public class JsonUtilities
 			return Boolean.FALSE;
 		else if( json.equalsIgnoreCase( "null" ) )
 			return null;
-		else if( json.matches( "^[+-]?\\d+$" ) )
-			return new Integer( json );
-		else if( json.matches( "^[+-]?(\\d+\\.?\\d*|\\d*\\.?\\d+)([eE][+\\-\\x20]?\\d+)?$" ) )
-			return new Double( json );
-		else if( json.matches( "^\\#([0-9a-fA-F]{2})([0-9a-fA-F]{2})([0-9a-fA-F]{2})([0-9a-fA-F]{2})$" ) )
-			return parseColor( json );
+		else if( first == '#' )
+		{
+			if( length == 9 && parseHexByte( json, 1 ) >= 0 && parseHexByte( json, 3 ) >= 0 && parseHexByte( json, 5 ) >= 0 && parseHexByte( json, 7 ) >= 0 )
+				return parseColor( json );
+		}
 		else
-			throw new IllegalArgumentException( "Illegal value" );
+			switch( scanNumber( json ) )
+			{
+				case INTEGER:
+					return parseInteger( json );
+				case DOUBLE:
+					return Double.valueOf( json );
+			}
+		
+		throw new IllegalArgumentException( "Illegal value" );
+	}
+	
+	// Classifies the text as an integer ([+-]?\d+), a decimal number ([+-]?(\d+\.?\d*|\d*\.?\d+)([eE][+\- ]?\d+)?), or neither.
+	private static NumberType scanNumber( String json )
+	{
+		int length = json.length( );
+		int i = 0;
+		
+		if( i < length && ( json.charAt( i ) == '+' || json.charAt( i ) == '-' ) )
+			++i;
+		
+		int integerDigits = 0;
+		while( i < length && isDigit( json.charAt( i ) ) )
+		{
+			++i;
+			++integerDigits;
+		}
+		
+		if( i == length )
+			return ( integerDigits > 0 ? NumberType.INTEGER : NumberType.NONE );
+		
+		int fractionDigits = 0;
+		if( json.charAt( i ) == '.' )
+			for( ++i; i < length && isDigit( json.charAt( i ) ); ++i )
+				++fractionDigits;
+		
+		if( integerDigits + fractionDigits == 0 )
+			return NumberType.NONE;
+		
+		if( i < length && ( json.charAt( i ) == 'e' || json.charAt( i ) == 'E' ) )
+		{
+			++i;
+			if( i < length && ( json.charAt( i ) == '+' || json.charAt( i ) == '-' || json.charAt( i ) == ' ' ) )
+				++i;
+			
+			int exponentDigits = 0;
+			for( ; i < length && isDigit( json.charAt( i ) ); ++i )
+				++exponentDigits;
+			
+			if( exponentDigits == 0 )
+				return NumberType.NONE;
+		}
+		
+		return ( i == length ? NumberType.DOUBLE : NumberType.NONE );
 	}
 }
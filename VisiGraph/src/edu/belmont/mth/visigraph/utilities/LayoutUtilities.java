@@ -103,84 +103,12 @@ public class LayoutUtilities
 		}
 	}
 	
-	public static double arrangeTensors( Collection<Vertex> vertices, Collection<Edge> edges, double attractiveForce, double repulsiveForce, double speed, Map<Vertex, Point2D> velocities )
-	{
-		if( vertices.isEmpty( ) )
-			return 0.0;
-		
-		double totalKineticEnergy = 0;
-		
-		// Initialize the map of net forces
-		Map<Vertex, Point2D.Double> forces = new HashMap<Vertex, Point2D.Double>( );
-		for( Vertex vertex : vertices )
-			forces.put( vertex, new Point2D.Double( 0.0, 0.0 ) );
-		
-		// Apply all repulsive forces
-		for( Vertex vertexA : vertices )
-			for( Vertex vertexB : vertices )
-				if( vertexA == vertexB )
-					break;
-				else
-				{
-					final double xDiff = vertexA.x.get( ) - vertexB.x.get( ), yDiff = vertexA.y.get( ) - vertexB.y.get( );
-					final double distanceSquared = Math.max( 900.0, xDiff * xDiff + yDiff * yDiff );
-					final double force = ( 8987551787.0 * repulsiveForce * vertexA.weight.get( ) * repulsiveForce * vertexB.weight.get( ) ) / distanceSquared;
-					final double angle = Math.atan2( yDiff, xDiff );
-					final double xForce = -force * Math.cos( angle ), yForce = -force * Math.sin( angle );
-					
-					forces.get( vertexA ).x -= xForce;
-					forces.get( vertexA ).y -= yForce;
-					forces.get( vertexB ).x += xForce;
-					forces.get( vertexB ).y += yForce;
-				}
-		
-		// Apply all attractive forces
-		for( Edge edge : edges )
-			if( !edge.isLoop && ( forces.containsKey( edge.from ) || forces.containsKey( edge.to ) ) )
-			{
-				final double xDiff = edge.from.x.get( ) - edge.to.x.get( ), yDiff = edge.from.y.get( ) - edge.to.y.get( );
-				final double distanceSquared = Math.max( 900.0, xDiff * xDiff + yDiff * yDiff );
-				final double force = attractiveForce * ( distanceSquared - edge.weight.get( ) * 10.0 );
-				final double angle = Math.atan2( yDiff, xDiff );
-				final double xForce = force * Math.cos( angle ), yForce = force * Math.sin( angle );
-				
-				if( forces.containsKey( edge.from ) )
-				{
-					forces.get( edge.from ).x -= xForce;
-					forces.get( edge.from ).y -= yForce;
-				}
-				
-				if( forces.containsKey( edge.to ) )
-				{
-					forces.get( edge.to ).x += xForce;
-					forces.get( edge.to ).y += yForce;
-				}
-			}
-		
-		// Apply all net forces
-		for( Vertex vertex : vertices )
-		{
-			if( !velocities.containsKey( vertex ) )
-				velocities.put( vertex, new Point2D.Double( 0, 0 ) );
-			
-			Point2D velocity = velocities.get( vertex );
-			velocity.setLocation( ( velocity.getX( ) + forces.get( vertex ).x ) * 0.85, ( velocity.getY( ) + forces.get( vertex ).y ) * 0.85 );
-			totalKineticEnergy += vertex.weight.get( ) * velocity.distanceSq( 0, 0 );
-		}
-		
-		// Apply all velocities
-		for( Vertex vertex : vertices )
-		{
-			vertex.x.set( vertex.x.get( ) + speed * velocities.get( vertex ).getX( ) );
-			vertex.y.set( vertex.y.get( ) + speed * velocities.get( vertex ).getY( ) );
-		}
-		
-		return totalKineticEnergy;
-	}
-	
 	public static void arrangeTree( Collection<Vertex> roots, Graph graph )
 	{
-		Set<Vertex> covered = new HashSet<Vertex>( );
+		AdjacencyIndex adjacency = graph.getAdjacencyIndex( );
+		int[ ] sources = adjacency.getEdgeSources( ), targets = adjacency.getEdgeTargets( );
+		boolean[ ] covered = new boolean[adjacency.getVertexCount( )];
+		int coveredCount = 0;
 		List<List<Vertex>> levels = new ArrayList<List<Vertex>>( );
 		Map<Vertex, LinkedList<Vertex>> children = new HashMap<Vertex, LinkedList<Vertex>>( );
 		
@@ -189,7 +117,11 @@ public class LayoutUtilities
 		for( Vertex vertex : roots )
 		{
 			levels.get( 0 ).add( vertex );
-			covered.add( vertex );
+			if( !covered[adjacency.indexOf( vertex )] )
+			{
+				covered[adjacency.indexOf( vertex )] = true;
+				++coveredCount;
+			}
 		}
 		
 		// While the last level has vertices, add all their neighbors to the next level that haven't yet been otherwise added
@@ -200,23 +132,35 @@ public class LayoutUtilities
 			for( Vertex vertex : levels.get( levels.size( ) - 2 ) )
 			{
 				children.put( vertex, new LinkedList<Vertex>( ) );
-				for( Vertex neighbor : graph.getNeighbors( vertex ) )
-					if( !covered.contains( neighbor ) )
+				
+				int index = adjacency.indexOf( vertex );
+				int[ ] incidentEdges = adjacency.getIncidentEdges( index );
+				for( int i = 0; i < adjacency.getDegree( index ); ++i )
+				{
+					int edge = incidentEdges[i];
+					if( graph.areDirectedEdgesAllowed && sources[edge] != index )
+						continue;
+					
+					int neighbor = ( sources[edge] == index ? targets[edge] : sources[edge] );
+					if( !covered[neighbor] )
 					{
-						levels.get( levels.size( ) - 1 ).add( neighbor );
-						covered.add( neighbor );
-						children.get( vertex ).add( neighbor );
+						levels.get( levels.size( ) - 1 ).add( adjacency.getVertex( neighbor ) );
+						covered[neighbor] = true;
+						++coveredCount;
+						children.get( vertex ).add( adjacency.getVertex( neighbor ) );
 					}
+				}
 			}
 		}
 		
 		// If there were any nodes that weren't added yet, give them their own level
-		if( covered.size( ) < graph.vertices.size( ) )
+		if( coveredCount < graph.vertices.size( ) )
 			for( Vertex vertex : levels.get( levels.size( ) - 1 ) )
-				if( !covered.contains( vertex ) )
+				if( !covered[adjacency.indexOf( vertex )] )
 				{
 					levels.get( levels.size( ) - 1 ).add( vertex );
-					covered.add( vertex );
+					covered[adjacency.indexOf( vertex )] = true;
+					++coveredCount;
 					children.put( vertex, new LinkedList<Vertex>( ) );
 				}
 		
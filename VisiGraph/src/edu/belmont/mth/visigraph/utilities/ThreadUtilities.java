@@ -3,6 +3,9 @@
  */
 package edu.belmont.mth.visigraph.utilities;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 /**
  * @author Cameron Behar
  */
@@ -26,4 +29,59 @@ public class ThreadUtilities
 		
 		public abstract void run( Object parameter );
 	}
+	
+	private static final ThreadGroup		workerGroup	= new ThreadGroup( "Workers" );
+	
+	// The daemon threads, one per processor, among which invokeAll divides its tasks
+	private static final ExecutorService	workers		= Executors.newFixedThreadPool( getProcessorCount( ), new ThreadFactory( )
+														{
+															@Override
+															public Thread newThread( Runnable runnable )
+															{
+																Thread thread = new Thread( workerGroup, runnable, "Worker" );
+																thread.setDaemon( true );
+																return thread;
+															}
+														} );
+	
+	public static int getProcessorCount( )
+	{
+		return Runtime.getRuntime( ).availableProcessors( );
+	}
+	
+	// Runs the tasks on the shared workers, returning their results in order once every one has finished. Tasks are run one after another on the
+	// calling thread when there is only one or when called from a worker itself, which could otherwise wait forever on a pool it is occupying.
+	public static <T> List<T> invokeAll( List<? extends Callable<T>> tasks )
+	{
+		List<T> results = new ArrayList<T>( tasks.size( ) );
+		
+		try
+		{
+			if( tasks.size( ) == 1 || Thread.currentThread( ).getThreadGroup( ) == workerGroup )
+				for( Callable<T> task : tasks )
+					results.add( task.call( ) );
+			else
+				for( Future<T> result : workers.invokeAll( tasks ) )
+					results.add( result.get( ) );
+		}
+		catch( InterruptedException ex )
+		{
+			Thread.currentThread( ).interrupt( );
+			throw new CancellationException( );
+		}
+		catch( ExecutionException ex )
+		{
+			throw ( ex.getCause( ) instanceof RuntimeException ? (RuntimeException) ex.getCause( ) : new RuntimeException( ex.getCause( ) ) );
+		}
+		catch( RuntimeException ex )
+		{
+			throw ex;
+		}
+		catch( Exception ex )
+		{
+			throw new RuntimeException( ex );
+		}
+		
+		return results;
+	}
 }
@@ -27,10 +27,10 @@ public class CaptionDisplayView
 	public static void paint( Graphics2D g2D, GraphSettings s, Caption c )
 	{
 		// Draw each line in the text
-		g2D.setColor( c.isSelected.get( ) ? ColorUtilities.blend( UserSettings.instance.captionText.get( ), UserSettings.instance.selectedCaptionLine.get( ) ) : UserSettings.instance.captionText.get( ) );
+		g2D.setColor( c.isSelected.get( ) ? DisplayCache.blend( UserSettings.instance.captionText.get( ), UserSettings.instance.selectedCaptionLine.get( ) ) : UserSettings.instance.captionText.get( ) );
 		
 		Font oldFont = g2D.getFont( );
-		g2D.setFont( new Font( oldFont.getFamily( ), oldFont.getStyle( ), (int) Math.round( c.size.get( ) ) ) );
+		g2D.setFont( DisplayCache.getFont( oldFont, (int) Math.round( c.size.get( ) ) ) );
 		
 		String[ ] lines = c.text.get( ).split( "\\n" );
 		for( int i = 0; i < lines.length; ++i )
@@ -44,8 +44,8 @@ public class CaptionDisplayView
 			RoundRectangle2D.Double handle = getHandleRectangle( c );
 			Point2D.Double center = new Point2D.Double( handle.x + handle.width / 2.0, handle.y + handle.height / 2.0 );
 			
-			Color fill = ( c.isSelected.get( ) ? ColorUtilities.blend( UserSettings.instance.captionButtonFill.get( ), UserSettings.instance.selectedCaptionLine.get( ) ) : UserSettings.instance.captionButtonFill.get( ) );
-			Color line = ( c.isSelected.get( ) ? ColorUtilities.blend( UserSettings.instance.captionText.get( ), UserSettings.instance.selectedCaptionLine.get( ) ) : UserSettings.instance.captionButtonLine.get( ) );
+			Color fill = ( c.isSelected.get( ) ? DisplayCache.blend( UserSettings.instance.captionButtonFill.get( ), UserSettings.instance.selectedCaptionLine.get( ) ) : UserSettings.instance.captionButtonFill.get( ) );
+			Color line = ( c.isSelected.get( ) ? DisplayCache.blend( UserSettings.instance.captionText.get( ), UserSettings.instance.selectedCaptionLine.get( ) ) : UserSettings.instance.captionButtonLine.get( ) );
 			
 			RadialGradientPaint radial = new RadialGradientPaint( center, (float) ( handle.width / 2.0 ), new float[ ] { 0f, 1f }, new Color[ ] { Color.white, fill } );
 			g2D.setPaint( radial );
@@ -95,8 +95,8 @@ public class CaptionDisplayView
 			RoundRectangle2D.Double editor = getEditorRectangle( c );
 			Point2D.Double center = new Point2D.Double( editor.x + editor.width / 2.0, editor.y + editor.height / 2.0 );
 			
-			Color fill = ( c.isSelected.get( ) ? ColorUtilities.blend( UserSettings.instance.captionButtonFill.get( ), UserSettings.instance.selectedCaptionLine.get( ) ) : UserSettings.instance.captionButtonFill.get( ) );
-			Color line = ( c.isSelected.get( ) ? ColorUtilities.blend( UserSettings.instance.captionText.get( ), UserSettings.instance.selectedCaptionLine.get( ) ) : UserSettings.instance.captionButtonLine.get( ) );
+			Color fill = ( c.isSelected.get( ) ? DisplayCache.blend( UserSettings.instance.captionButtonFill.get( ), UserSettings.instance.selectedCaptionLine.get( ) ) : UserSettings.instance.captionButtonFill.get( ) );
+			Color line = ( c.isSelected.get( ) ? DisplayCache.blend( UserSettings.instance.captionText.get( ), UserSettings.instance.selectedCaptionLine.get( ) ) : UserSettings.instance.captionButtonLine.get( ) );
 			
 			RadialGradientPaint radial = new RadialGradientPaint( center, (float) ( editor.width / 2.0 ), new float[ ] { 0f, 1f }, new Color[ ] { Color.white, fill } );
 			g2D.setPaint( radial );
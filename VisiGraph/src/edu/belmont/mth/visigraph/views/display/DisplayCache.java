@@ -0,0 +1,105 @@
+/**
+ * DisplayCache.java
+ */
+package edu.belmont.mth.visigraph.views.display;
+
+import java.awt.*;
+import java.math.*;
+import java.text.*;
+import java.util.*;
+import edu.belmont.mth.visigraph.settings.*;
+import edu.belmont.mth.visigraph.utilities.*;
+
+/**
+ * @author Cameron Behar
+ */
+public class DisplayCache
+{
+	// Strokes and fonts come in as many sizes as elements do, so beyond this many the caches are simply started over
+	private static final int							maximumSize	= 256;
+	
+	private static final Map<Color, Map<Color, Color>>	blends		= new HashMap<Color, Map<Color, Color>>( );
+	private static final Map<Font, Map<Integer, Font>>	fonts		= new HashMap<Font, Map<Integer, Font>>( );
+	private static final Map<Integer, NumberFormat>		formats		= new HashMap<Integer, NumberFormat>( );
+	private static final Map<Float, Stroke>				strokes		= new HashMap<Float, Stroke>( );
+	
+	static
+	{
+		// Any change to the user's colors or formats leaves what is cached here stale
+		UserSettings.instance.addObserver( new Observer( )
+		{
+			@Override
+			public void update( Observable o, Object arg )
+			{
+				DisplayCache.clear( );
+			}
+		} );
+	}
+	
+	public static synchronized Color blend( Color c0, Color c1 )
+	{
+		Map<Color, Color> blendsWith = blends.get( c0 );
+		if( blendsWith == null )
+			blends.put( c0, blendsWith = new HashMap<Color, Color>( ) );
+		
+		Color blend = blendsWith.get( c1 );
+		if( blend == null )
+			blendsWith.put( c1, blend = ColorUtilities.blend( c0, c1 ) );
+		
+		return blend;
+	}
+	
+	public static synchronized void clear( )
+	{
+		blends.clear( );
+		fonts.clear( );
+		formats.clear( );
+		strokes.clear( );
+	}
+	
+	public static synchronized String formatWeight( double weight, int precision )
+	{
+		NumberFormat format = formats.get( precision );
+		if( format == null )
+		{
+			format = NumberFormat.getNumberInstance( );
+			format.setGroupingUsed( false );
+			format.setMinimumFractionDigits( precision );
+			format.setMaximumFractionDigits( precision );
+			format.setRoundingMode( RoundingMode.HALF_UP );
+			formats.put( precision, format );
+		}
+		
+		// Match String.format, which spells out non-finite weights and rounds each weight as it is written rather than as it is stored
+		if( Double.isNaN( weight ) || Double.isInfinite( weight ) )
+			return Double.toString( weight );
+		
+		return format.format( weight == 0.0 ? weight : new BigDecimal( Double.toString( weight ) ) );
+	}
+	
+	public static synchronized Font getFont( Font base, int size )
+	{
+		Map<Integer, Font> sizes = fonts.get( base );
+		if( sizes == null || sizes.size( ) >= maximumSize )
+			fonts.put( base, sizes = new HashMap<Integer, Font>( ) );
+		
+		Font font = sizes.get( size );
+		if( font == null )
+			sizes.put( size, font = new Font( base.getFamily( ), base.getStyle( ), size ) );
+		
+		return font;
+	}
+	
+	public static synchronized Stroke getStroke( double thickness )
+	{
+		if( strokes.size( ) >= maximumSize )
+			strokes.clear( );
+		
+		Float width = (float) thickness;
+		Stroke stroke = strokes.get( width );
+		if( stroke == null )
+			strokes.put( width, stroke = new BasicStroke( width ) );
+		
+		return stroke;
+	}
+}
@@ -14,41 +14,36 @@ import edu.belmont.mth.visigraph.utilities.*;
  */
 public class EdgeDisplayView
 {
-	public static void paintEdge( Graphics2D g2D, GraphSettings s, Edge e )
+	public static Color getColor( Edge e )
+	{
+		return e.isSelected.get( ) ? DisplayCache.blend( UserSettings.instance.getEdgeColor( e.color.get( ) ), UserSettings.instance.selectedEdge.get( ) ) : UserSettings.instance.getEdgeColor( e.color.get( ) );
+	}
+	
+	// Returns whether the edge has a handle, arrow head or labels large enough to be drawn over its line
+	public static boolean hasDecorations( GraphSettings s, Edge e, double scale )
+	{
+		return e.isDirected || isHandleVisible( s, e, scale ) || areLabelsVisible( s, e, scale );
+	}
+	
+	public static void paintDecorations( Graphics2D g2D, GraphSettings s, Edge e, double scale )
 	{
 		// Decide where we should draw the handle and/or arrow head
 		Point2D apparentHandleLocation = e.isLinear( ) ? GeometryUtilities.midpoint( e.from, e.to ) : e.getHandlePoint2D( );
 		double handleRadius = e.thickness.get( ) * UserSettings.instance.defaultEdgeHandleRadiusRatio.get( );
 		
-		Stroke oldStroke = g2D.getStroke( );
-		
-		// Set the edge-specific stroke
-		g2D.setStroke( new BasicStroke( e.thickness.get( ).floatValue( ) ) );
-		g2D.setColor( e.isSelected.get( ) ? ColorUtilities.blend( UserSettings.instance.getEdgeColor( e.color.get( ) ), UserSettings.instance.selectedEdge.get( ) ) : UserSettings.instance.getEdgeColor( e.color.get( ) ) );
-		
-		// Draw the edge
-		if( e.isLinear( ) )
-			g2D.draw( e.getLine( ) );
-		else
-			g2D.draw( e.getArc( ) );
-		
-		// Return the stroke to what it was before
-		g2D.setStroke( oldStroke );
-		
 		// Set the handle-specific color
 		if( e.color.get( ) == -1 )
-			g2D.setColor( e.isSelected.get( ) ? ColorUtilities.blend( UserSettings.instance.edgeHandle.get( ), UserSettings.instance.selectedEdgeHandle.get( ) ) : UserSettings.instance.edgeHandle.get( ) );
+			g2D.setColor( e.isSelected.get( ) ? DisplayCache.blend( UserSettings.instance.edgeHandle.get( ), UserSettings.instance.selectedEdgeHandle.get( ) ) : UserSettings.instance.edgeHandle.get( ) );
 		else
-			g2D.setColor( e.isSelected.get( ) ? ColorUtilities.blend( UserSettings.instance.getEdgeColor( e.color.get( ) ), UserSettings.instance.selectedEdgeHandle.get( ) ) : UserSettings.instance.getEdgeColor( e.color.get( ) ) );
+			g2D.setColor( e.isSelected.get( ) ? DisplayCache.blend( UserSettings.instance.getEdgeColor( e.color.get( ) ), UserSettings.instance.selectedEdgeHandle.get( ) ) : UserSettings.instance.getEdgeColor( e.color.get( ) ) );
 		
-		// Draw handle
-		if( s.showEdgeHandles.get( ) )
+		// Draw handle, unless it would be too small to see
+		if( isHandleVisible( s, e, scale ) )
 			g2D.fill( new Ellipse2D.Double( apparentHandleLocation.getX( ) - handleRadius, apparentHandleLocation.getY( ) - handleRadius, handleRadius * 2.0, handleRadius * 2.0 ) );
 		
 		// Draw arrow head for directed edges
 		if( e.isDirected )
 		{
-			Point2D.Double[] arrowPoint = new Point2D.Double[3];
 			double tangentAngle;
 			
 			if( e.isLinear( ) )
@@ -67,40 +62,58 @@ public class EdgeDisplayView
 				tangentAngle += Math.PI / 2;
 			}
 			
+			double arrowRadius = e.thickness.get( ) * UserSettings.instance.directedEdgeArrowRatio.get( );
+			Path2D.Double path = new Path2D.Double( Path2D.WIND_NON_ZERO, 4 );
 			for( int i = 0; i < 3; ++i )
 			{
 				double theta = tangentAngle + i * 2.0 * Math.PI / 3.0;
-				arrowPoint[i] = new Point2D.Double( e.thickness.get( ) * UserSettings.instance.directedEdgeArrowRatio.get( ) * Math.cos( theta ) + apparentHandleLocation.getX( ), e.thickness.get( ) * UserSettings.instance.directedEdgeArrowRatio.get( ) * Math.sin( theta ) + apparentHandleLocation.getY( ) );
+				double x = arrowRadius * Math.cos( theta ) + apparentHandleLocation.getX( );
+				double y = arrowRadius * Math.sin( theta ) + apparentHandleLocation.getY( );
+				
+				if( i == 0 )
+					path.moveTo( x, y );
+				else
+					path.lineTo( x, y );
 			}
-			
-			Path2D.Double path = new Path2D.Double( );
-			path.moveTo( arrowPoint[0].x, arrowPoint[0].y );
-			path.lineTo( arrowPoint[1].x, arrowPoint[1].y );
-			path.lineTo( arrowPoint[2].x, arrowPoint[2].y );
-			path.lineTo( arrowPoint[0].x, arrowPoint[0].y );
+			path.closePath( );
 			g2D.fill( path );
 		}
 		
-		// Set the label color to the edge's
-		g2D.setColor( e.isSelected.get( ) ? ColorUtilities.blend( UserSettings.instance.getEdgeColor( e.color.get( ) ), UserSettings.instance.selectedEdge.get( ) ) : UserSettings.instance.getEdgeColor( e.color.get( ) ) );
+		if( !areLabelsVisible( s, e, scale ) )
+			return;
+		
+		// Set the label color and font to the edge's
+		Font oldFont = g2D.getFont( );
+		g2D.setColor( getColor( e ) );
+		g2D.setFont( DisplayCache.getFont( oldFont, (int) Math.round( 11.0 * handleRadius / 1.5 ) ) );
 		
 		// Draw edge label
 		if( s.showEdgeLabels.get( ) )
-		{
-			Font oldFont = g2D.getFont( );
-			g2D.setFont( new Font( oldFont.getFamily( ), oldFont.getStyle( ), (int) Math.round( 11.0 * handleRadius / 1.5 ) ) );
 			g2D.drawString( e.label.get( ), (float) ( apparentHandleLocation.getX( ) + 2.0 * handleRadius ), (float) ( apparentHandleLocation.getY( ) + 2.0 * handleRadius ) );
-			g2D.setFont( oldFont );
-		}
 		
 		// Draw edge weight label
 		if( s.showEdgeWeights.get( ) )
-		{
-			Font oldFont = g2D.getFont( );
-			g2D.setFont( new Font( oldFont.getFamily( ), oldFont.getStyle( ), (int) Math.round( 11.0 * handleRadius / 1.5 ) ) );
-			g2D.drawString( String.format( "%." + UserSettings.instance.edgeWeightPrecision.get( ) + "f", e.weight.get( ) ), (float) ( apparentHandleLocation.getX( ) - 1.5 * handleRadius ), (float) ( apparentHandleLocation.getY( ) + 9.0 * handleRadius ) );
-			g2D.setFont( oldFont );
-		}
+			g2D.drawString( DisplayCache.formatWeight( e.weight.get( ), UserSettings.instance.edgeWeightPrecision.get( ) ), (float) ( apparentHandleLocation.getX( ) - 1.5 * handleRadius ), (float) ( apparentHandleLocation.getY( ) + 9.0 * handleRadius ) );
+		
+		g2D.setFont( oldFont );
+	}
+	
+	public static void paintLine( Graphics2D g2D, Edge e )
+	{
+		Stroke oldStroke = g2D.getStroke( );
+		
+		// Set the edge-specific stroke
+		g2D.setStroke( DisplayCache.getStroke( e.thickness.get( ) ) );
+		g2D.setColor( getColor( e ) );
+		
+		// Draw the edge
+		if( e.isLinear( ) )
+			g2D.draw( e.getLine( ) );
+		else
+			g2D.draw( e.getArc( ) );
+		
+		// Return the stroke to what it was before
+		g2D.setStroke( oldStroke );
 	}
 	
 	public static boolean wasClicked( Edge edge, Point point, double scale )
@@ -112,4 +125,15 @@ public class EdgeDisplayView
 	{
 		return selection.contains( edge.handleX.get( ), edge.handleY.get( ) );
 	}
+	
+	private static boolean areLabelsVisible( GraphSettings s, Edge e, double scale )
+	{
+		// Labels too small to read are not worth drawing
+		return ( s.showEdgeLabels.get( ) || s.showEdgeWeights.get( ) ) && 11.0 * e.thickness.get( ) * UserSettings.instance.defaultEdgeHandleRadiusRatio.get( ) / 1.5 * scale >= GraphDisplayView.minimumTextSize;
+	}
+	
+	private static boolean isHandleVisible( GraphSettings s, Edge e, double scale )
+	{
+		return s.showEdgeHandles.get( ) && e.thickness.get( ) * UserSettings.instance.defaultEdgeHandleRadiusRatio.get( ) * scale >= GraphDisplayView.minimumShapeSize;
+	}
 }
@@ -0,0 +1,281 @@
+/**
+ * GraphDisplayBuffer.java
+ */
+package edu.belmont.mth.visigraph.views.display;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.*;
+import java.util.*;
+import java.util.List;
+import edu.belmont.mth.visigraph.models.*;
+import edu.belmont.mth.visigraph.models.ObservableModel.Property;
+import edu.belmont.mth.visigraph.settings.*;
+
+/**
+ * @author Cameron Behar
+ */
+public class GraphDisplayBuffer
+{
+	private final Graph			graph;
+	private BufferedImage		edgeImage;
+	private BufferedImage		vertexImage;
+	private BufferedImage		captionImage;
+	private AffineTransform		imageTransform;
+	private boolean				isValid;
+	private final Set<Object>	movableElements;
+	private final List<Edge>	movableEdges;
+	private final List<Vertex>	movableVertices;
+	private final List<Caption>	movableCaptions;
+	private Rectangle2D			paintedBounds;
+	
+	public GraphDisplayBuffer( Graph graph )
+	{
+		this.graph = graph;
+		this.edgeImage = null;
+		this.vertexImage = null;
+		this.captionImage = null;
+		this.imageTransform = null;
+		this.isValid = false;
+		this.movableElements = Collections.newSetFromMap( new IdentityHashMap<Object, Boolean>( ) );
+		this.movableEdges = new ArrayList<Edge>( );
+		this.movableVertices = new ArrayList<Vertex>( );
+		this.movableCaptions = new ArrayList<Caption>( );
+		this.paintedBounds = null;
+	}
+	
+	// Returns the region, in graph coordinates, that the elements drawn over the buffer covered when last painted and now cover
+	public Rectangle2D getDamagedBounds( )
+	{
+		Rectangle2D bounds = GraphDisplayView.getBounds( this.movableEdges, this.movableVertices, this.movableCaptions );
+		
+		if( bounds == null )
+			return this.paintedBounds;
+		
+		if( this.paintedBounds != null )
+			bounds.add( this.paintedBounds );
+		
+		return bounds;
+	}
+	
+	public void invalidate( )
+	{
+		this.isValid = false;
+	}
+	
+	public boolean isValid( )
+	{
+		return this.isValid;
+	}
+	
+	public void onGraphChanged( Object arg )
+	{
+		// Only a change to something painted into the buffer, or to what belongs there, leaves it stale
+		if( arg instanceof Property<?> )
+		{
+			Property<?> property = (Property<?>) arg;
+			ObservableModel owner = property.getOwner( );
+			
+			if( owner == this.graph )
+				return;
+			
+			if( this.movableElements.contains( owner ) && !isSelectedProperty( owner, property ) )
+				return;
+		}
+		
+		this.isValid = false;
+	}
+	
+	public void paint( Graphics2D g2D, GraphSettings s, AffineTransform transform, int width, int height )
+	{
+		// Buffer at the device's own resolution, so that the buffer is drawn back pixel for pixel
+		AffineTransform original = g2D.getTransform( );
+		double deviceScaleX = original.getScaleX( ), deviceScaleY = original.getScaleY( );
+		int imageWidth = Math.max( (int) Math.ceil( width * deviceScaleX ), 1 );
+		int imageHeight = Math.max( (int) Math.ceil( height * deviceScaleY ), 1 );
+		
+		AffineTransform imageTransform = AffineTransform.getScaleInstance( deviceScaleX, deviceScaleY );
+		imageTransform.concatenate( transform );
+		
+		if( !this.isValid || this.edgeImage == null || this.edgeImage.getWidth( ) != imageWidth || this.edgeImage.getHeight( ) != imageHeight || !isPan( this.imageTransform, imageTransform, imageWidth, imageHeight ) )
+			this.render( g2D, s, imageTransform, imageWidth, imageHeight );
+		else
+		{
+			// A pan only shifts what is already drawn, to the nearest whole pixel, leaving just the strips it uncovers to be rendered
+			int dx = (int) Math.round( imageTransform.getTranslateX( ) - this.imageTransform.getTranslateX( ) );
+			int dy = (int) Math.round( imageTransform.getTranslateY( ) - this.imageTransform.getTranslateY( ) );
+			if( dx != 0 || dy != 0 )
+				this.scroll( g2D, s, dx, dy );
+		}
+		
+		// Draw whatever may be moving between the layers of everything that stays put, so edges stay under vertices and vertices under captions
+		drawImage( g2D, this.edgeImage, deviceScaleX, deviceScaleY );
+		paintMovable( g2D, s, transform, this.movableEdges, Collections.<Vertex> emptyList( ), Collections.<Caption> emptyList( ) );
+		drawImage( g2D, this.vertexImage, deviceScaleX, deviceScaleY );
+		paintMovable( g2D, s, transform, Collections.<Edge> emptyList( ), this.movableVertices, Collections.<Caption> emptyList( ) );
+		drawImage( g2D, this.captionImage, deviceScaleX, deviceScaleY );
+		paintMovable( g2D, s, transform, Collections.<Edge> emptyList( ), Collections.<Vertex> emptyList( ), this.movableCaptions );
+		
+		this.paintedBounds = GraphDisplayView.getBounds( this.movableEdges, this.movableVertices, this.movableCaptions );
+	}
+	
+	private static Graphics2D createGraphics( BufferedImage image, Graphics2D g2D, AffineTransform imageTransform, Rectangle region )
+	{
+		Graphics2D imageGraphics = image.createGraphics( );
+		imageGraphics.setRenderingHints( g2D.getRenderingHints( ) );
+		imageGraphics.setFont( g2D.getFont( ) );
+		imageGraphics.setClip( region );
+		imageGraphics.setTransform( imageTransform );
+		return imageGraphics;
+	}
+	
+	// Returns the specified layer cleared, or a new one if it is missing or the wrong size
+	private static BufferedImage createLayer( BufferedImage image, Graphics2D g2D, int width, int height )
+	{
+		if( image == null || image.getWidth( ) != width || image.getHeight( ) != height )
+			return g2D.getDeviceConfiguration( ).createCompatibleImage( width, height, Transparency.TRANSLUCENT );
+		
+		Graphics2D imageGraphics = image.createGraphics( );
+		imageGraphics.setComposite( AlphaComposite.Clear );
+		imageGraphics.fillRect( 0, 0, width, height );
+		imageGraphics.dispose( );
+		return image;
+	}
+	
+	private static void drawImage( Graphics2D g2D, BufferedImage image, double deviceScaleX, double deviceScaleY )
+	{
+		AffineTransform original = g2D.getTransform( );
+		g2D.scale( 1.0 / deviceScaleX, 1.0 / deviceScaleY );
+		g2D.drawImage( image, 0, 0, null );
+		g2D.setTransform( original );
+	}
+	
+	// Returns whether the new transform differs from the old only in where it places the graph, by less than the size of the buffer
+	private static boolean isPan( AffineTransform oldTransform, AffineTransform newTransform, int width, int height )
+	{
+		if( oldTransform.getScaleX( ) != newTransform.getScaleX( ) || oldTransform.getScaleY( ) != newTransform.getScaleY( ) || oldTransform.getShearX( ) != newTransform.getShearX( ) || oldTransform.getShearY( ) != newTransform.getShearY( ) )
+			return false;
+		
+		return Math.abs( newTransform.getTranslateX( ) - oldTransform.getTranslateX( ) ) < width && Math.abs( newTransform.getTranslateY( ) - oldTransform.getTranslateY( ) ) < height;
+	}
+	
+	private static boolean isSelectedProperty( ObservableModel owner, Property<?> property )
+	{
+		if( owner instanceof Vertex )
+			return property == ( (Vertex) owner ).isSelected;
+		else if( owner instanceof Edge )
+			return property == ( (Edge) owner ).isSelected;
+		else if( owner instanceof Caption )
+			return property == ( (Caption) owner ).isSelected;
+		else
+			return false;
+	}
+	
+	private static void paintMovable( Graphics2D g2D, GraphSettings s, AffineTransform transform, List<Edge> edges, List<Vertex> vertices, List<Caption> captions )
+	{
+		AffineTransform original = g2D.getTransform( );
+		g2D.transform( transform );
+		GraphDisplayView.paint( g2D, s, edges, vertices, captions );
+		g2D.setTransform( original );
+	}
+	
+	// Paints everything that stays put within the specified region of the buffer, which must already be clear
+	private void paintLayers( Graphics2D g2D, GraphSettings s, Rectangle region )
+	{
+		Graphics2D edgeGraphics = createGraphics( this.edgeImage, g2D, this.imageTransform, region );
+		Graphics2D vertexGraphics = createGraphics( this.vertexImage, g2D, this.imageTransform, region );
+		Graphics2D captionGraphics = createGraphics( this.captionImage, g2D, this.imageTransform, region );
+		
+		List<Edge> visibleEdges = GraphDisplayView.getVisibleEdges( edgeGraphics, this.graph );
+		List<Edge> edges = new ArrayList<Edge>( visibleEdges.size( ) );
+		for( Edge edge : visibleEdges )
+			if( !this.movableElements.contains( edge ) )
+				edges.add( edge );
+		
+		List<Vertex> visibleVertices = GraphDisplayView.getVisibleVertices( vertexGraphics, this.graph );
+		List<Vertex> vertices = new ArrayList<Vertex>( visibleVertices.size( ) );
+		for( Vertex vertex : visibleVertices )
+			if( !this.movableElements.contains( vertex ) )
+				vertices.add( vertex );
+		
+		List<Caption> captions = new ArrayList<Caption>( this.graph.captions.size( ) );
+		for( Caption caption : this.graph.captions )
+			if( !this.movableElements.contains( caption ) )
+				captions.add( caption );
+		
+		GraphDisplayView.paint( edgeGraphics, s, edges, Collections.<Vertex> emptyList( ), Collections.<Caption> emptyList( ) );
+		GraphDisplayView.paint( vertexGraphics, s, Collections.<Edge> emptyList( ), vertices, Collections.<Caption> emptyList( ) );
+		GraphDisplayView.paint( captionGraphics, s, Collections.<Edge> emptyList( ), Collections.<Vertex> emptyList( ), captions );
+		
+		edgeGraphics.dispose( );
+		vertexGraphics.dispose( );
+		captionGraphics.dispose( );
+	}
+	
+	private void render( Graphics2D g2D, GraphSettings s, AffineTransform imageTransform, int width, int height )
+	{
+		// Anything selected may be dragged without the buffer being repainted, as may any edge following a selected vertex
+		this.movableElements.clear( );
+		this.movableVertices.clear( );
+		this.movableEdges.clear( );
+		this.movableCaptions.clear( );
+		
+		for( Vertex vertex : this.graph.vertices )
+			if( vertex.isSelected.get( ) )
+			{
+				this.movableVertices.add( vertex );
+				this.movableElements.add( vertex );
+			}
+		
+		for( Edge edge : this.graph.edges )
+			if( edge.isSelected.get( ) || this.movableElements.contains( edge.from ) || this.movableElements.contains( edge.to ) )
+				this.movableEdges.add( edge );
+		this.movableElements.addAll( this.movableEdges );
+		
+		for( Caption caption : this.graph.captions )
+			if( caption.isSelected.get( ) )
+			{
+				this.movableCaptions.add( caption );
+				this.movableElements.add( caption );
+			}
+		
+		// Paint everything else into the buffer, one layer each for edges, vertices and captions
+		this.edgeImage = createLayer( this.edgeImage, g2D, width, height );
+		this.vertexImage = createLayer( this.vertexImage, g2D, width, height );
+		this.captionImage = createLayer( this.captionImage, g2D, width, height );
+		
+		this.imageTransform = imageTransform;
+		this.paintLayers( g2D, s, new Rectangle( 0, 0, width, height ) );
+		this.isValid = true;
+	}
+		
+	private void scroll( Graphics2D g2D, GraphSettings s, int dx, int dy )
+	{
+		int width = this.edgeImage.getWidth( ), height = this.edgeImage.getHeight( );
+		
+		AffineTransform imageTransform = AffineTransform.getTranslateInstance( dx, dy );
+		imageTransform.concatenate( this.imageTransform );
+		this.imageTransform = imageTransform;
+		
+		// The strip uncovered at the left or right spans the full height, and the one at the top or bottom spans the rest of the width
+		Rectangle columns = new Rectangle( ( dx > 0 ? 0 : width + dx ), 0, Math.abs( dx ), height );
+		Rectangle rows = new Rectangle( ( dx > 0 ? dx : 0 ), ( dy > 0 ? 0 : height + dy ), width - Math.abs( dx ), Math.abs( dy ) );
+		
+		for( BufferedImage image : new BufferedImage[ ] { this.edgeImage, this.vertexImage, this.captionImage } )
+		{
+			// The layers are translucent, so the shifted pixels must replace those beneath them rather than be blended over them
+			Graphics2D imageGraphics = image.createGraphics( );
+			imageGraphics.setComposite( AlphaComposite.Src );
+			imageGraphics.copyArea( 0, 0, width, height, dx, dy );
+			imageGraphics.setComposite( AlphaComposite.Clear );
+			imageGraphics.fill( columns );
+			imageGraphics.fill( rows );
+			imageGraphics.dispose( );
+		}
+		
+		if( !columns.isEmpty( ) )
+			this.paintLayers( g2D, s, columns );
+		if( !rows.isEmpty( ) )
+			this.paintLayers( g2D, s, rows );
+	}
+}
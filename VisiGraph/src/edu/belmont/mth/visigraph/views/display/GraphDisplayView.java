@@ -5,6 +5,9 @@ package edu.belmont.mth.visigraph.views.display;
 
 import java.awt.*;
 import java.awt.geom.*;
+import java.util.*;
+import java.util.List;
+import java.util.Map.*;
 import edu.belmont.mth.visigraph.models.*;
 import edu.belmont.mth.visigraph.settings.*;
 
@@ -13,6 +16,13 @@ import edu.belmont.mth.visigraph.settings.*;
  */
 public class GraphDisplayView
 {
+	// The on-screen sizes in pixels below which text is left undrawn, and below which handles are left undrawn and vertices drawn as points
+	public static final double	minimumTextSize		= 4.0;
+	public static final double	minimumShapeSize	= 1.0;
+	
+	// How far in pixels an element's labels may reach beyond it, so that elements just outside the clip still have them drawn
+	private static final double	labelMargin			= 200.0;
+	
 	public static Rectangle2D getBounds( Graph graph )
 	{
 		if( graph.vertices.size( ) <= 0 )
@@ -50,19 +60,232 @@ public class GraphDisplayView
 		return new Rectangle2D.Double( minX, minY, maxX - minX, maxY - minY );
 	}
 	
+	public static Rectangle2D getBounds( List<Edge> edges, List<Vertex> vertices, List<Caption> captions )
+	{
+		// Text is taken to be no wider than its font is tall for each of its characters
+		Rectangle2D bounds = null;
+		
+		for( Edge edge : edges )
+		{
+			double handleRadius = edge.thickness.get( ) * UserSettings.instance.defaultEdgeHandleRadiusRatio.get( );
+			double margin = Math.max( 12.0 * handleRadius, edge.thickness.get( ) * UserSettings.instance.directedEdgeArrowRatio.get( ) );
+			double textWidth = Math.max( edge.label.get( ).length( ), DisplayCache.formatWeight( edge.weight.get( ), UserSettings.instance.edgeWeightPrecision.get( ) ).length( ) ) * ( 11.0 * handleRadius / 1.5 + 1.0 );
+			
+			Rectangle2D line = edge.isLinear( ) ? new Rectangle2D.Double( Math.min( edge.from.x.get( ), edge.to.x.get( ) ), Math.min( edge.from.y.get( ), edge.to.y.get( ) ), Math.abs( edge.to.x.get( ) - edge.from.x.get( ) ), Math.abs( edge.to.y.get( ) - edge.from.y.get( ) ) ) : edge.getArc( ).getBounds2D( );
+			bounds = union( bounds, line.getX( ) - margin, line.getY( ) - margin, line.getWidth( ) + 2.0 * margin + textWidth, line.getHeight( ) + 2.0 * margin );
+		}
+		
+		for( Vertex vertex : vertices )
+		{
+			double radius = vertex.radius.get( );
+			double textWidth = Math.max( vertex.label.get( ).length( ), DisplayCache.formatWeight( vertex.weight.get( ), UserSettings.instance.vertexWeightPrecision.get( ) ).length( ) ) * ( 11.0 * radius / 5.0 + 1.0 );
+			
+			bounds = union( bounds, vertex.x.get( ) - 3.0 * radius, vertex.y.get( ) - 3.0 * radius, 6.0 * radius + textWidth, 6.0 * radius );
+		}
+		
+		for( Caption caption : captions )
+		{
+			String[ ] lines = caption.text.get( ).split( "\\n" );
+			int longestLine = 0;
+			for( String line : lines )
+				longestLine = Math.max( longestLine, line.length( ) );
+			
+			bounds = union( bounds, caption.x.get( ) - 25.0, caption.y.get( ) - 10.0 - caption.size.get( ), 25.0 + longestLine * ( caption.size.get( ) + 1.0 ), Math.max( 44.0, ( lines.length + 1 ) * caption.size.get( ) ) );
+		}
+		
+		return bounds;
+	}
+	
+	// Returns the edges near enough to the clip to be drawn, as found by the spatial index
+	public static List<Edge> getVisibleEdges( Graphics2D g2D, Graph graph )
+	{
+		Rectangle clip = g2D.getClipBounds( );
+		if( clip == null )
+			return graph.edges;
+		
+		SpatialIndex spatialIndex = graph.getSpatialIndex( );
+		return spatialIndex.getEdgesOverlapping( grow( clip, spatialIndex.getMaximumEdgeThickness( ) * Math.max( UserSettings.instance.defaultEdgeHandleRadiusRatio.get( ), UserSettings.instance.directedEdgeArrowRatio.get( ) ) + labelMargin / getScale( g2D ) ) );
+	}
+	
+	// Returns the vertices near enough to the clip to be drawn, as found by the spatial index
+	public static List<Vertex> getVisibleVertices( Graphics2D g2D, Graph graph )
+	{
+		Rectangle clip = g2D.getClipBounds( );
+		if( clip == null )
+			return graph.vertices;
+		
+		return graph.getSpatialIndex( ).getVertices( grow( clip, graph.getSpatialIndex( ).getMaximumVertexRadius( ) + labelMargin / getScale( g2D ) ) );
+	}
+	
 	public static void paint( Graphics2D g2D, Graph graph, GraphSettings s )
 	{
-		// Draw all the edges first
-		for( Edge edge : graph.edges )
-			EdgeDisplayView.paintEdge( g2D, s, edge );
+		paint( g2D, graph, s, Collections.emptySet( ) );
+	}
+	
+	public static void paint( Graphics2D g2D, Graph graph, GraphSettings s, Set<?> excluded )
+	{
+		// Only the edges and vertices the spatial index finds near the clip need be considered
+		List<Edge> edges = getVisibleEdges( g2D, graph );
+		List<Vertex> vertices = getVisibleVertices( g2D, graph );
 		
-		// Then draw all the vertices
-		for( Vertex vertex : graph.vertices )
-			VertexDisplayView.paint( g2D, s, vertex );
+		if( excluded.isEmpty( ) )
+			paint( g2D, s, edges, vertices, graph.captions );
+		else
+		{
+			List<Edge> includedEdges = new ArrayList<Edge>( edges.size( ) );
+			for( Edge edge : edges )
+				if( !excluded.contains( edge ) )
+					includedEdges.add( edge );
+			
+			List<Vertex> includedVertices = new ArrayList<Vertex>( vertices.size( ) );
+			for( Vertex vertex : vertices )
+				if( !excluded.contains( vertex ) )
+					includedVertices.add( vertex );
+			
+			List<Caption> includedCaptions = new ArrayList<Caption>( graph.captions.size( ) );
+			for( Caption caption : graph.captions )
+				if( !excluded.contains( caption ) )
+					includedCaptions.add( caption );
+			
+			paint( g2D, s, includedEdges, includedVertices, includedCaptions );
+		}
+	}
+	
+	public static void paint( Graphics2D g2D, GraphSettings s, List<Edge> edges, List<Vertex> vertices, List<Caption> captions )
+	{
+		// Only what lies within the clip needs drawing, and only in as much detail as its size on screen allows
+		Rectangle clip = g2D.getClipBounds( );
+		double scale = getScale( g2D );
+		double textMargin = labelMargin / scale;
+		
+		double maximumThickness = 0.0;
+		for( Edge edge : edges )
+			maximumThickness = Math.max( maximumThickness, edge.thickness.get( ) );
+		
+		double maximumRadius = 0.0;
+		for( Vertex vertex : vertices )
+			maximumRadius = Math.max( maximumRadius, vertex.radius.get( ) );
+		
+		// Draw all the edges first, in order, stroking each run of consecutive undecorated straight edges of one color and thickness as a single path
+		Rectangle2D edgeClip = grow( clip, maximumThickness * Math.max( UserSettings.instance.defaultEdgeHandleRadiusRatio.get( ), UserSettings.instance.directedEdgeArrowRatio.get( ) ) + textMargin );
+		Path2D.Double run = new Path2D.Double( );
+		Color runColor = null;
+		double runThickness = 0.0;
+		
+		for( Edge edge : edges )
+			if( isVisible( edge, edgeClip ) )
+			{
+				boolean isDecorated = EdgeDisplayView.hasDecorations( s, edge, scale );
+		
+				if( edge.isLinear( ) && !isDecorated )
+				{
+					Color color = EdgeDisplayView.getColor( edge );
+					if( !color.equals( runColor ) || edge.thickness.get( ) != runThickness )
+					{
+						paintRun( g2D, run, runColor, runThickness );
+						runColor = color;
+						runThickness = edge.thickness.get( );
+					}
+					
+					run.moveTo( edge.from.x.get( ), edge.from.y.get( ) );
+					run.lineTo( edge.to.x.get( ), edge.to.y.get( ) );
+				}
+				else
+				{
+					paintRun( g2D, run, runColor, runThickness );
+					runColor = null;
+					
+					EdgeDisplayView.paintLine( g2D, edge );
+					if( isDecorated )
+						EdgeDisplayView.paintDecorations( g2D, s, edge, scale );
+				}
+			}
+		
+		paintRun( g2D, run, runColor, runThickness );
+		
+		// Then draw all the vertices, those too small to make out as mere points of their color
+		Rectangle2D vertexClip = grow( clip, maximumRadius + textMargin );
+		Map<Color, Path2D.Double> points = new LinkedHashMap<Color, Path2D.Double>( );
+		List<Vertex> visibleVertices = new ArrayList<Vertex>( );
+		double pointSize = 1.0 / scale;
+		
+		for( Vertex vertex : vertices )
+			if( vertexClip == null || vertexClip.contains( vertex.x.get( ), vertex.y.get( ) ) )
+			{
+				if( vertex.radius.get( ) * scale >= minimumShapeSize )
+					visibleVertices.add( vertex );
+				else
+				{
+					Color color = VertexDisplayView.getFillColor( vertex );
+					Path2D.Double path = points.get( color );
+					if( path == null )
+						points.put( color, path = new Path2D.Double( ) );
+				
+					path.append( new Rectangle2D.Double( vertex.x.get( ) - pointSize / 2.0, vertex.y.get( ) - pointSize / 2.0, pointSize, pointSize ), false );
+				}
+			}
+		
+		for( Entry<Color, Path2D.Double> colorPath : points.entrySet( ) )
+		{
+			g2D.setColor( colorPath.getKey( ) );
+			g2D.fill( colorPath.getValue( ) );
+		}
+		
+		for( Vertex vertex : visibleVertices )
+			VertexDisplayView.paint( g2D, s, vertex, scale );
 		
 		// Then draw all the captions
 		if( s.showCaptions.get( ) )
-			for( Caption caption : graph.captions )
+			for( Caption caption : captions )
 				CaptionDisplayView.paint( g2D, s, caption );
 	}
+	
+	private static double getScale( Graphics2D g2D )
+	{
+		return Math.sqrt( Math.abs( g2D.getTransform( ).getDeterminant( ) ) );
+	}
+	
+	// Strokes and empties the run of straight edges collected so far, if there is one
+	private static void paintRun( Graphics2D g2D, Path2D.Double run, Color color, double thickness )
+	{
+		if( color == null )
+			return;
+		
+		Stroke oldStroke = g2D.getStroke( );
+		g2D.setColor( color );
+		g2D.setStroke( DisplayCache.getStroke( thickness ) );
+		g2D.draw( run );
+		g2D.setStroke( oldStroke );
+		
+		run.reset( );
+	}
+	
+	private static Rectangle2D union( Rectangle2D bounds, double x, double y, double width, double height )
+	{
+		if( bounds == null )
+			return new Rectangle2D.Double( x, y, width, height );
+		
+		bounds.add( x, y );
+		bounds.add( x + width, y + height );
+		return bounds;
+	}
+	
+	private static Rectangle2D grow( Rectangle clip, double margin )
+	{
+		if( clip == null )
+			return null;
+		
+		return new Rectangle2D.Double( clip.x - margin, clip.y - margin, clip.width + 2.0 * margin, clip.height + 2.0 * margin );
+	}
+	
+	private static boolean isVisible( Edge edge, Rectangle2D clip )
+	{
+		if( clip == null )
+			return true;
+		
+		if( edge.isLinear( ) )
+			return clip.intersectsLine( edge.from.x.get( ), edge.from.y.get( ), edge.to.x.get( ), edge.to.y.get( ) );
+		
+		return clip.intersects( edge.getArc( ).getBounds2D( ) );
+	}
 }
@@ -7,42 +7,47 @@ import java.awt.*;
 import java.awt.geom.*;
 import edu.belmont.mth.visigraph.models.*;
 import edu.belmont.mth.visigraph.settings.*;
-import edu.belmont.mth.visigraph.utilities.*;
 
 /**
  * @author Cameron Behar
  */
 public class VertexDisplayView
 {
-	public static void paint( Graphics2D g2D, GraphSettings s, Vertex v )
+	public static Color getFillColor( Vertex v )
+	{
+		return v.isSelected.get( ) ? DisplayCache.blend( UserSettings.instance.getVertexColor( v.color.get( ) ), UserSettings.instance.selectedVertexFill.get( ) ) : UserSettings.instance.getVertexColor( v.color.get( ) );
+	}
+	
+	public static void paint( Graphics2D g2D, GraphSettings s, Vertex v, double scale )
 	{
 		// Draw vertex center
-		Ellipse2D.Double center = new Ellipse2D.Double( v.x.get( ) - v.radius.get( ), v.y.get( ) - v.radius.get( ), v.radius.get( ) * 2, v.radius.get( ) * 2 );
-		g2D.setColor( v.isSelected.get( ) ? ColorUtilities.blend( UserSettings.instance.getVertexColor( v.color.get( ) ), UserSettings.instance.selectedVertexFill.get( ) ) : UserSettings.instance.getVertexColor( v.color.get( ) ) );
-		g2D.fill( center );
+		Ellipse2D.Double circle = new Ellipse2D.Double( v.x.get( ) - v.radius.get( ), v.y.get( ) - v.radius.get( ), v.radius.get( ) * 2, v.radius.get( ) * 2 );
+		g2D.setColor( getFillColor( v ) );
+		g2D.fill( circle );
 		
 		// Draw vertex outline
-		Ellipse2D.Double outline = new Ellipse2D.Double( v.x.get( ) - v.radius.get( ), v.y.get( ) - v.radius.get( ), v.radius.get( ) * 2, v.radius.get( ) * 2 );
-		g2D.setColor( v.isSelected.get( ) ? ColorUtilities.blend( UserSettings.instance.vertexLine.get( ), UserSettings.instance.selectedVertexLine.get( ) ) : UserSettings.instance.vertexLine.get( ) );
-		g2D.draw( outline );
+		g2D.setColor( v.isSelected.get( ) ? DisplayCache.blend( UserSettings.instance.vertexLine.get( ), UserSettings.instance.selectedVertexLine.get( ) ) : UserSettings.instance.vertexLine.get( ) );
+		g2D.draw( circle );
+		
+		// Labels too small to read are not worth drawing
+		if( 11.0 * v.radius.get( ) / 5.0 * scale < GraphDisplayView.minimumTextSize )
+			return;
+		
+		if( !s.showVertexLabels.get( ) && !s.showVertexWeights.get( ) )
+			return;
+		
+		Font oldFont = g2D.getFont( );
+		g2D.setFont( DisplayCache.getFont( oldFont, (int) Math.round( 11.0 * v.radius.get( ) / 5.0 ) ) );
 		
 		// Draw label
 		if( s.showVertexLabels.get( ) )
-		{
-			Font oldFont = g2D.getFont( );
-			g2D.setFont( new Font( oldFont.getFamily( ), oldFont.getStyle( ), (int) Math.round( 11.0 * v.radius.get( ) / 5.0 ) ) );
 			g2D.drawString( v.label.get( ), (float) ( v.x.get( ) + 1.4 * v.radius.get( ) ), (float) ( v.y.get( ) + 2.0 * v.radius.get( ) ) );
-			g2D.setFont( oldFont );
-		}
 		
 		// Draw weight
 		if( s.showVertexWeights.get( ) )
-		{
-			Font oldFont = g2D.getFont( );
-			g2D.setFont( new Font( oldFont.getFamily( ), oldFont.getStyle( ), (int) Math.round( 11.0 * v.radius.get( ) / 5.0 ) ) );
-			g2D.drawString( String.format( "%." + UserSettings.instance.vertexWeightPrecision.get( ) + "f", v.weight.get( ) ), (float) ( v.x.get( ) + 1.4 * v.radius.get( ) ), v.y.get( ).floatValue( ) );
-			g2D.setFont( oldFont );
-		}
+			g2D.drawString( DisplayCache.formatWeight( v.weight.get( ), UserSettings.instance.vertexWeightPrecision.get( ) ), (float) ( v.x.get( ) + 1.4 * v.radius.get( ) ), v.y.get( ).floatValue( ) );
+		
+		g2D.setFont( oldFont );
 	}
 	
 	public static boolean wasClicked( Vertex vertex, Point point, double scale )